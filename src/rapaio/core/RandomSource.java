@@ -29,12 +29,18 @@ package rapaio.core;
 
 import java.io.Serializable;
 import java.util.Random;
+import java.util.function.Supplier;
 
 /**
  * Random number producer used by rapaio facilities. Currently the implementation is a wrapper
  * over standard Java {@link Random}.
  * <p>
  * In order to have a reproducible analysis you can use same seed in code ({@link #setSeed(long)}).
+ * <p>
+ * Parallel tasks should not share the global generator. A task can bind its own
+ * {@link RandomStream} to the current thread with {@link #withStream(RandomStream, Supplier)},
+ * in which case all the random numbers produced through this class in the task
+ * are taken from that stream.
  *
  * @author Aurelian Tutuianu
  */
@@ -43,6 +49,7 @@ public final class RandomSource implements Serializable {
     private static final long serialVersionUID = -1201316989986445607L;
 
     private static final Random rand = new Random();
+    private static final ThreadLocal<RandomStream> bound = new ThreadLocal<>();
 
     private RandomSource() {
     }
@@ -53,7 +60,7 @@ public final class RandomSource implements Serializable {
      * @param seed seed
      */
     public static void setSeed(long seed) {
-        rand.setSeed(seed);
+        getRandom().setSeed(seed);
     }
 
     /**
@@ -62,15 +69,56 @@ public final class RandomSource implements Serializable {
      * {@code 1.0} from this random number generator's sequence.
      */
     public static double nextDouble() {
-        return rand.nextDouble();
+        return getRandom().nextDouble();
     }
 
     public static int nextInt(int n) {
-        return rand.nextInt(n);
+        return getRandom().nextInt(n);
+    }
+
+    public static long nextLong() {
+        return getRandom().nextLong();
     }
 
+    /**
+     * @return the random stream bound to the current thread, or the global generator if there is none
+     */
     public static Random getRandom() {
-        return rand;
+        Random stream = bound.get();
+        return stream != null ? stream : rand;
+    }
+
+    /**
+     * Builds a new random stream seeded from the current generator. Parallel tasks
+     * should derive their own streams from it with {@link RandomStream#split(long)}.
+     *
+     * @return new random stream
+     */
+    public static RandomStream newStream() {
+        return RandomStream.of(nextLong());
+    }
+
+    /**
+     * Runs a task with the given random stream bound to the current thread.
+     * The previous binding, if any, is restored when the task completes.
+     *
+     * @param stream random stream used by the task
+     * @param task   task to run
+     * @param <T>    type of the task result
+     * @return task result
+     */
+    public static <T> T withStream(RandomStream stream, Supplier<T> task) {
+        RandomStream previous = bound.get();
+        bound.set(stream);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                bound.remove();
+            } else {
+                bound.set(previous);
+            }
+        }
     }
 }
 
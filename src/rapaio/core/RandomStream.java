@@ -0,0 +1,139 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Random number stream which is owned by a single task.
+ * <p>
+ * The implementation is backed by a {@link SplittableRandom} and exposed as a
+ * {@link Random} in order to be usable from the existing code which consumes
+ * random numbers through {@link RandomSource}. A stream is not thread safe and
+ * it is not meant to be shared between tasks. Instead, each task receives its
+ * own stream derived with {@link #split(long)}.
+ * <p>
+ * Derived streams depend only on the seed of the parent stream and the task id,
+ * not on the order in which tasks are executed. This makes parallel computations
+ * reproducible regardless of the number of threads used.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class RandomStream extends Random {
+
+    private static final long serialVersionUID = 4529738374101926528L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Builds a new random stream from the given seed.
+     *
+     * @param seed seed of the stream
+     * @return new random stream
+     */
+    public static RandomStream of(long seed) {
+        return new RandomStream(seed);
+    }
+
+    private long seed;
+    private transient SplittableRandom source;
+
+    private RandomStream(long seed) {
+        super(seed);
+    }
+
+    /**
+     * @return seed used to build this stream
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Derives a new stream for the given task id. The derived stream depends only
+     * on the seed of this stream and on the task id, and does not consume values
+     * from this stream.
+     *
+     * @param taskId task identifier
+     * @return random stream of the task
+     */
+    public RandomStream split(long taskId) {
+        return new RandomStream(mix64(mix64(seed) + GOLDEN_GAMMA * (taskId + 1)));
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        // called also from Random constructor
+        this.seed = seed;
+        this.source = new SplittableRandom(seed);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (source.nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt() {
+        return source.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return source.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return source.nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+        return source.nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return source.nextBoolean();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        source = new SplittableRandom(seed);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
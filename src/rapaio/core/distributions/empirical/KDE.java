@@ -30,6 +30,7 @@ package rapaio.core.distributions.empirical;
 import rapaio.core.stat.Variance;
 import rapaio.data.Var;
 import rapaio.data.filter.VSort;
+import rapaio.math.fourier.FFT;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -38,11 +39,38 @@ import java.util.Arrays;
  * Kernel density estimator.
  * Given a sample of values, based on a given kernel and bandwidth it creates
  * an estimation of a density function.
+ * <p>
+ * The estimator works in two modes. The exact mode sums the kernel contributions of all sample
+ * values in the kernel window of each query point. The binned mode distributes the sample values
+ * on an equally spaced grid with linear binning and convolves the grid counts with the kernel
+ * through fast Fourier transform, in O(g log g) time for a grid of size g. The density values
+ * for query points are then interpolated linearly from the grid in constant time.
  *
  * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
  */
 public class KDE implements Serializable {
 
+    /**
+     * Minimum sample size for which {@link #auto(Var, KFunc, double)} uses binned mode.
+     */
+    public static final int BINNED_MIN_SIZE = 2_000;
+
+    /**
+     * Default grid size for binned mode, used by {@link #auto(Var, KFunc, double)} as minimum grid size.
+     */
+    public static final int DEFAULT_GRID_SIZE = 4_096;
+
+    /**
+     * Maximum grid size used by {@link #auto(Var, KFunc, double)}. If a larger grid is needed
+     * to keep the grid step small enough compared with bandwidth, the exact mode is used.
+     */
+    public static final int MAX_GRID_SIZE = 1 << 17;
+
+    /**
+     * Minimum number of grid steps which fits into a bandwidth for the grids built by {@link #auto(Var, KFunc, double)}.
+     */
+    public static final int GRID_STEPS_PER_BANDWIDTH = 8;
+
     /**
      * Builds a Gaussian kernel density estimator with bandwidth found by Silverman technique.
      *
@@ -50,7 +78,7 @@ public class KDE implements Serializable {
      * @return kernel density estimator instance
      */
     public static KDE of(Var values) {
-        return new KDE(values, new KFuncGaussian(), silvermanBandwidth(values));
+        return new KDE(values, new KFuncGaussian(), silvermanBandwidth(values), 0);
     }
 
     /**
@@ -61,7 +89,7 @@ public class KDE implements Serializable {
      * @return kernel density estimator instance
      */
     public static KDE of(Var values, double bandwidth) {
-        return new KDE(values, new KFuncGaussian(), bandwidth);
+        return new KDE(values, new KFuncGaussian(), bandwidth, 0);
     }
 
     /**
@@ -72,7 +100,7 @@ public class KDE implements Serializable {
      * @return kernel density estimator instance
      */
     public static KDE of(Var values, KFunc kernel) {
-        return new KDE(values, kernel, silvermanBandwidth(values));
+        return new KDE(values, kernel, silvermanBandwidth(values), 0);
     }
 
     /**
@@ -84,7 +112,61 @@ public class KDE implements Serializable {
      * @return kernel density estimator instance
      */
     public static KDE of(Var values, KFunc kernel, double bandwidth) {
-        return new KDE(values, kernel, bandwidth);
+        return new KDE(values, kernel, bandwidth, 0);
+    }
+
+    /**
+     * Builds a kernel density estimator with given bandwidth, evaluated on a grid
+     * if the grid size is positive.
+     *
+     * @param values    sample values
+     * @param kernel    kernel function
+     * @param bandwidth desired bandwidth
+     * @param gridSize  number of grid points for binned mode, 0 for exact mode
+     * @return kernel density estimator instance
+     */
+    public static KDE of(Var values, KFunc kernel, double bandwidth, int gridSize) {
+        return new KDE(values, kernel, bandwidth, gridSize);
+    }
+
+    /**
+     * Builds a kernel density estimator with given bandwidth which uses exact mode for samples
+     * smaller than {@link #BINNED_MIN_SIZE} and binned mode for larger samples.
+     * <p>
+     * The grid size is chosen from the range of the sample values, such that the grid step
+     * is at most {@code bandwidth / GRID_STEPS_PER_BANDWIDTH}, with at least {@link #DEFAULT_GRID_SIZE}
+     * points. If the grid would need more than {@link #MAX_GRID_SIZE} points, for example when
+     * the sample contains outliers far away from the bulk of the values, the exact mode is used.
+     *
+     * @param values    sample values
+     * @param kernel    kernel function
+     * @param bandwidth desired bandwidth
+     * @return kernel density estimator instance
+     */
+    public static KDE auto(Var values, KFunc kernel, double bandwidth) {
+        if (values.rowCount() < BINNED_MIN_SIZE) {
+            return new KDE(values, kernel, bandwidth, 0);
+        }
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (int i = 0; i < values.rowCount(); i++) {
+            if (values.isMissing(i)) {
+                continue;
+            }
+            double value = values.getDouble(i);
+            if (!(value >= min)) {
+                min = value;
+            }
+            if (!(value <= max)) {
+                max = value;
+            }
+        }
+        double range = kernel.maxValue(max, bandwidth) - kernel.minValue(min, bandwidth);
+        double steps = Math.ceil(range * GRID_STEPS_PER_BANDWIDTH / bandwidth);
+        if (!(steps < MAX_GRID_SIZE)) {
+            return new KDE(values, kernel, bandwidth, 0);
+        }
+        return new KDE(values, kernel, bandwidth, Math.max(DEFAULT_GRID_SIZE, (int) steps + 1));
     }
 
     private static final long serialVersionUID = -9221394390068126299L;
@@ -92,13 +174,101 @@ public class KDE implements Serializable {
     private final KFunc kernel;
     private final double bandwidth;
 
-    private KDE(Var values, KFunc kernel, double bandwidth) {
+    // grid for binned mode
+    private double gridMin;
+    private double gridStep;
+    private double[] grid;
+
+    private KDE(Var values, KFunc kernel, double bandwidth, int gridSize) {
         this.values = VSort.asc().fapply(values).stream().filter(s -> !s.isMissing()).mapToDouble().toArray();
         this.kernel = kernel;
         this.bandwidth = bandwidth;
+        if (gridSize < 0 || gridSize == 1) {
+            throw new IllegalArgumentException("Grid size must be 0 for exact mode or greater than 1 for binned mode.");
+        }
+        if (gridSize > 0 && this.values.length > 0) {
+            buildGrid(gridSize);
+        }
     }
 
+    /**
+     * Computes density values on the grid. Sample values are distributed with linear binning
+     * to the two neighbour grid points, with weights proportional to the proximity, and the
+     * grid counts are convolved with the kernel evaluated at multiples of the grid step.
+     */
+    private void buildGrid(int gridSize) {
+        gridMin = kernel.minValue(values[0], bandwidth);
+        double gridMax = kernel.maxValue(values[values.length - 1], bandwidth);
+        gridStep = (gridMax - gridMin) / (gridSize - 1);
+
+        // number of grid steps covered by kernel to the left and to the right
+        int left = (int) Math.min(gridSize - 1, Math.ceil(-kernel.minValue(0, bandwidth) / gridStep));
+        int right = (int) Math.min(gridSize - 1, Math.ceil(kernel.maxValue(0, bandwidth) / gridStep));
+
+        // the length of the circular convolution avoids wrap around of the kernel tails
+        int len = Integer.highestOneBit(gridSize + Math.max(left, right) - 1) << 1;
+
+        double[] re = new double[len];
+        double[] im = new double[len];
+        for (double value : values) {
+            double pos = (value - gridMin) / gridStep;
+            int i = Math.min((int) pos, gridSize - 2);
+            double frac = pos - i;
+            re[i] += 1 - frac;
+            re[i + 1] += frac;
+        }
+
+        double[] kre = new double[len];
+        double[] kim = new double[len];
+        for (int k = 0; k <= right; k++) {
+            kre[k] = kernel.pdf(k * gridStep, 0, bandwidth);
+        }
+        for (int k = 1; k <= left; k++) {
+            kre[len - k] = kernel.pdf(-k * gridStep, 0, bandwidth);
+        }
+
+        FFT.fft(re, im);
+        FFT.fft(kre, kim);
+        for (int i = 0; i < len; i++) {
+            double r = re[i] * kre[i] - im[i] * kim[i];
+            im[i] = re[i] * kim[i] + im[i] * kre[i];
+            re[i] = r;
+        }
+        FFT.ifft(re, im);
+
+        grid = new double[gridSize];
+        double norm = values.length * bandwidth;
+        for (int i = 0; i < gridSize; i++) {
+            // values below zero are round off errors of the transform
+            grid[i] = Math.max(0, re[i]) / norm;
+        }
+    }
+
+    /**
+     * @return true if the estimator is evaluated on a grid, false if it is exact
+     */
+    public boolean isBinned() {
+        return grid != null;
+    }
+
+    /**
+     * Computes the density estimate for a point. In binned mode the value is interpolated
+     * from the grid, otherwise it is computed exactly.
+     *
+     * @param x query point
+     * @return density estimate
+     */
     public double pdf(double x) {
+        if (grid != null) {
+            double pos = (x - gridMin) / gridStep;
+            if (!(pos >= 0) || pos > grid.length - 1) {
+                return 0;
+            }
+            int i = Math.min((int) pos, grid.length - 2);
+            double frac = pos - i;
+            return grid[i] * (1 - frac) + grid[i + 1] * frac;
+        }
+
         // to optimize the computation, we find all sample values which have positive weights
         int from = Arrays.binarySearch(values, kernel.minValue(x, bandwidth));
         if (from < 0) from = -from - 1;
@@ -114,6 +284,20 @@ public class KDE implements Serializable {
         return sum / (values.length * bandwidth);
     }
 
+    /**
+     * Computes density estimates for multiple points.
+     *
+     * @param xs query points
+     * @return array of density estimates
+     */
+    public double[] pdf(double[] xs) {
+        double[] pdf = new double[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            pdf[i] = pdf(xs[i]);
+        }
+        return pdf;
+    }
+
     public KFunc kernel() {
         return kernel;
     }
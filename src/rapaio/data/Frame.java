@@ -555,6 +555,19 @@ public interface Frame extends Serializable, Printable {
         return this.fapply(FRefSort.by(comparators));
     }
 
+    /**
+     * Joins this data frame with another frame on the given key variables,
+     * which must be present in both frames.
+     *
+     * @param df   right data frame
+     * @param type join type
+     * @param keys key variable names
+     * @return joined frame
+     */
+    default Frame join(Frame df, Join.Type type, String... keys) {
+        return Join.from(this, df, VRange.of(keys), VRange.of(keys), type);
+    }
+
     String head();
 
     String head(int lines);
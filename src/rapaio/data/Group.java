@@ -27,7 +27,10 @@
 
 package rapaio.data;
 
+import rapaio.data.group.GroupAccumulator;
 import rapaio.data.group.GroupFun;
+import rapaio.data.group.KeyEncoder;
+import rapaio.data.group.function.DefaultSingleGroupFun;
 import rapaio.data.group.function.GroupFunCount;
 import rapaio.data.group.function.GroupFunKurtosis;
 import rapaio.data.group.function.GroupFunMax;
@@ -41,7 +44,9 @@ import rapaio.printer.Printable;
 import rapaio.printer.Printer;
 import rapaio.printer.TextTable;
 import rapaio.printer.opt.POption;
-import rapaio.util.collection.Int2IntOpenHashMap;
+import rapaio.util.collection.IntArrayList;
+import rapaio.util.collection.IntArrays;
+import rapaio.util.collection.Long2IntOpenHashMap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -49,6 +54,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -151,6 +161,18 @@ public class Group implements Printable {
         return new Aggregate(this, Arrays.asList(functions));
     }
 
+    /**
+     * Computes aggregations using multiple threads. Groups are split into partitions
+     * with similar row counts and each partition is aggregated by a single thread.
+     *
+     * @param threads   number of threads, a negative value means all available processors
+     * @param functions group by functions
+     * @return aggregate data structure
+     */
+    public Aggregate aggregate(int threads, GroupFun... functions) {
+        return new Aggregate(this, Arrays.asList(functions), threads);
+    }
+
 
     /**
      * IMPLEMENTATION
@@ -165,21 +187,29 @@ public class Group implements Printable {
     // other than pk var names from source frame
     private final List<String> featureNamesList;
 
+    // key codes for each key variable and row, codes follows the order of sorted unique values
+    private final int[][] keyCodes;
+
     // maps rows to group ids
-    private final Int2IntOpenHashMap rowToGroupId = new Int2IntOpenHashMap();
+    private final int[] rowGroupIds;
 
-    // map group ids to indexes from the last level of the tree
-    private final HashMap<Integer, IndexNode> groupIdToLastLevelIndex = new HashMap<>();
+    // first row of each group
+    private final int[] groupFirstRows;
+
+    // rows of group g are stored in groupRows between groupOffsets[g] and groupOffsets[g+1]
+    private final int[] groupOffsets;
+    private final int[] groupRows;
 
     // sorted group ids
-    private VarInt sortedGroupIds = VarInt.empty();
+    private final VarInt sortedGroupIds;
+
+    // map group ids to indexes from the last level of the tree, built on demand
+    private HashMap<Integer, IndexNode> groupIdToLastLevelIndex;
 
     private Group(Frame df, List<String> groupVarNames) {
         this.df = df;
         this.pkNamesList = groupVarNames;
         HashSet<String> pkVarNamesSet = new HashSet<>(pkNamesList);
-        List<Unique> groupByUniques =
-                this.pkNamesList.stream().map(varName -> Unique.of(df.rvar(varName), true)).collect(Collectors.toList());
         this.featureNamesList = new ArrayList<>();
         for (String varName : df.varNames()) {
             if (pkVarNamesSet.contains(varName)) {
@@ -187,56 +217,82 @@ public class Group implements Printable {
             }
             featureNamesList.add(varName);
         }
-        IndexNode root = new IndexNode(null, "", "", -1, -1);
 
-        //populate rows
-        int groupId = 0;
-        for (int i = 0; i < df.rowCount(); i++) {
-            IndexNode node = root;
-            for (int j = 0; j < pkNamesList.size(); j++) {
-                String levelName = pkNamesList.get(j);
-                String levelValue = df.getLabel(i, levelName);
-                int levelUniqueId = groupByUniques.get(j).idByRow(i);
-                IndexNode child = node.getChildNode(levelUniqueId);
-                if (child == null) {
-                    if (j != pkNamesList.size() - 1) {
-                        child = new IndexNode(node, levelName, levelValue, levelUniqueId, -1);
-                    } else {
-                        child = new IndexNode(node, levelName, levelValue, levelUniqueId, groupId);
-                        child.addRow(i);
-                        rowToGroupId.put(i, groupId);
-                        groupIdToLastLevelIndex.put(groupId, child);
-                        groupId++;
-                    }
-                    node.addNode(child);
-                    node = child;
-                } else {
-                    node = child;
-                    if (j == pkNamesList.size() - 1) {
-                        child.addRow(i);
-                        rowToGroupId.put(i, child.getGroupId());
-                    }
-                }
+        // encode composite keys, one pass for each key variable
+
+        int rows = pkNamesList.isEmpty() ? 0 : df.rowCount();
+        keyCodes = new int[pkNamesList.size()][];
+        long[] keys = new long[rows];
+        long bound = 1;
+        for (int j = 0; j < pkNamesList.size(); j++) {
+            int[] codes = new int[rows];
+            int count = Math.max(1, KeyEncoder.encode(df.rvar(pkNamesList.get(j)), codes));
+            keyCodes[j] = codes;
+            if (bound > Long.MAX_VALUE / count) {
+                // replace keys with dense ids to avoid overflow
+                bound = compress(keys);
             }
+            for (int i = 0; i < rows; i++) {
+                keys[i] = keys[i] * count + codes[i];
+            }
+            bound *= count;
+        }
+
+        // assign group ids in the order of first appearance
+
+        Long2IntOpenHashMap keyToGroupId = new Long2IntOpenHashMap();
+        IntArrayList firstRows = new IntArrayList();
+        rowGroupIds = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            int size = keyToGroupId.size();
+            rowGroupIds[i] = keyToGroupId.putIfAbsent(keys[i], size);
+            if (keyToGroupId.size() > size) {
+                firstRows.add(i);
+            }
+        }
+        groupFirstRows = firstRows.toArray(null);
+        int groupCount = groupFirstRows.length;
+
+        // collect rows for each group with a counting sort
+
+        groupOffsets = new int[groupCount + 1];
+        for (int i = 0; i < rows; i++) {
+            groupOffsets[rowGroupIds[i] + 1]++;
+        }
+        for (int i = 0; i < groupCount; i++) {
+            groupOffsets[i + 1] += groupOffsets[i];
+        }
+        groupRows = new int[rows];
+        int[] cursor = Arrays.copyOf(groupOffsets, groupCount);
+        for (int i = 0; i < rows; i++) {
+            groupRows[cursor[rowGroupIds[i]]++] = i;
         }
 
         // sort group ids
-        List<int[]> groupUniqueIds = new ArrayList<>();
-        for (int i = 0; i < getGroupCount(); i++) {
-            groupUniqueIds.add(groupIdToLastLevelIndex.get(i).getLevelIds(new int[pkNamesList.size() + 1]));
-            sortedGroupIds.addInt(i);
-        }
-        sortedGroupIds = (VarInt) sortedGroupIds.op().sort((i1, i2) -> {
-            int[] gui1 = groupUniqueIds.get(i1);
-            int[] gui2 = groupUniqueIds.get(i2);
-            for (int i = 0; i < gui1.length; i++) {
-                int comp = Integer.compare(gui1[i], gui2[i]);
+        int[] ids = new int[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            ids[i] = i;
+        }
+        IntArrays.quickSort(ids, 0, groupCount, (g1, g2) -> {
+            int r1 = groupFirstRows[g1];
+            int r2 = groupFirstRows[g2];
+            for (int[] codes : keyCodes) {
+                int comp = Integer.compare(codes[r1], codes[r2]);
                 if (comp != 0) {
                     return comp;
                 }
             }
             return 0;
         });
+        sortedGroupIds = VarInt.wrap(ids);
+    }
+
+    private static long compress(long[] keys) {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = map.putIfAbsent(keys[i], map.size());
+        }
+        return Math.max(1, map.size());
     }
 
     /**
@@ -254,9 +310,35 @@ public class Group implements Printable {
     }
 
     public HashMap<Integer, IndexNode> getGroupIdToLastLevelIndex() {
+        if (groupIdToLastLevelIndex == null) {
+            groupIdToLastLevelIndex = buildIndex();
+        }
         return groupIdToLastLevelIndex;
     }
 
+    private HashMap<Integer, IndexNode> buildIndex() {
+        HashMap<Integer, IndexNode> index = new HashMap<>();
+        IndexNode root = new IndexNode(null, "", "", -1, -1);
+        int last = pkNamesList.size() - 1;
+        for (int groupId = 0; groupId < groupFirstRows.length; groupId++) {
+            int row = groupFirstRows[groupId];
+            IndexNode node = root;
+            for (int j = 0; j <= last; j++) {
+                int levelId = keyCodes[j][row];
+                IndexNode child = node.getChildNode(levelId);
+                if (child == null) {
+                    String levelName = pkNamesList.get(j);
+                    child = new IndexNode(node, levelName, df.getLabel(row, levelName), levelId, j == last ? groupId : -1);
+                    node.addNode(child);
+                }
+                node = child;
+            }
+            node.rows = getRowsForGroupId(groupId);
+            index.put(groupId, node);
+        }
+        return index;
+    }
+
     /**
      * @return source frame on which group by is realized
      */
@@ -269,14 +351,30 @@ public class Group implements Printable {
      * @return list of rows from that group
      */
     public Mapping getRowsForGroupId(int groupId) {
-        return groupIdToLastLevelIndex.get(groupId).rows;
+        return Mapping.wrap(Arrays.copyOfRange(groupRows, groupOffsets[groupId], groupOffsets[groupId + 1]));
+    }
+
+    /**
+     * @param groupId group identifier
+     * @return first row from that group
+     */
+    public int getFirstRowForGroupId(int groupId) {
+        return groupFirstRows[groupId];
+    }
+
+    /**
+     * @param row row from the source frame
+     * @return group identifier of the row
+     */
+    public int getGroupIdForRow(int row) {
+        return rowGroupIds[row];
     }
 
     /**
      * @return count of groups
      */
     public int getGroupCount() {
-        return groupIdToLastLevelIndex.size();
+        return groupFirstRows.length;
     }
 
     /**
@@ -286,6 +384,77 @@ public class Group implements Printable {
         return sortedGroupIds;
     }
 
+    /**
+     * Feeds all rows to the given accumulators in a single pass. When more than one
+     * thread is used, the groups are split into partitions with similar row counts
+     * and each partition is processed by a single thread.
+     *
+     * @param accumulators accumulators which receive the rows
+     * @param threads      number of threads, a negative value means all available processors
+     */
+    public void accumulate(List<GroupAccumulator> accumulators, int threads) {
+        if (accumulators.isEmpty()) {
+            return;
+        }
+        int poolSize = threads < 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        poolSize = Math.min(poolSize, getGroupCount());
+        if (poolSize <= 1) {
+            GroupAccumulator[] accs = accumulators.toArray(GroupAccumulator[]::new);
+            for (int row = 0; row < rowGroupIds.length; row++) {
+                int groupId = rowGroupIds[row];
+                for (GroupAccumulator acc : accs) {
+                    acc.update(groupId, row);
+                }
+            }
+        } else {
+            accumulateParallel(accumulators, poolSize);
+        }
+        for (GroupAccumulator acc : accumulators) {
+            acc.complete();
+        }
+    }
+
+    private void accumulateParallel(List<GroupAccumulator> accumulators, int poolSize) {
+        // split groups into partitions with similar row counts
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        int start = 0;
+        for (int p = 0; p < poolSize && start < getGroupCount(); p++) {
+            long target = (long) groupRows.length * (p + 1) / poolSize;
+            int end = start + 1;
+            while (end < getGroupCount() && (p == poolSize - 1 || groupOffsets[end] < target)) {
+                end++;
+            }
+            final int from = start;
+            final int to = end;
+            tasks.add(() -> {
+                GroupAccumulator[] accs = accumulators.stream().map(GroupAccumulator::partition).toArray(GroupAccumulator[]::new);
+                for (int groupId = from; groupId < to; groupId++) {
+                    for (int i = groupOffsets[groupId]; i < groupOffsets[groupId + 1]; i++) {
+                        int row = groupRows[i];
+                        for (GroupAccumulator acc : accs) {
+                            acc.update(groupId, row);
+                        }
+                    }
+                }
+                return true;
+            });
+            start = end;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Boolean> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Group aggregation was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Group aggregation failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     /**
      * Node of the prefix tree for groups
      */
@@ -313,7 +482,7 @@ public class Group implements Printable {
         private final HashMap<Integer, Integer> positions = new HashMap<>();
 
         // rows assigned to this group
-        private final Mapping rows = Mapping.empty();
+        private Mapping rows = Mapping.empty();
 
         public IndexNode(IndexNode parent, String levelName,
                          String levelValue, int levelId, int groupId) {
@@ -379,7 +548,7 @@ public class Group implements Printable {
         StringBuilder sb = new StringBuilder();
         sb.append("GroupBy{");
         sb.append("keys:[").append(String.join(",", pkNamesList)).append("], ");
-        sb.append("group count:").append(groupIdToLastLevelIndex.size()).append(", ");
+        sb.append("group count:").append(getGroupCount()).append(", ");
         sb.append("row count:").append(df.rowCount());
         sb.append("}");
         return sb.toString();
@@ -393,7 +562,7 @@ public class Group implements Printable {
         StringBuilder sb = new StringBuilder();
 
         sb.append("group by: ").append(String.join(", ", pkNamesList)).append("\n");
-        sb.append("group count: ").append(groupIdToLastLevelIndex.size()).append("\n\n");
+        sb.append("group count: ").append(getGroupCount()).append("\n\n");
 
         TextTable tt = TextTable.empty(40 + 1, pkNamesList.size() + featureNamesList.size() + 2, 1, pkNamesList.size() + 2);
 
@@ -417,14 +586,14 @@ public class Group implements Printable {
         // populate rows
         Mapping rows = Mapping.empty();
         for (int groupId : sortedGroupIds) {
-            rows.addAll(groupIdToLastLevelIndex.get(groupId).rows.iterator());
+            rows.addAll(getRowsForGroupId(groupId).iterator());
         }
 
         for (int i = 0; i < 30; i++) {
             int r = rows.get(i);
             fillRowData(tt, i, r);
         }
-        IndexNode _node = groupIdToLastLevelIndex.get(0);
+        IndexNode _node = getGroupIdToLastLevelIndex().get(0);
         List<String> _groupValues = _node.getLevelValues();
         for (int j = 0; j < _groupValues.size(); j++) {
             tt.textLeft(31, j + 1, "...");
@@ -441,8 +610,8 @@ public class Group implements Printable {
     }
 
     private void fillRowData(TextTable tt, int i, int r) {
-        int groupId = rowToGroupId.get(r);
-        IndexNode node = groupIdToLastLevelIndex.get(groupId);
+        int groupId = rowGroupIds[r];
+        IndexNode node = getGroupIdToLastLevelIndex().get(groupId);
         List<String> groupValues = node.getLevelValues();
         for (int j = 0; j < groupValues.size(); j++) {
             tt.textLeft(i + 1, j + 1, groupValues.get(j));
@@ -458,7 +627,7 @@ public class Group implements Printable {
         StringBuilder sb = new StringBuilder();
 
         sb.append("group by: ").append(String.join(", ", pkNamesList)).append("\n");
-        sb.append("group count: ").append(groupIdToLastLevelIndex.size()).append("\n\n");
+        sb.append("group count: ").append(getGroupCount()).append("\n\n");
 
         TextTable tt = TextTable.empty(df.rowCount() + 1, pkNamesList.size() + featureNamesList.size() + 2, 1, pkNamesList.size() + 2);
 
@@ -479,7 +648,7 @@ public class Group implements Printable {
         int pos = 1;
         for (int groupId : sortedGroupIds) {
 
-            IndexNode node = groupIdToLastLevelIndex.get(groupId);
+            IndexNode node = getGroupIdToLastLevelIndex().get(groupId);
             List<String> groupValues = node.getLevelValues();
             for (int row : node.rows) {
 
@@ -523,12 +692,29 @@ public class Group implements Printable {
         private final Frame aggregateDf;
 
         public Aggregate(Group group, List<GroupFun> funs) {
+            this(group, funs, 0);
+        }
+
+        public Aggregate(Group group, List<GroupFun> funs, int threads) {
             this.group = group;
             this.funs = funs;
 
-            List<Var> allVarList = new ArrayList<>();
+            // functions with streaming accumulators are computed together in a single pass
+            List<GroupAccumulator> accumulators = new ArrayList<>();
+            List<List<Var>> prepared = new ArrayList<>();
             for (GroupFun fun : funs) {
-                allVarList.addAll(fun.compute(group));
+                prepared.add(fun instanceof DefaultSingleGroupFun
+                        ? ((DefaultSingleGroupFun) fun).prepare(group, accumulators)
+                        : null);
+            }
+            group.accumulate(accumulators, threads);
+
+            List<Var> allVarList = new ArrayList<>();
+            for (int i = 0; i < funs.size(); i++) {
+                GroupFun fun = funs.get(i);
+                allVarList.addAll(prepared.get(i) != null
+                        ? ((DefaultSingleGroupFun) fun).complete(group, prepared.get(i))
+                        : fun.compute(group));
             }
             aggregateDf = SolidFrame.byVars(allVarList);
         }
@@ -541,9 +727,8 @@ public class Group implements Printable {
             Frame df = group.getFrame();
             Mapping rows = Mapping.empty();
             VarInt sortedGroupIds = group.getSortedGroupIds();
-            var groupIndex = group.getGroupIdToLastLevelIndex();
             for (int sortedGroupId : sortedGroupIds) {
-                rows.add(groupIndex.get(sortedGroupId).getRows().get(0));
+                rows.add(group.getFirstRowForGroupId(sortedGroupId));
             }
             Frame result = df.mapRows(rows).mapVars(group.getGroupByNameList()).copy();
             result = result.bindVars(aggregateDf.mapRows(Mapping.wrap(sortedGroupIds))).copy();
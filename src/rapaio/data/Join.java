@@ -0,0 +1,436 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data;
+
+import rapaio.data.group.KeyEncoder;
+import rapaio.util.collection.IntArrayList;
+import rapaio.util.collection.IntArrays;
+import rapaio.util.collection.Long2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Joins two data frames on the values of one or more key variables.
+ * <p>
+ * Key values from both frames are encoded into a single composite long key per row,
+ * using a dictionary shared by the two frames. The matching rows are found with a
+ * build/probe hash join over a primitive hash table, or with a merge join when both
+ * frames are already sorted on keys. The strategy is selected automatically, but can
+ * also be forced.
+ * <p>
+ * The resulting frame contains the key variables, followed by the remaining variables
+ * from the first frame and the remaining variables from the second frame. For right
+ * joins the first frame is the right one. Variables from the second frame which have the
+ * same name as a variable from the first frame receive a suffix with the side name.
+ * <p>
+ * Rows follow the order of the first frame, with matched rows from the second frame in
+ * their original order. For outer joins the unmatched rows from the right frame are
+ * appended at the end. Missing key values are treated as regular values, thus they
+ * match each other.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class Join {
+
+    public enum Type {
+        INNER,
+        LEFT,
+        RIGHT,
+        OUTER
+    }
+
+    public enum Strategy {
+        /**
+         * Uses merge join if both frames are sorted on keys, hash join otherwise.
+         */
+        AUTO,
+        /**
+         * Builds a hash table on the second frame and probes it with rows from the first frame.
+         */
+        HASH,
+        /**
+         * Merges the two frames in key order. Frames which are not sorted on keys are
+         * sorted by row indexes first, in which case rows follow the order of the keys.
+         */
+        MERGE
+    }
+
+    ///// Builders //////
+
+    public static Frame from(Frame dfLeft, Frame dfRight, VRange leftKeys, VRange rightKeys, Type type) {
+        return from(dfLeft, dfRight, leftKeys, rightKeys, type, Strategy.AUTO);
+    }
+
+    public static Frame from(Frame dfLeft, Frame dfRight, VRange leftKeys, VRange rightKeys, Type type, Strategy strategy) {
+        return new Join(dfLeft, dfRight, leftKeys.parseVarNames(dfLeft), rightKeys.parseVarNames(dfRight), type, strategy).join();
+    }
+
+    public static Frame inner(Frame dfLeft, Frame dfRight, String... keys) {
+        return from(dfLeft, dfRight, VRange.of(keys), VRange.of(keys), Type.INNER);
+    }
+
+    public static Frame left(Frame dfLeft, Frame dfRight, String... keys) {
+        return from(dfLeft, dfRight, VRange.of(keys), VRange.of(keys), Type.LEFT);
+    }
+
+    public static Frame right(Frame dfLeft, Frame dfRight, String... keys) {
+        return from(dfLeft, dfRight, VRange.of(keys), VRange.of(keys), Type.RIGHT);
+    }
+
+    public static Frame outer(Frame dfLeft, Frame dfRight, String... keys) {
+        return from(dfLeft, dfRight, VRange.of(keys), VRange.of(keys), Type.OUTER);
+    }
+
+    /**
+     * IMPLEMENTATION
+     */
+
+    private final Frame dfLeft;
+    private final Frame dfRight;
+    private final List<String> leftKeyNames;
+    private final List<String> rightKeyNames;
+    private final Type type;
+    private final Strategy strategy;
+
+    private Join(Frame dfLeft, Frame dfRight, List<String> leftKeyNames, List<String> rightKeyNames, Type type, Strategy strategy) {
+        this.dfLeft = dfLeft;
+        this.dfRight = dfRight;
+        this.leftKeyNames = leftKeyNames;
+        this.rightKeyNames = rightKeyNames;
+        this.type = type;
+        this.strategy = strategy;
+    }
+
+    private Frame join() {
+        validateKeys();
+
+        long[] leftKeys = new long[dfLeft.rowCount()];
+        long[] rightKeys = new long[dfRight.rowCount()];
+        encodeKeys(leftKeys, rightKeys);
+
+        // the first side keeps all its rows for left, right and outer joins,
+        // the second side keeps its unmatched rows only for outer joins
+        boolean swap = type == Type.RIGHT;
+        long[] probeKeys = swap ? rightKeys : leftKeys;
+        long[] buildKeys = swap ? leftKeys : rightKeys;
+        boolean keepProbe = type != Type.INNER;
+        boolean keepBuild = type == Type.OUTER;
+
+        IntArrayList probeRows = new IntArrayList();
+        IntArrayList buildRows = new IntArrayList();
+        boolean merge = strategy == Strategy.MERGE
+                || (strategy == Strategy.AUTO && isSorted(probeKeys) && isSorted(buildKeys));
+        if (merge) {
+            mergeJoin(probeKeys, buildKeys, keepProbe, keepBuild, probeRows, buildRows);
+        } else {
+            hashJoin(probeKeys, buildKeys, keepProbe, keepBuild, probeRows, buildRows);
+        }
+
+        return swap
+                ? buildFrame(dfRight, rightKeyNames, probeRows.toArray(null), dfLeft, leftKeyNames, buildRows.toArray(null), "_left")
+                : buildFrame(dfLeft, leftKeyNames, probeRows.toArray(null), dfRight, rightKeyNames, buildRows.toArray(null), "_right");
+    }
+
+    private void validateKeys() {
+        if (leftKeyNames.isEmpty()) {
+            throw new IllegalArgumentException("No join keys specified.");
+        }
+        // compare size of keys
+        if (leftKeyNames.size() != rightKeyNames.size()) {
+            throw new IllegalArgumentException("Number of keys differ.");
+        }
+        // compare key types
+        for (int i = 0; i < leftKeyNames.size(); i++) {
+            if (dfLeft.type(leftKeyNames.get(i)) != dfRight.type(rightKeyNames.get(i))) {
+                throw new IllegalArgumentException(String.format(
+                        "Variable types differ; left: %s [ %s ], right: %s [ %s ]",
+                        leftKeyNames.get(i), dfLeft.type(leftKeyNames.get(i)),
+                        rightKeyNames.get(i), dfRight.type(rightKeyNames.get(i))
+                ));
+            }
+        }
+    }
+
+    /**
+     * Encodes composite keys from both frames. Each key variable is encoded using a
+     * dictionary shared by both frames, thus equal keys receive equal codes, and the
+     * codes follow the sorted order of the key values.
+     */
+    private void encodeKeys(long[] leftKeys, long[] rightKeys) {
+        long bound = 1;
+        for (int j = 0; j < leftKeyNames.size(); j++) {
+            int[] leftCodes = new int[leftKeys.length];
+            int[] rightCodes = new int[rightKeys.length];
+            Var[] vars = new Var[]{dfLeft.rvar(leftKeyNames.get(j)), dfRight.rvar(rightKeyNames.get(j))};
+            int count = Math.max(1, KeyEncoder.encode(vars, new int[][]{leftCodes, rightCodes}));
+            if (bound > Long.MAX_VALUE / count) {
+                // replace keys with dense ids to avoid overflow, equality is all that matters for matching
+                bound = compress(leftKeys, rightKeys);
+            }
+            for (int i = 0; i < leftKeys.length; i++) {
+                leftKeys[i] = leftKeys[i] * count + leftCodes[i];
+            }
+            for (int i = 0; i < rightKeys.length; i++) {
+                rightKeys[i] = rightKeys[i] * count + rightCodes[i];
+            }
+            bound *= count;
+        }
+    }
+
+    private static long compress(long[] leftKeys, long[] rightKeys) {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        for (int i = 0; i < leftKeys.length; i++) {
+            leftKeys[i] = map.putIfAbsent(leftKeys[i], map.size());
+        }
+        for (int i = 0; i < rightKeys.length; i++) {
+            rightKeys[i] = map.putIfAbsent(rightKeys[i], map.size());
+        }
+        return Math.max(1, map.size());
+    }
+
+    private static boolean isSorted(long[] keys) {
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1] > keys[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a hash table with chained rows on the build side and probes it with
+     * each row from the probe side.
+     */
+    private static void hashJoin(long[] probeKeys, long[] buildKeys, boolean keepProbe, boolean keepBuild,
+                                 IntArrayList probeRows, IntArrayList buildRows) {
+        Long2IntOpenHashMap head = new Long2IntOpenHashMap(buildKeys.length);
+        int[] next = new int[buildKeys.length];
+        // insert in reverse order, thus chains follow the original row order
+        for (int i = buildKeys.length - 1; i >= 0; i--) {
+            next[i] = head.get(buildKeys[i], -1);
+            head.put(buildKeys[i], i);
+        }
+        boolean[] matched = keepBuild ? new boolean[buildKeys.length] : null;
+        for (int i = 0; i < probeKeys.length; i++) {
+            int j = head.get(probeKeys[i], -1);
+            if (j < 0) {
+                if (keepProbe) {
+                    probeRows.add(i);
+                    buildRows.add(-1);
+                }
+                continue;
+            }
+            for (; j >= 0; j = next[j]) {
+                probeRows.add(i);
+                buildRows.add(j);
+                if (keepBuild) {
+                    matched[j] = true;
+                }
+            }
+        }
+        if (keepBuild) {
+            appendUnmatched(matched, probeRows, buildRows);
+        }
+    }
+
+    /**
+     * Merges runs of equal keys from both sides. Sides which are not sorted are
+     * visited through sorted row indexes.
+     */
+    private static void mergeJoin(long[] probeKeys, long[] buildKeys, boolean keepProbe, boolean keepBuild,
+                                  IntArrayList probeRows, IntArrayList buildRows) {
+        int[] probeOrder = sortedOrder(probeKeys);
+        int[] buildOrder = sortedOrder(buildKeys);
+        boolean[] matched = keepBuild ? new boolean[buildKeys.length] : null;
+
+        int j = 0;
+        int i = 0;
+        while (i < probeOrder.length) {
+            long key = probeKeys[probeOrder[i]];
+            int iEnd = i;
+            while (iEnd < probeOrder.length && probeKeys[probeOrder[iEnd]] == key) {
+                iEnd++;
+            }
+            while (j < buildOrder.length && buildKeys[buildOrder[j]] < key) {
+                j++;
+            }
+            int jEnd = j;
+            while (jEnd < buildOrder.length && buildKeys[buildOrder[jEnd]] == key) {
+                jEnd++;
+            }
+            for (int p = i; p < iEnd; p++) {
+                if (j == jEnd) {
+                    if (keepProbe) {
+                        probeRows.add(probeOrder[p]);
+                        buildRows.add(-1);
+                    }
+                    continue;
+                }
+                for (int b = j; b < jEnd; b++) {
+                    probeRows.add(probeOrder[p]);
+                    buildRows.add(buildOrder[b]);
+                    if (keepBuild) {
+                        matched[buildOrder[b]] = true;
+                    }
+                }
+            }
+            i = iEnd;
+            j = jEnd;
+        }
+        if (keepBuild) {
+            appendUnmatched(matched, probeRows, buildRows);
+        }
+    }
+
+    private static int[] sortedOrder(long[] keys) {
+        int[] order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (!isSorted(keys)) {
+            // ties are broken by row index, thus rows with the same key keep their original order
+            IntArrays.quickSort(order, 0, order.length, (r1, r2) -> {
+                int comp = Long.compare(keys[r1], keys[r2]);
+                return comp != 0 ? comp : Integer.compare(r1, r2);
+            });
+        }
+        return order;
+    }
+
+    private static void appendUnmatched(boolean[] matched, IntArrayList probeRows, IntArrayList buildRows) {
+        for (int j = 0; j < matched.length; j++) {
+            if (!matched[j]) {
+                probeRows.add(-1);
+                buildRows.add(j);
+            }
+        }
+    }
+
+    private static Frame buildFrame(Frame first, List<String> firstKeyNames, int[] firstRows,
+                                    Frame second, List<String> secondKeyNames, int[] secondRows, String suffix) {
+        int rows = firstRows.length;
+        List<Var> vars = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+
+        // keys are taken from the first frame, or from the second frame if there is no row on the first side
+        for (int i = 0; i < firstKeyNames.size(); i++) {
+            Var firstVar = first.rvar(firstKeyNames.get(i));
+            Var dst = firstVar.newInstance(rows).name(firstKeyNames.get(i));
+            copyValues(firstVar, firstRows, dst);
+            int[] secondOnly = new int[rows];
+            for (int r = 0; r < rows; r++) {
+                secondOnly[r] = firstRows[r] < 0 ? secondRows[r] : -1;
+            }
+            copyValues(second.rvar(secondKeyNames.get(i)), secondOnly, dst);
+            vars.add(dst);
+            names.add(dst.name());
+        }
+
+        Set<String> firstKeys = new HashSet<>(firstKeyNames);
+        for (String varName : first.varNames()) {
+            if (firstKeys.contains(varName)) {
+                continue;
+            }
+            Var src = first.rvar(varName);
+            Var dst = src.newInstance(rows).name(varName);
+            fillMissing(firstRows, dst);
+            copyValues(src, firstRows, dst);
+            vars.add(dst);
+            names.add(varName);
+        }
+
+        Set<String> secondKeys = new HashSet<>(secondKeyNames);
+        for (String varName : second.varNames()) {
+            if (secondKeys.contains(varName)) {
+                continue;
+            }
+            Var src = second.rvar(varName);
+            Var dst = src.newInstance(rows).name(names.contains(varName) ? varName + suffix : varName);
+            fillMissing(secondRows, dst);
+            copyValues(src, secondRows, dst);
+            vars.add(dst);
+        }
+        return SolidFrame.byVars(rows, vars);
+    }
+
+    private static void fillMissing(int[] rows, Var dst) {
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] < 0) {
+                dst.setMissing(i);
+            }
+        }
+    }
+
+    /**
+     * Copies values from source rows into destination, skipping negative source rows.
+     */
+    private static void copyValues(Var src, int[] rows, Var dst) {
+        switch (src.type()) {
+            case DOUBLE:
+                for (int i = 0; i < rows.length; i++) {
+                    if (rows[i] >= 0) {
+                        dst.setDouble(i, src.getDouble(rows[i]));
+                    }
+                }
+                return;
+            case BINARY:
+            case INT:
+                for (int i = 0; i < rows.length; i++) {
+                    if (rows[i] >= 0) {
+                        if (src.isMissing(rows[i])) {
+                            dst.setMissing(i);
+                        } else {
+                            dst.setInt(i, src.getInt(rows[i]));
+                        }
+                    }
+                }
+                return;
+            case LONG:
+            case INSTANT:
+                for (int i = 0; i < rows.length; i++) {
+                    if (rows[i] >= 0) {
+                        if (src.isMissing(rows[i])) {
+                            dst.setMissing(i);
+                        } else {
+                            dst.setLong(i, src.getLong(rows[i]));
+                        }
+                    }
+                }
+                return;
+            default:
+                for (int i = 0; i < rows.length; i++) {
+                    if (rows[i] >= 0) {
+                        dst.setLabel(i, src.getLabel(rows[i]));
+                    }
+                }
+        }
+    }
+}
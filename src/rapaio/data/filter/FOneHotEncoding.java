@@ -32,6 +32,7 @@ import rapaio.data.Frame;
 import rapaio.data.VRange;
 import rapaio.data.Var;
 import rapaio.data.VarBinary;
+import rapaio.math.linear.sparse.DMSparse;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -48,6 +49,9 @@ import java.util.Map;
  * <p>
  * The given columns will be placed grouped, in the place of
  * the given nominal column.
+ * <p>
+ * Since the encoded columns contains mostly zeros, the encoding can be produced also as a
+ * sparse matrix with {@link #applySparse(Frame)}, which does not build the dense columns.
  *
  * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
  */
@@ -110,13 +114,7 @@ public class FOneHotEncoding extends AbstractFFilter {
             if (levels.containsKey(varName)) {
 
                 // get the learned dictionary
-                List<String> dict = levels.get(varName);
-                if (!useNa) {
-                    dict = dict.subList(1, dict.size());
-                }
-                if (lessOne) {
-                    dict = dict.subList(1, dict.size());
-                }
+                List<String> dict = encodedLevels(varName);
 
                 List<Var> oneHotVars = new ArrayList<>();
                 Map<String, Var> index = new HashMap<>();
@@ -140,4 +138,115 @@ public class FOneHotEncoding extends AbstractFFilter {
         }
         return BoundFrame.byVars(vars);
     }
+
+    /**
+     * Names of the columns produced by encoding, in the same order as the variables
+     * of the frame returned by {@link #apply(Frame)}.
+     *
+     * @param df frame to be encoded
+     * @return names of the encoded columns
+     */
+    public String[] encodedNames(Frame df) {
+        List<String> names = new ArrayList<>();
+        for (String varName : df.varNames()) {
+            if (levels.containsKey(varName)) {
+                for (String token : encodedLevels(varName)) {
+                    names.add(varName + "." + token);
+                }
+            } else {
+                names.add(varName);
+            }
+        }
+        return names.toArray(String[]::new);
+    }
+
+    /**
+     * Encodes the frame into a sparse matrix in CSR format. The columns of the matrix
+     * are the same as the variables of the frame returned by {@link #apply(Frame)} and
+     * their names are given by {@link #encodedNames(Frame)}. Each encoded nominal variable
+     * contributes with at most one stored value on each row and the other variables
+     * contributes only with their non zero values.
+     *
+     * @param df frame to be encoded
+     * @return sparse matrix with encoded values
+     */
+    public DMSparse applySparse(Frame df) {
+        int rows = df.rowCount();
+        int varCount = df.varCount();
+
+        // column offset for each variable and column index for each level of encoded variables
+        int[] offsets = new int[varCount];
+        int[][] levelColumns = new int[varCount][];
+        int cols = 0;
+        for (int j = 0; j < varCount; j++) {
+            String varName = df.varName(j);
+            offsets[j] = cols;
+            if (!levels.containsKey(varName)) {
+                cols++;
+                continue;
+            }
+            List<String> dict = encodedLevels(varName);
+            Map<String, Integer> index = new HashMap<>();
+            for (int k = 0; k < dict.size(); k++) {
+                index.put(dict.get(k), cols + k);
+            }
+            List<String> varLevels = df.rvar(j).levels();
+            levelColumns[j] = new int[varLevels.size()];
+            for (int k = 0; k < varLevels.size(); k++) {
+                levelColumns[j][k] = index.getOrDefault(varLevels.get(k), -1);
+            }
+            cols += dict.size();
+        }
+
+        // count stored values on each row
+        int[] pointers = new int[rows + 1];
+        for (int j = 0; j < varCount; j++) {
+            Var v = df.rvar(j);
+            for (int i = 0; i < rows; i++) {
+                boolean stored = levelColumns[j] != null ? levelColumns[j][v.getInt(i)] >= 0 : v.getDouble(i) != 0;
+                if (stored) {
+                    pointers[i + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            pointers[i + 1] += pointers[i];
+        }
+
+        // fill values, variables are visited in order thus column indexes are sorted on each row
+        int[] indexes = new int[pointers[rows]];
+        double[] values = new double[pointers[rows]];
+        int[] next = new int[rows];
+        System.arraycopy(pointers, 0, next, 0, rows);
+        for (int j = 0; j < varCount; j++) {
+            Var v = df.rvar(j);
+            for (int i = 0; i < rows; i++) {
+                if (levelColumns[j] != null) {
+                    int col = levelColumns[j][v.getInt(i)];
+                    if (col >= 0) {
+                        indexes[next[i]] = col;
+                        values[next[i]++] = 1;
+                    }
+                } else {
+                    double value = v.getDouble(i);
+                    if (value != 0) {
+                        indexes[next[i]] = offsets[j];
+                        values[next[i]++] = value;
+                    }
+                }
+            }
+        }
+        return DMSparse.csr(rows, cols, pointers, indexes, values);
+    }
+
+    private List<String> encodedLevels(String varName) {
+        List<String> dict = levels.get(varName);
+        if (!useNa) {
+            dict = dict.subList(1, dict.size());
+        }
+        if (lessOne) {
+            dict = dict.subList(1, dict.size());
+        }
+        return dict;
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data.group;
+
+/**
+ * Accumulates values of a group by function in a single streaming pass over rows.
+ * <p>
+ * Rows of the same group are always given in increasing order. Rows of different
+ * groups can be interleaved and, when aggregation runs in parallel, groups are
+ * split into disjoint partitions, each partition being processed by a single thread.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public interface GroupAccumulator {
+
+    /**
+     * Accumulates a row into a group.
+     *
+     * @param groupId group identifier
+     * @param row     row from the source frame
+     */
+    void update(int groupId, int row);
+
+    /**
+     * Builds an accumulator for a partition of groups processed by a single thread.
+     * The partition accumulator must store results in the same place as this accumulator.
+     * The default implementation returns the same instance, which is fine when the state
+     * is kept in arrays indexed by group.
+     *
+     * @return accumulator for a partition of groups
+     */
+    default GroupAccumulator partition() {
+        return this;
+    }
+
+    /**
+     * Called after all rows were accumulated, in order to write the results.
+     */
+    default void complete() {
+    }
+}
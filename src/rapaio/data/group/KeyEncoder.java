@@ -0,0 +1,242 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data.group;
+
+import rapaio.data.Var;
+import rapaio.util.IntComparator;
+import rapaio.util.collection.IntArrays;
+import rapaio.util.collection.Long2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Encodes the values of key variables into dense integer codes in a single
+ * pass over each variable. Codes follow the order of the sorted unique values,
+ * as it is given by {@link rapaio.data.Unique} with sorted flag, thus they
+ * can be used to sort groups without looking again at the values.
+ * <p>
+ * Multiple variables of the same type can be encoded together, in which case
+ * they share the same dictionary and equal values receive equal codes.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class KeyEncoder {
+
+    private KeyEncoder() {
+    }
+
+    /**
+     * Encodes values from the variable into codes in range {@code [0, count)}.
+     *
+     * @param var   key variable
+     * @param codes array which receives the codes for each row
+     * @return count of distinct codes
+     */
+    public static int encode(Var var, int[] codes) {
+        return encode(new Var[]{var}, new int[][]{codes});
+    }
+
+    /**
+     * Encodes values from variables of the same type into codes in range {@code [0, count)},
+     * using a shared dictionary.
+     *
+     * @param vars  key variables
+     * @param codes arrays which receive the codes for each row of each variable
+     * @return count of distinct codes
+     */
+    public static int encode(Var[] vars, int[][] codes) {
+        switch (vars[0].type()) {
+            case DOUBLE:
+                return encodeDouble(vars, codes);
+            case INT:
+            case BINARY:
+                return encodeInt(vars, codes);
+            case LONG:
+            case INSTANT:
+                return encodeLong(vars, codes);
+            case NOMINAL:
+                return encodeNominal(vars, codes);
+            case STRING:
+                return encodeString(vars, codes);
+            default:
+                throw new IllegalArgumentException("Cannot encode group keys for given type: not implemented.");
+        }
+    }
+
+    private static int encodeDouble(Var[] vars, int[][] codes) {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        double[] values = new double[16];
+        for (int k = 0; k < vars.length; k++) {
+            Var var = vars[k];
+            int[] c = codes[k];
+            for (int i = 0; i < c.length; i++) {
+                double value = var.getDouble(i);
+                int size = map.size();
+                // raw bits are not used since Unique considers all NaN values equal
+                int id = map.putIfAbsent(Double.doubleToLongBits(value), size);
+                if (map.size() > size) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size] = value;
+                }
+                c[i] = id;
+            }
+        }
+        final double[] uniques = values;
+        return remap(codes, map.size(), (a, b) -> Double.compare(uniques[a], uniques[b]));
+    }
+
+    private static int encodeInt(Var[] vars, int[][] codes) {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        int[] values = new int[16];
+        for (int k = 0; k < vars.length; k++) {
+            Var var = vars[k];
+            int[] c = codes[k];
+            for (int i = 0; i < c.length; i++) {
+                int value = var.getInt(i);
+                int size = map.size();
+                int id = map.putIfAbsent(value, size);
+                if (map.size() > size) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size] = value;
+                }
+                c[i] = id;
+            }
+        }
+        final int[] uniques = values;
+        return remap(codes, map.size(), (a, b) -> Integer.compare(uniques[a], uniques[b]));
+    }
+
+    private static int encodeLong(Var[] vars, int[][] codes) {
+        Long2IntOpenHashMap map = new Long2IntOpenHashMap();
+        long[] values = new long[16];
+        for (int k = 0; k < vars.length; k++) {
+            Var var = vars[k];
+            int[] c = codes[k];
+            for (int i = 0; i < c.length; i++) {
+                long value = var.getLong(i);
+                int size = map.size();
+                int id = map.putIfAbsent(value, size);
+                if (map.size() > size) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size] = value;
+                }
+                c[i] = id;
+            }
+        }
+        final long[] uniques = values;
+        return remap(codes, map.size(), (a, b) -> Long.compare(uniques[a], uniques[b]));
+    }
+
+    private static int encodeNominal(Var[] vars, int[][] codes) {
+        // dictionary indexes are already dense, only levels must be mapped into the shared dictionary
+        HashMap<String, Integer> map = new HashMap<>();
+        List<String> labels = new ArrayList<>();
+        for (int k = 0; k < vars.length; k++) {
+            List<String> levels = vars[k].levels();
+            int[] levelIds = new int[levels.size()];
+            for (int j = 0; j < levels.size(); j++) {
+                Integer id = map.get(levels.get(j));
+                if (id == null) {
+                    id = map.size();
+                    map.put(levels.get(j), id);
+                    labels.add(levels.get(j));
+                }
+                levelIds[j] = id;
+            }
+            Var var = vars[k];
+            int[] c = codes[k];
+            for (int i = 0; i < c.length; i++) {
+                c[i] = levelIds[var.getInt(i)];
+            }
+        }
+        return remap(codes, map.size(), (a, b) -> compareLabels(labels.get(a), labels.get(b)));
+    }
+
+    private static int encodeString(Var[] vars, int[][] codes) {
+        HashMap<String, Integer> map = new HashMap<>();
+        String[] values = new String[16];
+        for (int k = 0; k < vars.length; k++) {
+            Var var = vars[k];
+            int[] c = codes[k];
+            for (int i = 0; i < c.length; i++) {
+                String value = var.getLabel(i);
+                Integer id = map.get(value);
+                if (id == null) {
+                    id = map.size();
+                    map.put(value, id);
+                    if (id == values.length) {
+                        values = Arrays.copyOf(values, id * 2);
+                    }
+                    values[id] = value;
+                }
+                c[i] = id;
+            }
+        }
+        final String[] uniques = values;
+        return remap(codes, map.size(), (a, b) -> compareLabels(uniques[a], uniques[b]));
+    }
+
+    /**
+     * Replaces ids with their rank given by the comparator.
+     */
+    private static int remap(int[][] codes, int count, IntComparator comparator) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        IntArrays.quickSort(order, 0, count, comparator);
+        int[] rank = new int[count];
+        for (int i = 0; i < count; i++) {
+            rank[order[i]] = i;
+        }
+        for (int[] c : codes) {
+            for (int i = 0; i < c.length; i++) {
+                c[i] = rank[c[i]];
+            }
+        }
+        return count;
+    }
+
+    private static int compareLabels(String v1, String v2) {
+        boolean nan1 = "?".equals(v1);
+        boolean nan2 = "?".equals(v2);
+        if (!(nan1 || nan2)) {
+            return v1.compareTo(v2);
+        }
+        return nan1 ? -1 : 1;
+    }
+}
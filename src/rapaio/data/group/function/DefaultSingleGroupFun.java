@@ -34,6 +34,7 @@ import rapaio.data.Var;
 import rapaio.data.VarBinary;
 import rapaio.data.VarDouble;
 import rapaio.data.VarInt;
+import rapaio.data.group.GroupAccumulator;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -57,17 +58,68 @@ public abstract class DefaultSingleGroupFun extends DefaultGroupFun {
 
     public abstract void updateSingle(Var aggregate, int aggregateRow, Frame df, int varIndex, Mapping rows);
 
+    /**
+     * Builds an accumulator which computes the aggregate in a single streaming pass
+     * over the rows of the source frame. Functions which cannot be computed in a
+     * streaming fashion return null and are computed group by group with
+     * {@link #updateSingle(Var, int, Frame, int, Mapping)}.
+     *
+     * @param aggregate variable which receives the results, indexed by group id
+     * @param df        source frame
+     * @param varIndex  index of the aggregated variable
+     * @return accumulator or null if not available
+     */
+    protected GroupAccumulator newAccumulator(Var aggregate, Frame df, int varIndex) {
+        return null;
+    }
+
     @Override
     public List<Var> compute(Group group) {
-        List<Var> result = new ArrayList<>();
+        List<GroupAccumulator> accumulators = new ArrayList<>();
+        List<Var> aggregates = prepare(group, accumulators);
+        group.accumulate(accumulators, 0);
+        return complete(group, aggregates);
+    }
+
+    /**
+     * Builds aggregate variables and collects accumulators for the ones which
+     * can be computed in a streaming pass. Aggregates without accumulators are
+     * computed directly.
+     *
+     * @param group        group structure
+     * @param accumulators list which receives the accumulators
+     * @return aggregate variables, indexed by group id
+     */
+    public List<Var> prepare(Group group, List<GroupAccumulator> accumulators) {
+        List<Var> aggregates = new ArrayList<>();
         VarInt ids = group.getSortedGroupIds();
         for (String varName : varNames) {
             Var aggregate = buildVar(group, varName);
             int index = group.getFrame().varIndex(varName);
-            for (int i = 0; i < ids.rowCount(); i++) {
-                int groupId = ids.getInt(i);
-                updateSingle(aggregate, groupId, group.getFrame(), index, group.getRowsForGroupId(groupId));
+            GroupAccumulator accumulator = newAccumulator(aggregate, group.getFrame(), index);
+            if (accumulator != null) {
+                accumulators.add(accumulator);
+            } else {
+                for (int i = 0; i < ids.rowCount(); i++) {
+                    int groupId = ids.getInt(i);
+                    updateSingle(aggregate, groupId, group.getFrame(), index, group.getRowsForGroupId(groupId));
+                }
             }
+            aggregates.add(aggregate);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Applies normalization on aggregates after all accumulators completed.
+     *
+     * @param group      group structure
+     * @param aggregates aggregates built with {@link #prepare(Group, List)}
+     * @return final aggregate variables
+     */
+    public List<Var> complete(Group group, List<Var> aggregates) {
+        List<Var> result = new ArrayList<>();
+        for (Var aggregate : aggregates) {
             if (normalizeLevel < 0) {
                 result.add(aggregate);
                 continue;
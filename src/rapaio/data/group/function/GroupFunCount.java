@@ -32,6 +32,7 @@ import rapaio.data.Group;
 import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarInt;
+import rapaio.data.group.GroupAccumulator;
 
 import java.util.List;
 
@@ -59,4 +60,25 @@ public class GroupFunCount extends DefaultSingleGroupFun {
         }
         aggregate.setInt(aggregateRow, count);
     }
+
+    @Override
+    protected GroupAccumulator newAccumulator(Var aggregate, Frame df, int varIndex) {
+        int groupCount = aggregate.rowCount();
+        int[] count = new int[groupCount];
+        return new GroupAccumulator() {
+            @Override
+            public void update(int groupId, int row) {
+                if (!df.isMissing(row, varIndex)) {
+                    count[groupId]++;
+                }
+            }
+
+            @Override
+            public void complete() {
+                for (int i = 0; i < groupCount; i++) {
+                    aggregate.setInt(i, count[i]);
+                }
+            }
+        };
+    }
 }
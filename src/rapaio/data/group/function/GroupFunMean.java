@@ -33,6 +33,7 @@ import rapaio.data.Group;
 import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
+import rapaio.data.group.GroupAccumulator;
 
 import java.util.List;
 
@@ -63,5 +64,30 @@ public class GroupFunMean extends DefaultSingleGroupFun {
             aggregate.setDouble(aggregateRow, os.mean());
         }
     }
-}
 
+    @Override
+    protected GroupAccumulator newAccumulator(Var aggregate, Frame df, int varIndex) {
+        int groupCount = aggregate.rowCount();
+        double[] n = new double[groupCount];
+        double[] m1 = new double[groupCount];
+        return new GroupAccumulator() {
+            @Override
+            public void update(int groupId, int row) {
+                if (df.isMissing(row, varIndex)) {
+                    return;
+                }
+                n[groupId]++;
+                m1[groupId] += (df.getDouble(row, varIndex) - m1[groupId]) / n[groupId];
+            }
+
+            @Override
+            public void complete() {
+                for (int i = 0; i < groupCount; i++) {
+                    if (n[i] > 0) {
+                        aggregate.setDouble(i, m1[i]);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -33,6 +33,9 @@ import rapaio.data.Mapping;
 import rapaio.data.Unique;
 import rapaio.data.Var;
 import rapaio.data.VarInt;
+import rapaio.data.group.GroupAccumulator;
+import rapaio.data.group.KeyEncoder;
+import rapaio.util.collection.Long2IntOpenHashMap;
 
 import java.util.List;
 
@@ -62,5 +65,55 @@ public class GroupFunNUnique extends DefaultSingleGroupFun {
         Unique unique = Unique.of(df.rvar(varIndex).mapRows(rows), false);
         aggregate.setInt(aggregateRow, unique.uniqueCount() - offset);
     }
-}
 
+    @Override
+    protected GroupAccumulator newAccumulator(Var aggregate, Frame df, int varIndex) {
+        Var var = df.rvar(varIndex);
+        int[] codes = new int[var.rowCount()];
+        int codeCount = KeyEncoder.encode(var, codes);
+        return new NUniqueAccumulator(aggregate, var, codes, codeCount, new int[aggregate.rowCount()]);
+    }
+
+    private static final class NUniqueAccumulator implements GroupAccumulator {
+
+        private final Var aggregate;
+        private final Var var;
+        private final int[] codes;
+        private final int codeCount;
+        private final int[] counts;
+        private final Long2IntOpenHashMap seen = new Long2IntOpenHashMap();
+
+        private NUniqueAccumulator(Var aggregate, Var var, int[] codes, int codeCount, int[] counts) {
+            this.aggregate = aggregate;
+            this.var = var;
+            this.codes = codes;
+            this.codeCount = codeCount;
+            this.counts = counts;
+        }
+
+        @Override
+        public void update(int groupId, int row) {
+            if (var.isMissing(row)) {
+                return;
+            }
+            int size = seen.size();
+            seen.putIfAbsent((long) groupId * codeCount + codes[row], 0);
+            if (seen.size() > size) {
+                counts[groupId]++;
+            }
+        }
+
+        @Override
+        public GroupAccumulator partition() {
+            // groups are disjoint between partitions, thus only the set of seen keys must be private
+            return new NUniqueAccumulator(aggregate, var, codes, codeCount, counts);
+        }
+
+        @Override
+        public void complete() {
+            for (int i = 0; i < counts.length; i++) {
+                aggregate.setInt(i, counts[i]);
+            }
+        }
+    }
+}
@@ -33,6 +33,8 @@ import rapaio.data.Group;
 import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
+import rapaio.data.group.GroupAccumulator;
+import rapaio.math.MTools;
 
 import java.util.List;
 
@@ -61,5 +63,32 @@ public class GroupFunStd extends DefaultSingleGroupFun {
         }
         aggregate.setDouble(aggregateRow, os.sd());
     }
-}
 
+    @Override
+    protected GroupAccumulator newAccumulator(Var aggregate, Frame df, int varIndex) {
+        int groupCount = aggregate.rowCount();
+        double[] n = new double[groupCount];
+        double[] m1 = new double[groupCount];
+        double[] m2 = new double[groupCount];
+        return new GroupAccumulator() {
+            @Override
+            public void update(int groupId, int row) {
+                if (df.isMissing(row, varIndex)) {
+                    return;
+                }
+                double n1 = n[groupId]++;
+                double delta = df.getDouble(row, varIndex) - m1[groupId];
+                double delta_n = delta / n[groupId];
+                m1[groupId] += delta_n;
+                m2[groupId] += delta * delta_n * n1;
+            }
+
+            @Override
+            public void complete() {
+                for (int i = 0; i < groupCount; i++) {
+                    aggregate.setDouble(i, MTools.sqrt(m2[i] / n[i]));
+                }
+            }
+        };
+    }
+}
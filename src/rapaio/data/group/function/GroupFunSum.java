@@ -33,6 +33,7 @@ import rapaio.data.Group;
 import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
+import rapaio.data.group.GroupAccumulator;
 
 import java.util.List;
 
@@ -63,5 +64,30 @@ public class GroupFunSum extends DefaultSingleGroupFun {
             return;
         aggregate.setDouble(aggregateRow, os.sum());
     }
-}
 
+    @Override
+    protected GroupAccumulator newAccumulator(Var aggregate, Frame df, int varIndex) {
+        int groupCount = aggregate.rowCount();
+        int[] n = new int[groupCount];
+        double[] sum = new double[groupCount];
+        return new GroupAccumulator() {
+            @Override
+            public void update(int groupId, int row) {
+                if (df.isMissing(row, varIndex)) {
+                    return;
+                }
+                n[groupId]++;
+                sum[groupId] += df.getDouble(row, varIndex);
+            }
+
+            @Override
+            public void complete() {
+                for (int i = 0; i < groupCount; i++) {
+                    if (n[i] > 0) {
+                        aggregate.setDouble(i, sum[i]);
+                    }
+                }
+            }
+        };
+    }
+}
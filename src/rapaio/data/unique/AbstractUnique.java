@@ -30,13 +30,14 @@ package rapaio.data.unique;
 import rapaio.data.Mapping;
 import rapaio.data.Unique;
 import rapaio.data.VarInt;
+import rapaio.data.mapping.ArrayMapping;
 import rapaio.printer.Format;
 import rapaio.printer.Printer;
 import rapaio.printer.TextTable;
 import rapaio.printer.opt.POption;
 import rapaio.util.collection.IntArrays;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 10/23/18.
@@ -44,11 +45,14 @@ import java.util.HashMap;
 public abstract class AbstractUnique implements Unique {
 
     protected final boolean sorted;
-    protected HashMap<Integer, Mapping> rowLists;
     protected VarInt countSortedIds;
     protected VarInt valueSortedIds;
     protected int[] idsByRow;
 
+    // rows grouped by unique id, rows for id i are stored in rowIndexes[rowOffsets[i]..rowOffsets[i+1])
+    protected int[] rowOffsets;
+    protected int[] rowIndexes;
+
     public AbstractUnique(boolean sorted) {
         this.sorted = sorted;
     }
@@ -58,13 +62,53 @@ public abstract class AbstractUnique implements Unique {
         return sorted;
     }
 
-    protected void updateIdsByRow(int len) {
-        idsByRow = new int[len];
-        for (var e : rowLists.entrySet()) {
-            for (int row : e.getValue()) {
-                idsByRow[row] = e.getKey();
-            }
+    /**
+     * Builds the row lists for all unique ids using a counting sort over the ids
+     * of the rows. Row lists are stored in compressed form: an array of offsets and
+     * an array with row numbers grouped by unique id, in increasing order.
+     *
+     * @param ids         unique id for each row
+     * @param uniqueCount number of unique ids
+     */
+    protected void buildRowLists(int[] ids, int uniqueCount) {
+        idsByRow = ids;
+        rowOffsets = new int[uniqueCount + 1];
+        for (int id : ids) {
+            rowOffsets[id + 1]++;
+        }
+        for (int i = 0; i < uniqueCount; i++) {
+            rowOffsets[i + 1] += rowOffsets[i];
+        }
+        int[] next = Arrays.copyOf(rowOffsets, uniqueCount);
+        rowIndexes = new int[ids.length];
+        for (int row = 0; row < ids.length; row++) {
+            rowIndexes[next[ids[row]]++] = row;
+        }
+    }
+
+    /**
+     * Changes unique ids of rows in place to follow the given order of ids.
+     *
+     * @param ids   unique id for each row
+     * @param order unique ids in the new order
+     */
+    protected static void remapIds(int[] ids, int[] order) {
+        int[] newIds = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            newIds[order[i]] = i;
         }
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = newIds[ids[i]];
+        }
+    }
+
+    protected int rowCount(int id) {
+        return rowOffsets[id + 1] - rowOffsets[id];
+    }
+
+    @Override
+    public Mapping rowList(int id) {
+        return new ArrayMapping(rowIndexes, rowOffsets[id], rowOffsets[id + 1]);
     }
 
     @Override
@@ -73,7 +117,7 @@ public abstract class AbstractUnique implements Unique {
             int[] counts = new int[uniqueCount()];
             int[] ids2 = new int[uniqueCount()];
             for (int i = 0; i < uniqueCount(); i++) {
-                counts[i] = rowLists.get(i).size();
+                counts[i] = rowCount(i);
                 ids2[i] = i;
             }
             IntArrays.quickSort(ids2, 0, uniqueCount(), (i, j) -> Integer.compare(counts[i], counts[j]));
@@ -99,12 +143,12 @@ public abstract class AbstractUnique implements Unique {
         sb.append("values=[");
         if (uniqueCount() > 10) {
             for (int i = 0; i < 10; i++) {
-                sb.append(stringUniqueValue(i)).append(":").append(rowList(i).size()).append(",");
+                sb.append(stringUniqueValue(i)).append(":").append(rowCount(i)).append(",");
             }
             sb.append("..]}");
         } else {
             for (int i = 0; i < uniqueCount(); i++) {
-                sb.append(stringUniqueValue(i)).append(":").append(rowList(i).size());
+                sb.append(stringUniqueValue(i)).append(":").append(rowCount(i));
                 if (i != uniqueCount() - 1) {
                     sb.append(",");
                 }
@@ -120,7 +164,7 @@ public abstract class AbstractUnique implements Unique {
         if (max > 40) {
             max = 40;
         }
-        double total = rowLists.values().stream().mapToDouble(Mapping::size).sum();
+        double total = idsByRow.length;
         if (uniqueCount() > max) {
             TextTable tt = TextTable.empty(max + 1, 3, 1, 0);
             tt.textCenter(0, 0, "Value");
@@ -129,15 +173,15 @@ public abstract class AbstractUnique implements Unique {
 
             for (int i = 0; i < 30; i++) {
                 tt.textRight(i + 1, 0, stringUniqueValue(i));
-                tt.textRight(i + 1, 1, Integer.toString(rowList(i).size()));
-                tt.textRight(i + 1, 2, Format.floatShort(rowList(i).size() / total));
+                tt.textRight(i + 1, 1, Integer.toString(rowCount(i)));
+                tt.textRight(i + 1, 2, Format.floatShort(rowCount(i) / total));
             }
             tt.textCenter(30 + 1, 0, "...");
             tt.textCenter(30 + 1, 1, "...");
             for (int i = 31; i < 40; i++) {
                 tt.textRight(i + 1, 0, stringUniqueValue(uniqueCount() - 40 + i));
-                tt.textRight(i + 1, 1, Integer.toString(rowList(uniqueCount() - 40 + i).size()));
-                tt.textRight(i + 1, 2, Format.floatShort(rowList(uniqueCount() - 40 + i).size() / total));
+                tt.textRight(i + 1, 1, Integer.toString(rowCount(uniqueCount() - 40 + i)));
+                tt.textRight(i + 1, 2, Format.floatShort(rowCount(uniqueCount() - 40 + i) / total));
             }
             return tt.getDynamicText(printer, options);
         }
@@ -151,11 +195,11 @@ public abstract class AbstractUnique implements Unique {
         tt.textCenter(0, 1, "Count");
         tt.textCenter(0, 2, "Percentage");
 
-        double total = rowLists.values().stream().mapToDouble(Mapping::size).sum();
+        double total = idsByRow.length;
         for (int i = 0; i < uniqueCount(); i++) {
             tt.textRight(i + 1, 0, stringUniqueValue(i));
-            tt.textRight(i + 1, 1, Integer.toString(rowList(i).size()));
-            tt.textRight(i + 1, 2, Format.floatShort(rowList(i).size() / total));
+            tt.textRight(i + 1, 1, Integer.toString(rowCount(i)));
+            tt.textRight(i + 1, 2, Format.floatShort(rowCount(i) / total));
         }
         return tt.getDynamicText(printer, options);
     }
@@ -27,16 +27,14 @@
 
 package rapaio.data.unique;
 
-import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
 import rapaio.data.VarInt;
 import rapaio.printer.Format;
-import rapaio.util.collection.DoubleArrays;
-import rapaio.util.collection.DoubleOpenHashSet;
 import rapaio.util.collection.IntArrays;
+import rapaio.util.collection.Long2IntOpenHashMap;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * Unique value feature for double values.
@@ -53,33 +51,36 @@ public class UniqueDouble extends AbstractUnique {
 
     private UniqueDouble(Var var, boolean sorted) {
         super(sorted);
-        DoubleOpenHashSet keySet = new DoubleOpenHashSet();
+
+        // values are identified by their bit representation, the same as Double.equals does
+        Long2IntOpenHashMap index = new Long2IntOpenHashMap();
+        int[] ids = new int[var.rowCount()];
+        double[] elements = new double[16];
+        int count = 0;
         for (int i = 0; i < var.rowCount(); i++) {
-            keySet.add(var.getDouble(i));
-        }
-        double[] elements = new double[keySet.size()];
-        int pos = 0;
-        for (double value : keySet) {
-            elements[pos++] = value;
+            double value = var.getDouble(i);
+            int id = index.putIfAbsent(Double.doubleToLongBits(value), count);
+            if (id == count) {
+                if (count == elements.length) {
+                    elements = Arrays.copyOf(elements, count * 2);
+                }
+                elements[count++] = value;
+            }
+            ids[i] = id;
         }
+        elements = Arrays.copyOf(elements, count);
         if (sorted) {
-            DoubleArrays.quickSort(elements, 0, elements.length, Double::compare);
-        }
-        HashMap<Double, Integer> uniqueKeys = new HashMap<>();
-        values = VarDouble.wrap(elements);
-        for (int i = 0; i < elements.length; i++) {
-            uniqueKeys.put(elements[i], i);
-        }
-        rowLists = new HashMap<>();
-        for (int i = 0; i < var.rowCount(); i++) {
-            double key = var.getDouble(i);
-            int id = uniqueKeys.get(key);
-            if (!rowLists.containsKey(id)) {
-                rowLists.put(id, Mapping.empty());
+            double[] unsortedElements = elements;
+            int[] order = IntArrays.newSeq(0, count);
+            IntArrays.quickSort(order, 0, count, (i, j) -> Double.compare(unsortedElements[i], unsortedElements[j]));
+            remapIds(ids, order);
+            elements = new double[count];
+            for (int i = 0; i < count; i++) {
+                elements[i] = unsortedElements[order[i]];
             }
-            rowLists.get(id).add(i);
         }
-        updateIdsByRow(var.rowCount());
+        values = VarDouble.wrap(elements);
+        buildRowLists(ids, count);
     }
 
     @Override
@@ -105,11 +106,6 @@ public class UniqueDouble extends AbstractUnique {
         return valueSortedIds;
     }
 
-    @Override
-    public Mapping rowList(int id) {
-        return rowLists.get(id);
-    }
-
     public double uniqueValue(int id) {
         return values.getDouble(id);
     }
@@ -27,13 +27,12 @@
 
 package rapaio.data.unique;
 
-import rapaio.data.Mapping;
 import rapaio.data.Var;
 import rapaio.data.VarInt;
 import rapaio.util.collection.IntArrays;
+import rapaio.util.collection.Long2IntOpenHashMap;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 
 /**
  * Unique value feature for integer values.
@@ -50,33 +49,34 @@ public class UniqueInt extends AbstractUnique {
 
     private UniqueInt(Var var, boolean sorted) {
         super(sorted);
-        HashSet<Integer> keySet = new HashSet<>();
+        Long2IntOpenHashMap index = new Long2IntOpenHashMap();
+        int[] ids = new int[var.rowCount()];
+        int[] elements = new int[16];
+        int count = 0;
         for (int i = 0; i < var.rowCount(); i++) {
-            keySet.add(var.getInt(i));
-        }
-        int[] elements = new int[keySet.size()];
-        int pos = 0;
-        for (int value : keySet) {
-            elements[pos++] = value;
+            int value = var.getInt(i);
+            int id = index.putIfAbsent(value, count);
+            if (id == count) {
+                if (count == elements.length) {
+                    elements = Arrays.copyOf(elements, count * 2);
+                }
+                elements[count++] = value;
+            }
+            ids[i] = id;
         }
+        elements = Arrays.copyOf(elements, count);
         if (sorted) {
-            IntArrays.quickSort(elements, 0, elements.length, Integer::compare);
-        }
-        HashMap<Integer, Integer> uniqueKeys = new HashMap<>();
-        values = VarInt.wrap(elements);
-        for (int i = 0; i < elements.length; i++) {
-            uniqueKeys.put(elements[i], i);
-        }
-        rowLists = new HashMap<>();
-        for (int i = 0; i < var.rowCount(); i++) {
-            int key = var.getInt(i);
-            int id = uniqueKeys.get(key);
-            if (!rowLists.containsKey(id)) {
-                rowLists.put(id, Mapping.empty());
+            int[] unsortedElements = elements;
+            int[] order = IntArrays.newSeq(0, count);
+            IntArrays.quickSort(order, 0, count, (i, j) -> Integer.compare(unsortedElements[i], unsortedElements[j]));
+            remapIds(ids, order);
+            elements = new int[count];
+            for (int i = 0; i < count; i++) {
+                elements[i] = unsortedElements[order[i]];
             }
-            rowLists.get(id).add(i);
         }
-        updateIdsByRow(var.rowCount());
+        values = VarInt.wrap(elements);
+        buildRowLists(ids, count);
     }
 
     @Override
@@ -101,11 +101,6 @@ public class UniqueInt extends AbstractUnique {
         return valueSortedIds;
     }
 
-    @Override
-    public Mapping rowList(int id) {
-        return rowLists.get(id);
-    }
-
     public int uniqueValue(int id) {
         return values.getInt(id);
     }
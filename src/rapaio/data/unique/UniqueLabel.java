@@ -27,7 +27,7 @@
 
 package rapaio.data.unique;
 
-import rapaio.data.Mapping;
+import rapaio.data.VType;
 import rapaio.data.Var;
 import rapaio.data.VarInt;
 import rapaio.util.collection.IntArrays;
@@ -36,7 +36,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 
 /**
  * Unique value feature for label values.
@@ -53,27 +53,43 @@ public class UniqueLabel extends AbstractUnique {
 
     private UniqueLabel(Var var, boolean sorted) {
         super(sorted);
-        HashSet<String> keySet = new HashSet<>();
-        for (int i = 0; i < var.rowCount(); i++) {
-            keySet.add(var.getLabel(i));
+        int[] ids = new int[var.rowCount()];
+        values = new ArrayList<>();
+        if (var.type() == VType.NOMINAL) {
+            // nominal variables already store labels as dictionary codes, which are used as keys
+            List<String> levels = var.levels();
+            int[] codeIds = IntArrays.newFill(levels.size(), -1);
+            for (int i = 0; i < var.rowCount(); i++) {
+                int code = var.getInt(i);
+                if (codeIds[code] < 0) {
+                    codeIds[code] = values.size();
+                    values.add(levels.get(code));
+                }
+                ids[i] = codeIds[code];
+            }
+        } else {
+            HashMap<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < var.rowCount(); i++) {
+                String label = var.getLabel(i);
+                Integer id = index.putIfAbsent(label, values.size());
+                if (id == null) {
+                    id = values.size();
+                    values.add(label);
+                }
+                ids[i] = id;
+            }
         }
-        values = new ArrayList<>(keySet);
         if (sorted) {
-            values.sort(new UniqueLabelComparator());
-        }
-        HashMap<String, Integer> uniqueKeys = new HashMap<>();
-        for (int i = 0; i < values.size(); i++) {
-            uniqueKeys.put(values.get(i), i);
-        }
-        rowLists = new HashMap<>();
-        for (int i = 0; i < var.rowCount(); i++) {
-            int id = uniqueKeys.get(var.getLabel(i));
-            if (!rowLists.containsKey(id)) {
-                rowLists.put(id, Mapping.empty());
+            List<String> unsortedValues = new ArrayList<>(values);
+            UniqueLabelComparator cmp = new UniqueLabelComparator();
+            int[] order = IntArrays.newSeq(0, values.size());
+            IntArrays.quickSort(order, 0, order.length, (i, j) -> cmp.compare(unsortedValues.get(i), unsortedValues.get(j)));
+            remapIds(ids, order);
+            for (int i = 0; i < order.length; i++) {
+                values.set(i, unsortedValues.get(order[i]));
             }
-            rowLists.get(id).add(i);
         }
-        updateIdsByRow(var.rowCount());
+        buildRowLists(ids, values.size());
     }
 
     @Override
@@ -99,11 +115,6 @@ public class UniqueLabel extends AbstractUnique {
         return valueSortedIds;
     }
 
-    @Override
-    public Mapping rowList(int id) {
-        return rowLists.get(id);
-    }
-
     public String uniqueValue(int id) {
         return values.get(id);
     }
@@ -45,6 +45,8 @@ import java.util.Set;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 8/17/18.
+ *
+ * @deprecated use {@link rapaio.data.Join} instead
  */
 @Deprecated
 public class Join {
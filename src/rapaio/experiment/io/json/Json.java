@@ -27,6 +27,7 @@
 
 package rapaio.experiment.io.json;
 
+import rapaio.data.Frame;
 import rapaio.experiment.io.json.stream.JsonSpliterator;
 import rapaio.experiment.io.json.tree.JsonValue;
 
@@ -63,18 +64,42 @@ public final class Json {
     }
 
     public static JsonStream stream(File root, FileFilter ff, Consumer<String> ph, Predicate<String> propFilter) {
+        List<File> files = files(root, ff);
+        if (files.isEmpty()) {
+            return new JsonStream(Stream.empty());
+        }
+        JsonSpliterator spliterator = new JsonSpliterator(files, ph, propFilter);
+        return new JsonStream(StreamSupport.stream(spliterator, spliterator.isParallel()));
+    }
+
+    /**
+     * Reads json files directly into a frame, without building json trees.
+     *
+     * @param root   file or directory with json files
+     * @param ff     filter for files from the root directory
+     * @param reader reader which describes the fields and their types
+     * @return frame with one row for each json object
+     */
+    public static Frame frame(File root, FileFilter ff, JsonFrameReader reader) throws IOException {
+        return reader.read(root, ff);
+    }
+
+    /**
+     * Lists the json files described by a root and a file filter. If the root is a directory
+     * the files from that directory accepted by filter are returned, otherwise the root itself.
+     */
+    static List<File> files(File root, FileFilter ff) {
         List<File> files = new ArrayList<>();
         if (root.isDirectory()) {
             File[] listFiles = root.listFiles();
             if (listFiles == null) {
-                return new JsonStream(Stream.empty());
+                return files;
             }
             files = Arrays.stream(listFiles).filter(ff::accept).collect(Collectors.toList());
         } else {
             files.add(root);
         }
-        JsonSpliterator spliterator = new JsonSpliterator(files, ph, propFilter);
-        return new JsonStream(StreamSupport.stream(spliterator, spliterator.isParallel()));
+        return files;
     }
 
     public static void write(OutputStream os, JsonValue js) throws IOException {
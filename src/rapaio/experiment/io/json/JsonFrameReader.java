@@ -0,0 +1,880 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.experiment.io.json;
+
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.VType;
+import rapaio.data.Var;
+import rapaio.experiment.io.json.stream.JsonInput;
+import rapaio.experiment.io.json.stream.LzJsonBlockFile;
+import rapaio.experiment.io.json.stream.LzJsonInput;
+import rapaio.experiment.io.json.tree.JsonValue;
+import rapaio.io.ParseTools.LabelInterner;
+import rapaio.io.ParseTools.NumberParser;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Schema directed json reader which parses json files straight into the typed columns of a frame.
+ * <p>
+ * The fields to be read are declared together with their types. Each json object found at the top
+ * level of a file, or as an element of a top level array, produces one row. Nested fields are addressed
+ * with dot separated paths, like {@code user.country}. A field which is absent from an object, is null,
+ * is an object or array, or cannot be converted to the declared type produces a missing value.
+ * If a field appears multiple times in the same object, the last value is kept.
+ * <p>
+ * Files are read in bulk through a large char buffer and tokenized in place. Values of fields which
+ * are not declared are skipped without being decoded and no json trees are built. Numbers are parsed
+ * directly from the buffered characters and nominal labels are created once per distinct label
+ * in a file. Files are sharded across a pool of threads, each file producing its own column chunk,
+ * and the chunks are concatenated in file order into a {@link SolidFrame}.
+ * <p>
+ * Files with {@code .gz} extension are decompressed on the fly. Files with {@code .lzjson} extension
+ * are read through {@link LzJsonInput}, which skips the top level fields which are not declared.
+ * Block compressed lzjson files (see {@link LzJsonBlockFile}) are sharded by blocks instead of files.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class JsonFrameReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * @return new reader with no declared fields
+     */
+    public static JsonFrameReader newReader() {
+        return new JsonFrameReader();
+    }
+
+    private final List<String> paths = new ArrayList<>();
+    private final List<VType> types = new ArrayList<>();
+    private int poolSize = -1;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private JsonFrameReader() {
+    }
+
+    /**
+     * Declares a field which will be read into a variable with the given type.
+     * The variable has the name of the field path.
+     *
+     * @param path field name or dot separated path for nested fields
+     * @param type type of the variable
+     * @return reader instance
+     */
+    public JsonFrameReader field(String path, VType type) {
+        if (paths.contains(path)) {
+            throw new IllegalArgumentException("Field " + path + " is already declared.");
+        }
+        paths.add(path);
+        types.add(type);
+        return this;
+    }
+
+    /**
+     * Number of threads used to read files in parallel. Negative values means the number
+     * of available processors, zero or one means files are read in the calling thread.
+     *
+     * @param poolSize thread pool size
+     * @return reader instance
+     */
+    public JsonFrameReader poolSize(int poolSize) {
+        this.poolSize = poolSize;
+        return this;
+    }
+
+    /**
+     * Size in chars of the buffer used by each thread to read a file.
+     *
+     * @param bufferSize size of the buffer
+     * @return reader instance
+     */
+    public JsonFrameReader bufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive.");
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    public Frame read(File root, FileFilter ff) throws IOException {
+        return read(Json.files(root, ff), Json.allFilter());
+    }
+
+    /**
+     * Reads json files into a frame. Only declared fields with top level keys accepted
+     * by property filter are read into variables.
+     *
+     * @param root       file or directory with json files
+     * @param ff         filter for files from the root directory
+     * @param propFilter filter for top level keys
+     * @return frame with one row for each json object
+     */
+    public Frame read(File root, FileFilter ff, Predicate<String> propFilter) throws IOException {
+        return read(Json.files(root, ff), propFilter);
+    }
+
+    public Frame read(List<File> files, Predicate<String> propFilter) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<VType> columnTypes = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            int dot = path.indexOf('.');
+            if (propFilter.test(dot < 0 ? path : path.substring(0, dot))) {
+                names.add(path);
+                columnTypes.add(types.get(i));
+            }
+        }
+        Node root = Node.build(names);
+        VType[] columns = columnTypes.toArray(new VType[0]);
+
+        List<Callable<Chunk>> tasks = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(".lzjson") && LzJsonBlockFile.isBlockFile(file)) {
+                LzJsonBlockFile index = LzJsonBlockFile.open(file);
+                for (int i = 0; i < index.blockCount(); i++) {
+                    final int block = i;
+                    tasks.add(() -> readBlock(index, block, root, columns));
+                }
+            } else {
+                tasks.add(() -> readFile(file, root, columns));
+            }
+        }
+
+        List<Chunk> chunks;
+        int threads = Math.min(poolSize < 0 ? Runtime.getRuntime().availableProcessors() : poolSize, tasks.size());
+        if (threads <= 1) {
+            chunks = new ArrayList<>();
+            for (Callable<Chunk> task : tasks) {
+                chunks.add(call(task));
+            }
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                chunks = collect(pool, tasks);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        return merge(names, columns, chunks);
+    }
+
+    private static <T> T call(Callable<T> task) throws IOException {
+        try {
+            return task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("error at reading json", e);
+        }
+    }
+
+    private <T> List<T> collect(ExecutorService pool, List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("json parallel reading was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("error at parallel reading json", e.getCause());
+        }
+        return results;
+    }
+
+    private Chunk readFile(File file, Node root, VType[] columns) throws IOException {
+        Chunk chunk = new Chunk(columns);
+        if (file.getName().endsWith(".lzjson")) {
+            InputStream is = new BufferedInputStream(new GZIPInputStream(new FileInputStream(file)));
+            try (JsonInput input = new LzJsonInput(is, key -> root.find(key) != null)) {
+                while (true) {
+                    JsonValue js;
+                    try {
+                        js = input.read();
+                    } catch (EOFException eof) {
+                        break;
+                    }
+                    if (js == null) {
+                        break;
+                    }
+                    chunk.addTree(root, js);
+                }
+            }
+            return chunk;
+        }
+        InputStream is = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            is = new GZIPInputStream(is, 64 * 1024);
+        }
+        try (Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+            new Parser(file, reader, bufferSize).readRecords(root, chunk);
+        }
+        return chunk;
+    }
+
+    private Chunk readBlock(LzJsonBlockFile index, int block, Node root, VType[] columns) throws IOException {
+        Chunk chunk = new Chunk(columns);
+        for (JsonValue js : index.readBlock(block, key -> root.find(key) != null)) {
+            chunk.addTree(root, js);
+        }
+        return chunk;
+    }
+
+    private Frame merge(List<String> names, VType[] columns, List<Chunk> chunks) {
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.rows;
+        }
+        List<Var> vars = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            Var target = columns[i].newInstance(total).name(names.get(i));
+            int pos = 0;
+            for (Chunk chunk : chunks) {
+                Var source = chunk.vars[i];
+                for (int j = 0; j < chunk.rows; j++) {
+                    copyValue(source, j, target, pos++);
+                }
+            }
+            vars.add(target);
+        }
+        return SolidFrame.byVars(total, vars);
+    }
+
+    private static void copyValue(Var source, int row, Var target, int pos) {
+        if (source.isMissing(row)) {
+            target.setMissing(pos);
+            return;
+        }
+        switch (target.type()) {
+            case BINARY:
+            case INT:
+                target.setInt(pos, source.getInt(row));
+                break;
+            case LONG:
+                target.setLong(pos, source.getLong(row));
+                break;
+            case DOUBLE:
+                target.setDouble(pos, source.getDouble(row));
+                break;
+            default:
+                target.setLabel(pos, source.getLabel(row));
+        }
+    }
+
+    private static int hash(char[] chars, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h;
+    }
+
+    private static boolean equal(String text, char[] chars, int len) {
+        if (text.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (text.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Node of the schema tree. Each node has the names of the nested fields which are read
+     * and the column index if the node itself is read into a variable.
+     */
+    private static final class Node {
+
+        private int column = -1;
+        private String[] names = new String[0];
+        private int[] hashes = new int[0];
+        private Node[] children = new Node[0];
+
+        static Node build(List<String> paths) {
+            Node root = new Node();
+            for (int i = 0; i < paths.size(); i++) {
+                Node node = root;
+                for (String name : paths.get(i).split("\\.", -1)) {
+                    node = node.child(name);
+                }
+                node.column = i;
+            }
+            return root;
+        }
+
+        private Node child(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return children[i];
+                }
+            }
+            int len = names.length;
+            names = Arrays.copyOf(names, len + 1);
+            hashes = Arrays.copyOf(hashes, len + 1);
+            children = Arrays.copyOf(children, len + 1);
+            names[len] = name;
+            hashes[len] = name.hashCode();
+            children[len] = new Node();
+            return children[len];
+        }
+
+        boolean hasChildren() {
+            return children.length > 0;
+        }
+
+        Node find(String name) {
+            return find(name.toCharArray(), name.length());
+        }
+
+        Node find(char[] chars, int len) {
+            int h = hash(chars, len);
+            for (int i = 0; i < names.length; i++) {
+                if (hashes[i] == h && equal(names[i], chars, len)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Streaming tokenizer which reads a json file through a char buffer and sends the values
+     * of the declared fields to the column chunk.
+     */
+    private static final class Parser {
+
+        private final File file;
+        private final Reader reader;
+        private final char[] buff;
+        private int pos;
+        private int lim;
+
+        // current token
+        private char[] tok = new char[64];
+        private int len;
+
+        Parser(File file, Reader reader, int bufferSize) {
+            this.file = file;
+            this.reader = reader;
+            this.buff = new char[bufferSize];
+        }
+
+        private boolean fill() throws IOException {
+            if (pos < lim) {
+                return true;
+            }
+            int n = reader.read(buff, 0, buff.length);
+            pos = 0;
+            lim = Math.max(n, 0);
+            return n > 0;
+        }
+
+        private IOException error(String message) {
+            return new IOException("Malformed json in file " + file.getName() + ": " + message);
+        }
+
+        /**
+         * Skips white characters and returns the next character without consuming it, or -1 at the end of file.
+         */
+        private int next() throws IOException {
+            while (true) {
+                if (pos == lim && !fill()) {
+                    return -1;
+                }
+                char ch = buff[pos];
+                if (ch != ' ' && ch != '\n' && ch != '\r' && ch != '\t') {
+                    return ch;
+                }
+                pos++;
+            }
+        }
+
+        private static boolean isDelimiter(char ch) {
+            return ch == ',' || ch == '}' || ch == ']' || ch == ':' || ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t';
+        }
+
+        void readRecords(Node root, Chunk chunk) throws IOException {
+            while (true) {
+                int ch = next();
+                if (ch == -1) {
+                    return;
+                }
+                if (ch == '{') {
+                    pos++;
+                    readObject(root, chunk);
+                    chunk.endRow();
+                } else if (ch == '[') {
+                    pos++;
+                    readArray(root, chunk);
+                } else {
+                    skipValue();
+                }
+            }
+        }
+
+        private void readArray(Node root, Chunk chunk) throws IOException {
+            while (true) {
+                int ch = next();
+                if (ch == -1) {
+                    throw error("unterminated array");
+                }
+                if (ch == ']') {
+                    pos++;
+                    return;
+                }
+                if (ch == ',') {
+                    pos++;
+                } else if (ch == '{') {
+                    pos++;
+                    readObject(root, chunk);
+                    chunk.endRow();
+                } else {
+                    skipValue();
+                }
+            }
+        }
+
+        private void readObject(Node node, Chunk chunk) throws IOException {
+            while (true) {
+                int ch = next();
+                if (ch == -1) {
+                    throw error("unterminated object");
+                }
+                if (ch == '}') {
+                    pos++;
+                    return;
+                }
+                if (ch == ',') {
+                    pos++;
+                    continue;
+                }
+                if (ch != '"') {
+                    throw error("expected field name but found '" + (char) ch + "'");
+                }
+                pos++;
+                readString();
+                Node child = node.find(tok, len);
+                if (next() != ':') {
+                    throw error("expected ':' after field name " + new String(tok, 0, len));
+                }
+                pos++;
+                if (child == null) {
+                    skipValue();
+                } else {
+                    readField(child, chunk);
+                }
+            }
+        }
+
+        private void readField(Node node, Chunk chunk) throws IOException {
+            int ch = next();
+            if (ch == -1) {
+                throw error("missing field value");
+            }
+            if (ch == '{' && node.hasChildren()) {
+                pos++;
+                readObject(node, chunk);
+                return;
+            }
+            if (node.column < 0) {
+                skipValue();
+                return;
+            }
+            switch (ch) {
+                case '"':
+                    pos++;
+                    readString();
+                    chunk.putString(node.column, tok, len);
+                    break;
+                case '{':
+                case '[':
+                    skipValue();
+                    chunk.putMissing(node.column);
+                    break;
+                default:
+                    readBare();
+                    chunk.putBare(node.column, tok, len);
+            }
+        }
+
+        private void append(char[] chars, int start, int count) {
+            if (len + count > tok.length) {
+                tok = Arrays.copyOf(tok, Math.max(tok.length * 2, len + count));
+            }
+            System.arraycopy(chars, start, tok, len, count);
+            len += count;
+        }
+
+        private void append(char ch) {
+            if (len == tok.length) {
+                tok = Arrays.copyOf(tok, tok.length * 2);
+            }
+            tok[len++] = ch;
+        }
+
+        /**
+         * Reads the content of a string into the current token, the opening quote being already consumed.
+         */
+        private void readString() throws IOException {
+            len = 0;
+            while (true) {
+                if (pos == lim && !fill()) {
+                    throw error("unterminated string");
+                }
+                int start = pos;
+                while (pos < lim && buff[pos] != '"' && buff[pos] != '\\') {
+                    pos++;
+                }
+                append(buff, start, pos - start);
+                if (pos == lim) {
+                    continue;
+                }
+                if (buff[pos++] == '"') {
+                    return;
+                }
+                append(readEscape());
+            }
+        }
+
+        private char readEscape() throws IOException {
+            if (pos == lim && !fill()) {
+                throw error("unterminated escape sequence");
+            }
+            char ch = buff[pos++];
+            switch (ch) {
+                case 'n':
+                    return '\n';
+                case 't':
+                    return '\t';
+                case 'r':
+                    return '\r';
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'u': {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        if (pos == lim && !fill()) {
+                            throw error("unterminated escape sequence");
+                        }
+                        int digit = Character.digit(buff[pos++], 16);
+                        if (digit < 0) {
+                            throw error("invalid unicode escape sequence");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    return (char) code;
+                }
+                default:
+                    return ch;
+            }
+        }
+
+        /**
+         * Reads a number or a literal into the current token.
+         */
+        private void readBare() throws IOException {
+            len = 0;
+            while (pos < lim || fill()) {
+                int start = pos;
+                while (pos < lim && !isDelimiter(buff[pos])) {
+                    pos++;
+                }
+                append(buff, start, pos - start);
+                if (pos < lim) {
+                    break;
+                }
+            }
+            if (len == 0) {
+                throw error(pos < lim ? "unexpected character '" + buff[pos] + "'" : "unexpected end of file");
+            }
+        }
+
+        private void skipString() throws IOException {
+            while (true) {
+                if (pos == lim && !fill()) {
+                    throw error("unterminated string");
+                }
+                char ch = buff[pos++];
+                if (ch == '"') {
+                    return;
+                }
+                if (ch == '\\') {
+                    if (pos == lim && !fill()) {
+                        throw error("unterminated escape sequence");
+                    }
+                    pos++;
+                }
+            }
+        }
+
+        private void skipValue() throws IOException {
+            int ch = next();
+            if (ch == '"') {
+                pos++;
+                skipString();
+                return;
+            }
+            if (ch != '{' && ch != '[') {
+                readBare();
+                return;
+            }
+            int depth = 0;
+            while (true) {
+                if (pos == lim && !fill()) {
+                    throw error("unterminated value");
+                }
+                char c = buff[pos++];
+                if (c == '"') {
+                    skipString();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Column buffers for the rows read from a file.
+     */
+    private static final class Chunk {
+
+        private final VType[] types;
+        private final Var[] vars;
+        private final LabelInterner[] interners;
+        private final NumberParser parser = new NumberParser();
+        private long longValue;
+        private int rows;
+
+        Chunk(VType[] types) {
+            this.types = types;
+            this.vars = new Var[types.length];
+            this.interners = new LabelInterner[types.length];
+            for (int i = 0; i < types.length; i++) {
+                vars[i] = types[i].newInstance(0);
+                if (types[i] == VType.NOMINAL) {
+                    interners[i] = new LabelInterner();
+                }
+            }
+        }
+
+        void endRow() {
+            for (Var var : vars) {
+                if (var.rowCount() == rows) {
+                    var.addMissing();
+                }
+            }
+            rows++;
+        }
+
+        void addTree(Node root, JsonValue js) {
+            if (js.isArray()) {
+                for (JsonValue element : js.valueList()) {
+                    if (element.isObject()) {
+                        addTreeObject(root, element);
+                        endRow();
+                    }
+                }
+            } else if (js.isObject()) {
+                addTreeObject(root, js);
+                endRow();
+            }
+        }
+
+        private void addTreeObject(Node node, JsonValue js) {
+            for (int i = 0; i < node.names.length; i++) {
+                Node child = node.children[i];
+                JsonValue value = js.get(node.names[i]);
+                if (value.isObject() && child.hasChildren()) {
+                    addTreeObject(child, value);
+                } else if (child.column >= 0 && !value.isNull()) {
+                    if (value.isObject() || value.isArray()) {
+                        putMissing(child.column);
+                        continue;
+                    }
+                    char[] chars = value.asString().orElse("").toCharArray();
+                    if (value.isString()) {
+                        putString(child.column, chars, chars.length);
+                    } else {
+                        putBare(child.column, chars, chars.length);
+                    }
+                }
+            }
+        }
+
+        void putMissing(int col) {
+            if (vars[col].rowCount() > rows) {
+                vars[col].setMissing(rows);
+            } else {
+                vars[col].addMissing();
+            }
+        }
+
+        private void putLabel(int col, String label) {
+            if (vars[col].rowCount() > rows) {
+                vars[col].setLabel(rows, label);
+            } else {
+                vars[col].addLabel(label);
+            }
+        }
+
+        private String label(int col, char[] chars, int len) {
+            return interners[col] != null ? interners[col].intern(chars, 0, len) : new String(chars, 0, len);
+        }
+
+        void putString(int col, char[] chars, int len) {
+            if (types[col] == VType.NOMINAL || types[col] == VType.STRING) {
+                putLabel(col, label(col, chars, len));
+            } else {
+                putNumeric(col, chars, len);
+            }
+        }
+
+        void putBare(int col, char[] chars, int len) {
+            if (equal("null", chars, len)) {
+                putMissing(col);
+            } else if (types[col] == VType.NOMINAL || types[col] == VType.STRING) {
+                putLabel(col, label(col, chars, len));
+            } else {
+                putNumeric(col, chars, len);
+            }
+        }
+
+        private void putNumeric(int col, char[] chars, int len) {
+            Var var = vars[col];
+            boolean set = var.rowCount() > rows;
+            if (types[col] == VType.DOUBLE) {
+                double value = equal("true", chars, len) ? 1 : equal("false", chars, len) ? 0 : parseDouble(chars, len);
+                if (set) {
+                    var.setDouble(rows, value);
+                } else {
+                    var.addDouble(value);
+                }
+                return;
+            }
+            if (!parseIntegral(chars, len)
+                    || (types[col] == VType.BINARY && longValue != 0 && longValue != 1)
+                    || (types[col] != VType.LONG && (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE))) {
+                putMissing(col);
+                return;
+            }
+            if (types[col] == VType.LONG) {
+                if (set) {
+                    var.setLong(rows, longValue);
+                } else {
+                    var.addLong(longValue);
+                }
+            } else {
+                if (set) {
+                    var.setInt(rows, (int) longValue);
+                } else {
+                    var.addInt((int) longValue);
+                }
+            }
+        }
+
+        /**
+         * Parses an integral value into {@link #longValue}. Booleans are parsed as 1 and 0, and
+         * real numbers are accepted only if they have integral values.
+         */
+        private boolean parseIntegral(char[] chars, int len) {
+            if (equal("true", chars, len)) {
+                longValue = 1;
+                return true;
+            }
+            if (equal("false", chars, len)) {
+                longValue = 0;
+                return true;
+            }
+            int i = 0;
+            boolean negative = false;
+            if (len > 0 && (chars[0] == '-' || chars[0] == '+')) {
+                negative = chars[0] == '-';
+                i++;
+            }
+            if (i < len && len - i <= 18) {
+                long value = 0;
+                while (i < len && chars[i] >= '0' && chars[i] <= '9') {
+                    value = value * 10 + (chars[i++] - '0');
+                }
+                if (i == len) {
+                    longValue = negative ? -value : value;
+                    return true;
+                }
+            }
+            double value = parseDouble(chars, len);
+            if (Double.isNaN(value) || Double.isInfinite(value) || value != Math.rint(value)
+                    || value < Long.MIN_VALUE || value > Long.MAX_VALUE) {
+                return false;
+            }
+            longValue = (long) value;
+            return true;
+        }
+
+        /**
+         * Parses a double value from the characters of a json number.
+         * Values which cannot be parsed produce {@link Double#NaN}.
+         */
+        private double parseDouble(char[] chars, int len) {
+            return parser.parseDouble(chars, 0, len) ? parser.doubleValue() : Double.NaN;
+        }
+    }
+}
@@ -38,6 +38,7 @@ import java.util.stream.Stream;
 
 /**
  * Utility class used to extract features from a JsonValue steam.
+ * For reading json files directly into a frame use {@link rapaio.experiment.io.json.JsonFrameReader}.
  * <p>
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 4/10/15.
  */
@@ -44,13 +44,17 @@ import java.util.zip.GZIPInputStream;
 
 /**
  * JsonSpliterator
+ * <p>
+ * The spliterator splits its work by files. Block compressed lzjson files (see {@link LzJsonBlockFile})
+ * are split also by ranges of blocks, which allows a single large file to be parsed in parallel.
+ * <p>
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 3/6/15.
  */
 public class JsonSpliterator implements Spliterator<JsonValue> {
 
     private static final Logger logger = Logger.getLogger(JsonSpliterator.class.getName());
 
-    private LinkedList<File> files;
+    private LinkedList<Segment> segments;
     private final Consumer<String> messageHandler;
     private final boolean parallel;
     private final Predicate<String> propFilter;
@@ -59,11 +63,36 @@ public class JsonSpliterator implements Spliterator<JsonValue> {
     private JsonInput input;
 
     public JsonSpliterator(List<File> files, Consumer<String> messageHandler, Predicate<String> propFilter) {
-        this.files = new LinkedList<>(files);
-        this.parallel = files.size() > 1;
+        this(segments(files), messageHandler, propFilter);
+    }
+
+    private JsonSpliterator(LinkedList<Segment> segments, Consumer<String> messageHandler, Predicate<String> propFilter) {
+        this.segments = segments;
+        this.parallel = segments.size() > 1 || (segments.size() == 1 && segments.getFirst().blocks() > 1);
         this.messageHandler = messageHandler;
         this.propFilter = propFilter;
-        estimateSize = files.stream().mapToLong(File::length).sum();
+        estimateSize = estimateSize(segments);
+    }
+
+    private static LinkedList<Segment> segments(List<File> files) {
+        LinkedList<Segment> segments = new LinkedList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(".lzjson") && LzJsonBlockFile.isBlockFile(file)) {
+                try {
+                    LzJsonBlockFile index = LzJsonBlockFile.open(file);
+                    segments.add(new Segment(file, index, 0, index.blockCount()));
+                    continue;
+                } catch (IOException ex) {
+                    logger.log(Level.SEVERE, "error at reading block index of " + file.getName(), ex);
+                }
+            }
+            segments.add(new Segment(file, null, 0, 0));
+        }
+        return segments;
+    }
+
+    private static long estimateSize(List<Segment> segments) {
+        return segments.stream().mapToLong(Segment::length).sum();
     }
 
     public boolean isParallel() {
@@ -81,24 +110,27 @@ public class JsonSpliterator implements Spliterator<JsonValue> {
             if (js != null)
                 return js;
             input.close();
-            if (files.isEmpty())
+            if (segments.isEmpty())
                 return null;
-            messageHandler.accept("parsing (next): " + files.getFirst().getName());
-            estimateSize = files.stream().mapToLong(File::length).sum();
-            input = buildInput(files.pollFirst());
+            messageHandler.accept("parsing (next): " + segments.getFirst().file.getName());
+            estimateSize = estimateSize(segments);
+            input = buildInput(segments.pollFirst());
             return parseStream();
         } else {
-            if (files.isEmpty()) {
+            if (segments.isEmpty()) {
                 return null;
             }
-            messageHandler.accept("parsing (head): " + files.getFirst().getName());
-            estimateSize = files.stream().mapToLong(File::length).sum();
-            input = buildInput(files.pollFirst());
+            messageHandler.accept("parsing (head): " + segments.getFirst().file.getName());
+            estimateSize = estimateSize(segments);
+            input = buildInput(segments.pollFirst());
             return parseStream();
         }
     }
 
-    private JsonInput buildInput(File file) throws IOException {
+    private JsonInput buildInput(Segment segment) throws IOException {
+        if (segment.index != null)
+            return segment.index.input(segment.fromBlock, segment.toBlock, propFilter);
+        File file = segment.file;
         if (file.getName().endsWith(".lzjson"))
             return new LzJsonInput(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))), propFilter);
         return new JsonInputFlat(file);
@@ -120,11 +152,22 @@ public class JsonSpliterator implements Spliterator<JsonValue> {
 
     @Override
     public Spliterator<JsonValue> trySplit() {
-        if (files.size() > 1) {
-            int len = files.size() / 2;
-            LinkedList<File> splitFiles = new LinkedList<>(files.subList(files.size() - len, files.size()));
-            files = new LinkedList<>(files.subList(0, files.size() - len));
-            return new JsonSpliterator(splitFiles, messageHandler, propFilter);
+        if (segments.size() > 1) {
+            int len = segments.size() / 2;
+            LinkedList<Segment> splitSegments = new LinkedList<>(segments.subList(segments.size() - len, segments.size()));
+            segments = new LinkedList<>(segments.subList(0, segments.size() - len));
+            estimateSize = estimateSize(segments);
+            return new JsonSpliterator(splitSegments, messageHandler, propFilter);
+        }
+        if (segments.size() == 1 && segments.getFirst().blocks() > 1) {
+            // split the block range of a block compressed file
+            Segment segment = segments.pollFirst();
+            int mid = (segment.fromBlock + segment.toBlock) >>> 1;
+            segments.add(new Segment(segment.file, segment.index, segment.fromBlock, mid));
+            estimateSize = estimateSize(segments);
+            LinkedList<Segment> splitSegments = new LinkedList<>();
+            splitSegments.add(new Segment(segment.file, segment.index, mid, segment.toBlock));
+            return new JsonSpliterator(splitSegments, messageHandler, propFilter);
         }
         return null;
     }
@@ -153,4 +196,37 @@ public class JsonSpliterator implements Spliterator<JsonValue> {
     public int characteristics() {
         return SIZED & SUBSIZED & IMMUTABLE;
     }
+
+    /**
+     * A file or a range of blocks from a block compressed lzjson file.
+     */
+    private static final class Segment {
+
+        private final File file;
+        private final LzJsonBlockFile index;
+        private final int fromBlock;
+        private final int toBlock;
+
+        Segment(File file, LzJsonBlockFile index, int fromBlock, int toBlock) {
+            this.file = file;
+            this.index = index;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        int blocks() {
+            return index == null ? 0 : toBlock - fromBlock;
+        }
+
+        long length() {
+            if (index == null) {
+                return file.length();
+            }
+            long length = 0;
+            for (int i = fromBlock; i < toBlock; i++) {
+                length += index.blockLength(i);
+            }
+            return length;
+        }
+    }
 }
@@ -0,0 +1,302 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.experiment.io.json.stream;
+
+import rapaio.experiment.io.json.tree.JsonValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Index of a block compressed lzjson file, which is the second version of the lzjson format.
+ * <p>
+ * A block file starts with a 4 bytes magic header and continues with a sequence of blocks.
+ * Each block contains a batch of json values encoded as in the first version of the format,
+ * with its own string and numeric term dictionaries, and is deflate compressed independently
+ * of the other blocks. The blocks are followed by an index with the offset, compressed length
+ * and number of records of each block. The file ends with a trailer which contains the number
+ * of blocks, the offset of the index and the magic bytes.
+ * <p>
+ * Since blocks are independently decodable, a file can be split into block ranges which are
+ * decoded in parallel, and a record can be read knowing only its position in the file.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class LzJsonBlockFile {
+
+    static final byte[] MAGIC = new byte[]{'L', 'Z', 'J', 2};
+    static final int TRAILER_SIZE = 4 + 8 + MAGIC.length;
+    static final int INDEX_ENTRY_SIZE = 8 + 4 + 4;
+
+    /**
+     * Checks if a file is a block compressed lzjson file by looking at its magic header.
+     *
+     * @param file file to be checked
+     * @return true if the file starts with the magic header of block lzjson files
+     */
+    public static boolean isBlockFile(File file) {
+        if (!file.isFile() || file.length() < MAGIC.length + TRAILER_SIZE) {
+            return false;
+        }
+        byte[] header = new byte[MAGIC.length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.readFully(header);
+        } catch (IOException ex) {
+            return false;
+        }
+        return Arrays.equals(MAGIC, header);
+    }
+
+    /**
+     * Opens a block lzjson file and reads its index.
+     *
+     * @param file block lzjson file
+     * @return block index of the file
+     */
+    public static LzJsonBlockFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < MAGIC.length + TRAILER_SIZE) {
+                throw new IOException("File " + file.getName() + " is not a block lzjson file.");
+            }
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            int blockCount = trailer.getInt();
+            long indexOffset = trailer.getLong();
+            byte[] magic = new byte[MAGIC.length];
+            trailer.get(magic);
+            if (!Arrays.equals(MAGIC, magic) || blockCount < 0
+                    || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != size - TRAILER_SIZE) {
+                throw new IOException("File " + file.getName() + " has an invalid block lzjson index.");
+            }
+            ByteBuffer index = read(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+            long[] offsets = new long[blockCount];
+            int[] lengths = new int[blockCount];
+            int[] records = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                offsets[i] = index.getLong();
+                lengths[i] = index.getInt();
+                records[i] = index.getInt();
+            }
+            return new LzJsonBlockFile(file, offsets, lengths, records);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int len) throws IOException {
+        ByteBuffer buff = ByteBuffer.allocate(len);
+        while (buff.hasRemaining()) {
+            if (channel.read(buff, position + buff.position()) < 0) {
+                throw new EOFException("Unexpected end of block lzjson file.");
+            }
+        }
+        buff.flip();
+        return buff;
+    }
+
+    private final File file;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final int[] records;
+    private final long[] firstRecords;
+
+    private LzJsonBlockFile(File file, long[] offsets, int[] lengths, int[] records) {
+        this.file = file;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.records = records;
+        this.firstRecords = new long[records.length + 1];
+        for (int i = 0; i < records.length; i++) {
+            firstRecords[i + 1] = firstRecords[i] + records[i];
+        }
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public int blockCount() {
+        return offsets.length;
+    }
+
+    /**
+     * @param block block index
+     * @return number of records stored in the block
+     */
+    public int blockRecords(int block) {
+        return records[block];
+    }
+
+    /**
+     * @param block block index
+     * @return compressed size in bytes of the block
+     */
+    public int blockLength(int block) {
+        return lengths[block];
+    }
+
+    /**
+     * @return total number of records from the file
+     */
+    public long recordCount() {
+        return firstRecords[records.length];
+    }
+
+    /**
+     * Finds the block which contains a record.
+     *
+     * @param record position of the record in file
+     * @return index of the block which contains the record
+     */
+    public int blockOf(long record) {
+        if (record < 0 || record >= recordCount()) {
+            throw new IndexOutOfBoundsException("Record " + record + " is not in file " + file.getName() + ".");
+        }
+        int lo = 0;
+        int hi = records.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (firstRecords[mid] <= record) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Reads a single record without decoding the blocks which precede it.
+     *
+     * @param record position of the record in file
+     * @return json value of the record
+     */
+    public JsonValue read(long record) throws IOException {
+        int block = blockOf(record);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            LzJsonInput input = blockInput(raf.getChannel(), block, key -> true);
+            JsonValue js = null;
+            for (long i = firstRecords[block]; i <= record; i++) {
+                js = input.read();
+            }
+            return js;
+        }
+    }
+
+    /**
+     * Decodes all records from a block.
+     *
+     * @param block      block index
+     * @param propFilter filter for top level keys of json objects
+     * @return list of json values from block
+     */
+    public List<JsonValue> readBlock(int block, Predicate<String> propFilter) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             LzJsonInput input = blockInput(raf.getChannel(), block, propFilter)) {
+            List<JsonValue> values = new ArrayList<>(records[block]);
+            for (int i = 0; i < records[block]; i++) {
+                values.add(input.read());
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Builds a sequential input over a range of blocks.
+     *
+     * @param fromBlock  first block, inclusive
+     * @param toBlock    last block, exclusive
+     * @param propFilter filter for top level keys of json objects
+     * @return json input over the block range
+     */
+    public JsonInput input(int fromBlock, int toBlock, Predicate<String> propFilter) throws IOException {
+        return new BlockRangeInput(fromBlock, toBlock, propFilter);
+    }
+
+    LzJsonInput blockInput(FileChannel channel, int block, Predicate<String> propFilter) throws IOException {
+        ByteBuffer buff = read(channel, offsets[block], lengths[block]);
+        // the stream owns its default inflater, which is ended when the input is closed
+        return new LzJsonInput(new InflaterInputStream(new ByteArrayInputStream(buff.array())), propFilter);
+    }
+
+    private final class BlockRangeInput implements JsonInput {
+
+        private final RandomAccessFile raf;
+        private final int toBlock;
+        private final Predicate<String> propFilter;
+        private int block;
+        private int remaining;
+        private LzJsonInput input;
+
+        BlockRangeInput(int fromBlock, int toBlock, Predicate<String> propFilter) throws IOException {
+            this.raf = new RandomAccessFile(file, "r");
+            this.block = fromBlock;
+            this.toBlock = toBlock;
+            this.propFilter = propFilter;
+        }
+
+        @Override
+        public JsonValue read() throws IOException {
+            while (remaining == 0) {
+                if (input != null) {
+                    input.close();
+                    input = null;
+                }
+                if (block >= toBlock) {
+                    return null;
+                }
+                input = blockInput(raf.getChannel(), block, propFilter);
+                remaining = records[block];
+                block++;
+            }
+            remaining--;
+            return input.read();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (input != null) {
+                    input.close();
+                    input = null;
+                }
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
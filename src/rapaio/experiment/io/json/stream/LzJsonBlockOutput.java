@@ -0,0 +1,206 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.experiment.io.json.stream;
+
+import rapaio.experiment.io.json.tree.JsonValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes json values to an output stream formatted as block compressed lzjson,
+ * the format described in {@link LzJsonBlockFile}.
+ * <p>
+ * Values are buffered into blocks with a fixed number of records. Full blocks are encoded
+ * and compressed in parallel by a pool of threads and are written in order as they are done.
+ * The number of blocks in flight is bounded to twice the number of threads. The index
+ * with block offsets and record counts is written at close.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class LzJsonBlockOutput implements Closeable {
+
+    private final DataOutputStream os;
+    private final ExecutorService pool;
+    private final int threads;
+    private final LinkedList<Future<Block>> pending = new LinkedList<>();
+    private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+    private final DataOutputStream indexOut = new DataOutputStream(index);
+    private int blockCount;
+    private List<JsonValue> buffer = new ArrayList<>();
+    private int blockSize = 10_000;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private long offset;
+
+    public LzJsonBlockOutput(OutputStream os) throws IOException {
+        this(os, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param os       output stream
+     * @param poolSize number of threads used to compress blocks, values less than
+     *                 one means compression in the calling thread
+     */
+    public LzJsonBlockOutput(OutputStream os, int poolSize) throws IOException {
+        this.os = new DataOutputStream(os);
+        this.threads = poolSize;
+        this.pool = poolSize > 0 ? Executors.newFixedThreadPool(poolSize) : null;
+        this.os.write(LzJsonBlockFile.MAGIC);
+        this.offset = LzJsonBlockFile.MAGIC.length;
+    }
+
+    /**
+     * @param blockSize number of records in a block
+     * @return output instance
+     */
+    public LzJsonBlockOutput withBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    /**
+     * @param level deflate compression level
+     * @return output instance
+     */
+    public LzJsonBlockOutput withCompressionLevel(int level) {
+        this.level = level;
+        return this;
+    }
+
+    public void write(JsonValue js) throws IOException {
+        buffer.add(js);
+        if (buffer.size() >= blockSize) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        final List<JsonValue> values = buffer;
+        final int compressionLevel = level;
+        buffer = new ArrayList<>();
+        if (pool == null) {
+            writeBlock(encode(values, compressionLevel));
+            return;
+        }
+        pending.add(pool.submit(() -> encode(values, compressionLevel)));
+        while (pending.size() > 2 * threads) {
+            writeBlock(await(pending.pollFirst()));
+        }
+    }
+
+    private Block await(Future<Block> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("lzjson block compression was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("error at lzjson block compression", e.getCause());
+        }
+    }
+
+    private static Block encode(List<JsonValue> values, int level) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (LzJsonOutput out = new LzJsonOutput(raw, false).withMaxObjectBuffer(Integer.MAX_VALUE)) {
+            for (JsonValue js : values) {
+                out.write(js);
+            }
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(level);
+        try (DeflaterOutputStream dos = new DeflaterOutputStream(compressed, deflater, 64 * 1024)) {
+            raw.writeTo(dos);
+        } finally {
+            deflater.end();
+        }
+        return new Block(compressed.toByteArray(), values.size());
+    }
+
+    private void writeBlock(Block block) throws IOException {
+        os.write(block.data);
+        indexOut.writeLong(offset);
+        indexOut.writeInt(block.data.length);
+        indexOut.writeInt(block.records);
+        offset += block.data.length;
+        blockCount++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!buffer.isEmpty()) {
+                flushBuffer();
+            }
+            while (!pending.isEmpty()) {
+                writeBlock(await(pending.pollFirst()));
+            }
+            index.writeTo(os);
+            os.writeInt(blockCount);
+            os.writeLong(offset);
+            os.write(LzJsonBlockFile.MAGIC);
+            os.flush();
+            os.close();
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static final class Block {
+
+        private final byte[] data;
+        private final int records;
+
+        Block(byte[] data, int records) {
+            this.data = data;
+            this.records = records;
+        }
+    }
+}
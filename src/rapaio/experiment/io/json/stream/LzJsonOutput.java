@@ -70,7 +70,15 @@ public class LzJsonOutput extends LzJsonAlgorithm implements Closeable {
 
 
     public LzJsonOutput(OutputStream os) throws IOException {
-        this.os = new DataOutputStream(new GZIPOutputStream(os));
+        this(os, true);
+    }
+
+    /**
+     * Builds an output which optionally skips the gzip compression. The uncompressed
+     * form is used to encode the blocks of {@link LzJsonBlockOutput}.
+     */
+    LzJsonOutput(OutputStream os, boolean compress) throws IOException {
+        this.os = new DataOutputStream(compress ? new GZIPOutputStream(os) : os);
     }
 
     public LzJsonOutput withMaxObjectBuffer(int maxObjectBuffer) {
@@ -96,8 +96,8 @@ public class ISLRGeneric {
 
             // weighted L2 solution
 
-            DM A1 = WA.t().dot(WA);
-            DV b1 = WA.t().dot(W).dot(b);
+            DM A1 = WA.tDot(WA);
+            DV b1 = WA.tDot(W).dot(b);
 
             try {
                 x = QRDecomposition.from(A1).solve(b1.asMatrix()).mapCol(0);
@@ -181,8 +181,8 @@ public class ISLRGeneric {
 
             // weighted L2 solution
 
-            DM A1 = WA.t().dot(WA);
-            DV b1 = WA.t().dot(W).dot(b);
+            DM A1 = WA.tDot(WA);
+            DV b1 = WA.tDot(W).dot(b);
 
             DV x1 = QRDecomposition.from(A1).solve(b1.asMatrix()).mapCol(0);
 
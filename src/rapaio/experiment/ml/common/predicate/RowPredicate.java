@@ -47,6 +47,48 @@ public interface RowPredicate extends Serializable {
      */
     boolean test(int row, Frame df);
 
+    /**
+     * Kind of test performed by predicate. Tree models use it to compile predicates
+     * into flat arrays, predicates which cannot be described in this way have kind {@link Kind#OTHER}.
+     */
+    enum Kind {
+        ALL,
+        NUM_LESS_EQUAL,
+        NUM_LESS,
+        NUM_GREATER_EQUAL,
+        NUM_GREATER,
+        BIN_EQUAL,
+        BIN_NOT_EQUAL,
+        NOM_EQUAL,
+        NOM_NOT_EQUAL,
+        OTHER
+    }
+
+    default Kind kind() {
+        return Kind.OTHER;
+    }
+
+    /**
+     * @return name of the tested variable, null if the predicate does not test a variable
+     */
+    default String testName() {
+        return null;
+    }
+
+    /**
+     * @return value used by numeric or binary tests, for binary tests it is 0 or 1
+     */
+    default double testValue() {
+        return Double.NaN;
+    }
+
+    /**
+     * @return label used by nominal tests, null for other kind of tests
+     */
+    default String testLabel() {
+        return null;
+    }
+
     static RowPredicate all() {
         return new All();
     }
@@ -93,6 +135,11 @@ final class All implements RowPredicate {
         return true;
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.ALL;
+    }
+
     @Override
     public String toString() {
         return "all";
@@ -115,6 +162,21 @@ final class NumLessEqual implements RowPredicate {
         return df.getDouble(row, testName) <= testValue;
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.NUM_LESS_EQUAL;
+    }
+
+    @Override
+    public String testName() {
+        return testName;
+    }
+
+    @Override
+    public double testValue() {
+        return testValue;
+    }
+
     @Override
     public String toString() {
         return testName + " <= " + Format.floatFlex(testValue);
@@ -139,6 +201,21 @@ final class NumGreaterEqual implements RowPredicate {
         return df.getDouble(row, testName) >= testValue;
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.NUM_GREATER_EQUAL;
+    }
+
+    @Override
+    public String testName() {
+        return testName;
+    }
+
+    @Override
+    public double testValue() {
+        return testValue;
+    }
+
     @Override
     public String toString() {
         return testName + " >= " + Format.floatFlex(testValue);
@@ -164,6 +241,21 @@ final class NumLess implements RowPredicate {
         return value < testValue;
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.NUM_LESS;
+    }
+
+    @Override
+    public String testName() {
+        return testName;
+    }
+
+    @Override
+    public double testValue() {
+        return testValue;
+    }
+
     @Override
     public String toString() {
         return testName + " < " + Format.floatFlex(testValue);
@@ -189,6 +281,21 @@ final class NumGreater implements RowPredicate {
         return value > testValue;
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.NUM_GREATER;
+    }
+
+    @Override
+    public String testName() {
+        return testName;
+    }
+
+    @Override
+    public double testValue() {
+        return testValue;
+    }
+
     @Override
     public String toString() {
         return testName + " > " + Format.floatFlex(testValue);
@@ -214,6 +321,21 @@ final class BinaryEqual implements RowPredicate {
         return df.getInt(row, testName) == testValue;
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.BIN_EQUAL;
+    }
+
+    @Override
+    public String testName() {
+        return testName;
+    }
+
+    @Override
+    public double testValue() {
+        return testValue;
+    }
+
     @Override
     public String toString() {
         return testName + " = " + testValue;
@@ -239,6 +361,21 @@ final class BinaryNotEqual implements RowPredicate {
         return df.getInt(row, testName) != testValue;
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.BIN_NOT_EQUAL;
+    }
+
+    @Override
+    public String testName() {
+        return testName;
+    }
+
+    @Override
+    public double testValue() {
+        return testValue;
+    }
+
     @Override
     public String toString() {
         return testName + " != " + testValue;
@@ -264,6 +401,21 @@ final class NominalEqual implements RowPredicate {
         return df.getLabel(row, testName).equals(testValue);
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.NOM_EQUAL;
+    }
+
+    @Override
+    public String testName() {
+        return testName;
+    }
+
+    @Override
+    public String testLabel() {
+        return testValue;
+    }
+
     @Override
     public String toString() {
         return testName + " = '" + testValue + "'";
@@ -289,6 +441,21 @@ final class NominalNotEqual implements RowPredicate {
         return !df.getLabel(row, testName).equals(testValue);
     }
 
+    @Override
+    public Kind kind() {
+        return Kind.NOM_NOT_EQUAL;
+    }
+
+    @Override
+    public String testName() {
+        return testName;
+    }
+
+    @Override
+    public String testLabel() {
+        return testValue;
+    }
+
     @Override
     public String toString() {
         return testName + " != '" + testValue + "'";
@@ -66,7 +66,7 @@ public class DensityLine extends Artist {
     public DensityLine(Var var, KFunc kfunc, double bandwidth, GOption<?>... opts) {
         this.var = var;
         this.bandwidth = bandwidth;
-        this.kde = KDE.of(var, kfunc, bandwidth);
+        this.kde = KDE.auto(var, kfunc, bandwidth);
         this.options.bind(opts);
     }
 
@@ -82,21 +82,23 @@ public class DensityLine extends Artist {
 
     @Override
     public void updateDataRange() {
-        var.stream().complete().forEach(s -> {
-            union(kde.kernel().minValue(s.getDouble(), bandwidth), 0);
-            union(kde.kernel().maxValue(s.getDouble(), bandwidth), kde.pdf(s.getDouble()));
-        });
+        double[] xs = var.stream().complete().mapToDouble().toArray();
+        double[] ys = kde.pdf(xs);
+        for (int i = 0; i < xs.length; i++) {
+            union(kde.kernel().minValue(xs[i], bandwidth), 0);
+            union(kde.kernel().maxValue(xs[i], bandwidth), ys[i]);
+        }
     }
 
     @Override
     public void paint(Graphics2D g2d) {
-        Var x = VarDouble.fill(options.getPoints() + 1, 0);
-        Var y = VarDouble.fill(options.getPoints() + 1, 0);
+        double[] xs = new double[options.getPoints() + 1];
         double xstep = plot.xAxis().length() / options.getPoints();
-        for (int i = 0; i < x.rowCount(); i++) {
-            x.setDouble(i, plot.xAxis().min() + i * xstep);
-            y.setDouble(i, kde.pdf(x.getDouble(i)));
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = plot.xAxis().min() + i * xstep;
         }
+        Var x = VarDouble.wrap(xs);
+        Var y = VarDouble.wrap(kde.pdf(xs));
 
         Composite oldComposite = g2d.getComposite();
         g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, options.getAlpha()));
@@ -0,0 +1,262 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.io;
+
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.VType;
+import rapaio.data.Var;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Native columnar binary format for frames.
+ * <p>
+ * The file starts with a header which contains the row count and, for each variable, its name, type,
+ * the nominal dictionary when the variable is nominal and the position of the data block. Each variable
+ * is stored after the header as a contiguous little-endian block of values, aligned at 8 bytes:
+ * <ul>
+ *     <li>double: 8 bytes per row, missing values stored as NaN</li>
+ *     <li>int: 4 bytes per row, missing values stored as {@link rapaio.data.VarInt#MISSING_VALUE}</li>
+ *     <li>long: 8 bytes per row, missing values stored as {@link rapaio.data.VarLong#MISSING_VALUE}</li>
+ *     <li>binary: 1 byte per row with values 0, 1 and -1 for missing values</li>
+ *     <li>nominal: 2 bytes per row containing the dictionary index as unsigned short, thus at most 65535 levels</li>
+ * </ul>
+ * <p>
+ * Reading memory maps the file and returns a frame with read-only variables backed by the mapped
+ * blocks, thus opening a file costs only the header parsing and the data is paged in only when it is used.
+ * A loaded frame can be turned into a solid frame with {@link Frame#copy()}. Each variable block
+ * is limited to 2GB.
+ *
+ * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+public final class ColumnarIO {
+
+    private static final int MAGIC = 0x52465246;
+    private static final int VERSION = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_LEVELS = 0xffff;
+
+    private ColumnarIO() {
+    }
+
+    public static void write(Frame df, String fileName) throws IOException {
+        write(df, new File(fileName));
+    }
+
+    public static void write(Frame df, File file) throws IOException {
+        int rows = df.rowCount();
+        Var[] vars = df.varStream().toArray(Var[]::new);
+
+        // compute data block positions relative to the start of the data section
+        long[] offsets = new long[vars.length];
+        long[] lengths = new long[vars.length];
+        long position = 0;
+        for (int i = 0; i < vars.length; i++) {
+            offsets[i] = position;
+            lengths[i] = (long) rows * valueSize(vars[i]);
+            position += align(lengths[i]);
+        }
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(headerBytes)) {
+            out.writeInt(rows);
+            out.writeInt(vars.length);
+            for (int i = 0; i < vars.length; i++) {
+                out.writeUTF(vars[i].name());
+                out.writeUTF(vars[i].type().name());
+                if (vars[i].type() == VType.NOMINAL) {
+                    List<String> levels = vars[i].levels();
+                    if (levels.size() > MAX_LEVELS) {
+                        throw new IllegalArgumentException("Nominal variable " + vars[i].name()
+                                + " has " + levels.size() + " levels, more than maximum of " + MAX_LEVELS + ".");
+                    }
+                    out.writeInt(levels.size());
+                    for (String level : levels) {
+                        out.writeUTF(level);
+                    }
+                }
+                out.writeLong(offsets[i]);
+                out.writeLong(lengths[i]);
+            }
+        }
+        byte[] header = headerBytes.toByteArray();
+        long dataStart = align(12L + header.length);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer buff = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            buff.putInt(MAGIC).putInt(VERSION).putInt(header.length);
+            flush(channel, buff);
+            channel.write(ByteBuffer.wrap(header));
+
+            buff.order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < vars.length; i++) {
+                channel.position(dataStart + offsets[i]);
+                writeBlock(channel, buff, vars[i], rows);
+            }
+            // pad the last block
+            long end = dataStart + position;
+            if (channel.size() < end) {
+                channel.write(ByteBuffer.allocate((int) (end - channel.size())), channel.size());
+            }
+        }
+    }
+
+    private static void writeBlock(FileChannel channel, ByteBuffer buff, Var var, int rows) throws IOException {
+        int size = valueSize(var);
+        for (int row = 0; row < rows; row++) {
+            if (buff.remaining() < size) {
+                flush(channel, buff);
+            }
+            switch (var.type()) {
+                case DOUBLE:
+                    buff.putDouble(var.getDouble(row));
+                    break;
+                case INT:
+                    buff.putInt(var.getInt(row));
+                    break;
+                case LONG:
+                    buff.putLong(var.getLong(row));
+                    break;
+                case BINARY:
+                    buff.put(var.isMissing(row) ? (byte) -1 : (byte) var.getInt(row));
+                    break;
+                case NOMINAL:
+                    buff.putShort((short) var.getInt(row));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Variable type not supported: " + var.type().name());
+            }
+        }
+        flush(channel, buff);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buff) throws IOException {
+        buff.flip();
+        while (buff.hasRemaining()) {
+            channel.write(buff);
+        }
+        buff.clear();
+    }
+
+    private static int valueSize(Var var) {
+        switch (var.type()) {
+            case DOUBLE:
+            case LONG:
+                return 8;
+            case INT:
+                return 4;
+            case NOMINAL:
+                return 2;
+            case BINARY:
+                return 1;
+            default:
+                throw new IllegalArgumentException("Variable type not supported by columnar format: "
+                        + var.type().name() + " for variable: " + var.name());
+        }
+    }
+
+    private static long align(long len) {
+        return (len + 7) & ~7L;
+    }
+
+    public static Frame read(String fileName) throws IOException {
+        return read(new File(fileName));
+    }
+
+    /**
+     * Opens a columnar file. The returned frame contains read-only variables backed
+     * by memory mapped data blocks.
+     *
+     * @param file columnar file
+     * @return frame with memory mapped variables
+     * @throws IOException if the file could not be read or has an invalid format
+     */
+    public static Frame read(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer prefix = ByteBuffer.allocate(12);
+            while (prefix.hasRemaining()) {
+                if (channel.read(prefix) < 0) {
+                    throw new IOException("File is not in columnar format: " + file.getAbsolutePath());
+                }
+            }
+            prefix.flip();
+            if (prefix.getInt() != MAGIC) {
+                throw new IOException("File is not in columnar format: " + file.getAbsolutePath());
+            }
+            int version = prefix.getInt();
+            if (version != VERSION) {
+                throw new IOException("Columnar format version not supported: " + version);
+            }
+            int headerLength = prefix.getInt();
+            ByteBuffer headerBuff = ByteBuffer.allocate(headerLength);
+            while (headerBuff.hasRemaining()) {
+                if (channel.read(headerBuff) < 0) {
+                    throw new IOException("Columnar file header is truncated: " + file.getAbsolutePath());
+                }
+            }
+            long dataStart = align(12L + headerLength);
+
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBuff.array()));
+            int rows = header.readInt();
+            int varCount = header.readInt();
+            List<Var> vars = new ArrayList<>(varCount);
+            for (int i = 0; i < varCount; i++) {
+                String name = header.readUTF();
+                VType type = VType.valueOf(header.readUTF());
+                List<String> levels = null;
+                if (type == VType.NOMINAL) {
+                    int levelCount = header.readInt();
+                    levels = new ArrayList<>(levelCount);
+                    for (int j = 0; j < levelCount; j++) {
+                        levels.add(header.readUTF());
+                    }
+                }
+                long offset = header.readLong();
+                long length = header.readLong();
+                MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + offset, length);
+                block.order(ByteOrder.LITTLE_ENDIAN);
+                vars.add(MappedColumnVar.from(type, rows, block, levels).name(name));
+            }
+            return SolidFrame.byVars(rows, vars);
+        }
+    }
+}
@@ -131,9 +131,28 @@ public class Csv extends ParamSet<Csv> {
             "skipCols", "Skip rows predicate used to filter columns to be read");
     public final ValueParam<Frame, Csv> template = new ValueParam<>(this, null,
             "template", "Optional frame templated used to define variable names and type for reading", obj -> true);
+    /**
+     * Number of threads used for reading files. Negative values are considered
+     * automatically as pool of number of available CPUs, zero means
+     * no pooling and positive values means pooling with a specified
+     * value. Pooling is used only when reading from files, since the file is split
+     * into chunks which are parsed independently.
+     */
+    public final ValueParam<Integer, Csv> poolSize = new ValueParam<>(this, 0,
+            "poolSize", "Number of threads used to parse file chunks in parallel", x -> true);
+    /**
+     * Number of rows from the head of the file used to infer variable types when
+     * the file is read in parallel.
+     */
+    public final ValueParam<Integer, Csv> sampleRows = new ValueParam<>(this, 10_000,
+            "sampleRows", "Number of rows used to infer variable types at parallel reading", x -> x > 0);
 
     public Frame read(File file) {
         try {
+            if (poolSize.get() != 0) {
+                int threads = poolSize.get() < 0 ? Runtime.getRuntime().availableProcessors() : poolSize.get();
+                return new ParallelCsvReader(this, file, threads).read();
+            }
             return read(new FileInputStream(file));
         } catch (IOException e) {
             throw new RuntimeException("error at reading file: " + file.getAbsolutePath(), e);
@@ -149,11 +168,7 @@ public class Csv extends ParamSet<Csv> {
     }
 
     public Frame read(String fileName) {
-        try {
-            return read(new FileInputStream(fileName));
-        } catch (IOException e) {
-            throw new RuntimeException("error at reading file", e);
-        }
+        return read(new File(fileName));
     }
 
     public Frame readUrl(String url) {
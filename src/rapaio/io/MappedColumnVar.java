@@ -0,0 +1,454 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.io;
+
+import rapaio.data.AbstractVar;
+import rapaio.data.OperationNotAvailableException;
+import rapaio.data.VType;
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+import rapaio.data.VarInstant;
+import rapaio.data.VarInt;
+import rapaio.data.VarLong;
+import rapaio.data.VarNominal;
+import rapaio.printer.Printer;
+import rapaio.printer.TextTable;
+import rapaio.printer.opt.POption;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only variable backed by a memory mapped data block of a columnar file.
+ * The values are read directly from the mapped buffer, thus the operating system
+ * loads the data only when it is accessed.
+ * <p>
+ * Mapped column variables does not allow changing or adding values. When serialized,
+ * the variable is replaced with a solid copy.
+ *
+ * @author <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>
+ */
+abstract class MappedColumnVar extends AbstractVar {
+
+    private static final long serialVersionUID = 2402370409584315421L;
+
+    static MappedColumnVar from(VType type, int rows, ByteBuffer block, List<String> levels) {
+        switch (type) {
+            case DOUBLE:
+                return new MappedDouble(rows, block.asDoubleBuffer());
+            case INT:
+                return new MappedInt(rows, block.asIntBuffer());
+            case LONG:
+                return new MappedLong(rows, block.asLongBuffer());
+            case BINARY:
+                return new MappedBinary(rows, block);
+            case NOMINAL:
+                return new MappedNominal(rows, block.asShortBuffer(), levels);
+            default:
+                throw new IllegalArgumentException("Variable type not supported by columnar format: " + type.name());
+        }
+    }
+
+    protected final int rows;
+
+    protected MappedColumnVar(int rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public int rowCount() {
+        return rows;
+    }
+
+    @Override
+    public Var newInstance(int rows) {
+        return type().newInstance(rows);
+    }
+
+    protected Object writeReplace() {
+        return copy();
+    }
+
+    @Override
+    public void addRows(int rowCount) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void removeRow(int row) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void clearRows() {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void addInt(int value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void setInt(int row, int value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void setLong(int row, long value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void addLong(long value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void addDouble(double value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void setDouble(int row, double value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void setLabel(int row, String value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void addLabel(String value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public List<String> levels() {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void setLevels(String... dict) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void addInstant(Instant value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void setInstant(int row, Instant value) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public Instant getInstant(int row) {
+        if (isMissing(row)) {
+            return VarInstant.MISSING_VALUE;
+        }
+        return Instant.ofEpochMilli(getLong(row));
+    }
+
+    @Override
+    public void setMissing(int row) {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    public void addMissing() {
+        throw new OperationNotAvailableException();
+    }
+
+    @Override
+    protected String toStringClassName() {
+        return "MappedColumnVar(type=" + type().code() + ")";
+    }
+
+    @Override
+    protected int toStringDisplayValueCount() {
+        return 12;
+    }
+
+    @Override
+    protected void textTablePutValue(TextTable tt, int i, int j, int row, Printer printer, POption<?>[] options) {
+        if (type().isNumeric() && type() != VType.BINARY && !isMissing(row)) {
+            DecimalFormat format = printer.getOptions().bind(options).floatFormat();
+            tt.floatString(i, j, format.format(getDouble(row)));
+        } else {
+            tt.textCenter(i, j, getLabel(row));
+        }
+    }
+
+    static final class MappedDouble extends MappedColumnVar {
+
+        private static final long serialVersionUID = -3171440532474963236L;
+        private final transient DoubleBuffer data;
+
+        MappedDouble(int rows, DoubleBuffer data) {
+            super(rows);
+            this.data = data;
+        }
+
+        @Override
+        public VType type() {
+            return VType.DOUBLE;
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return data.get(row);
+        }
+
+        @Override
+        public int getInt(int row) {
+            return (int) Math.rint(data.get(row));
+        }
+
+        @Override
+        public long getLong(int row) {
+            return (long) Math.rint(data.get(row));
+        }
+
+        @Override
+        public String getLabel(int row) {
+            return isMissing(row) ? VarNominal.MISSING_VALUE : String.valueOf(data.get(row));
+        }
+
+        @Override
+        public boolean isMissing(int row) {
+            return Double.isNaN(data.get(row));
+        }
+    }
+
+    static final class MappedInt extends MappedColumnVar {
+
+        private static final long serialVersionUID = 6371525329337187311L;
+        private final transient IntBuffer data;
+
+        MappedInt(int rows, IntBuffer data) {
+            super(rows);
+            this.data = data;
+        }
+
+        @Override
+        public VType type() {
+            return VType.INT;
+        }
+
+        @Override
+        public int getInt(int row) {
+            return data.get(row);
+        }
+
+        @Override
+        public long getLong(int row) {
+            return data.get(row);
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return isMissing(row) ? VarDouble.MISSING_VALUE : data.get(row);
+        }
+
+        @Override
+        public String getLabel(int row) {
+            return isMissing(row) ? VarNominal.MISSING_VALUE : String.valueOf(data.get(row));
+        }
+
+        @Override
+        public boolean isMissing(int row) {
+            return data.get(row) == VarInt.MISSING_VALUE;
+        }
+    }
+
+    static final class MappedLong extends MappedColumnVar {
+
+        private static final long serialVersionUID = -7712394126396532018L;
+        private final transient LongBuffer data;
+
+        MappedLong(int rows, LongBuffer data) {
+            super(rows);
+            this.data = data;
+        }
+
+        @Override
+        public VType type() {
+            return VType.LONG;
+        }
+
+        @Override
+        public long getLong(int row) {
+            return data.get(row);
+        }
+
+        @Override
+        public int getInt(int row) {
+            return (int) data.get(row);
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return data.get(row);
+        }
+
+        @Override
+        public String getLabel(int row) {
+            return isMissing(row) ? VarNominal.MISSING_VALUE : String.valueOf(data.get(row));
+        }
+
+        @Override
+        public boolean isMissing(int row) {
+            return data.get(row) == VarLong.MISSING_VALUE;
+        }
+    }
+
+    static final class MappedBinary extends MappedColumnVar {
+
+        private static final long serialVersionUID = 8650931470470851702L;
+        private final transient ByteBuffer data;
+
+        MappedBinary(int rows, ByteBuffer data) {
+            super(rows);
+            this.data = data;
+        }
+
+        @Override
+        public VType type() {
+            return VType.BINARY;
+        }
+
+        @Override
+        public int getInt(int row) {
+            byte value = data.get(row);
+            return value < 0 ? VarInt.MISSING_VALUE : value;
+        }
+
+        @Override
+        public long getLong(int row) {
+            byte value = data.get(row);
+            return value < 0 ? VarLong.MISSING_VALUE : value;
+        }
+
+        @Override
+        public double getDouble(int row) {
+            byte value = data.get(row);
+            return value < 0 ? Double.NaN : value;
+        }
+
+        @Override
+        public String getLabel(int row) {
+            byte value = data.get(row);
+            return value < 0 ? VarNominal.MISSING_VALUE : (value == 0 ? "0" : "1");
+        }
+
+        @Override
+        public boolean isMissing(int row) {
+            return data.get(row) < 0;
+        }
+
+        @Override
+        public Instant getInstant(int row) {
+            throw new OperationNotAvailableException();
+        }
+    }
+
+    static final class MappedNominal extends MappedColumnVar {
+
+        private static final long serialVersionUID = -5409924375815045745L;
+        private final transient ShortBuffer data;
+        private final List<String> dict;
+
+        MappedNominal(int rows, ShortBuffer data, List<String> dict) {
+            super(rows);
+            this.data = data;
+            this.dict = Collections.unmodifiableList(dict);
+        }
+
+        @Override
+        public VType type() {
+            return VType.NOMINAL;
+        }
+
+        /**
+         * Dictionary indexes are stored as unsigned shorts.
+         */
+        private int code(int row) {
+            return data.get(row) & 0xffff;
+        }
+
+        @Override
+        public int getInt(int row) {
+            return code(row);
+        }
+
+        @Override
+        public double getDouble(int row) {
+            return code(row);
+        }
+
+        @Override
+        public long getLong(int row) {
+            throw new OperationNotAvailableException();
+        }
+
+        @Override
+        public String getLabel(int row) {
+            return dict.get(code(row));
+        }
+
+        @Override
+        public List<String> levels() {
+            return dict;
+        }
+
+        @Override
+        public boolean isMissing(int row) {
+            return code(row) == 0;
+        }
+
+        @Override
+        public Instant getInstant(int row) {
+            throw new OperationNotAvailableException();
+        }
+
+        @Override
+        public Var newInstance(int rows) {
+            return VarNominal.empty(rows, dict);
+        }
+    }
+}
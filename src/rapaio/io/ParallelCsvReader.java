@@ -0,0 +1,676 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.io;
+
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.VType;
+import rapaio.data.Var;
+import rapaio.io.ParseTools.LabelInterner;
+import rapaio.io.ParseTools.NumberParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel csv reader used by {@link Csv} when a pool size is configured.
+ * <p>
+ * The file is split into byte ranges aligned at line boundaries. Each range is memory mapped
+ * and tokenized directly from raw bytes. A first parallel pass counts the lines
+ * of each chunk in order to know the global row index of each line, which is needed by the
+ * {@code skipRows} rule. Variable types are inferred from a sample of rows read from the head of the file.
+ * A second parallel pass parses each chunk into its own column buffers, which are finally merged
+ * into a {@link SolidFrame}.
+ * <p>
+ * Binary, integer, long and double values are parsed directly from the byte ranges of the cells, without
+ * creating intermediate strings. Only nominal and string cells are materialized as strings, and nominal labels
+ * are created once per distinct label in a chunk, the repeated occurrences reusing the same instance.
+ * Cells which require escape processing are cleaned through the string based {@link Csv#clean(String)}.
+ * <p>
+ * Type inference does not rely on exceptions. Each value is checked against the inferred type
+ * before it is added. If a value from a chunk does not fit the type inferred from the sample,
+ * the chunk records the smallest default type which fits the value and, after all chunks are done,
+ * the parse pass is repeated with the widened types. With a representative sample this never happens.
+ * <p>
+ * The separator and escape characters are expected to be ASCII characters and the file is decoded as UTF-8.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+class ParallelCsvReader {
+
+    private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private final Csv csv;
+    private final File file;
+    private final int threads;
+    private final byte[][] naValues;
+    private final List<VType> defaultTypes;
+
+    ParallelCsvReader(Csv csv, File file, int threads) {
+        this.csv = csv;
+        this.file = file;
+        this.threads = threads;
+        List<String> na = new ArrayList<>(csv.naValues.get());
+        na.add("?");
+        this.naValues = new byte[na.size()][];
+        for (int i = 0; i < na.size(); i++) {
+            naValues[i] = na.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        this.defaultTypes = csv.defaultTypes.get();
+    }
+
+    Frame read() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+
+            List<String> names = new ArrayList<>();
+            long dataStart = 0;
+            if (csv.header.get()) {
+                if (channel.size() == 0) {
+                    return null;
+                }
+                dataStart = nextLineStart(channel, 0);
+                ByteBuffer headerBuff = map(channel, 0, dataStart);
+                names = csv.parseLine(decode(headerBuff, 0, lineEnd(headerBuff, 0, headerBuff.limit())));
+            }
+
+            long[] bounds = chunkBounds(channel, dataStart);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                // first pass, count lines in each chunk
+                List<Callable<Integer>> countTasks = new ArrayList<>();
+                for (int i = 0; i < bounds.length - 1; i++) {
+                    final long start = bounds[i];
+                    final long end = bounds[i + 1];
+                    countTasks.add(() -> countLines(map(channel, start, end)));
+                }
+                List<Integer> counts = collect(pool, countTasks);
+                int[] firstLine = new int[counts.size()];
+                for (int i = 1; i < counts.size(); i++) {
+                    firstLine[i] = firstLine[i - 1] + counts.get(i - 1);
+                }
+
+                Column[] columns = buildColumns(channel, dataStart, names);
+
+                while (true) {
+                    final Column[] cols = columns;
+                    List<Callable<Chunk>> parseTasks = new ArrayList<>();
+                    for (int i = 0; i < bounds.length - 1; i++) {
+                        final long start = bounds[i];
+                        final long end = bounds[i + 1];
+                        final int line = firstLine[i];
+                        parseTasks.add(() -> parseChunk(map(channel, start, end), line, cols));
+                    }
+                    List<Chunk> chunks = collect(pool, parseTasks);
+
+                    Column[] widened = widen(columns, chunks);
+                    if (widened == null) {
+                        return merge(names, columns, chunks);
+                    }
+                    columns = widened;
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private <T> List<T> collect(ExecutorService pool, List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("csv parallel reading was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("error at parallel reading csv", e.getCause());
+        }
+        return results;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long start, long end) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    }
+
+    /**
+     * Splits the data section into ranges which starts at the beginning of a line.
+     */
+    private long[] chunkBounds(FileChannel channel, long dataStart) throws IOException {
+        long size = channel.size();
+        long len = size - dataStart;
+        long chunkCount = Math.max(threads, (len + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        long chunkLen = Math.max(1, len / chunkCount);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        long pos = dataStart;
+        while (pos < size) {
+            long next = pos + chunkLen >= size ? size : nextLineStart(channel, pos + chunkLen);
+            bounds.add(next);
+            pos = next;
+        }
+        if (bounds.size() == 1) {
+            bounds.add(size);
+        }
+        return bounds.stream().mapToLong(x -> x).toArray();
+    }
+
+    private long nextLineStart(FileChannel channel, long pos) throws IOException {
+        long size = channel.size();
+        ByteBuffer buff = ByteBuffer.allocate(8 * 1024);
+        while (pos < size) {
+            buff.clear();
+            int n = channel.read(buff, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buff.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static int countLines(ByteBuffer buff) {
+        int len = buff.limit();
+        int count = 0;
+        for (int i = 0; i < len; i++) {
+            if (buff.get(i) == '\n') {
+                count++;
+            }
+        }
+        if (len > 0 && buff.get(len - 1) != '\n') {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the position of the line terminator or the limit of the buffer
+     */
+    private static int nextNewLine(ByteBuffer buff, int pos, int limit) {
+        while (pos < limit && buff.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return end of line content, without the line terminator
+     */
+    private static int lineEnd(ByteBuffer buff, int start, int end) {
+        if (end > start && buff.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && buff.get(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    private static String decode(ByteBuffer buff, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buff.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds column descriptors. Columns with types given by template or by types parameter are fixed,
+     * the others receive the smallest default type which accepts all values from the sample.
+     */
+    private Column[] buildColumns(FileChannel channel, long dataStart, List<String> names) throws IOException {
+        ByteBuffer buff = map(channel, dataStart, Math.min(channel.size(), dataStart + CHUNK_SIZE));
+        boolean complete = dataStart + buff.limit() == channel.size();
+        Tokenizer tokenizer = new Tokenizer(csv);
+        NumberParser parser = new NumberParser();
+
+        // collect for each column the minimum type index which accepts all sample values
+        int[] typeIndexes = new int[names.size()];
+        int width = names.size();
+        int line = 0;
+        int sampled = 0;
+        int start = 0;
+        int limit = buff.limit();
+        while (start < limit && sampled < csv.sampleRows.get()) {
+            int end = nextNewLine(buff, start, limit);
+            if (end == limit && !complete) {
+                // incomplete line at the end of the sample buffer
+                break;
+            }
+            if (!csv.skipRows.get().test(line)) {
+                tokenizer.tokenize(buff, start, lineEnd(buff, start, end));
+                if (tokenizer.size > typeIndexes.length) {
+                    typeIndexes = Arrays.copyOf(typeIndexes, tokenizer.size);
+                }
+                width = Math.max(width, tokenizer.size);
+                for (int i = 0; i < tokenizer.size; i++) {
+                    if (!isNa(tokenizer, i)) {
+                        typeIndexes[i] = fitIndex(parser, typeIndexes[i], tokenizer, i);
+                    }
+                }
+                sampled++;
+            }
+            line++;
+            start = end + 1;
+        }
+
+        Column[] columns = new Column[width];
+        Frame template = csv.template.get();
+        for (int i = 0; i < width; i++) {
+            String name = i < names.size() ? names.get(i) : "V" + (i + 1);
+            if (template != null && Arrays.asList(template.varNames()).contains(name)) {
+                columns[i] = new Column(template.rvar(name), -1);
+                continue;
+            }
+            VType type = csv.types.getReverseKey(name);
+            if (type != null) {
+                columns[i] = new Column(type, -1);
+                continue;
+            }
+            columns[i] = new Column(defaultTypes.get(typeIndexes[i]), typeIndexes[i]);
+        }
+        return columns;
+    }
+
+    private boolean isNa(Tokenizer tokenizer, int cell) {
+        ByteBuffer buff = tokenizer.buffs[cell];
+        int start = tokenizer.starts[cell];
+        int len = tokenizer.ends[cell] - start;
+        for (byte[] na : naValues) {
+            if (na.length != len) {
+                continue;
+            }
+            int i = 0;
+            while (i < len && buff.get(start + i) == na[i]) {
+                i++;
+            }
+            if (i == len) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the smallest default type index, not lower than the given start index, which accepts
+     * the given cell value.
+     */
+    private int fitIndex(NumberParser parser, int start, Tokenizer tokenizer, int cell) {
+        ByteBuffer buff = tokenizer.buffs[cell];
+        for (int i = start; i < defaultTypes.size(); i++) {
+            if (parser.accepts(defaultTypes.get(i), buff, tokenizer.starts[cell], tokenizer.ends[cell])) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Could not parse value %s in type %s.",
+                decode(buff, tokenizer.starts[cell], tokenizer.ends[cell]), defaultTypes.get(defaultTypes.size() - 1)));
+    }
+
+    private Chunk parseChunk(ByteBuffer buff, int firstLine, Column[] columns) {
+        Chunk chunk = new Chunk(columns);
+        Tokenizer tokenizer = new Tokenizer(csv);
+        int line = firstLine;
+        int start = 0;
+        int limit = buff.limit();
+        while (start < limit) {
+            int end = nextNewLine(buff, start, limit);
+            if (!csv.skipRows.get().test(line)) {
+                tokenizer.tokenize(buff, start, lineEnd(buff, start, end));
+                chunk.addRow(tokenizer);
+            }
+            line++;
+            start = end + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Computes widened columns if any chunk found values which does not fit, null otherwise.
+     */
+    private Column[] widen(Column[] columns, List<Chunk> chunks) {
+        int width = columns.length;
+        for (Chunk chunk : chunks) {
+            width = Math.max(width, chunk.width);
+        }
+        boolean changed = width > columns.length;
+        Column[] widened = Arrays.copyOf(columns, width);
+        for (int i = 0; i < width; i++) {
+            if (i >= columns.length) {
+                widened[i] = new Column(defaultTypes.get(0), 0);
+            }
+            for (Chunk chunk : chunks) {
+                if (i < chunk.needed.length && chunk.needed[i] > widened[i].typeIndex) {
+                    widened[i] = new Column(defaultTypes.get(chunk.needed[i]), chunk.needed[i]);
+                    changed = true;
+                }
+            }
+        }
+        return changed ? widened : null;
+    }
+
+    private Frame merge(List<String> names, Column[] columns, List<Chunk> chunks) {
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.rows;
+        }
+        int from = Math.min(total, csv.startRow.get());
+        int to = Math.max(from, Math.min(total, csv.endRow.get()));
+
+        List<Var> vars = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            String name = i < names.size() ? names.get(i) : "V" + (i + 1);
+            Var target = columns[i].newInstance(to - from).name(name);
+            int pos = 0;
+            int offset = 0;
+            for (Chunk chunk : chunks) {
+                Var source = chunk.vars[i];
+                int lo = Math.max(from - offset, 0);
+                int hi = Math.min(to - offset, chunk.rows);
+                for (int j = lo; j < hi; j++) {
+                    copyValue(source, j, target, pos++);
+                }
+                offset += chunk.rows;
+            }
+            vars.add(target);
+        }
+        return SolidFrame.byVars(to - from, vars);
+    }
+
+    private static void copyValue(Var source, int row, Var target, int pos) {
+        if (source.isMissing(row)) {
+            target.setMissing(pos);
+            return;
+        }
+        switch (source.type()) {
+            case BINARY:
+            case INT:
+                target.setInt(pos, source.getInt(row));
+                break;
+            case DOUBLE:
+                target.setDouble(pos, source.getDouble(row));
+                break;
+            case LONG:
+            case INSTANT:
+                target.setLong(pos, source.getLong(row));
+                break;
+            default:
+                target.setLabel(pos, source.getLabel(row));
+        }
+    }
+
+    /**
+     * Splits a line into cells given as byte ranges. The splitting rules are the same as in
+     * {@link Csv#parseLine(String)} and the cell ranges are cleaned like in {@link Csv#clean(String)}.
+     * Cells which needs unescaping or unicode white space stripping are cleaned using strings and kept
+     * in their own small buffers.
+     */
+    static final class Tokenizer {
+
+        private final Csv csv;
+        private final byte separator;
+        private final byte escape;
+        private final boolean strip;
+        private final boolean quotes;
+
+        ByteBuffer[] buffs = new ByteBuffer[16];
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int size;
+
+        Tokenizer(Csv csv) {
+            this.csv = csv;
+            this.separator = (byte) csv.separatorChar.get().charValue();
+            this.escape = (byte) csv.escapeChar.get().charValue();
+            this.strip = csv.stripSpaces.get();
+            this.quotes = csv.quotes.get();
+        }
+
+        void tokenize(ByteBuffer buff, int from, int to) {
+            size = 0;
+            int start = from;
+            int col = 0;
+            while (start < to) {
+                int end = start;
+                boolean inQuotes = false;
+                while (end < to) {
+                    byte ch = buff.get(end++);
+                    if (!inQuotes && ch == '"') {
+                        inQuotes = true;
+                        continue;
+                    }
+                    if (inQuotes && ch == escape && end < to && buff.get(end) == '"') {
+                        end++;
+                        continue;
+                    }
+                    if (inQuotes && ch == '"') {
+                        if (escape == '"' && end < to && buff.get(end) == '"') {
+                            end++;
+                            continue;
+                        }
+                        inQuotes = false;
+                        continue;
+                    }
+                    if (!inQuotes && ch == separator) {
+                        end--;
+                        break;
+                    }
+                }
+                if (!csv.skipCols.get().test(col)) {
+                    add(buff, start, end);
+                }
+                start = end + 1;
+                col++;
+            }
+        }
+
+        private void add(ByteBuffer buff, int start, int end) {
+            if (size == starts.length) {
+                buffs = Arrays.copyOf(buffs, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            int s = start;
+            int e = end;
+            boolean slow = false;
+            if (strip) {
+                while (s < e && isSpace(buff.get(s))) {
+                    s++;
+                }
+                while (e > s && isSpace(buff.get(e - 1))) {
+                    e--;
+                }
+                // non ascii bytes at the edges could be unicode white spaces
+                slow = s < e && (buff.get(s) < 0 || buff.get(e - 1) < 0);
+            }
+            if (quotes && !slow) {
+                if (s < e && buff.get(s) == '"') {
+                    s++;
+                }
+                if (s < e && buff.get(e - 1) == '"') {
+                    e--;
+                }
+                for (int i = s; i < e && !slow; i++) {
+                    byte ch = buff.get(i);
+                    slow = ch == escape || ch == '"';
+                }
+                if (strip && !slow) {
+                    while (s < e && isSpace(buff.get(s))) {
+                        s++;
+                    }
+                    while (e > s && isSpace(buff.get(e - 1))) {
+                        e--;
+                    }
+                    slow = s < e && (buff.get(s) < 0 || buff.get(e - 1) < 0);
+                }
+            }
+            if (slow) {
+                byte[] cleaned = csv.clean(decode(buff, start, end)).getBytes(StandardCharsets.UTF_8);
+                buffs[size] = ByteBuffer.wrap(cleaned);
+                starts[size] = 0;
+                ends[size] = cleaned.length;
+            } else {
+                buffs[size] = buff;
+                starts[size] = s;
+                ends[size] = e;
+            }
+            size++;
+        }
+
+        private static boolean isSpace(byte ch) {
+            return ch >= 0 && ch <= ' ';
+        }
+    }
+
+    /**
+     * Column descriptor. Type index is the position in default types for inferred columns
+     * and -1 for columns with fixed types.
+     */
+    private static final class Column {
+
+        private final VType type;
+        private final Var template;
+        private final int typeIndex;
+
+        Column(VType type, int typeIndex) {
+            this.type = type;
+            this.template = null;
+            this.typeIndex = typeIndex;
+        }
+
+        Column(Var template, int typeIndex) {
+            this.type = template.type();
+            this.template = template;
+            this.typeIndex = typeIndex;
+        }
+
+        Var newInstance(int rows) {
+            return template != null ? template.newInstance(rows) : type.newInstance(rows);
+        }
+    }
+
+    /**
+     * Column buffers for a chunk of rows.
+     */
+    private final class Chunk {
+
+        private final Column[] columns;
+        private final Var[] vars;
+        private final LabelInterner[] interners;
+        private final int[] needed;
+        private final NumberParser parser = new NumberParser();
+        private int rows;
+        private int width;
+
+        Chunk(Column[] columns) {
+            this.columns = columns;
+            this.vars = new Var[columns.length];
+            this.interners = new LabelInterner[columns.length];
+            this.needed = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                vars[i] = columns[i].newInstance(0);
+                needed[i] = Math.max(columns[i].typeIndex, 0);
+                if (columns[i].type == VType.NOMINAL) {
+                    interners[i] = new LabelInterner();
+                }
+            }
+        }
+
+        void addRow(Tokenizer tokenizer) {
+            width = Math.max(width, tokenizer.size);
+            for (int i = 0; i < columns.length; i++) {
+                if (i >= tokenizer.size || isNa(tokenizer, i)) {
+                    if (needed[i] <= columns[i].typeIndex || columns[i].typeIndex < 0) {
+                        vars[i].addMissing();
+                    }
+                    continue;
+                }
+                Column column = columns[i];
+                if (column.typeIndex >= 0 && needed[i] > column.typeIndex) {
+                    // the column will be parsed again with a wider type, just track the required type
+                    needed[i] = fitIndex(parser, needed[i], tokenizer, i);
+                    continue;
+                }
+                ByteBuffer buff = tokenizer.buffs[i];
+                int start = tokenizer.starts[i];
+                int end = tokenizer.ends[i];
+                if (!parser.accepts(column.type, buff, start, end)) {
+                    if (column.typeIndex < 0) {
+                        throw new IllegalArgumentException(
+                                String.format("Could not parse value %s in type %s for variable with index: %d.",
+                                        decode(buff, start, end), column.type, i));
+                    }
+                    needed[i] = fitIndex(parser, column.typeIndex, tokenizer, i);
+                    continue;
+                }
+                switch (column.type) {
+                    case BINARY:
+                    case INT:
+                        vars[i].addInt((int) parser.longValue());
+                        break;
+                    case LONG:
+                        vars[i].addLong(parser.longValue());
+                        break;
+                    case DOUBLE:
+                        vars[i].addDouble(parser.doubleValue());
+                        break;
+                    case NOMINAL:
+                        vars[i].addLabel(interners[i].intern(buff, start, end));
+                        break;
+                    default:
+                        vars[i].addLabel(decode(buff, start, end));
+                }
+            }
+            rows++;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.io;
+
+import rapaio.data.VType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation free parsing tools shared by the text readers. Values are parsed directly from
+ * byte ranges of a {@link ByteBuffer}, as the csv reader does, or from ranges of a {@code char[]},
+ * as the json reader does.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class ParseTools {
+
+    private ParseTools() {
+    }
+
+    /**
+     * Characters addressed by absolute position. Byte sources return unsigned byte values.
+     */
+    private interface Source {
+
+        int charAt(int pos);
+
+        String text(int start, int end);
+    }
+
+    private static final class ByteSource implements Source {
+
+        private ByteBuffer buff;
+
+        @Override
+        public int charAt(int pos) {
+            return buff.get(pos) & 0xff;
+        }
+
+        @Override
+        public String text(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buff.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class CharSource implements Source {
+
+        private char[] chars;
+
+        @Override
+        public int charAt(int pos) {
+            return chars[pos];
+        }
+
+        @Override
+        public String text(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+    }
+
+    /**
+     * Parses numbers from byte or char ranges without allocations. Doubles with at most 15 significant
+     * digits and small exponents are computed exactly using a single floating point operation, the others
+     * are delegated to {@link Double#parseDouble(String)} after the syntax was validated.
+     * <p>
+     * Parse methods return false if the range does not contain a valid value, otherwise the parsed
+     * value is available through {@link #longValue()} or {@link #doubleValue()}.
+     */
+    public static final class NumberParser {
+
+        private static final double[] POW10 = {
+                1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+                1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+
+        private final ByteSource bytes = new ByteSource();
+        private final CharSource chars = new CharSource();
+        private long longValue;
+        private double doubleValue;
+
+        /**
+         * @return last parsed binary or integer value
+         */
+        public long longValue() {
+            return longValue;
+        }
+
+        /**
+         * @return last parsed double value
+         */
+        public double doubleValue() {
+            return doubleValue;
+        }
+
+        /**
+         * Checks if the value from the byte range can be parsed into a variable of the given type.
+         * Types without a dedicated check are always accepted.
+         */
+        public boolean accepts(VType type, ByteBuffer buff, int start, int end) {
+            bytes.buff = buff;
+            switch (type) {
+                case BINARY:
+                    return parseBinary(bytes, start, end);
+                case INT:
+                    return parseInteger(bytes, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                case LONG:
+                    return parseInteger(bytes, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+                case DOUBLE:
+                    return parseDouble(bytes, start, end);
+                default:
+                    return true;
+            }
+        }
+
+        public boolean parseBinary(ByteBuffer buff, int start, int end) {
+            bytes.buff = buff;
+            return parseBinary(bytes, start, end);
+        }
+
+        public boolean parseInteger(ByteBuffer buff, int start, int end, long min, long max) {
+            bytes.buff = buff;
+            return parseInteger(bytes, start, end, min, max);
+        }
+
+        public boolean parseDouble(ByteBuffer buff, int start, int end) {
+            bytes.buff = buff;
+            return parseDouble(bytes, start, end);
+        }
+
+        public boolean parseDouble(char[] text, int start, int end) {
+            chars.chars = text;
+            return parseDouble(chars, start, end);
+        }
+
+        private boolean parseBinary(Source src, int start, int end) {
+            if (end - start == 1) {
+                int ch = src.charAt(start);
+                longValue = ch - '0';
+                return ch == '0' || ch == '1';
+            }
+            if (matches(src, start, end, "true", true)) {
+                longValue = 1;
+                return true;
+            }
+            if (matches(src, start, end, "false", true)) {
+                longValue = 0;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean parseInteger(Source src, int start, int end, long min, long max) {
+            if (start == end) {
+                return false;
+            }
+            int i = start;
+            boolean negative = false;
+            int first = src.charAt(i);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                i++;
+                if (i == end) {
+                    return false;
+                }
+            }
+            // accumulate negatively to cover the minimum value
+            long limit = negative ? min : -max;
+            long acc = 0;
+            for (; i < end; i++) {
+                int digit = src.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return false;
+                }
+                if (acc < (limit + digit) / 10) {
+                    return false;
+                }
+                acc = acc * 10 - digit;
+                if (acc < limit) {
+                    return false;
+                }
+            }
+            longValue = negative ? acc : -acc;
+            return true;
+        }
+
+        private boolean parseDouble(Source src, int start, int end) {
+            if (matches(src, start, end, "Inf", false) || matches(src, start, end, "Infinity", false)
+                    || matches(src, start, end, "+Infinity", false)) {
+                doubleValue = Double.POSITIVE_INFINITY;
+                return true;
+            }
+            if (matches(src, start, end, "-Inf", false) || matches(src, start, end, "-Infinity", false)) {
+                doubleValue = Double.NEGATIVE_INFINITY;
+                return true;
+            }
+            if (matches(src, start, end, "NaN", false)) {
+                doubleValue = Double.NaN;
+                return true;
+            }
+            int i = start;
+            boolean negative = false;
+            if (i < end && (src.charAt(i) == '-' || src.charAt(i) == '+')) {
+                negative = src.charAt(i) == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int significant = 0;
+            int digits = 0;
+            int exponent = 0;
+            while (i < end && isDigit(src.charAt(i))) {
+                int digit = src.charAt(i++) - '0';
+                digits++;
+                if (significant > 0 || digit != 0) {
+                    if (significant < 18) {
+                        mantissa = mantissa * 10 + digit;
+                    } else {
+                        exponent++;
+                    }
+                    significant++;
+                }
+            }
+            if (i < end && src.charAt(i) == '.') {
+                i++;
+                while (i < end && isDigit(src.charAt(i))) {
+                    int digit = src.charAt(i++) - '0';
+                    digits++;
+                    if (significant > 0 || digit != 0) {
+                        if (significant < 18) {
+                            mantissa = mantissa * 10 + digit;
+                            exponent--;
+                        }
+                        significant++;
+                    } else {
+                        exponent--;
+                    }
+                }
+            }
+            if (digits == 0) {
+                return false;
+            }
+            if (i < end && (src.charAt(i) == 'e' || src.charAt(i) == 'E')) {
+                i++;
+                boolean negativeExp = false;
+                if (i < end && (src.charAt(i) == '-' || src.charAt(i) == '+')) {
+                    negativeExp = src.charAt(i) == '-';
+                    i++;
+                }
+                int expDigits = 0;
+                int exp = 0;
+                while (i < end && isDigit(src.charAt(i))) {
+                    if (exp < 100_000) {
+                        exp = exp * 10 + src.charAt(i) - '0';
+                    }
+                    i++;
+                    expDigits++;
+                }
+                if (expDigits == 0) {
+                    return false;
+                }
+                exponent += negativeExp ? -exp : exp;
+            }
+            if (i < end && isSuffix(src.charAt(i))) {
+                i++;
+            }
+            if (i != end) {
+                return false;
+            }
+            if (significant <= 15 && exponent >= -22 && exponent <= 22) {
+                double value = mantissa;
+                value = exponent < 0 ? value / POW10[-exponent] : value * POW10[exponent];
+                doubleValue = negative ? -value : value;
+            } else {
+                doubleValue = Double.parseDouble(src.text(start, end));
+            }
+            return true;
+        }
+
+        private static boolean isDigit(int ch) {
+            return ch >= '0' && ch <= '9';
+        }
+
+        private static boolean isSuffix(int ch) {
+            return ch == 'f' || ch == 'F' || ch == 'd' || ch == 'D';
+        }
+
+        private static boolean matches(Source src, int start, int end, String value, boolean ignoreCase) {
+            if (end - start != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                int ch = src.charAt(start + i);
+                int expected = value.charAt(i);
+                if (ignoreCase) {
+                    ch = Character.toLowerCase(ch);
+                    expected = Character.toLowerCase(expected);
+                }
+                if (ch != expected) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Open addressing table which maps byte or char ranges to label instances, such that a string is
+     * created only once for each distinct label. Keys are kept as the raw code units of the range.
+     */
+    public static final class LabelInterner {
+
+        private final ByteSource bytes = new ByteSource();
+        private final CharSource chars = new CharSource();
+        private char[][] keys = new char[64][];
+        private int[] hashes = new int[64];
+        private String[] labels = new String[64];
+        private int size;
+
+        public String intern(ByteBuffer buff, int start, int end) {
+            bytes.buff = buff;
+            return intern(bytes, start, end);
+        }
+
+        public String intern(char[] text, int start, int end) {
+            chars.chars = text;
+            return intern(chars, start, end);
+        }
+
+        private String intern(Source src, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + src.charAt(i);
+            }
+            int mask = keys.length - 1;
+            int pos = mix(hash) & mask;
+            while (keys[pos] != null) {
+                if (hashes[pos] == hash && equal(keys[pos], src, start, end)) {
+                    return labels[pos];
+                }
+                pos = (pos + 1) & mask;
+            }
+            char[] key = new char[end - start];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = (char) src.charAt(start + i);
+            }
+            String label = src.text(start, end);
+            keys[pos] = key;
+            hashes[pos] = hash;
+            labels[pos] = label;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+            return label;
+        }
+
+        private void rehash() {
+            char[][] oldKeys = keys;
+            int[] oldHashes = hashes;
+            String[] oldLabels = labels;
+            keys = new char[oldKeys.length * 2][];
+            hashes = new int[oldKeys.length * 2];
+            labels = new String[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) {
+                    continue;
+                }
+                int pos = mix(oldHashes[i]) & mask;
+                while (keys[pos] != null) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = oldKeys[i];
+                hashes[pos] = oldHashes[i];
+                labels[pos] = oldLabels[i];
+            }
+        }
+
+        private static int mix(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean equal(char[] key, Source src, int start, int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != src.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.fourier;
+
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+import rapaio.util.Pair;
+
+/**
+ * Fast Fourier Transform.
+ * <p>
+ * Transforms of sequences with a length which is a power of 2 are computed with the iterative
+ * radix 2 Cooley-Tukey algorithm. Sequences of any other length are transformed with Bluestein's
+ * algorithm, which rewrites the transform as a convolution computed with power of 2 transforms.
+ * Real sequences can be transformed with {@link #rfft(double[], double[], double[])}, which packs
+ * the even and odd samples into a complex sequence of half length.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 6/28/16.
+ */
+public class FFT {
+
+    /**
+     * Computes in place the discrete Fourier transform of a complex sequence given
+     * by its real and imaginary parts. The sequence can have any length.
+     *
+     * @param re real parts, replaced with the real parts of the transform
+     * @param im imaginary parts, replaced with the imaginary parts of the transform
+     */
+    public static void fft(double[] re, double[] im) {
+        int n = re.length;
+        if (im.length != n) {
+            throw new IllegalArgumentException("Real and imaginary parts must have the same length.");
+        }
+        if (n < 2) {
+            return;
+        }
+        if (isPowerOf2(n)) {
+            radix2(re, im);
+        } else {
+            bluestein(re, im);
+        }
+    }
+
+    /**
+     * Computes in place the inverse discrete Fourier transform of a complex sequence given
+     * by its real and imaginary parts. The sequence can have any length.
+     *
+     * @param re real parts, replaced with the real parts of the inverse transform
+     * @param im imaginary parts, replaced with the imaginary parts of the inverse transform
+     */
+    public static void ifft(double[] re, double[] im) {
+        int n = re.length;
+        for (int i = 0; i < n; i++) {
+            im[i] = -im[i];
+        }
+        fft(re, im);
+        for (int i = 0; i < n; i++) {
+            re[i] /= n;
+            im[i] = -im[i] / n;
+        }
+    }
+
+    /**
+     * Computes the discrete Fourier transform of a real sequence. Since the transform of a
+     * real sequence is conjugate symmetric, only the first {@code n/2+1} coefficients are
+     * computed, the remaining ones are the complex conjugates of those.
+     *
+     * @param x  real sequence of length n, it is not modified
+     * @param re real parts of the first {@code n/2+1} coefficients
+     * @param im imaginary parts of the first {@code n/2+1} coefficients
+     */
+    public static void rfft(double[] x, double[] re, double[] im) {
+        int n = x.length;
+        int bins = n / 2 + 1;
+        if (re.length < bins || im.length < bins) {
+            throw new IllegalArgumentException("Output arrays must have at least n/2+1 elements.");
+        }
+        if (n < 2) {
+            if (n == 1) {
+                re[0] = x[0];
+                im[0] = 0;
+            }
+            return;
+        }
+        if (n % 2 != 0) {
+            double[] zre = x.clone();
+            double[] zim = new double[n];
+            fft(zre, zim);
+            System.arraycopy(zre, 0, re, 0, bins);
+            System.arraycopy(zim, 0, im, 0, bins);
+            return;
+        }
+
+        // pack even samples as real and odd samples as imaginary parts of a half length sequence
+        int m = n / 2;
+        double[] zre = new double[m];
+        double[] zim = new double[m];
+        for (int k = 0; k < m; k++) {
+            zre[k] = x[2 * k];
+            zim[k] = x[2 * k + 1];
+        }
+        fft(zre, zim);
+
+        // split the transform into the transforms of even and odd samples and combine them
+        for (int k = 0; k <= m; k++) {
+            double ar = zre[k % m];
+            double ai = zim[k % m];
+            double br = zre[(m - k) % m];
+            double bi = -zim[(m - k) % m];
+            double er = (ar + br) / 2;
+            double ei = (ai + bi) / 2;
+            double or = (ai - bi) / 2;
+            double oi = (br - ar) / 2;
+            double angle = -Math.PI * k / m;
+            double wr = Math.cos(angle);
+            double wi = Math.sin(angle);
+            re[k] = er + wr * or - wi * oi;
+            im[k] = ei + wr * oi + wi * or;
+        }
+    }
+
+    /**
+     * Computes the inverse discrete Fourier transform of a conjugate symmetric sequence,
+     * which is the transform of a real sequence. Only the first {@code n/2+1} coefficients
+     * are used, as produced by {@link #rfft(double[], double[], double[])}.
+     *
+     * @param re real parts of the first {@code n/2+1} coefficients, they are not modified
+     * @param im imaginary parts of the first {@code n/2+1} coefficients, they are not modified
+     * @param x  real sequence of length n, replaced with the inverse transform
+     */
+    public static void irfft(double[] re, double[] im, double[] x) {
+        int n = x.length;
+        int bins = n / 2 + 1;
+        if (re.length < bins || im.length < bins) {
+            throw new IllegalArgumentException("Input arrays must have at least n/2+1 elements.");
+        }
+        if (n < 2) {
+            if (n == 1) {
+                x[0] = re[0];
+            }
+            return;
+        }
+        if (n % 2 != 0) {
+            double[] zre = new double[n];
+            double[] zim = new double[n];
+            for (int k = 0; k < bins; k++) {
+                zre[k] = re[k];
+                zim[k] = im[k];
+            }
+            for (int k = bins; k < n; k++) {
+                zre[k] = re[n - k];
+                zim[k] = -im[n - k];
+            }
+            ifft(zre, zim);
+            System.arraycopy(zre, 0, x, 0, n);
+            return;
+        }
+
+        // rebuild the transforms of even and odd samples and pack them in a half length sequence
+        int m = n / 2;
+        double[] zre = new double[m];
+        double[] zim = new double[m];
+        for (int k = 0; k < m; k++) {
+            double ar = re[k];
+            double ai = im[k];
+            double br = re[m - k];
+            double bi = -im[m - k];
+            double er = (ar + br) / 2;
+            double ei = (ai + bi) / 2;
+            double dr = (ar - br) / 2;
+            double di = (ai - bi) / 2;
+            double angle = Math.PI * k / m;
+            double wr = Math.cos(angle);
+            double wi = Math.sin(angle);
+            double or = dr * wr - di * wi;
+            double oi = dr * wi + di * wr;
+            zre[k] = er - oi;
+            zim[k] = ei + or;
+        }
+        ifft(zre, zim);
+        for (int k = 0; k < m; k++) {
+            x[2 * k] = zre[k];
+            x[2 * k + 1] = zim[k];
+        }
+    }
+
+    /**
+     * @param n positive integer
+     * @return smallest power of 2 which is greater than or equal to n
+     */
+    public static int nextPowerOf2(int n) {
+        if (n <= 1) {
+            return 1;
+        }
+        int p = Integer.highestOneBit(n - 1) << 1;
+        if (p <= 0) {
+            throw new IllegalArgumentException("Length is too large for a power of 2 transform.");
+        }
+        return p;
+    }
+
+    private static boolean isPowerOf2(int n) {
+        return Integer.bitCount(n) == 1;
+    }
+
+    private static void radix2(double[] re, double[] im) {
+        int n = re.length;
+
+        // bit reversal permutation
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double tmp = re[i];
+                re[i] = re[j];
+                re[j] = tmp;
+                tmp = im[i];
+                im[i] = im[j];
+                im[j] = tmp;
+            }
+        }
+
+        // twiddle factors for the largest stage, smaller stages use strided values
+        int half = n / 2;
+        double[] cos = new double[half];
+        double[] sin = new double[half];
+        for (int k = 0; k < half; k++) {
+            double angle = -2 * Math.PI * k / n;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+
+        for (int len = 2; len <= n; len <<= 1) {
+            int step = n / len;
+            int mid = len >> 1;
+            for (int start = 0; start < n; start += len) {
+                for (int k = 0; k < mid; k++) {
+                    double wr = cos[k * step];
+                    double wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + mid;
+                    double tr = wr * re[b] - wi * im[b];
+                    double ti = wr * im[b] + wi * re[b];
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bluestein's algorithm uses the identity {@code jk = (j^2 + k^2 - (k-j)^2)/2} to write
+     * the transform as the convolution of the sequence multiplied with a chirp and the
+     * conjugate chirp. The convolution is computed with power of 2 transforms.
+     */
+    private static void bluestein(double[] re, double[] im) {
+        int n = re.length;
+        int m = nextPowerOf2(2 * n - 1);
+
+        // chirp w_k = exp(-i pi k^2 / n), k^2 is reduced modulo 2n to keep the angles small
+        double[] cos = new double[n];
+        double[] sin = new double[n];
+        long n2 = 2L * n;
+        for (int k = 0; k < n; k++) {
+            double angle = Math.PI * (((long) k * k) % n2) / n;
+            cos[k] = Math.cos(angle);
+            sin[k] = -Math.sin(angle);
+        }
+
+        double[] are = new double[m];
+        double[] aim = new double[m];
+        for (int k = 0; k < n; k++) {
+            are[k] = re[k] * cos[k] - im[k] * sin[k];
+            aim[k] = re[k] * sin[k] + im[k] * cos[k];
+        }
+        double[] bre = new double[m];
+        double[] bim = new double[m];
+        bre[0] = cos[0];
+        bim[0] = -sin[0];
+        for (int k = 1; k < n; k++) {
+            bre[k] = bre[m - k] = cos[k];
+            bim[k] = bim[m - k] = -sin[k];
+        }
+
+        radix2(are, aim);
+        radix2(bre, bim);
+        for (int k = 0; k < m; k++) {
+            double r = are[k] * bre[k] - aim[k] * bim[k];
+            double i = are[k] * bim[k] + aim[k] * bre[k];
+            are[k] = r;
+            aim[k] = -i;
+        }
+        // inverse transform through conjugation
+        radix2(are, aim);
+        for (int k = 0; k < n; k++) {
+            double r = are[k] / m;
+            double i = -aim[k] / m;
+            re[k] = r * cos[k] - i * sin[k];
+            im[k] = r * sin[k] + i * cos[k];
+        }
+    }
+
+    /**
+     * Computes the discrete Fourier transform of a complex sequence given as a pair
+     * of variables with real and imaginary parts.
+     *
+     * @param x pair of real and imaginary parts
+     * @return pair of real and imaginary parts of the transform
+     */
+    public static Pair<Var, Var> fft(Pair<Var, Var> x) {
+        double[] re = x.v1.stream().mapToDouble().toArray();
+        double[] im = x.v2.stream().mapToDouble().toArray();
+        fft(re, im);
+        return Pair.from(VarDouble.wrap(re), VarDouble.wrap(im));
+    }
+
+    /**
+     * Computes the inverse discrete Fourier transform of a complex sequence given as a pair
+     * of variables with real and imaginary parts.
+     *
+     * @param x pair of real and imaginary parts
+     * @return pair of real and imaginary parts of the inverse transform
+     */
+    public static Pair<Var, Var> ifft(Pair<Var, Var> x) {
+        double[] re = x.v1.stream().mapToDouble().toArray();
+        double[] im = x.v2.stream().mapToDouble().toArray();
+        ifft(re, im);
+        return Pair.from(VarDouble.wrap(re), VarDouble.wrap(im));
+    }
+
+    /**
+     * Computes the circular convolution of two complex sequences of the same length.
+     *
+     * @param x pair of real and imaginary parts of the first sequence
+     * @param y pair of real and imaginary parts of the second sequence
+     * @return pair of real and imaginary parts of the circular convolution
+     */
+    public static Pair<Var, Var> cconvolve(Pair<Var, Var> x, Pair<Var, Var> y) {
+        int len = x.v1.rowCount();
+        if (x.v2.rowCount() != len || y.v1.rowCount() != len || y.v2.rowCount() != len) {
+            throw new IllegalArgumentException("Dimensions don't agree");
+        }
+
+        double[] are = x.v1.stream().mapToDouble().toArray();
+        double[] aim = x.v2.stream().mapToDouble().toArray();
+        double[] bre = y.v1.stream().mapToDouble().toArray();
+        double[] bim = y.v2.stream().mapToDouble().toArray();
+        fft(are, aim);
+        fft(bre, bim);
+
+        // point-wise multiply
+        for (int i = 0; i < len; i++) {
+            double r = are[i] * bre[i] - aim[i] * bim[i];
+            double im = are[i] * bim[i] + aim[i] * bre[i];
+            are[i] = r;
+            aim[i] = im;
+        }
+
+        ifft(are, aim);
+        return Pair.from(VarDouble.wrap(are), VarDouble.wrap(aim));
+    }
+
+    /**
+     * Computes the linear convolution of two complex sequences of the same length.
+     * Both sequences are padded with zeros to double length before the circular convolution.
+     *
+     * @param x pair of real and imaginary parts of the first sequence
+     * @param y pair of real and imaginary parts of the second sequence
+     * @return pair of real and imaginary parts of the linear convolution
+     */
+    public static Pair<Var, Var> convolve(Pair<Var, Var> x, Pair<Var, Var> y) {
+        Pair<Var, Var> a = Pair.from(x.v1.copy(), x.v2.copy());
+        Pair<Var, Var> b = Pair.from(y.v1.copy(), y.v2.copy());
+
+        for (int i = 0; i < x.v1.rowCount(); i++) {
+            a.v1.addDouble(0.0);
+            a.v2.addDouble(0.0);
+            b.v1.addDouble(0.0);
+            b.v2.addDouble(0.0);
+        }
+        return cconvolve(a, b);
+    }
+}
@@ -54,7 +54,17 @@ public interface DM extends Serializable, Printable {
         /**
          * Mapped view over dense array
          */
-        MAP
+        MAP,
+        /**
+         * Single flat array implementation with a stride and row major or column major ordering.
+         * Transposed matrices, row and column ranges are views over the same array.
+         */
+        FLAT,
+        /**
+         * Compressed sparse row (CSR) or compressed sparse column (CSC) implementation
+         * which stores only non zero values.
+         */
+        SPARSE
     }
 
     Type type();
@@ -424,6 +434,15 @@ public interface DM extends Serializable, Printable {
      */
     DM dot(DM b);
 
+    /**
+     * Computes matrix - matrix multiplication between the transpose of the current
+     * matrix and the given matrix, {@code t().dot(b)}, without building the transposed matrix.
+     *
+     * @param b matrix to be multiplied with
+     * @return matrix result
+     */
+    DM tDot(DM b);
+
     /**
      * Trace of the matrix, if the matrix is square. The trace of a squared
      * matrix is the sum of the elements from the main diagonal.
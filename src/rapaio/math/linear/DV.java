@@ -29,6 +29,7 @@ package rapaio.math.linear;
 
 import rapaio.data.VarDouble;
 import rapaio.math.linear.dense.DVDense;
+import rapaio.math.linear.sparse.DVSparse;
 import rapaio.printer.Printable;
 import rapaio.util.function.Double2DoubleFunction;
 
@@ -46,7 +47,8 @@ public interface DV extends Serializable, Printable {
     enum Type {
         BASE,
         DENSE,
-        VIEW
+        VIEW,
+        SPARSE
     }
 
     default boolean isDense() {
@@ -57,6 +59,14 @@ public interface DV extends Serializable, Printable {
         return (DVDense) this;
     }
 
+    default boolean isSparse() {
+        return this instanceof DVSparse;
+    }
+
+    default DVSparse asSparse() {
+        return (DVSparse) this;
+    }
+
     /**
      * Implementation type of the vector class
      *
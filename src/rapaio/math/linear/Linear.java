@@ -30,6 +30,7 @@ package rapaio.math.linear;
 import rapaio.math.linear.decomposition.CholeskyDecomposition;
 import rapaio.math.linear.decomposition.EigenDecompStatistics;
 import rapaio.math.linear.decomposition.EigenDecompStrategy;
+import rapaio.math.linear.dense.DMFlat;
 import rapaio.math.linear.dense.DMStripe;
 
 /**
@@ -54,19 +55,14 @@ public final class Linear {
         }
 
         // Copy right hand side.
-        DM X = B.copy();
+        DMFlat X = DMFlat.copy(B);
 
         int n = ref.rowCount();
         int nx = X.colCount();
-        double[][] L = new double[n][n];
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                L[i][j] = ref.get(i, j);
-            }
-        }
+        double[] L = DMFlat.copy(ref).elements();
 
-        X = CholeskyDecomposition.forwardSubstitution(n, nx, X, L);
-        X = CholeskyDecomposition.backwardSubstitution(n, nx, X, L);
+        CholeskyDecomposition.forwardSubstitution(n, nx, X.elements(), L);
+        CholeskyDecomposition.backwardSubstitution(n, nx, X.elements(), L);
 
         return X;
     }
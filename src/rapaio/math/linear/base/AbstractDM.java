@@ -7,6 +7,7 @@ import rapaio.math.linear.decomposition.MatrixMultiplication;
 import rapaio.math.linear.decomposition.SVDecomposition;
 import rapaio.math.linear.dense.DMMap;
 import rapaio.math.linear.dense.DMStripe;
+import rapaio.math.linear.dense.Gemm;
 import rapaio.math.linear.dense.DVDense;
 import rapaio.printer.Printer;
 import rapaio.printer.TextTable;
@@ -364,7 +365,12 @@ public abstract class AbstractDM implements DM {
 
     @Override
     public DM dot(DM B) {
-        return MatrixMultiplication.ikjParallel(this, B);
+        return Gemm.dot(this, B);
+    }
+
+    @Override
+    public DM tDot(DM B) {
+        return Gemm.dot(this, true, B, false);
     }
 
     @Override
@@ -445,22 +451,7 @@ public abstract class AbstractDM implements DM {
 
     @Override
     public DM scatter() {
-        DM scatter = rapaio.math.linear.dense.DMStripe.empty(colCount(), colCount());
-        double[] mean = new double[colCount()];
-        for (int i = 0; i < colCount(); i++) {
-            mean[i] = mapCol(i).mean();
-        }
-        for (int k = 0; k < rowCount(); k++) {
-            double[] row = new double[colCount()];
-            for (int i = 0; i < colCount(); i++)
-                row[i] = get(k, i) - mean[i];
-            for (int i = 0; i < row.length; i++) {
-                for (int j = 0; j < row.length; j++) {
-                    scatter.set(i, j, scatter.get(i, j) + row[i] * row[j]);
-                }
-            }
-        }
-        return scatter;
+        return Gemm.scatter(this);
     }
 
     @Override
@@ -29,7 +29,7 @@ package rapaio.math.linear.decomposition;
 
 
 import rapaio.math.linear.DM;
-import rapaio.math.linear.dense.DMStripe;
+import rapaio.math.linear.dense.DMFlat;
 
 import java.io.Serializable;
 
@@ -52,9 +52,9 @@ public class CholeskyDecomposition implements Serializable {
     private static final long serialVersionUID = -3047433451986241586L;
 
     /**
-     * Array for internal storage of decomposition.
+     * Row major flat storage of the decomposition.
      */
-    private final double[][] l;
+    private final DMFlat l;
 
     /**
      * Row and column dimension (square matrix).
@@ -76,32 +76,37 @@ public class CholeskyDecomposition implements Serializable {
 
         // Initialize.
         n = A.rowCount();
-        l = new double[n][n];
+        l = DMFlat.empty(n, n);
         isspd = (A.colCount() == n);
 
+        DMFlat fa = (A instanceof DMFlat) ? (DMFlat) A : DMFlat.copy(A);
+        final double[] a = fa.elements();
+        final int aOffset = fa.offset();
+        final int aRowStride = fa.rowStride();
+        final int aColStride = fa.colStride();
+        final double[] lv = l.elements();
+
         // Main loop.
         for (int j = 0; j < n; j++) {
-            double[] Lrowj = l[j];
+            final int rowj = j * n;
             double d = 0.0;
             for (int k = 0; k < j; k++) {
-                double[] Lrowk = l[k];
+                final int rowk = k * n;
                 double s = 0.0;
                 for (int i = 0; i < k; i++) {
-                    s += Lrowk[i] * Lrowj[i];
+                    s += lv[rowk + i] * lv[rowj + i];
                 }
-                Lrowj[k] = s = (A.get(j, k) - s) / l[k][k];
+                double ajk = a[aOffset + j * aRowStride + k * aColStride];
+                lv[rowj + k] = s = (ajk - s) / lv[rowk + k];
                 d = d + s * s;
-                if (A.get(k, j) != A.get(j, k)) {
+                if (a[aOffset + k * aRowStride + j * aColStride] != ajk) {
                     isspd = false;
                 }
             }
-            d = A.get(j, j) - d;
+            d = a[aOffset + j * aRowStride + j * aColStride] - d;
             if (d <= 0.0)
                 isspd = false;
-            l[j][j] = Math.sqrt(Math.max(d, 0.0));
-            for (int k = j + 1; k < n; k++) {
-                l[j][k] = 0.0;
-            }
+            lv[rowj + j] = Math.sqrt(Math.max(d, 0.0));
         }
     }
 
@@ -167,7 +172,7 @@ public class CholeskyDecomposition implements Serializable {
      * @return L triangular factor
      */
     public DM getL() {
-        return DMStripe.wrap(l);
+        return l;
     }
 
     /**
@@ -188,41 +193,57 @@ public class CholeskyDecomposition implements Serializable {
         }
 
         // Copy right hand side.
-        DM x = B.copy();
+        DMFlat x = DMFlat.copy(B);
         int nx = B.colCount();
 
-        x = forwardSubstitution(n, nx, x, l);
-        x = backwardSubstitution(n, nx, x, l);
+        forwardSubstitution(n, nx, x.elements(), l.elements());
+        backwardSubstitution(n, nx, x.elements(), l.elements());
 
         return x;
     }
 
-    public static DM backwardSubstitution(int n, int nx, DM X, double[][] L) {
+    /**
+     * Solves L'*X = Y in place, where both matrices are stored in row major order.
+     *
+     * @param n  size of the triangular factor
+     * @param nx number of columns of the right hand side
+     * @param x  right hand side, replaced by the solution
+     * @param l  lower triangular factor
+     */
+    public static void backwardSubstitution(int n, int nx, double[] x, double[] l) {
 
         // Solve L'*X = Y;
         for (int k = n - 1; k >= 0; k--) {
             for (int j = 0; j < nx; j++) {
+                double xkj = x[k * nx + j];
                 for (int i = k + 1; i < n; i++) {
-                    X.set(k, j, X.get(k, j) - X.get(i, j) * L[i][k]);
+                    xkj = xkj - x[i * nx + j] * l[i * n + k];
                 }
-                X.set(k, j, X.get(k, j) / L[k][k]);
+                x[k * nx + j] = xkj / l[k * n + k];
             }
         }
-        return X;
     }
 
-    public static DM forwardSubstitution(int n, int nx, DM X, double[][] L) {
+    /**
+     * Solves L*Y = B in place, where both matrices are stored in row major order.
+     *
+     * @param n  size of the triangular factor
+     * @param nx number of columns of the right hand side
+     * @param x  right hand side, replaced by the solution
+     * @param l  lower triangular factor
+     */
+    public static void forwardSubstitution(int n, int nx, double[] x, double[] l) {
 
         // Solve L*Y = B;
         for (int k = 0; k < n; k++) {
+            final int rowk = k * n;
             for (int j = 0; j < nx; j++) {
+                double xkj = x[k * nx + j];
                 for (int i = 0; i < k; i++) {
-                    X.set(k, j, X.get(k, j) - X.get(i, j) * L[k][i]);
+                    xkj = xkj - x[i * nx + j] * l[rowk + i];
                 }
-                X.set(k, j, X.get(k, j) / L[k][k]);
+                x[k * nx + j] = xkj / l[rowk + k];
             }
         }
-        return X;
     }
-
 }
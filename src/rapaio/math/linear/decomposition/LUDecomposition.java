@@ -28,6 +28,7 @@
 package rapaio.math.linear.decomposition;
 
 import rapaio.math.linear.DM;
+import rapaio.math.linear.dense.DMFlat;
 import rapaio.math.linear.dense.DMStripe;
 import rapaio.printer.Printable;
 import rapaio.printer.Printer;
@@ -54,8 +55,8 @@ public class LUDecomposition implements Serializable, Printable {
 
     private static final long serialVersionUID = -4226024886673558685L;
 
-    // internal storage of decomposition
-    private DM LU;
+    // internal row major storage of decomposition
+    private DMFlat LU;
     private int rowCount;
     private int colCount;
     // pivot sign
@@ -84,6 +85,32 @@ public class LUDecomposition implements Serializable, Printable {
         method.method().accept(this, A);
     }
 
+    private void init(DM A) {
+        LU = DMFlat.copy(A);
+        rowCount = A.rowCount();
+        colCount = A.colCount();
+        piv = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            piv[i] = i;
+        }
+        pivSign = 1;
+    }
+
+    private void swapRows(int p, int k) {
+        final double[] v = LU.elements();
+        final int rowp = p * colCount;
+        final int rowk = k * colCount;
+        for (int j = 0; j < colCount; j++) {
+            double t = v[rowp + j];
+            v[rowp + j] = v[rowk + j];
+            v[rowk + j] = t;
+        }
+        int t = piv[p];
+        piv[p] = piv[k];
+        piv[k] = t;
+        pivSign = -pivSign;
+    }
+
     /**
      * Is the matrix nonsingular?
      *
@@ -174,27 +201,37 @@ public class LUDecomposition implements Serializable, Printable {
 
         // Copy right hand side with pivoting
         int nx = B.colCount();
-        DM X = B.mapRows(piv).copy();
+        DMFlat X = DMFlat.copy(B.mapRows(piv));
+        final double[] x = X.elements();
+        final double[] lu = LU.elements();
+        final int n = colCount;
 
         // Solve L*Y = B(piv,:)
 
-        for (int k = 0; k < colCount; k++) {
-            for (int i = k + 1; i < colCount; i++) {
+        for (int k = 0; k < n; k++) {
+            final int rowk = k * nx;
+            for (int i = k + 1; i < n; i++) {
+                final int rowi = i * nx;
+                final double luik = lu[i * n + k];
                 for (int j = 0; j < nx; j++) {
-                    X.set(i, j, X.get(i, j) - X.get(k, j) * LU.get(i, k));
+                    x[rowi + j] -= x[rowk + j] * luik;
                 }
             }
         }
 
         // Solve U*X = Y;
 
-        for (int k = colCount - 1; k >= 0; k--) {
+        for (int k = n - 1; k >= 0; k--) {
+            final int rowk = k * nx;
+            final double lukk = lu[k * n + k];
             for (int j = 0; j < nx; j++) {
-                X.set(k, j, X.get(k, j) / LU.get(k, k));
+                x[rowk + j] /= lukk;
             }
             for (int i = 0; i < k; i++) {
+                final int rowi = i * nx;
+                final double luik = lu[i * n + k];
                 for (int j = 0; j < nx; j++) {
-                    X.set(i, j, X.get(i, j) - X.get(k, j) * LU.get(i, k));
+                    x[rowi + j] -= x[rowk + j] * luik;
                 }
             }
         }
@@ -223,63 +260,52 @@ public class LUDecomposition implements Serializable, Printable {
             @Override
             BiConsumer<LUDecomposition, DM> method() {
                 return (lu, A) -> {
-                    lu.LU = A.copy();
-                    lu.rowCount = A.rowCount();
-                    lu.colCount = A.colCount();
-                    lu.piv = new int[lu.rowCount];
-                    for (int i = 0; i < lu.rowCount; i++) {
-                        lu.piv[i] = i;
-                    }
-                    lu.pivSign = 1;
-                    double[] LUcolj = new double[lu.rowCount];
+                    lu.init(A);
+                    final double[] v = lu.LU.elements();
+                    final int m = lu.rowCount;
+                    final int n = lu.colCount;
+                    double[] LUcolj = new double[m];
 
                     // Outer loop.
-                    for (int j = 0; j < lu.colCount; j++) {
+                    for (int j = 0; j < n; j++) {
 
                         // Make a copy of the j-th column to localize references.
-                        for (int i = 0; i < lu.rowCount; i++) {
-                            LUcolj[i] = lu.LU.get(i, j);
+                        for (int i = 0; i < m; i++) {
+                            LUcolj[i] = v[i * n + j];
                         }
 
                         // Apply previous transformations.
-                        for (int i = 0; i < lu.rowCount; i++) {
-
+                        for (int i = 0; i < m; i++) {
 
                             // Most of the time is spent in the following dot product.
 
+                            final int rowi = i * n;
                             int kmax = Math.min(i, j);
                             double s = 0.0;
                             for (int k = 0; k < kmax; k++) {
-                                s += lu.LU.get(i, k) * LUcolj[k];
+                                s += v[rowi + k] * LUcolj[k];
                             }
                             LUcolj[i] -= s;
-                            lu.LU.set(i, j, LUcolj[i]);
+                            v[rowi + j] = LUcolj[i];
                         }
 
                         // Find pivot and exchange if necessary.
 
                         int p = j;
-                        for (int i = j + 1; i < lu.LU.rowCount(); i++) {
+                        for (int i = j + 1; i < m; i++) {
                             if (Math.abs(LUcolj[i]) > Math.abs(LUcolj[p])) {
                                 p = i;
                             }
                         }
                         if (p != j) {
-                            for (int k = 0; k < lu.LU.colCount(); k++) {
-                                double t = lu.LU.get(p, k);
-                                lu.LU.set(p, k, lu.LU.get(j, k));
-                                lu.LU.set(j, k, t);
-                            }
-                            int k = lu.piv[p];
-                            lu.piv[p] = lu.piv[j];
-                            lu.piv[j] = k;
-                            lu.pivSign = -lu.pivSign;
+                            lu.swapRows(p, j);
                         }
 
                         // Compute multipliers.
-                        if (j < lu.LU.rowCount() & lu.LU.get(j, j) != 0.0) {
-                            for (int i = j + 1; i < lu.LU.rowCount(); i++) {
-                                lu.LU.set(i, j, lu.LU.get(i, j) / lu.LU.get(j, j));
+                        if (j < m & v[j * n + j] != 0.0) {
+                            final double lujj = v[j * n + j];
+                            for (int i = j + 1; i < m; i++) {
+                                v[i * n + j] /= lujj;
                             }
                         }
                     }
@@ -297,41 +323,32 @@ public class LUDecomposition implements Serializable, Printable {
                 return (lu, A) -> {
 
                     // Initialize.
-                    lu.LU = A.copy();
-                    lu.rowCount = A.rowCount();
-                    lu.colCount = A.colCount();
-                    lu.piv = new int[lu.rowCount];
-                    for (int i = 0; i < lu.rowCount; i++) {
-                        lu.piv[i] = i;
-                    }
-                    lu.pivSign = 1;
+                    lu.init(A);
+                    final double[] v = lu.LU.elements();
+                    final int m = lu.rowCount;
+                    final int n = lu.colCount;
                     // Main loop.
-                    for (int k = 0; k < lu.colCount; k++) {
+                    for (int k = 0; k < n; k++) {
                         // Find pivot.
                         int p = k;
-                        for (int i = k + 1; i < lu.rowCount; i++) {
-                            if (Math.abs(lu.LU.get(i, k)) > Math.abs(lu.LU.get(p, k))) {
+                        for (int i = k + 1; i < m; i++) {
+                            if (Math.abs(v[i * n + k]) > Math.abs(v[p * n + k])) {
                                 p = i;
                             }
                         }
                         // Exchange if necessary.
                         if (p != k) {
-                            for (int j = 0; j < lu.colCount; j++) {
-                                double t = lu.LU.get(p, j);
-                                lu.LU.set(p, j, lu.LU.get(k, j));
-                                lu.LU.set(k, j, t);
-                            }
-                            int t = lu.piv[p];
-                            lu.piv[p] = lu.piv[k];
-                            lu.piv[k] = t;
-                            lu.pivSign = -lu.pivSign;
+                            lu.swapRows(p, k);
                         }
                         // Compute multipliers and eliminate k-th column.
-                        if (lu.LU.get(k, k) != 0.0) {
-                            for (int i = k + 1; i < lu.rowCount; i++) {
-                                lu.LU.set(i, k, lu.LU.get(i, k) / lu.LU.get(k, k));
-                                for (int j = k + 1; j < lu.colCount; j++) {
-                                    lu.LU.set(i, j, lu.LU.get(i, j) - lu.LU.get(i, k) * lu.LU.get(k, j));
+                        final int rowk = k * n;
+                        if (v[rowk + k] != 0.0) {
+                            for (int i = k + 1; i < m; i++) {
+                                final int rowi = i * n;
+                                v[rowi + k] /= v[rowk + k];
+                                final double luik = v[rowi + k];
+                                for (int j = k + 1; j < n; j++) {
+                                    v[rowi + j] -= luik * v[rowk + j];
                                 }
                             }
                         }
@@ -29,6 +29,7 @@ package rapaio.math.linear.decomposition;
 
 import rapaio.math.linear.DM;
 import rapaio.math.linear.DV;
+import rapaio.math.linear.dense.DMFlat;
 import rapaio.math.linear.dense.DMStripe;
 import rapaio.math.linear.dense.DVDense;
 
@@ -52,41 +53,48 @@ public class QRDecomposition implements Serializable {
 
     private static final long serialVersionUID = -8322866575684242727L;
 
-    private final DM QR;
+    private final DMFlat QR;
     private final DV Rdiag;
 
     private QRDecomposition(DM A) {
-        // Initialize.
-        QR = A.copy();
+        // Initialize with a column major copy, Householder updates are done on contiguous columns.
+        QR = DMFlat.copy(A, false);
         Rdiag = DVDense.zeros(QR.colCount());
 
+        final double[] qr = QR.elements();
+        final int ld = QR.stride();
+        final int m = QR.rowCount();
+        final int n = QR.colCount();
+
         // Main loop.
-        for (int k = 0; k < QR.colCount(); k++) {
+        for (int k = 0; k < n; k++) {
+            final int colk = k * ld;
             // Compute 2-norm of k-th column without under/overflow.
             double nrm = 0;
-            for (int i = k; i < QR.rowCount(); i++) {
-                nrm = StrictMath.hypot(nrm, QR.get(i, k));
+            for (int i = k; i < m; i++) {
+                nrm = StrictMath.hypot(nrm, qr[colk + i]);
             }
 
             if (nrm != 0.0) {
                 // Form k-th Householder var.
-                if (QR.get(k, k) < 0) {
+                if (qr[colk + k] < 0) {
                     nrm = -nrm;
                 }
-                for (int i = k; i < QR.rowCount(); i++) {
-                    QR.set(i, k, QR.get(i, k) / nrm);
+                for (int i = k; i < m; i++) {
+                    qr[colk + i] /= nrm;
                 }
-                QR.set(k, k, QR.get(k, k) + 1.0);
+                qr[colk + k] += 1.0;
 
                 // Apply transformation to remaining columns.
-                for (int j = k + 1; j < QR.colCount(); j++) {
+                for (int j = k + 1; j < n; j++) {
+                    final int colj = j * ld;
                     double s = 0.0;
-                    for (int i = k; i < QR.rowCount(); i++) {
-                        s += QR.get(i, k) * QR.get(i, j);
+                    for (int i = k; i < m; i++) {
+                        s += qr[colk + i] * qr[colj + i];
                     }
-                    s = -s / QR.get(k, k);
-                    for (int i = k; i < QR.rowCount(); i++) {
-                        QR.set(i, j, QR.get(i, j) + s * QR.get(i, k));
+                    s = -s / qr[colk + k];
+                    for (int i = k; i < m; i++) {
+                        qr[colj + i] += s * qr[colk + i];
                     }
                 }
             }
@@ -154,21 +162,26 @@ public class QRDecomposition implements Serializable {
      */
 
     public DM getQ() {
-        DM Q = rapaio.math.linear.dense.DMStripe.empty(QR.rowCount(), QR.colCount());
-        for (int k = QR.colCount() - 1; k >= 0; k--) {
-            for (int i = 0; i < QR.rowCount(); i++) {
-                Q.set(i, k, 0.0);
-            }
-            Q.set(k, k, 1.0);
-            for (int j = k; j < QR.colCount(); j++) {
-                if (QR.get(k, k) != 0) {
+        final double[] qr = QR.elements();
+        final int ld = QR.stride();
+        final int m = QR.rowCount();
+        final int n = QR.colCount();
+
+        DMFlat Q = DMFlat.empty(m, n, false);
+        final double[] q = Q.elements();
+        for (int k = n - 1; k >= 0; k--) {
+            final int colk = k * ld;
+            q[k * m + k] = 1.0;
+            for (int j = k; j < n; j++) {
+                if (qr[colk + k] != 0) {
+                    final int colj = j * m;
                     double s = 0.0;
-                    for (int i = k; i < QR.rowCount(); i++) {
-                        s += QR.get(i, k) * Q.get(i, j);
+                    for (int i = k; i < m; i++) {
+                        s += qr[colk + i] * q[colj + i];
                     }
-                    s = -s / QR.get(k, k);
-                    for (int i = k; i < QR.rowCount(); i++) {
-                        Q.set(i, j, Q.get(i, j) + s * QR.get(i, k));
+                    s = -s / qr[colk + k];
+                    for (int i = k; i < m; i++) {
+                        q[colj + i] += s * qr[colk + i];
                     }
                 }
             }
@@ -193,34 +206,44 @@ public class QRDecomposition implements Serializable {
             throw new RuntimeException("Matrix is rank deficient.");
         }
 
-        // Copy right hand side
-        DM X = B.copy();
+        final double[] qr = QR.elements();
+        final int ld = QR.stride();
+        final int m = QR.rowCount();
+        final int n = QR.colCount();
+        final int nx = B.colCount();
+
+        // Copy right hand side, column major to have contiguous columns.
+        DMFlat X = DMFlat.copy(B, false);
+        final double[] x = X.elements();
 
         // Compute Y = transpose(Q)*B
-        for (int k = 0; k < QR.colCount(); k++) {
-            for (int j = 0; j < B.colCount(); j++) {
+        for (int k = 0; k < n; k++) {
+            final int colk = k * ld;
+            for (int j = 0; j < nx; j++) {
+                final int colj = j * m;
                 double s = 0.0;
-                for (int i = k; i < QR.rowCount(); i++) {
-                    s += QR.get(i, k) * X.get(i, j);
+                for (int i = k; i < m; i++) {
+                    s += qr[colk + i] * x[colj + i];
                 }
-                s = -s / QR.get(k, k);
-                for (int i = k; i < QR.rowCount(); i++) {
-                    X.set(i, j, X.get(i, j) + s * QR.get(i, k));
+                s = -s / qr[colk + k];
+                for (int i = k; i < m; i++) {
+                    x[colj + i] += s * qr[colk + i];
                 }
             }
         }
 
         // Solve R*X = Y;
-        for (int k = QR.colCount() - 1; k >= 0; k--) {
-            for (int j = 0; j < B.colCount(); j++) {
-                X.set(k, j, X.get(k, j) / Rdiag.get(k));
+        for (int k = n - 1; k >= 0; k--) {
+            final int colk = k * ld;
+            for (int j = 0; j < nx; j++) {
+                x[j * m + k] /= Rdiag.get(k);
             }
             for (int i = 0; i < k; i++) {
-                for (int j = 0; j < B.colCount(); j++) {
-                    X.set(i, j, X.get(i, j) - X.get(k, j) * QR.get(i, k));
+                for (int j = 0; j < nx; j++) {
+                    x[j * m + i] -= x[j * m + k] * qr[colk + i];
                 }
             }
         }
-        return X.rangeRows(0, QR.colCount()).rangeCols(0, B.colCount()).copy();
+        return X.rangeRows(0, n).copy();
     }
 }
@@ -0,0 +1,336 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.dense;
+
+import rapaio.math.linear.DM;
+import rapaio.math.linear.DV;
+import rapaio.math.linear.base.AbstractDM;
+import rapaio.util.function.Double2DoubleFunction;
+
+import java.util.Arrays;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/**
+ * Dense matrix with values stored in a single flat array.
+ * <p>
+ * The layout is described by an offset, a stride and a storage order flag.
+ * For row major storage the cell {@code (i,j)} is found at {@code offset + i * stride + j},
+ * for column major storage at {@code offset + j * stride + i}. Transposed matrices and
+ * ranges of rows or columns are views which share the same array, and rows or columns
+ * are exposed as strided vector views.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class DMFlat extends AbstractDM {
+
+    private static final long serialVersionUID = 5237810936742651043L;
+
+    /**
+     * Builds a zero filled row major matrix.
+     *
+     * @param rowCount number of rows
+     * @param colCount number of columns
+     * @return new matrix instance
+     */
+    public static DMFlat empty(int rowCount, int colCount) {
+        return empty(rowCount, colCount, true);
+    }
+
+    /**
+     * Builds a zero filled matrix with given storage order.
+     *
+     * @param rowCount number of rows
+     * @param colCount number of columns
+     * @param rowMajor true for row major storage, false for column major storage
+     * @return new matrix instance
+     */
+    public static DMFlat empty(int rowCount, int colCount, boolean rowMajor) {
+        return new DMFlat(new double[rowCount * colCount], 0, rowCount, colCount, rowMajor, rowMajor ? colCount : rowCount);
+    }
+
+    /**
+     * Builds an identity matrix of order n.
+     *
+     * @param n number of rows and columns
+     * @return new identity matrix
+     */
+    public static DMFlat identity(int n) {
+        DMFlat m = empty(n, n);
+        for (int i = 0; i < n; i++) {
+            m.values[i * n + i] = 1.0;
+        }
+        return m;
+    }
+
+    /**
+     * Builds a row major matrix filled with a given value.
+     *
+     * @param rowCount number of rows
+     * @param colCount number of columns
+     * @param fill     fill value
+     * @return new matrix instance
+     */
+    public static DMFlat fill(int rowCount, int colCount, double fill) {
+        DMFlat m = empty(rowCount, colCount);
+        if (fill != 0.0) {
+            Arrays.fill(m.values, fill);
+        }
+        return m;
+    }
+
+    /**
+     * Builds a matrix which uses the given array as storage, without copying it.
+     *
+     * @param rowCount number of rows
+     * @param colCount number of columns
+     * @param rowMajor true if values are stored row by row, false if stored column by column
+     * @param values   storage array
+     * @return new matrix instance
+     */
+    public static DMFlat wrap(int rowCount, int colCount, boolean rowMajor, double... values) {
+        if (values.length < rowCount * colCount) {
+            throw new IllegalArgumentException("Array is too small for a matrix of size [" + rowCount + "," + colCount + "].");
+        }
+        return new DMFlat(values, 0, rowCount, colCount, rowMajor, rowMajor ? colCount : rowCount);
+    }
+
+    /**
+     * Builds a row major matrix which wraps a copy of the given values stored by row.
+     *
+     * @param rowCount number of rows
+     * @param colCount number of columns
+     * @param source   values stored by rows
+     * @return new matrix instance
+     */
+    public static DMFlat copy(int rowCount, int colCount, double... source) {
+        return wrap(rowCount, colCount, true, Arrays.copyOf(source, rowCount * colCount));
+    }
+
+    /**
+     * Builds a row major solid copy of the given matrix.
+     *
+     * @param source source matrix
+     * @return new matrix instance
+     */
+    public static DMFlat copy(DM source) {
+        return copy(source, true);
+    }
+
+    /**
+     * Builds a solid copy of the given matrix with the requested storage order.
+     *
+     * @param source   source matrix
+     * @param rowMajor true for row major storage, false for column major storage
+     * @return new matrix instance
+     */
+    public static DMFlat copy(DM source, boolean rowMajor) {
+        int rows = source.rowCount();
+        int cols = source.colCount();
+        DMFlat m = empty(rows, cols, rowMajor);
+        if (source instanceof DMFlat) {
+            DMFlat src = (DMFlat) source;
+            if (src.rowMajor == rowMajor) {
+                int lines = rowMajor ? rows : cols;
+                int len = rowMajor ? cols : rows;
+                for (int i = 0; i < lines; i++) {
+                    System.arraycopy(src.values, src.offset + i * src.stride, m.values, i * len, len);
+                }
+                return m;
+            }
+        }
+        if (source instanceof DMStripe && rowMajor) {
+            double[][] rowArrays = ((DMStripe) source).rows();
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(rowArrays[i], 0, m.values, i * cols, cols);
+            }
+            return m;
+        }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                m.values[m.index(i, j)] = source.get(i, j);
+            }
+        }
+        return m;
+    }
+
+    private final double[] values;
+    private final int offset;
+    private final int rowCount;
+    private final int colCount;
+    private final boolean rowMajor;
+    private final int stride;
+
+    private DMFlat(double[] values, int offset, int rowCount, int colCount, boolean rowMajor, int stride) {
+        this.values = values;
+        this.offset = offset;
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.rowMajor = rowMajor;
+        this.stride = stride;
+    }
+
+    @Override
+    public Type type() {
+        return Type.FLAT;
+    }
+
+    @Override
+    public int rowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int colCount() {
+        return colCount;
+    }
+
+    /**
+     * @return true if values are stored row by row, false if they are stored column by column
+     */
+    public boolean isRowMajor() {
+        return rowMajor;
+    }
+
+    /**
+     * @return distance in the storage array between two consecutive rows
+     * for row major storage or two consecutive columns for column major storage
+     */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * @return position in the storage array of the cell {@code (0,0)}
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return storage array, shared with this matrix
+     */
+    public double[] elements() {
+        return values;
+    }
+
+    /**
+     * @return distance in the storage array between cells {@code (i,j)} and {@code (i+1,j)}
+     */
+    public int rowStride() {
+        return rowMajor ? stride : 1;
+    }
+
+    /**
+     * @return distance in the storage array between cells {@code (i,j)} and {@code (i,j+1)}
+     */
+    public int colStride() {
+        return rowMajor ? 1 : stride;
+    }
+
+    int index(int row, int col) {
+        return rowMajor ? offset + row * stride + col : offset + col * stride + row;
+    }
+
+    @Override
+    public double get(int row, int col) {
+        return values[index(row, col)];
+    }
+
+    @Override
+    public void set(int row, int col, double value) {
+        values[index(row, col)] = value;
+    }
+
+    @Override
+    public void inc(int row, int col, double value) {
+        values[index(row, col)] += value;
+    }
+
+    @Override
+    public DVStrided mapRow(int row) {
+        return new DVStrided(values, index(row, 0), colStride(), colCount);
+    }
+
+    @Override
+    public DVStrided mapCol(int col) {
+        return new DVStrided(values, index(0, col), rowStride(), rowCount);
+    }
+
+    @Override
+    public DMFlat rangeRows(int start, int end) {
+        return new DMFlat(values, index(start, 0), end - start, colCount, rowMajor, stride);
+    }
+
+    @Override
+    public DMFlat rangeRowsCopy(int start, int end) {
+        return rangeRows(start, end).copy();
+    }
+
+    @Override
+    public DMFlat rangeCols(int start, int end) {
+        return new DMFlat(values, index(0, start), rowCount, end - start, rowMajor, stride);
+    }
+
+    @Override
+    public DMFlat rangeColsCopy(int start, int end) {
+        return rangeCols(start, end).copy();
+    }
+
+    @Override
+    public DM apply(Double2DoubleFunction fun) {
+        int lines = rowMajor ? rowCount : colCount;
+        int len = rowMajor ? colCount : rowCount;
+        for (int i = 0; i < lines; i++) {
+            int start = offset + i * stride;
+            for (int j = start; j < start + len; j++) {
+                values[j] = fun.applyAsDouble(values[j]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Transpose is a view which shares the storage array with this matrix,
+     * the storage order being switched.
+     */
+    @Override
+    public DMFlat t() {
+        return new DMFlat(values, offset, colCount, rowCount, !rowMajor, stride);
+    }
+
+    @Override
+    public DoubleStream valueStream() {
+        return IntStream.range(0, rowCount * colCount).mapToDouble(p -> values[index(p / colCount, p % colCount)]);
+    }
+
+    @Override
+    public DMFlat copy() {
+        return copy(this, rowMajor);
+    }
+}
@@ -142,6 +142,10 @@ public class DMStripe extends DMBase {
         return new DMStripe(rowCount, colCount, source);
     }
 
+    static DMStripe wrap(double[][] source, int rowCount, int colCount) {
+        return new DMStripe(rowCount, colCount, source);
+    }
+
     public static DMStripe copy(double[][] source) {
         int colCount = source[0].length;
         int rowCount = source.length;
@@ -196,6 +200,10 @@ public class DMStripe extends DMBase {
         return Type.STRIPE;
     }
 
+    double[][] rows() {
+        return values;
+    }
+
     @Override
     public DM dotDiag(DV v) {
         if (v instanceof DVDense) {
@@ -226,8 +234,9 @@ public class DMStripe extends DMBase {
     public DM t() {
         DMStripe t = new DMStripe(colCount, rowCount);
         for (int i = 0; i < rowCount; i++) {
+            double[] row = values[i];
             for (int j = 0; j < colCount; j++) {
-                t.values[j][i] = get(i, j);
+                t.values[j][i] = row[j];
             }
         }
         return t;
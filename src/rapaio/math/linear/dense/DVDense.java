@@ -164,6 +164,11 @@ public class DVDense extends DVBase {
             DoubleArrays.add(values, 0, b.asDense().values, 0, size);
             return this;
         }
+        if (b.isSparse()) {
+            checkConformance(b);
+            b.asSparse().scatter(1, values);
+            return this;
+        }
         super.add(b);
         return this;
     }
@@ -175,6 +180,11 @@ public class DVDense extends DVBase {
             DoubleArrays.sub(values, 0, b.asDense().values, 0, size);
             return this;
         }
+        if (b.isSparse()) {
+            checkConformance(b);
+            b.asSparse().scatter(-1, values);
+            return this;
+        }
         super.sub(b);
         return this;
     }
@@ -226,6 +236,9 @@ public class DVDense extends DVBase {
             }
             return s;
         }
+        if (b.isSparse()) {
+            return b.dot(this);
+        }
         for (int i = 0; i < size; i++) {
             s = Math.fma(values[i], b.get(i), s);
         }
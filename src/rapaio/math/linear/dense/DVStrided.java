@@ -0,0 +1,142 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.dense;
+
+import rapaio.data.VarDouble;
+import rapaio.math.linear.DV;
+import rapaio.math.linear.base.AbstractDV;
+import rapaio.math.linear.base.DVBase;
+
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/**
+ * Vector view over a slice of a flat array. The element with index {@code i}
+ * is stored at position {@code offset + i * stride}, which allows rows and columns
+ * of a {@link DMFlat} matrix to be exposed without copying.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class DVStrided extends AbstractDV {
+
+    private static final long serialVersionUID = -1893453617720346712L;
+
+    private final double[] values;
+    private final int offset;
+    private final int stride;
+    private final int size;
+
+    public DVStrided(double[] values, int offset, int stride, int size) {
+        this.values = values;
+        this.offset = offset;
+        this.stride = stride;
+        this.size = size;
+    }
+
+    @Override
+    public Type type() {
+        return Type.VIEW;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double get(int i) {
+        return values[offset + i * stride];
+    }
+
+    @Override
+    public void set(int i, double value) {
+        values[offset + i * stride] = value;
+    }
+
+    @Override
+    public void inc(int i, double value) {
+        values[offset + i * stride] += value;
+    }
+
+    @Override
+    public double dot(DV b) {
+        checkConformance(b);
+        double sum = 0;
+        int pos = offset;
+        for (int i = 0; i < size; i++) {
+            sum += values[pos] * b.get(i);
+            pos += stride;
+        }
+        return sum;
+    }
+
+    /**
+     * A view cannot be copied into another view, the solid copy is a dense vector.
+     */
+    @Override
+    public DV copy() {
+        return copy(Type.DENSE);
+    }
+
+    @Override
+    public DV copy(Type type) {
+        double[] copy = toArray();
+        switch (type) {
+            case BASE:
+                return DVBase.wrap(copy);
+            case DENSE:
+                return DVDense.wrap(copy);
+            default:
+                throw new IllegalArgumentException("DVType." + type.name() + " cannot be used to create a copy.");
+        }
+    }
+
+    @Override
+    public DoubleStream valueStream() {
+        return IntStream.range(0, size).mapToDouble(i -> values[offset + i * stride]);
+    }
+
+    @Override
+    public VarDouble asVarDouble() {
+        return VarDouble.wrap(toArray());
+    }
+
+    private double[] toArray() {
+        double[] copy = new double[size];
+        if (stride == 1) {
+            System.arraycopy(values, offset, copy, 0, size);
+            return copy;
+        }
+        int pos = offset;
+        for (int i = 0; i < size; i++) {
+            copy[i] = values[pos];
+            pos += stride;
+        }
+        return copy;
+    }
+}
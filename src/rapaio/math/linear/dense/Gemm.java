@@ -0,0 +1,501 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.dense;
+
+import rapaio.math.linear.DM;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * General matrix multiplication engine for dense matrices.
+ * <p>
+ * The implementation follows the layered approach of optimized BLAS libraries.
+ * Operands are copied block by block into packed panels, such that the innermost
+ * loops read contiguous memory. The innermost computation is a register blocked
+ * micro kernel which updates a {@value #MR} x {@value #NR} block of the result
+ * with values kept in local variables. The result matrix is split into tiles of
+ * {@value #MC} x {@value #NC} cells which are computed in parallel in a fork join
+ * pool when the problem is large enough. When the result fits into a single tile,
+ * the inner dimension is split instead and the partial products are summed.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class Gemm {
+
+    // micro kernel sizes
+    private static final int MR = 4;
+    private static final int NR = 4;
+
+    // cache block sizes: packed A block (MC x KC) stays in L2, packed B sliver (KC x NR) in L1
+    private static final int MC = 128;
+    private static final int KC = 256;
+    private static final int NC = 512;
+
+    // minimum number of multiplications for which parallel execution is used
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
+
+    private Gemm() {
+    }
+
+    /**
+     * Computes matrix multiplication {@code A * B}.
+     *
+     * @param a left matrix
+     * @param b right matrix
+     * @return new matrix with result
+     */
+    public static DMStripe dot(DM a, DM b) {
+        return dot(a, false, b, false);
+    }
+
+    /**
+     * Computes matrix multiplication {@code op(A) * op(B)}, where {@code op(X)} is {@code X}
+     * or the transpose of {@code X}. Transposed operands are read directly without
+     * building transposed copies.
+     *
+     * @param a      left matrix
+     * @param transA if true the left operand is the transpose of a
+     * @param b      right matrix
+     * @param transB if true the right operand is the transpose of b
+     * @return new matrix with result
+     */
+    public static DMStripe dot(DM a, boolean transA, DM b, boolean transB) {
+        int m = transA ? a.colCount() : a.rowCount();
+        int k = transA ? a.rowCount() : a.colCount();
+        int kb = transB ? b.colCount() : b.rowCount();
+        int n = transB ? b.rowCount() : b.colCount();
+        if (k != kb) {
+            throw new IllegalArgumentException(
+                    String.format("Matrices [%d,%d] and [%d,%d] are not conform for multiplication.", m, k, kb, n));
+        }
+        double[][] c = new double[m][n];
+        multiply(new Operand(a, transA), new Operand(b, transB), c, m, n, k);
+        return DMStripe.wrap(c, m, n);
+    }
+
+    /**
+     * Computes the scatter matrix {@code (X - mean)^T * (X - mean)}, where mean
+     * contains the column means of the given matrix.
+     *
+     * @param x matrix with observations on rows
+     * @return new scatter matrix
+     */
+    public static DMStripe scatter(DM x) {
+        int rows = x.rowCount();
+        int cols = x.colCount();
+        double[] mean = new double[cols];
+        for (int j = 0; j < cols; j++) {
+            mean[j] = x.mapCol(j).mean();
+        }
+        double[][] centered = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                centered[i][j] = x.get(i, j) - mean[j];
+            }
+        }
+        DMStripe xc = DMStripe.wrap(centered, rows, cols);
+        double[][] c = new double[cols][cols];
+        multiply(new Operand(xc, true), new Operand(xc, false), c, cols, cols, rows);
+        // enforce exact symmetry
+        for (int i = 0; i < cols; i++) {
+            for (int j = i + 1; j < cols; j++) {
+                c[j][i] = c[i][j];
+            }
+        }
+        return DMStripe.wrap(c, cols, cols);
+    }
+
+    private static void multiply(Operand a, Operand b, double[][] c, int m, int n, int k) {
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+        int rowTiles = (m + MC - 1) / MC;
+        int colTiles = (n + NC - 1) / NC;
+        int tiles = rowTiles * colTiles;
+        boolean parallel = (long) m * n * k >= PARALLEL_THRESHOLD;
+        if (parallel && tiles > 1) {
+            ForkJoinPool.commonPool().invoke(new TileTask(a, b, c, m, n, k, colTiles, 0, tiles));
+            return;
+        }
+        int parts = parallel ? Math.min((k + KC - 1) / KC, ForkJoinPool.commonPool().getParallelism()) : 1;
+        if (parts > 1) {
+            multiplySplitK(a, b, c, m, n, k, parts);
+            return;
+        }
+        Buffers buffers = new Buffers(Math.min(m, MC), Math.min(n, NC), Math.min(k, KC));
+        for (int t = 0; t < tiles; t++) {
+            computeTile(a, b, c, m, n, 0, k, t / colTiles, t % colTiles, buffers);
+        }
+    }
+
+    /**
+     * Computes a single tile result by splitting the inner dimension in parts of whole
+     * KC blocks. Each part is computed in parallel in its own partial result, and the
+     * partial results are added to the result at the end.
+     */
+    private static void multiplySplitK(Operand a, Operand b, double[][] c, int m, int n, int k, int parts) {
+        int blocks = (k + KC - 1) / KC;
+        double[][][] partials = new double[parts][][];
+        partials[0] = c;
+        for (int i = 1; i < parts; i++) {
+            partials[i] = new double[m][n];
+        }
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[parts];
+        for (int i = 0; i < parts; i++) {
+            int from = Math.min(k, (int) ((long) blocks * i / parts) * KC);
+            int to = Math.min(k, (int) ((long) blocks * (i + 1) / parts) * KC);
+            double[][] partial = partials[i];
+            tasks[i] = ForkJoinTask.adapt(() -> computeTile(a, b, partial, m, n, from, to, 0, 0,
+                    new Buffers(m, n, Math.min(to - from, KC))));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        for (int p = 1; p < parts; p++) {
+            for (int i = 0; i < m; i++) {
+                double[] dst = c[i];
+                double[] src = partials[p][i];
+                for (int j = 0; j < n; j++) {
+                    dst[j] += src[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the contribution of the inner dimension range [kFrom, kTo) to a result tile.
+     */
+    private static void computeTile(Operand a, Operand b, double[][] c, int m, int n, int kFrom, int kTo,
+                                    int rowTile, int colTile, Buffers buffers) {
+        int ic = rowTile * MC;
+        int jc = colTile * NC;
+        int mc = Math.min(MC, m - ic);
+        int nc = Math.min(NC, n - jc);
+        for (int pc = kFrom; pc < kTo; pc += KC) {
+            int kc = Math.min(KC, kTo - pc);
+            packB(b, pc, jc, kc, nc, buffers.b);
+            packA(a, ic, pc, mc, kc, buffers.a);
+            macroKernel(buffers.a, buffers.b, buffers.edge, c, ic, jc, mc, nc, kc);
+        }
+    }
+
+    /**
+     * Packs block of op(A) with rows [ic, ic+mc) and columns [pc, pc+kc) into slivers of MR rows.
+     * Each sliver stores for each column the MR values contiguously, rows outside the block are zero.
+     */
+    private static void packA(Operand a, int ic, int pc, int mc, int kc, double[] buff) {
+        int pos = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            int mr = Math.min(MR, mc - ir);
+            if (a.rows != null && !a.trans) {
+                double[][] rows = a.rows;
+                for (int r = 0; r < MR; r++) {
+                    if (r < mr) {
+                        double[] row = rows[ic + ir + r];
+                        for (int p = 0; p < kc; p++) {
+                            buff[pos + p * MR + r] = row[pc + p];
+                        }
+                    } else {
+                        for (int p = 0; p < kc; p++) {
+                            buff[pos + p * MR + r] = 0;
+                        }
+                    }
+                }
+            } else if (a.rows != null) {
+                double[][] rows = a.rows;
+                for (int p = 0; p < kc; p++) {
+                    double[] row = rows[pc + p];
+                    int off = pos + p * MR;
+                    for (int r = 0; r < MR; r++) {
+                        buff[off + r] = r < mr ? row[ic + ir + r] : 0;
+                    }
+                }
+            } else if (a.flat != null) {
+                double[] flat = a.flat;
+                for (int p = 0; p < kc; p++) {
+                    int off = pos + p * MR;
+                    int start = a.offset + (ic + ir) * a.rowStride + (pc + p) * a.colStride;
+                    for (int r = 0; r < MR; r++) {
+                        buff[off + r] = r < mr ? flat[start + r * a.rowStride] : 0;
+                    }
+                }
+            } else {
+                for (int p = 0; p < kc; p++) {
+                    int off = pos + p * MR;
+                    for (int r = 0; r < MR; r++) {
+                        buff[off + r] = r < mr ? a.get(ic + ir + r, pc + p) : 0;
+                    }
+                }
+            }
+            pos += MR * kc;
+        }
+    }
+
+    /**
+     * Packs block of op(B) with rows [pc, pc+kc) and columns [jc, jc+nc) into slivers of NR columns.
+     * Each sliver stores for each row the NR values contiguously, columns outside the block are zero.
+     */
+    private static void packB(Operand b, int pc, int jc, int kc, int nc, double[] buff) {
+        int pos = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            int nr = Math.min(NR, nc - jr);
+            if (b.rows != null && !b.trans) {
+                double[][] rows = b.rows;
+                for (int p = 0; p < kc; p++) {
+                    double[] row = rows[pc + p];
+                    int off = pos + p * NR;
+                    for (int s = 0; s < NR; s++) {
+                        buff[off + s] = s < nr ? row[jc + jr + s] : 0;
+                    }
+                }
+            } else if (b.rows != null) {
+                double[][] rows = b.rows;
+                for (int s = 0; s < NR; s++) {
+                    if (s < nr) {
+                        double[] row = rows[jc + jr + s];
+                        for (int p = 0; p < kc; p++) {
+                            buff[pos + p * NR + s] = row[pc + p];
+                        }
+                    } else {
+                        for (int p = 0; p < kc; p++) {
+                            buff[pos + p * NR + s] = 0;
+                        }
+                    }
+                }
+            } else if (b.flat != null) {
+                double[] flat = b.flat;
+                for (int p = 0; p < kc; p++) {
+                    int off = pos + p * NR;
+                    int start = b.offset + (pc + p) * b.rowStride + (jc + jr) * b.colStride;
+                    for (int s = 0; s < NR; s++) {
+                        buff[off + s] = s < nr ? flat[start + s * b.colStride] : 0;
+                    }
+                }
+            } else {
+                for (int p = 0; p < kc; p++) {
+                    int off = pos + p * NR;
+                    for (int s = 0; s < NR; s++) {
+                        buff[off + s] = s < nr ? b.get(pc + p, jc + jr + s) : 0;
+                    }
+                }
+            }
+            pos += NR * kc;
+        }
+    }
+
+    private static void macroKernel(double[] ap, double[] bp, double[] edge, double[][] c,
+                                    int ic, int jc, int mc, int nc, int kc) {
+        for (int jr = 0; jr < nc; jr += NR) {
+            int nr = Math.min(NR, nc - jr);
+            int bOff = (jr / NR) * NR * kc;
+            for (int ir = 0; ir < mc; ir += MR) {
+                int mr = Math.min(MR, mc - ir);
+                int aOff = (ir / MR) * MR * kc;
+                microKernel(ap, aOff, bp, bOff, kc, edge, c, ic + ir, jc + jr, mr, nr);
+            }
+        }
+    }
+
+    private static void microKernel(double[] ap, int aOff, double[] bp, int bOff, int kc, double[] edge,
+                                    double[][] c, int row, int col, int mr, int nr) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+        int a = aOff;
+        int b = bOff;
+        for (int p = 0; p < kc; p++) {
+            double a0 = ap[a];
+            double a1 = ap[a + 1];
+            double a2 = ap[a + 2];
+            double a3 = ap[a + 3];
+            double b0 = bp[b];
+            double b1 = bp[b + 1];
+            double b2 = bp[b + 2];
+            double b3 = bp[b + 3];
+
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+
+            a += MR;
+            b += NR;
+        }
+
+        if (mr == MR && nr == NR) {
+            double[] r0 = c[row];
+            double[] r1 = c[row + 1];
+            double[] r2 = c[row + 2];
+            double[] r3 = c[row + 3];
+            r0[col] += c00;
+            r0[col + 1] += c01;
+            r0[col + 2] += c02;
+            r0[col + 3] += c03;
+            r1[col] += c10;
+            r1[col + 1] += c11;
+            r1[col + 2] += c12;
+            r1[col + 3] += c13;
+            r2[col] += c20;
+            r2[col + 1] += c21;
+            r2[col + 2] += c22;
+            r2[col + 3] += c23;
+            r3[col] += c30;
+            r3[col + 1] += c31;
+            r3[col + 2] += c32;
+            r3[col + 3] += c33;
+            return;
+        }
+
+        // partial block on the edges of the result, accumulators are stored in the edge buffer
+        edge[0] = c00;
+        edge[1] = c01;
+        edge[2] = c02;
+        edge[3] = c03;
+        edge[4] = c10;
+        edge[5] = c11;
+        edge[6] = c12;
+        edge[7] = c13;
+        edge[8] = c20;
+        edge[9] = c21;
+        edge[10] = c22;
+        edge[11] = c23;
+        edge[12] = c30;
+        edge[13] = c31;
+        edge[14] = c32;
+        edge[15] = c33;
+        for (int i = 0; i < mr; i++) {
+            double[] r = c[row + i];
+            for (int j = 0; j < nr; j++) {
+                r[col + j] += edge[i * NR + j];
+            }
+        }
+    }
+
+    /**
+     * Read access to an operand which might be transposed.
+     */
+    private static final class Operand {
+
+        private final DM m;
+        private final boolean trans;
+        // direct access to row arrays when available
+        private final double[][] rows;
+        // direct access to flat storage when available, strides are given for op(m)
+        private final double[] flat;
+        private final int offset;
+        private final int rowStride;
+        private final int colStride;
+
+        Operand(DM m, boolean trans) {
+            this.m = m;
+            this.trans = trans;
+            this.rows = (m instanceof DMStripe) ? ((DMStripe) m).rows() : null;
+            if (m instanceof DMFlat) {
+                DMFlat f = (DMFlat) m;
+                this.flat = f.elements();
+                this.offset = f.offset();
+                this.rowStride = trans ? f.colStride() : f.rowStride();
+                this.colStride = trans ? f.rowStride() : f.colStride();
+            } else {
+                this.flat = null;
+                this.offset = 0;
+                this.rowStride = 0;
+                this.colStride = 0;
+            }
+        }
+
+        double get(int i, int j) {
+            return trans ? m.get(j, i) : m.get(i, j);
+        }
+    }
+
+    private static final class Buffers {
+        private final double[] a;
+        private final double[] b;
+        // accumulators of a micro kernel block on the edges of the result
+        private final double[] edge = new double[MR * NR];
+
+        Buffers(int mc, int nc, int kc) {
+            a = new double[((mc + MR - 1) / MR) * MR * kc];
+            b = new double[((nc + NR - 1) / NR) * NR * kc];
+        }
+    }
+
+    private static final class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -4521339180233707128L;
+
+        private final Operand a;
+        private final Operand b;
+        private final double[][] c;
+        private final int m;
+        private final int n;
+        private final int k;
+        private final int colTiles;
+        private final int start;
+        private final int end;
+
+        TileTask(Operand a, Operand b, double[][] c, int m, int n, int k, int colTiles, int start, int end) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.m = m;
+            this.n = n;
+            this.k = k;
+            this.colTiles = colTiles;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new TileTask(a, b, c, m, n, k, colTiles, start, mid),
+                        new TileTask(a, b, c, m, n, k, colTiles, mid, end));
+                return;
+            }
+            Buffers buffers = new Buffers(Math.min(m, MC), Math.min(n, NC), Math.min(k, KC));
+            computeTile(a, b, c, m, n, 0, k, start / colTiles, start % colTiles, buffers);
+        }
+    }
+}
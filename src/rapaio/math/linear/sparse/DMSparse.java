@@ -0,0 +1,788 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import rapaio.data.Frame;
+import rapaio.data.Var;
+import rapaio.math.linear.DM;
+import rapaio.math.linear.DV;
+import rapaio.math.linear.base.AbstractDM;
+import rapaio.math.linear.dense.DMStripe;
+import rapaio.math.linear.dense.DVDense;
+import rapaio.util.function.Double2DoubleFunction;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.DoubleStream;
+
+/**
+ * Sparse matrix in compressed sparse row (CSR) or compressed sparse column (CSC) format.
+ * <p>
+ * The matrix is stored along a major dimension, which are rows for CSR and columns
+ * for CSC. For each major index {@code m} the stored values are found between positions
+ * {@code pointers[m]} inclusive and {@code pointers[m+1]} exclusive of the arrays of
+ * indexes and values. The indexes on the minor dimension are sorted increasingly
+ * inside each major segment.
+ * <p>
+ * The transpose of a CSR matrix is a CSC matrix over the same arrays, thus {@link #t()}
+ * does not copy data. Products, row scaling, sums and scatter visit only stored values.
+ * Setting a new non zero value shifts all the values stored after it and should be
+ * avoided in tight loops; the preferred way is to build the matrix with
+ * {@link #copy(Var...)}, {@link #copy(DM, boolean)} or from compressed arrays.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class DMSparse extends AbstractDM {
+
+    private static final long serialVersionUID = 6313906395925046245L;
+
+    /**
+     * Builds an empty matrix in CSR format with all values equal with zero.
+     *
+     * @param rowCount number of rows
+     * @param colCount number of columns
+     * @return new sparse matrix
+     */
+    public static DMSparse empty(int rowCount, int colCount) {
+        return new DMSparse(rowCount, colCount, true, new int[rowCount + 1], new int[0], new double[0]);
+    }
+
+    /**
+     * Builds a CSR matrix which wraps the given compressed arrays.
+     *
+     * @param rowCount number of rows
+     * @param colCount number of columns
+     * @param pointers array of size {@code rowCount+1} with start positions of each row
+     * @param indexes  column indexes of the stored values
+     * @param values   stored values
+     * @return new sparse matrix
+     */
+    public static DMSparse csr(int rowCount, int colCount, int[] pointers, int[] indexes, double[] values) {
+        return wrap(rowCount, colCount, true, pointers, indexes, values);
+    }
+
+    /**
+     * Builds a CSC matrix which wraps the given compressed arrays.
+     *
+     * @param rowCount number of rows
+     * @param colCount number of columns
+     * @param pointers array of size {@code colCount+1} with start positions of each column
+     * @param indexes  row indexes of the stored values
+     * @param values   stored values
+     * @return new sparse matrix
+     */
+    public static DMSparse csc(int rowCount, int colCount, int[] pointers, int[] indexes, double[] values) {
+        return wrap(rowCount, colCount, false, pointers, indexes, values);
+    }
+
+    private static DMSparse wrap(int rowCount, int colCount, boolean csr, int[] pointers, int[] indexes, double[] values) {
+        Objects.requireNonNull(pointers);
+        Objects.requireNonNull(indexes);
+        Objects.requireNonNull(values);
+        int major = csr ? rowCount : colCount;
+        int minor = csr ? colCount : rowCount;
+        if (pointers.length != major + 1 || pointers[0] != 0) {
+            throw new IllegalArgumentException("Pointers array must have length " + (major + 1) + " and start with 0.");
+        }
+        int nnz = pointers[major];
+        if (indexes.length < nnz || values.length < nnz) {
+            throw new IllegalArgumentException("Indexes and values arrays must have at least " + nnz + " elements.");
+        }
+        for (int m = 0; m < major; m++) {
+            if (pointers[m] > pointers[m + 1]) {
+                throw new IllegalArgumentException("Pointers must be non decreasing.");
+            }
+            for (int p = pointers[m]; p < pointers[m + 1]; p++) {
+                if (indexes[p] < 0 || indexes[p] >= minor || (p > pointers[m] && indexes[p - 1] >= indexes[p])) {
+                    throw new IllegalArgumentException("Indexes must be sorted increasingly inside each segment.");
+                }
+            }
+        }
+        return new DMSparse(rowCount, colCount, csr, pointers, indexes, values);
+    }
+
+    /**
+     * Builds a sparse matrix which contains the non zero values of the given matrix.
+     *
+     * @param m   source matrix
+     * @param csr if true the result is in CSR format, otherwise in CSC format
+     * @return new sparse matrix
+     */
+    public static DMSparse copy(DM m, boolean csr) {
+        if (m instanceof DMSparse) {
+            DMSparse sm = (DMSparse) m;
+            return sm.csr == csr ? sm.copy() : sm.convert();
+        }
+        int major = csr ? m.rowCount() : m.colCount();
+        int minor = csr ? m.colCount() : m.rowCount();
+        int[] pointers = new int[major + 1];
+        for (int i = 0; i < major; i++) {
+            int count = 0;
+            for (int j = 0; j < minor; j++) {
+                if ((csr ? m.get(i, j) : m.get(j, i)) != 0) {
+                    count++;
+                }
+            }
+            pointers[i + 1] = pointers[i] + count;
+        }
+        int[] indexes = new int[pointers[major]];
+        double[] values = new double[pointers[major]];
+        int pos = 0;
+        for (int i = 0; i < major; i++) {
+            for (int j = 0; j < minor; j++) {
+                double value = csr ? m.get(i, j) : m.get(j, i);
+                if (value != 0) {
+                    indexes[pos] = j;
+                    values[pos++] = value;
+                }
+            }
+        }
+        return new DMSparse(m.rowCount(), m.colCount(), csr, pointers, indexes, values);
+    }
+
+    /**
+     * Builds a CSR matrix with the non zero values of the given variables,
+     * each variable being a column. The row count is the minimum of the row
+     * counts of the given variables.
+     *
+     * @param vars variables used as columns
+     * @return new sparse matrix in CSR format
+     */
+    public static DMSparse copy(Var... vars) {
+        int rows = vars.length == 0 ? 0 : Integer.MAX_VALUE;
+        for (Var v : vars) {
+            rows = Math.min(rows, v.rowCount());
+        }
+        return copy(rows, vars);
+    }
+
+    /**
+     * Builds a CSR matrix with the non zero values of all variables of the frame.
+     *
+     * @param df source frame
+     * @return new sparse matrix in CSR format
+     */
+    public static DMSparse copy(Frame df) {
+        Var[] vars = new Var[df.varCount()];
+        for (int j = 0; j < vars.length; j++) {
+            vars[j] = df.rvar(j);
+        }
+        return copy(df.rowCount(), vars);
+    }
+
+    private static DMSparse copy(int rows, Var[] vars) {
+        int cols = vars.length;
+        int[] pointers = new int[rows + 1];
+        for (Var v : vars) {
+            for (int i = 0; i < rows; i++) {
+                if (v.getDouble(i) != 0) {
+                    pointers[i + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            pointers[i + 1] += pointers[i];
+        }
+        int[] indexes = new int[pointers[rows]];
+        double[] values = new double[pointers[rows]];
+        int[] next = Arrays.copyOf(pointers, rows);
+        // columns are visited in increasing order, thus indexes are sorted inside each row
+        for (int j = 0; j < cols; j++) {
+            Var v = vars[j];
+            for (int i = 0; i < rows; i++) {
+                double value = v.getDouble(i);
+                if (value != 0) {
+                    indexes[next[i]] = j;
+                    values[next[i]++] = value;
+                }
+            }
+        }
+        return new DMSparse(rows, cols, true, pointers, indexes, values);
+    }
+
+    private final int rowCount;
+    private final int colCount;
+    private final boolean csr;
+    private int[] pointers;
+    private int[] indexes;
+    private double[] values;
+    // true if the arrays are shared with a transposed view
+    private boolean shared;
+
+    protected DMSparse(int rowCount, int colCount, boolean csr, int[] pointers, int[] indexes, double[] values) {
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.csr = csr;
+        this.pointers = pointers;
+        this.indexes = indexes;
+        this.values = values;
+    }
+
+    @Override
+    public Type type() {
+        return Type.SPARSE;
+    }
+
+    @Override
+    public int rowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int colCount() {
+        return colCount;
+    }
+
+    /**
+     * @return true if the matrix is stored in CSR format, false if it is stored in CSC format
+     */
+    public boolean isCSR() {
+        return csr;
+    }
+
+    /**
+     * @return number of stored values
+     */
+    public int nnz() {
+        return pointers[csr ? rowCount : colCount];
+    }
+
+    /**
+     * Start positions of each row for CSR or each column for CSC, with one
+     * additional last element equal with the number of stored values.
+     *
+     * @return reference to the array of pointers
+     */
+    public int[] pointers() {
+        return pointers;
+    }
+
+    /**
+     * Column indexes for CSR or row indexes for CSC of the stored values.
+     *
+     * @return reference to the array of indexes
+     */
+    public int[] indexes() {
+        return indexes;
+    }
+
+    /**
+     * Stored values, only the first {@link #nnz()} elements are valid.
+     *
+     * @return reference to the array of values
+     */
+    public double[] elements() {
+        return values;
+    }
+
+    /**
+     * @return matrix in CSR format, which is the same instance if the matrix is already in CSR format
+     */
+    public DMSparse asCSR() {
+        return csr ? this : convert();
+    }
+
+    /**
+     * @return matrix in CSC format, which is the same instance if the matrix is already in CSC format
+     */
+    public DMSparse asCSC() {
+        return csr ? convert() : this;
+    }
+
+    /**
+     * Builds a copy of the matrix with the other storage format, using a counting transpose.
+     */
+    private DMSparse convert() {
+        int major = csr ? rowCount : colCount;
+        int minor = csr ? colCount : rowCount;
+        int nnz = pointers[major];
+        int[] tPointers = new int[minor + 1];
+        for (int p = 0; p < nnz; p++) {
+            tPointers[indexes[p] + 1]++;
+        }
+        for (int i = 0; i < minor; i++) {
+            tPointers[i + 1] += tPointers[i];
+        }
+        int[] tIndexes = new int[nnz];
+        double[] tValues = new double[nnz];
+        int[] next = Arrays.copyOf(tPointers, minor);
+        for (int m = 0; m < major; m++) {
+            for (int p = pointers[m]; p < pointers[m + 1]; p++) {
+                int pos = next[indexes[p]]++;
+                tIndexes[pos] = m;
+                tValues[pos] = values[p];
+            }
+        }
+        return new DMSparse(rowCount, colCount, !csr, tPointers, tIndexes, tValues);
+    }
+
+    private int position(int row, int col) {
+        if (row < 0 || row >= rowCount || col < 0 || col >= colCount) {
+            throw new IndexOutOfBoundsException("Position (" + row + "," + col + ") is out of bounds.");
+        }
+        int major = csr ? row : col;
+        int minor = csr ? col : row;
+        int pos = Arrays.binarySearch(indexes, pointers[major], pointers[major + 1], minor);
+        return pos;
+    }
+
+    @Override
+    public double get(int row, int col) {
+        int pos = position(row, col);
+        return pos >= 0 ? values[pos] : 0;
+    }
+
+    @Override
+    public void set(int row, int col, double value) {
+        int pos = position(row, col);
+        if (pos >= 0) {
+            values[pos] = value;
+        } else if (value != 0) {
+            insert(-pos - 1, csr ? row : col, csr ? col : row, value);
+        }
+    }
+
+    @Override
+    public void inc(int row, int col, double value) {
+        int pos = position(row, col);
+        if (pos >= 0) {
+            values[pos] += value;
+        } else if (value != 0) {
+            insert(-pos - 1, csr ? row : col, csr ? col : row, value);
+        }
+    }
+
+    private void insert(int pos, int major, int minor, double value) {
+        int nnz = nnz();
+        if (shared) {
+            // detach from the matrices which share the arrays before changing the structure
+            pointers = Arrays.copyOf(pointers, pointers.length);
+            indexes = Arrays.copyOf(indexes, indexes.length);
+            values = Arrays.copyOf(values, values.length);
+            shared = false;
+        }
+        if (nnz == indexes.length) {
+            int capacity = Math.max(4, nnz + (nnz >> 1) + 1);
+            indexes = Arrays.copyOf(indexes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(indexes, pos, indexes, pos + 1, nnz - pos);
+        System.arraycopy(values, pos, values, pos + 1, nnz - pos);
+        indexes[pos] = minor;
+        values[pos] = value;
+        for (int m = major + 1; m < pointers.length; m++) {
+            pointers[m]++;
+        }
+    }
+
+    /**
+     * Builds a sparse vector with a copy of the values from a segment on the major dimension.
+     */
+    private DVSparse majorVector(int major, int size) {
+        int start = pointers[major];
+        int end = pointers[major + 1];
+        return DVSparse.wrap(size, end - start,
+                Arrays.copyOfRange(indexes, start, end), Arrays.copyOfRange(values, start, end));
+    }
+
+    /**
+     * Builds a sparse vector with a copy of the values from an index on the minor dimension.
+     */
+    private DVSparse minorVector(int minor, int size) {
+        DVSparse v = DVSparse.zeros(size);
+        for (int m = 0; m < size; m++) {
+            int pos = Arrays.binarySearch(indexes, pointers[m], pointers[m + 1], minor);
+            if (pos >= 0) {
+                v.set(m, values[pos]);
+            }
+        }
+        return v;
+    }
+
+    @Override
+    public DV mapRow(int row) {
+        return mapRowCopy(row);
+    }
+
+    @Override
+    public DV mapRowCopy(int row) {
+        return csr ? majorVector(row, colCount) : minorVector(row, colCount);
+    }
+
+    @Override
+    public DV mapCol(int col) {
+        return mapColCopy(col);
+    }
+
+    @Override
+    public DV mapColCopy(int col) {
+        return csr ? minorVector(col, rowCount) : majorVector(col, rowCount);
+    }
+
+    /**
+     * Builds a CSR matrix with a copy of the stored values from the given rows.
+     *
+     * @param rows indexes of the selected rows
+     * @return new sparse matrix
+     */
+    @Override
+    public DMSparse mapRowsCopy(int... rows) {
+        if (!csr) {
+            return convert().mapRowsCopy(rows);
+        }
+        int[] rPointers = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++) {
+            rPointers[i + 1] = rPointers[i] + pointers[rows[i] + 1] - pointers[rows[i]];
+        }
+        int[] rIndexes = new int[rPointers[rows.length]];
+        double[] rValues = new double[rPointers[rows.length]];
+        for (int i = 0; i < rows.length; i++) {
+            int start = pointers[rows[i]];
+            int len = pointers[rows[i] + 1] - start;
+            System.arraycopy(indexes, start, rIndexes, rPointers[i], len);
+            System.arraycopy(values, start, rValues, rPointers[i], len);
+        }
+        return new DMSparse(rows.length, colCount, true, rPointers, rIndexes, rValues);
+    }
+
+    /**
+     * Builds a CSR matrix with an additional first column filled with the given value,
+     * followed by the columns of this matrix. It is used to add an intercept term to
+     * sparse inputs.
+     *
+     * @param value value of the first column
+     * @return new sparse matrix
+     */
+    public DMSparse prependConstCol(double value) {
+        if (!csr) {
+            return convert().prependConstCol(value);
+        }
+        boolean stored = value != 0;
+        int[] rPointers = new int[rowCount + 1];
+        int[] rIndexes = new int[nnz() + (stored ? rowCount : 0)];
+        double[] rValues = new double[rIndexes.length];
+        int pos = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (stored) {
+                rIndexes[pos] = 0;
+                rValues[pos++] = value;
+            }
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                rIndexes[pos] = indexes[p] + 1;
+                rValues[pos++] = values[p];
+            }
+            rPointers[i + 1] = pos;
+        }
+        return new DMSparse(rowCount, colCount + 1, true, rPointers, rIndexes, rValues);
+    }
+
+    @Override
+    public DM mult(double x) {
+        for (int p = 0; p < nnz(); p++) {
+            values[p] *= x;
+        }
+        return this;
+    }
+
+    @Override
+    public DM div(double x) {
+        for (int p = 0; p < nnz(); p++) {
+            values[p] /= x;
+        }
+        return this;
+    }
+
+    @Override
+    public DM mult(DV v, int axis) {
+        if (v.size() != (axis == 0 ? colCount : rowCount)) {
+            throw new IllegalArgumentException(axis == 0
+                    ? "Vector has different size then the number of columns."
+                    : "Vector has different size than the number of rows.");
+        }
+        // axis 0 multiplies columns and axis 1 multiplies rows
+        boolean byMajor = (axis == 1) == csr;
+        int major = csr ? rowCount : colCount;
+        for (int m = 0; m < major; m++) {
+            for (int p = pointers[m]; p < pointers[m + 1]; p++) {
+                values[p] *= v.get(byMajor ? m : indexes[p]);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public DM div(DV v, int axis) {
+        return mult(DVDense.copy(v).apply(x -> 1 / x), axis);
+    }
+
+    @Override
+    public DM dotDiag(DV v) {
+        if (colCount != v.size()) {
+            throw new IllegalArgumentException("Matrix and diagonal vector are not compatible for multiplication.");
+        }
+        return copy().mult(v, 0);
+    }
+
+    @Override
+    public DM dotDiagT(DV v) {
+        if (rowCount != v.size()) {
+            throw new IllegalArgumentException("Matrix and diagonal vector are not compatible for multiplication.");
+        }
+        return copy().mult(v, 1);
+    }
+
+    @Override
+    public DM apply(Double2DoubleFunction fun) {
+        if (fun.applyAsDouble(0) == 0) {
+            for (int p = 0; p < nnz(); p++) {
+                values[p] = fun.applyAsDouble(values[p]);
+            }
+            return this;
+        }
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < colCount; j++) {
+                set(i, j, fun.applyAsDouble(get(i, j)));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public DV dot(DV b) {
+        if (b.size() != colCount) {
+            throw new IllegalArgumentException("Matrix and vector are not conform for multiplication.");
+        }
+        double[] x = b.isDense() ? b.asDense().elements() : b.copy(DV.Type.DENSE).asDense().elements();
+        double[] y = new double[rowCount];
+        if (csr) {
+            for (int i = 0; i < rowCount; i++) {
+                double s = 0;
+                for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                    s = Math.fma(values[p], x[indexes[p]], s);
+                }
+                y[i] = s;
+            }
+        } else {
+            for (int j = 0; j < colCount; j++) {
+                double xj = x[j];
+                if (xj == 0) {
+                    continue;
+                }
+                for (int p = pointers[j]; p < pointers[j + 1]; p++) {
+                    y[indexes[p]] += values[p] * xj;
+                }
+            }
+        }
+        return DVDense.wrap(y);
+    }
+
+    /**
+     * Computes matrix multiplication with a dense result. Each stored value {@code a(i,k)}
+     * adds {@code a(i,k) * b(k,:)} to the row {@code i} of the result, thus the right operand
+     * is read only by rows. A sparse right operand is converted to CSR if needed.
+     *
+     * @param b matrix to be multiplied with
+     * @return dense matrix result
+     */
+    @Override
+    public DM dot(DM b) {
+        if (colCount != b.rowCount()) {
+            throw new IllegalArgumentException("Matrices are not conform for multiplication.");
+        }
+        int n = b.colCount();
+        double[][] c = new double[rowCount][n];
+        DMSparse sb = (b instanceof DMSparse) ? ((DMSparse) b).asCSR() : null;
+        double[][] bRows = null;
+        if (sb == null) {
+            bRows = new double[b.rowCount()][];
+        }
+        int major = csr ? rowCount : colCount;
+        for (int m = 0; m < major; m++) {
+            for (int p = pointers[m]; p < pointers[m + 1]; p++) {
+                int i = csr ? m : indexes[p];
+                int k = csr ? indexes[p] : m;
+                double a = values[p];
+                double[] ci = c[i];
+                if (sb != null) {
+                    for (int q = sb.pointers[k]; q < sb.pointers[k + 1]; q++) {
+                        ci[sb.indexes[q]] += a * sb.values[q];
+                    }
+                } else {
+                    if (bRows[k] == null) {
+                        bRows[k] = new double[n];
+                        for (int j = 0; j < n; j++) {
+                            bRows[k][j] = b.get(k, j);
+                        }
+                    }
+                    double[] bk = bRows[k];
+                    for (int j = 0; j < n; j++) {
+                        ci[j] += a * bk[j];
+                    }
+                }
+            }
+        }
+        return DMStripe.wrap(c);
+    }
+
+    /**
+     * Computes {@code t().dot(b)} on a transient transposed view, which is not
+     * kept, thus the arrays of this matrix are not marked as shared.
+     *
+     * @param b matrix to be multiplied with
+     * @return dense matrix result
+     */
+    @Override
+    public DM tDot(DM b) {
+        return new DMSparse(colCount, rowCount, !csr, pointers, indexes, values).dot(b);
+    }
+
+    /**
+     * Transposed matrix which shares the arrays with this matrix: the transpose
+     * of a CSR matrix is a CSC matrix with the same pointers, indexes and values.
+     * Changes to existing values are visible in both matrices. Setting a new non zero
+     * value in any of them is a structural change, which first copies the arrays of
+     * the changed matrix, such that the matrices are independent after that.
+     *
+     * @return transposed matrix view
+     */
+    @Override
+    public DMSparse t() {
+        DMSparse view = new DMSparse(colCount, rowCount, !csr, pointers, indexes, values);
+        view.shared = true;
+        shared = true;
+        return view;
+    }
+
+    /**
+     * Computes the scatter matrix {@code (X - mean)^T * (X - mean)} as
+     * {@code X^T * X - n * mean * mean^T}, where {@code X^T * X} is computed
+     * from the stored values only.
+     *
+     * @return dense scatter matrix
+     */
+    @Override
+    public DM scatter() {
+        DM s = tDot(this);
+        double[] mean = sum(0).div(rowCount).asDense().elements();
+        for (int i = 0; i < colCount; i++) {
+            for (int j = i; j < colCount; j++) {
+                double value = s.get(i, j) - rowCount * mean[i] * mean[j];
+                s.set(i, j, value);
+                s.set(j, i, value);
+            }
+        }
+        return s;
+    }
+
+    @Override
+    public double sum() {
+        double sum = 0;
+        for (int p = 0; p < nnz(); p++) {
+            sum += values[p];
+        }
+        return sum;
+    }
+
+    @Override
+    public DV sum(int axis) {
+        double[] sum = new double[axis == 0 ? colCount : rowCount];
+        boolean byMajor = (axis == 1) == csr;
+        int major = csr ? rowCount : colCount;
+        for (int m = 0; m < major; m++) {
+            for (int p = pointers[m]; p < pointers[m + 1]; p++) {
+                sum[byMajor ? m : indexes[p]] += values[p];
+            }
+        }
+        return DVDense.wrap(sum);
+    }
+
+    @Override
+    public double variance() {
+        if (rowCount == 0 || colCount == 0) {
+            return Double.NaN;
+        }
+        double size = (double) rowCount * colCount;
+        double mean = sum() / size;
+        int nnz = nnz();
+        // zero values contributes each with -mean
+        double sum2 = (size - nnz) * mean * mean;
+        double sum3 = -(size - nnz) * mean;
+        for (int p = 0; p < nnz; p++) {
+            double delta = values[p] - mean;
+            sum2 += delta * delta;
+            sum3 += delta;
+        }
+        return (sum2 - sum3 * sum3 / size) / (size - 1.0);
+    }
+
+    @Override
+    public DV variance(int axis) {
+        int len = axis == 0 ? colCount : rowCount;
+        int size = axis == 0 ? rowCount : colCount;
+        if (rowCount == 0 || colCount == 0) {
+            return DVDense.fill(len, Double.NaN);
+        }
+        double[] mean = sum(axis).div(size).asDense().elements();
+        double[] sum2 = new double[len];
+        double[] sum3 = new double[len];
+        int[] count = new int[len];
+        boolean byMajor = (axis == 1) == csr;
+        int major = csr ? rowCount : colCount;
+        for (int m = 0; m < major; m++) {
+            for (int p = pointers[m]; p < pointers[m + 1]; p++) {
+                int k = byMajor ? m : indexes[p];
+                double delta = values[p] - mean[k];
+                sum2[k] += delta * delta;
+                sum3[k] += delta;
+                count[k]++;
+            }
+        }
+        double[] variance = new double[len];
+        for (int k = 0; k < len; k++) {
+            int zeros = size - count[k];
+            double s2 = sum2[k] + zeros * mean[k] * mean[k];
+            double s3 = sum3[k] - zeros * mean[k];
+            variance[k] = (s2 - s3 * s3 / size) / (size - 1.0);
+        }
+        return DVDense.wrap(variance);
+    }
+
+    @Override
+    public DoubleStream valueStream() {
+        int nnz = nnz();
+        return DoubleStream.concat(Arrays.stream(values, 0, nnz),
+                DoubleStream.generate(() -> 0).limit((long) rowCount * colCount - nnz));
+    }
+
+    @Override
+    public DMSparse copy() {
+        int nnz = nnz();
+        return new DMSparse(rowCount, colCount, csr, Arrays.copyOf(pointers, pointers.length),
+                Arrays.copyOf(indexes, nnz), Arrays.copyOf(values, nnz));
+    }
+}
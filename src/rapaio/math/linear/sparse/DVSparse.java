@@ -0,0 +1,421 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+import rapaio.math.linear.DV;
+import rapaio.math.linear.base.AbstractDV;
+import rapaio.math.linear.base.DVBase;
+import rapaio.math.linear.dense.DVDense;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.DoubleStream;
+
+/**
+ * Sparse vector which stores only non zero values. The positions of the stored values
+ * are kept in a sorted array of indexes and the values in a parallel array.
+ * <p>
+ * Read and write operations on a given position use binary search. Operations which
+ * does not change the zero values (scalar multiplication, dot products, sums) visit
+ * only the stored values. Inserting a new value in the middle of the vector shifts the
+ * stored values, thus a sparse vector is best built in increasing order of positions.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class DVSparse extends AbstractDV {
+
+    private static final long serialVersionUID = -2923745029476593614L;
+
+    /**
+     * Builds a new sparse vector of size {@param n} with all values equal with 0.
+     *
+     * @param n size of the vector
+     * @return new sparse vector
+     */
+    public static DVSparse zeros(int n) {
+        return new DVSparse(n, 0, new int[0], new double[0]);
+    }
+
+    /**
+     * Builds a new sparse vector which wraps the given arrays of indexes and values.
+     * The indexes must be sorted in increasing order. The arrays are used by reference.
+     *
+     * @param size    size of the vector
+     * @param nnz     number of stored values
+     * @param indexes sorted positions of the stored values
+     * @param values  stored values
+     * @return new sparse vector
+     */
+    public static DVSparse wrap(int size, int nnz, int[] indexes, double[] values) {
+        Objects.requireNonNull(indexes);
+        Objects.requireNonNull(values);
+        if (nnz > indexes.length || nnz > values.length) {
+            throw new IllegalArgumentException("Number of stored values is greater than the length of the arrays.");
+        }
+        for (int i = 0; i < nnz; i++) {
+            if (indexes[i] < 0 || indexes[i] >= size || (i > 0 && indexes[i - 1] >= indexes[i])) {
+                throw new IllegalArgumentException("Indexes must be sorted increasingly and be lower than the size.");
+            }
+        }
+        return new DVSparse(size, nnz, indexes, values);
+    }
+
+    /**
+     * Builds a new sparse vector which contains the non zero values of the given vector.
+     *
+     * @param source source vector
+     * @return new sparse vector
+     */
+    public static DVSparse copy(DV source) {
+        if (source instanceof DVSparse) {
+            return ((DVSparse) source).copy();
+        }
+        int nnz = 0;
+        for (int i = 0; i < source.size(); i++) {
+            if (source.get(i) != 0) {
+                nnz++;
+            }
+        }
+        int[] indexes = new int[nnz];
+        double[] values = new double[nnz];
+        int pos = 0;
+        for (int i = 0; i < source.size(); i++) {
+            double value = source.get(i);
+            if (value != 0) {
+                indexes[pos] = i;
+                values[pos++] = value;
+            }
+        }
+        return new DVSparse(source.size(), nnz, indexes, values);
+    }
+
+    /**
+     * Builds a new sparse vector which contains the non zero values of the given variable.
+     *
+     * @param v source variable
+     * @return new sparse vector
+     */
+    public static DVSparse from(Var v) {
+        return copy(DVDense.from(v));
+    }
+
+    private final int size;
+    private int nnz;
+    private int[] indexes;
+    private double[] values;
+
+    protected DVSparse(int size, int nnz, int[] indexes, double[] values) {
+        this.size = size;
+        this.nnz = nnz;
+        this.indexes = indexes;
+        this.values = values;
+    }
+
+    @Override
+    public Type type() {
+        return Type.SPARSE;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of stored values
+     */
+    public int nnz() {
+        return nnz;
+    }
+
+    /**
+     * Sorted positions of the stored values, only the first {@link #nnz()} elements are valid.
+     *
+     * @return reference to the array of indexes
+     */
+    public int[] indexes() {
+        return indexes;
+    }
+
+    /**
+     * Stored values, only the first {@link #nnz()} elements are valid.
+     *
+     * @return reference to the array of values
+     */
+    public double[] elements() {
+        return values;
+    }
+
+    private int position(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " is out of bounds for size " + size);
+        }
+        return Arrays.binarySearch(indexes, 0, nnz, i);
+    }
+
+    @Override
+    public double get(int i) {
+        int pos = position(i);
+        return pos >= 0 ? values[pos] : 0;
+    }
+
+    @Override
+    public void set(int i, double value) {
+        int pos = position(i);
+        if (pos >= 0) {
+            values[pos] = value;
+        } else if (value != 0) {
+            insert(-pos - 1, i, value);
+        }
+    }
+
+    @Override
+    public void inc(int i, double value) {
+        int pos = position(i);
+        if (pos >= 0) {
+            values[pos] += value;
+        } else if (value != 0) {
+            insert(-pos - 1, i, value);
+        }
+    }
+
+    private void insert(int pos, int index, double value) {
+        if (nnz == indexes.length) {
+            int capacity = Math.max(4, Math.min(size, nnz + (nnz >> 1) + 1));
+            indexes = Arrays.copyOf(indexes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(indexes, pos, indexes, pos + 1, nnz - pos);
+        System.arraycopy(values, pos, values, pos + 1, nnz - pos);
+        indexes[pos] = index;
+        values[pos] = value;
+        nnz++;
+    }
+
+    @Override
+    public DV add(DV b) {
+        checkConformance(b);
+        if (b instanceof DVSparse) {
+            DVSparse sb = (DVSparse) b;
+            for (int i = 0; i < sb.nnz; i++) {
+                inc(sb.indexes[i], sb.values[i]);
+            }
+            return this;
+        }
+        return super.add(b);
+    }
+
+    @Override
+    public DV sub(DV b) {
+        checkConformance(b);
+        if (b instanceof DVSparse) {
+            DVSparse sb = (DVSparse) b;
+            for (int i = 0; i < sb.nnz; i++) {
+                inc(sb.indexes[i], -sb.values[i]);
+            }
+            return this;
+        }
+        return super.sub(b);
+    }
+
+    @Override
+    public DV mult(double scalar) {
+        for (int i = 0; i < nnz; i++) {
+            values[i] *= scalar;
+        }
+        return this;
+    }
+
+    @Override
+    public DV mult(DV b) {
+        checkConformance(b);
+        for (int i = 0; i < nnz; i++) {
+            values[i] *= b.get(indexes[i]);
+        }
+        return this;
+    }
+
+    @Override
+    public DV div(double scalar) {
+        for (int i = 0; i < nnz; i++) {
+            values[i] /= scalar;
+        }
+        return this;
+    }
+
+    @Override
+    public double dot(DV b) {
+        checkConformance(b);
+        double s = 0;
+        if (b instanceof DVSparse) {
+            DVSparse sb = (DVSparse) b;
+            int i = 0;
+            int j = 0;
+            while (i < nnz && j < sb.nnz) {
+                if (indexes[i] == sb.indexes[j]) {
+                    s = Math.fma(values[i++], sb.values[j++], s);
+                } else if (indexes[i] < sb.indexes[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return s;
+        }
+        if (b.isDense()) {
+            double[] array = b.asDense().elements();
+            for (int i = 0; i < nnz; i++) {
+                s = Math.fma(values[i], array[indexes[i]], s);
+            }
+            return s;
+        }
+        for (int i = 0; i < nnz; i++) {
+            s = Math.fma(values[i], b.get(indexes[i]), s);
+        }
+        return s;
+    }
+
+    /**
+     * Adds the values of this vector multiplied with a factor to the given dense array.
+     * This is the scatter operation: {@code y[indexes[i]] += factor * values[i]}.
+     *
+     * @param factor multiplication factor
+     * @param y      dense array with at least {@link #size()} elements
+     */
+    public void scatter(double factor, double[] y) {
+        for (int i = 0; i < nnz; i++) {
+            y[indexes[i]] += factor * values[i];
+        }
+    }
+
+    @Override
+    public double norm(double p) {
+        if (p <= 0) {
+            return size;
+        }
+        if (p == Double.POSITIVE_INFINITY) {
+            double max = nnz < size ? 0 : Double.NaN;
+            for (int i = 0; i < nnz; i++) {
+                max = Double.isNaN(max) ? values[i] : Math.max(max, values[i]);
+            }
+            return max;
+        }
+        double s = 0.0;
+        for (int i = 0; i < nnz; i++) {
+            s += Math.pow(Math.abs(values[i]), p);
+        }
+        return Math.pow(s, 1.0 / p);
+    }
+
+    @Override
+    public double sum() {
+        double sum = 0;
+        for (int i = 0; i < nnz; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double nansum() {
+        double sum = 0;
+        for (int i = 0; i < nnz; i++) {
+            if (!Double.isNaN(values[i])) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int nancount() {
+        int count = size;
+        for (int i = 0; i < nnz; i++) {
+            if (Double.isNaN(values[i])) {
+                count--;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public double variance() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        double mean = mean();
+        // zero values contributes each with -mean
+        double sum2 = (size - nnz) * mean * mean;
+        double sum3 = -(size - nnz) * mean;
+        for (int i = 0; i < nnz; i++) {
+            double delta = values[i] - mean;
+            sum2 += delta * delta;
+            sum3 += delta;
+        }
+        return (sum2 - sum3 * sum3 / size) / (size - 1.0);
+    }
+
+    @Override
+    public DV copy(Type type) {
+        switch (type) {
+            case SPARSE:
+                return copy();
+            case BASE:
+                return DVBase.wrap(toArray());
+            case DENSE:
+                return DVDense.wrap(toArray());
+            default:
+                throw new IllegalArgumentException("DVType." + type.name() + " cannot be used to create a copy.");
+        }
+    }
+
+    @Override
+    public DVSparse copy() {
+        return new DVSparse(size, nnz, Arrays.copyOf(indexes, nnz), Arrays.copyOf(values, nnz));
+    }
+
+    private double[] toArray() {
+        double[] array = new double[size];
+        for (int i = 0; i < nnz; i++) {
+            array[indexes[i]] = values[i];
+        }
+        return array;
+    }
+
+    @Override
+    public DoubleStream valueStream() {
+        return Arrays.stream(toArray());
+    }
+
+    @Override
+    public VarDouble asVarDouble() {
+        return VarDouble.wrap(toArray());
+    }
+}
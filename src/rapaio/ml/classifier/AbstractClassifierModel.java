@@ -28,6 +28,7 @@
 package rapaio.ml.classifier;
 
 import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
 import rapaio.data.VRange;
 import rapaio.data.VType;
 import rapaio.data.Var;
@@ -41,6 +42,7 @@ import rapaio.printer.opt.POption;
 import rapaio.util.function.SBiConsumer;
 import rapaio.util.function.SBiFunction;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -199,8 +201,94 @@ public abstract class AbstractClassifierModel<M extends AbstractClassifierModel<
         return FitSetup.valueOf(df, weights, targetVars);
     }
 
+    /**
+     * Prepares learning phase when input values are given as a matrix instead of frame
+     * variables, for example as a sparse matrix. Input variables are considered of double type.
+     *
+     * @param inputNames names of input variables, one for each matrix column
+     * @param weights    weights of instances
+     * @param target     target variable
+     * @return fit setup with a frame which contains only the target variable
+     */
+    protected FitSetup prepareFit(String[] inputNames, Var weights, Var target) {
+        Frame df = SolidFrame.byVars(target);
+        this.targetNames = new String[]{target.name()};
+        this.targetTypes = new VType[]{target.type()};
+        this.targetLevels = new HashMap<>();
+        this.targetLevels.put(firstTargetName(), target.levels());
+
+        this.inputNames = Arrays.copyOf(inputNames, inputNames.length);
+        this.inputTypes = new VType[inputNames.length];
+        Arrays.fill(this.inputTypes, VType.DOUBLE);
+
+        capabilities().checkAtLearnPhase(inputNames.length, df, weights, targetNames);
+        return FitSetup.valueOf(df, weights, targetNames);
+    }
+
     protected abstract boolean coreFit(Frame df, Var weights);
 
+    @Override
+    public final M partialFit(Frame df, String... targetVars) {
+        VarDouble weights = VarDouble.fill(df.rowCount(), 1);
+        return partialFit(df, weights, targetVars);
+    }
+
+    @Override
+    public final M partialFit(Frame df, Var weights, String... targetVars) {
+        if (!capabilities().getPartialFit()) {
+            throw new IllegalStateException("Model " + name() + " does not support partial fit.");
+        }
+        FitSetup setup = learned ? preparePartialFit(df, weights, targetVars) : prepareFit(df, weights, targetVars);
+        learned = corePartialFit(setup.df, setup.w);
+        return (M) this;
+    }
+
+    /**
+     * Prepares the update of an already fitted model with a new batch of instances.
+     * The target variables must be the same as the ones used for fitting and all
+     * input variables must be present in the batch. Target levels not seen before
+     * are appended to the known target levels.
+     *
+     * @param df         batch of instances
+     * @param weights    weights of instances
+     * @param targetVars target variable names
+     */
+    protected FitSetup preparePartialFit(Frame df, final Var weights, final String... targetVars) {
+        List<String> targets = VRange.of(targetVars).parseVarNames(df);
+        if (!Arrays.equals(targetNames, targets.toArray(new String[0]))) {
+            throw new IllegalArgumentException("Target variables are different than the ones used for fitting.");
+        }
+        HashSet<String> varNames = new HashSet<>(Arrays.asList(df.varNames()));
+        for (String inputName : inputNames) {
+            if (!varNames.contains(inputName)) {
+                throw new IllegalArgumentException("Input variable: " + inputName + " is not contained in batch data frame.");
+            }
+        }
+        List<String> levels = targetLevels.get(firstTargetName());
+        for (String level : df.rvar(firstTargetName()).levels()) {
+            if (!levels.contains(level)) {
+                levels = new ArrayList<>(levels);
+                levels.add(level);
+            }
+        }
+        targetLevels.put(firstTargetName(), levels);
+
+        capabilities().checkAtLearnPhase(df, weights, targetVars);
+        return FitSetup.valueOf(df, weights, targetVars);
+    }
+
+    /**
+     * Updates the model with a batch of instances. It is called only for models
+     * which advertise partial fit capability.
+     *
+     * @param df      batch of instances
+     * @param weights weights of instances
+     * @return true if the model is fitted
+     */
+    protected boolean corePartialFit(Frame df, Var weights) {
+        throw new IllegalStateException("Model " + name() + " does not support partial fit.");
+    }
+
     @Override
     public final R predict(Frame df) {
         return predict(df, true, true);
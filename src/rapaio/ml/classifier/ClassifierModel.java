@@ -202,6 +202,29 @@ public interface ClassifierModel extends Printable, Serializable {
      */
     ClassifierModel fit(Frame df, Var weights, String... targetVars);
 
+    /**
+     * Updates a classifier with a batch of instances, with row weights equal to 1.
+     * If the classifier is not fitted, the batch is used to initialize the model,
+     * otherwise learning continues from the current state of the model. This operation
+     * is available only if {@link Capabilities#getPartialFit()} is true.
+     *
+     * @param df         batch of instances
+     * @param targetVars target variables
+     */
+    ClassifierModel partialFit(Frame df, String... targetVars);
+
+    /**
+     * Updates a classifier with a batch of weighted instances.
+     * If the classifier is not fitted, the batch is used to initialize the model,
+     * otherwise learning continues from the current state of the model. This operation
+     * is available only if {@link Capabilities#getPartialFit()} is true.
+     *
+     * @param df         batch of instances
+     * @param weights    instance weights
+     * @param targetVars target variables
+     */
+    ClassifierModel partialFit(Frame df, Var weights, String... targetVars);
+
     /**
      * Predict classes for new data set instances, with
      * default options to compute classes and densities for classes.
@@ -126,6 +126,7 @@ public class NaiveBayes extends AbstractClassifierModel<NaiveBayes, ClassifierRe
                 .targetType(VType.BINARY)
                 .allowMissingTargetValues(false)
                 .allowMissingInputValues(true)
+                .partialFit(true)
                 .build();
     }
 
@@ -175,6 +176,30 @@ public class NaiveBayes extends AbstractClassifierModel<NaiveBayes, ClassifierRe
         return true;
     }
 
+    @Override
+    protected boolean corePartialFit(Frame df, Var weights) {
+
+        // check all estimators before any update, to not leave the model partially updated
+
+        for (Estimator estimator : estimators.get()) {
+            if (!estimator.canPartialFit()) {
+                String message = "Estimator: " + estimator.fittedName() + " cannot be partially fitted.";
+                throw new IllegalStateException(message);
+            }
+        }
+
+        // update priors and conditional probabilities with the new batch
+
+        prior.get().partialFitPriors(df, weights, firstTargetName());
+        for (Estimator estimator : estimators.get()) {
+            if (!estimator.partialFit(df, weights, firstTargetName())) {
+                String message = "Estimator: " + estimator.fittedName() + " failed to partially fit.";
+                throw new IllegalStateException(message);
+            }
+        }
+        return true;
+    }
+
     @Override
     protected ClassifierResult corePredict(Frame df, final boolean withClasses, final boolean withDensities) {
 
@@ -183,7 +208,12 @@ public class NaiveBayes extends AbstractClassifierModel<NaiveBayes, ClassifierRe
                 i -> {
                     DensityVector<String> dv = DensityVector.emptyByLabels(false, firstTargetLevels());
                     for (int j = 1; j < firstTargetLevels().size(); j++) {
-                        double sumLog = Math.log(prior.get().computePrior(firstTargetLevel(j)));
+                        double priorValue = prior.get().computePrior(firstTargetLevel(j));
+                        if (!(priorValue > 0)) {
+                            // levels without observations cannot be predicted
+                            continue;
+                        }
+                        double sumLog = Math.log(priorValue);
 
                         for (Estimator estimator : estimators.get()) {
                             sumLog += Math.log(estimator.predict(df, i, firstTargetLevel(j)));
@@ -43,6 +43,27 @@ public interface Estimator extends Serializable {
      */
     boolean fit(Frame df, Var weights, String targetName);
 
+    /**
+     * @return true if the estimator can be updated incrementally through {@link #partialFit(Frame, Var, String)}
+     */
+    default boolean canPartialFit() {
+        return false;
+    }
+
+    /**
+     * Updates the estimator with a new batch of observations, keeping what was
+     * learned from previous fits. Estimators which cannot be updated incrementally
+     * return false.
+     *
+     * @param df         frame with observations
+     * @param weights    vector of weights
+     * @param targetName target variable name
+     * @return true if estimator was updated, false for failure
+     */
+    default boolean partialFit(Frame df, Var weights, String targetName) {
+        return false;
+    }
+
     /**
      * Predicts p(x|target=targetLevel)
      *
@@ -72,6 +72,7 @@ public class GaussianEstimator extends AbstractEstimator {
     private static final long serialVersionUID = -5974296887792054267L;
 
     private final Map<String, Normal> normals = new HashMap<>();
+    private final Map<String, OnlineStat> stats = new HashMap<>();
     private final String testName;
 
     private GaussianEstimator(String testName) {
@@ -105,7 +106,43 @@ public class GaussianEstimator extends AbstractEstimator {
 
     @Override
     public boolean fit(Frame df, Var weights, String targetName) {
+        if (!containsVars(df, targetName)) {
+            return false;
+        }
+
+        normals.clear();
+        stats.clear();
+
+        updateStats(df, targetName);
+        for (String label : df.levels(targetName)) {
+            if ("?".equals(label)) {
+                continue;
+            }
+            double mu = stats.get(label).mean();
+            double sd = stats.get(label).sd();
+            normals.put(label, Normal.of(mu, sd));
+        }
+        hasLearned = true;
+        return true;
+    }
 
+    @Override
+    public boolean canPartialFit() {
+        return true;
+    }
+
+    @Override
+    public boolean partialFit(Frame df, Var weights, String targetName) {
+        if (!containsVars(df, targetName)) {
+            return false;
+        }
+        updateStats(df, targetName);
+        stats.forEach((label, stat) -> normals.put(label, Normal.of(stat.mean(), stat.sd())));
+        hasLearned = true;
+        return true;
+    }
+
+    private boolean containsVars(Frame df, String targetName) {
         String[] varNames = df.varNames();
         boolean foundTest = false;
         boolean foundTarget = false;
@@ -117,13 +154,10 @@ public class GaussianEstimator extends AbstractEstimator {
                 foundTarget = true;
             }
         }
-        if (!(foundTest && foundTarget)) {
-            return false;
-        }
-
-        normals.clear();
+        return foundTest && foundTarget;
+    }
 
-        Map<String, OnlineStat> stats = new HashMap<>();
+    private void updateStats(Frame df, String targetName) {
         for (int i = 0; i < df.rowCount(); i++) {
             if (df.isMissing(i, targetName)) {
                 continue;
@@ -132,21 +166,14 @@ public class GaussianEstimator extends AbstractEstimator {
             stats.computeIfAbsent(label, key -> OnlineStat.empty())
                     .update(df.getDouble(i, testName));
         }
-        for (String label : df.levels(targetName)) {
-            if ("?".equals(label)) {
-                continue;
-            }
-            double mu = stats.get(label).mean();
-            double sd = stats.get(label).sd();
-            normals.put(label, Normal.of(mu, sd));
-        }
-        hasLearned = true;
-        return true;
     }
 
     @Override
     public double predict(Frame df, int row, String targetLevel) {
         Distribution normal = normals.get(targetLevel);
+        if (normal == null) {
+            return Double.NaN;
+        }
         double testValue = df.getDouble(row, getTestNames().get(0));
         if (Math.abs(normal.var()) < 1e-20) {
             return (Math.abs(normal.mean() - testValue) < 1e-20) ? 1.0 : 0.0;
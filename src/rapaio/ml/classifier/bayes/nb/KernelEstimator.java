@@ -128,7 +128,7 @@ public class KernelEstimator extends AbstractEstimator {
                     }
                     Frame cond = df.stream().filter(s -> targetLevel.equals(s.getLabel(targetName))).toMappedFrame();
                     Var v = cond.rvar(testVarName);
-                    kdes.put(targetLevel, KDE.of(v, kfunc, bandwidth == 0 ? KDE.silvermanBandwidth(v) : bandwidth));
+                    kdes.put(targetLevel, KDE.auto(v, kfunc, bandwidth == 0 ? KDE.silvermanBandwidth(v) : bandwidth));
                 });
         return true;
     }
@@ -8,6 +8,7 @@ import rapaio.math.linear.DV;
 import rapaio.math.linear.dense.DVDense;
 import rapaio.printer.Format;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -68,6 +69,7 @@ public class MultinomialEstimator extends AbstractEstimator {
     private final double laplaceSmoother;
     private List<String> targetLevels;
     private Map<String, DV> densityMap;
+    private Map<String, DensityVector<String>> countDensities;
 
     private MultinomialEstimator(double laplaceSmoother, List<String> testNames) {
         super(testNames);
@@ -114,8 +116,35 @@ public class MultinomialEstimator extends AbstractEstimator {
         validateFit(df, weights, targetName);
 
         targetLevels = df.levels(targetName).stream().skip(1).collect(Collectors.toList());
+        countDensities = new HashMap<>();
+        updateDensities(df, targetName);
 
-        Map<String, DensityVector<String>> countDensities = new HashMap<>();
+        return false;
+    }
+
+    @Override
+    public boolean canPartialFit() {
+        return true;
+    }
+
+    @Override
+    public boolean partialFit(Frame df, Var weights, String targetName) {
+        validateFit(df, weights, targetName);
+
+        if (targetLevels == null) {
+            targetLevels = new ArrayList<>();
+            countDensities = new HashMap<>();
+        }
+        for (String level : df.levels(targetName).stream().skip(1).collect(Collectors.toList())) {
+            if (!targetLevels.contains(level)) {
+                targetLevels.add(level);
+            }
+        }
+        updateDensities(df, targetName);
+        return true;
+    }
+
+    private void updateDensities(Frame df, String targetName) {
         for (int i = 0; i < df.rowCount(); i++) {
             // skip missing target
             if (df.isMissing(i, targetName)) {
@@ -137,11 +166,9 @@ public class MultinomialEstimator extends AbstractEstimator {
 
         densityMap = new HashMap<>();
         countDensities.forEach((level, density) -> {
-            // add normalized densities to prediction map
-            densityMap.put(level, DVDense.wrapArray(density.index().size(), density.normalize().streamValues().toArray()));
+            // add normalized densities to prediction map, counts are kept for further updates
+            densityMap.put(level, DVDense.wrapArray(density.index().size(), density.copy().normalize().streamValues().toArray()));
         });
-
-        return false;
     }
 
     private void validateFit(Frame df, Var weights, String targetName) {
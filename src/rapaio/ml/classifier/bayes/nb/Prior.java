@@ -43,6 +43,15 @@ public interface Prior extends Serializable {
 
     void fitPriors(Frame df, Var weights, String targetVar);
 
+    /**
+     * Updates priors with a new batch of instances, keeping what was learned before.
+     *
+     * @param df        batch of instances
+     * @param weights   weights of instances
+     * @param targetVar target variable name
+     */
+    void partialFitPriors(Frame df, Var weights, String targetVar);
+
     double computePrior(String category);
 
     Prior newInstance();
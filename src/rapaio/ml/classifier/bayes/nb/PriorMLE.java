@@ -17,6 +17,7 @@ public class PriorMLE implements Prior {
     private static final long serialVersionUID = 2590209274166763951L;
 
     private Map<String, Double> priors = new HashMap<>();
+    private Map<String, Double> levelWeights = new HashMap<>();
 
     @Override
     public Prior newInstance() {
@@ -39,12 +40,21 @@ public class PriorMLE implements Prior {
 
     @Override
     public void fitPriors(Frame df, Var weights, String targetVar) {
-        priors = new HashMap<>();
+        levelWeights = new HashMap<>();
+        partialFitPriors(df, weights, targetVar);
+    }
+
+    @Override
+    public void partialFitPriors(Frame df, Var weights, String targetVar) {
         var target = df.rvar(targetVar);
         var dv = DensityVector.fromLevelWeights(false, target, weights);
-        dv.normalize();
         for (String targetLevel : dv.index().getValues()) {
-            priors.put(targetLevel, dv.get(targetLevel));
+            levelWeights.merge(targetLevel, dv.get(targetLevel), Double::sum);
+        }
+        double total = levelWeights.values().stream().mapToDouble(Double::doubleValue).sum();
+        priors = new HashMap<>();
+        for (var e : levelWeights.entrySet()) {
+            priors.put(e.getKey(), e.getValue() / total);
         }
     }
 
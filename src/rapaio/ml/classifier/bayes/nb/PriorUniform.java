@@ -49,6 +49,15 @@ public class PriorUniform implements Prior {
         }
     }
 
+    @Override
+    public void partialFitPriors(Frame df, Var weights, String targetVar) {
+        List<String> targetLevels = df.levels(targetVar);
+        levels.addAll(targetLevels.subList(Math.min(1, targetLevels.size()), targetLevels.size()));
+        if (!levels.isEmpty()) {
+            uniformPrior = 1.0 / levels.size();
+        }
+    }
+
     @Override
     public double computePrior(String category) {
         if (levels.contains(category)) {
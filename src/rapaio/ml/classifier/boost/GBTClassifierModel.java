@@ -30,21 +30,21 @@ package rapaio.ml.classifier.boost;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import rapaio.core.SamplingTools;
 import rapaio.data.Frame;
 import rapaio.data.VType;
 import rapaio.data.Var;
+import rapaio.data.VarDouble;
 import rapaio.data.sample.RowSampler;
-import rapaio.math.linear.DM;
-import rapaio.math.linear.DV;
-import rapaio.math.linear.dense.DMStripe;
 import rapaio.ml.classifier.AbstractClassifierModel;
 import rapaio.ml.classifier.ClassifierResult;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.ValueParam;
+import rapaio.ml.common.tree.ColumnSnapshot;
 import rapaio.ml.loss.KDevianceLoss;
 import rapaio.ml.loss.L2Loss;
-import rapaio.ml.regression.RegressionModel;
 import rapaio.ml.regression.tree.RTree;
+import rapaio.ml.regression.tree.rtree.BinnedFrame;
 import rapaio.printer.Printer;
 import rapaio.printer.opt.POption;
 
@@ -80,16 +80,45 @@ public class GBTClassifierModel extends AbstractClassifierModel<GBTClassifierMod
             "model",
             "Model");
 
+    public final ValueParam<Double, GBTClassifierModel> colSample = new ValueParam<>(this, 1.0,
+            "colSample",
+            "Fraction of input variables sampled for each round",
+            x -> Double.isFinite(x) && x > 0 && x <= 1);
+
+    public final ValueParam<Integer, GBTClassifierModel> patience = new ValueParam<>(this, 0,
+            "patience",
+            "Number of rounds without improvement on validation frame before stopping, 0 disables early stopping",
+            x -> x >= 0);
+
     // learning artifacts
 
     private int K;
-    private DM f;
-    private DM p;
-    private DM residual;
 
     @Getter
     private List<List<RTree>> trees;
 
+    /**
+     * Validation score (mean deviance) after each round, if a validation frame was used.
+     */
+    @Getter
+    private VarDouble validationScores;
+
+    /**
+     * Number of rounds with the best validation score, which is also the number of rounds kept
+     * when early stopping is enabled.
+     */
+    @Getter
+    private int bestRound;
+
+    private transient Frame validation;
+    private transient BinnedFrame binned;
+
+    // running margins, probabilities and residuals, by class and row
+    private transient double[][] f;
+    private transient double[][] p;
+    private transient double[][] residual;
+    private transient double[][] fv;
+
     @Override
     public GBTClassifierModel newInstance() {
         return new GBTClassifierModel().copyParameterValues(this);
@@ -112,114 +141,239 @@ public class GBTClassifierModel extends AbstractClassifierModel<GBTClassifierMod
                 .build();
     }
 
+    /**
+     * Sets a validation frame used to score the model after each round. The frame is used
+     * only for the next fit. If patience is positive, fitting stops when the validation score
+     * does not improve for that many rounds, and only the best rounds are kept.
+     *
+     * @param validation validation frame, which contains inputs and target variables
+     * @return model instance
+     */
+    public GBTClassifierModel withValidation(Frame validation) {
+        this.validation = validation;
+        return this;
+    }
+
     @Override
     public boolean coreFit(Frame df, Var weights) {
 
         // algorithm described by ESTL pag. 387
 
         K = firstTargetLevels().size() - 1;
-        f = DMStripe.empty(K, df.rowCount());
-        p = rapaio.math.linear.dense.DMStripe.empty(K, df.rowCount());
-        residual = rapaio.math.linear.dense.DMStripe.empty(K, df.rowCount());
+        int n = df.rowCount();
+        f = new double[K][n];
+        p = new double[K][n];
+        residual = new double[K][n];
 
         trees = IntStream.range(0, K).mapToObj(i -> new ArrayList<RTree>()).collect(Collectors.toList());
 
         // build individual regression targets for each class
 
-        final DMStripe yk = rapaio.math.linear.dense.DMStripe.fill(K, df.rowCount(), 0.0);
-        for (int i = 0; i < df.rowCount(); i++) {
-            yk.set(df.getInt(i, firstTargetName()) - 1, i, 1);
+        final double[][] yk = new double[K][n];
+        for (int i = 0; i < n; i++) {
+            yk[df.getInt(i, firstTargetName()) - 1][i] = 1;
+        }
+
+        Frame x = df.removeVars(targetNames);
+        ColumnSnapshot snapshot = ColumnSnapshot.of(df, inputNames());
+
+        // bin inputs once if trees use histogram search
+        binned = model.get().bins.get() > 0 ? model.get().binInputs(x) : null;
+
+        // validation margins are updated with each tree, like the train margins
+        Frame vdf = validation;
+        ColumnSnapshot vSnapshot = null;
+        int[] vy = null;
+        validationScores = VarDouble.empty().name("validation");
+        bestRound = 0;
+        if (vdf != null) {
+            fv = new double[K][vdf.rowCount()];
+            vSnapshot = ColumnSnapshot.of(vdf, inputNames());
+            vy = new int[vdf.rowCount()];
+            for (int i = 0; i < vy.length; i++) {
+                vy[i] = firstTargetLevels().indexOf(vdf.getLabel(i, firstTargetName())) - 1;
+                if (vy[i] < 0) {
+                    validation = null;
+                    throw new IllegalArgumentException("Validation frame has a missing or unknown target label: '"
+                            + vdf.getLabel(i, firstTargetName()) + "' at row " + i + ".");
+                }
+            }
         }
 
+        double bestScore = Double.POSITIVE_INFINITY;
         for (int m = 0; m < runs.get(); m++) {
-            buildAdditionalTree(df, weights, yk);
+            buildAdditionalTree(df, x, snapshot, vdf, vSnapshot, weights, yk);
             if (runningHook.get() != null) {
                 runningHook.get().accept(this, m);
             }
+            if (vdf == null) {
+                continue;
+            }
+            double score = validationScore(vy);
+            validationScores.addDouble(score);
+            if (score < bestScore) {
+                bestScore = score;
+                bestRound = m + 1;
+            } else if (patience.get() > 0 && m + 1 - bestRound >= patience.get()) {
+                break;
+            }
         }
+        if (vdf != null && patience.get() > 0) {
+            for (int k = 0; k < K; k++) {
+                trees.set(k, new ArrayList<>(trees.get(k).subList(0, bestRound)));
+            }
+        }
+        validation = null;
+        binned = null;
+        f = null;
+        p = null;
+        residual = null;
+        fv = null;
         return true;
     }
 
-    private void buildAdditionalTree(Frame df, Var w, DM yk) {
-
-        // a) Set p_k(x)
+    private void buildAdditionalTree(Frame df, Frame x, ColumnSnapshot snapshot,
+                                     Frame vdf, ColumnSnapshot vSnapshot, Var w, double[][] yk) {
 
-        DV max = f.t().amax(1);
+        // a) Set p_k(x) and residuals in place
 
         for (int i = 0; i < df.rowCount(); i++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < K; k++) {
+                max = Math.max(max, f[k][i]);
+            }
             double sum = 0;
             for (int k = 0; k < K; k++) {
-                sum += Math.exp(f.get(k, i) - max.get(i));
+                sum += Math.exp(f[k][i] - max);
             }
             for (int k = 0; k < K; k++) {
-                p.set(k, i, Math.exp(f.get(k, i) - max.get(i)) / sum);
+                p[k][i] = Math.exp(f[k][i] - max) / sum;
+                residual[k][i] = yk[k][i] - p[k][i];
             }
         }
-        residual = yk.copy().sub(p);
 
         // b)
 
-        Frame x = df.removeVars(targetNames);
         RowSampler.Sample sample = rowSampler.get().nextSample(x, w);
+        Frame sampleDf = sample.getDf();
+        if (colSample.get() < 1) {
+            sampleDf = sampleDf.mapVars(sampleColumns());
+        }
 
         for (int k = 0; k < K; k++) {
 
-            Var residual_k = residual.mapRow(k).asVarDouble().mapRows(sample.getMapping()).name("##tt##");
+            Var residual_k = VarDouble.wrap(residual[k]).mapRows(sample.getMapping()).name("##tt##");
 
             var tree = model.get().newInstance();
-            tree.fit(sample.getDf().bindVars(residual_k), sample.getWeights(), "##tt##");
-            tree.boostUpdate(df, yk.mapRow(k).asVarDouble(), p.mapRow(k).asVarDouble(), new KDevianceLoss(K));
+            if (binned != null) {
+                tree.withBinnedInputs(binned, sample.getMapping());
+            }
+            tree.fit(sampleDf.bindVars(residual_k), sample.getWeights(), "##tt##");
+            tree.boostUpdate(df, VarDouble.wrap(yk[k]), VarDouble.wrap(p[k]), new KDevianceLoss(K));
 
             trees.get(k).add(tree);
 
-            var prediction = tree.predict(df, false).firstPrediction();
-            for (int i = 0; i < df.rowCount(); i++) {
-                f.inc(k, i, shrinkage.get() * prediction.getDouble(i));
+            tree.predictAdd(df, snapshot, shrinkage.get(), f[k]);
+            if (vdf != null) {
+                tree.predictAdd(vdf, vSnapshot, shrinkage.get(), fv[k]);
             }
         }
     }
 
+    private List<String> sampleColumns() {
+        int count = Math.max(1, (int) Math.round(colSample.get() * inputNames().length));
+        int[] indexes = SamplingTools.sampleWOR(inputNames().length, count);
+        Arrays.sort(indexes);
+        List<String> names = new ArrayList<>();
+        for (int index : indexes) {
+            names.add(inputName(index));
+        }
+        return names;
+    }
+
+    /**
+     * Computes mean deviance on validation margins.
+     */
+    private double validationScore(int[] vy) {
+        double score = 0;
+        for (int i = 0; i < vy.length; i++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < K; k++) {
+                max = Math.max(max, fv[k][i]);
+            }
+            double sum = 0;
+            for (int k = 0; k < K; k++) {
+                sum += Math.exp(fv[k][i] - max);
+            }
+            score -= fv[vy[i]][i] - max - Math.log(sum);
+        }
+        return vy.length > 0 ? score / vy.length : 0;
+    }
+
+    /**
+     * Predicts using only the trees from the first rounds.
+     *
+     * @param df                frame to predict
+     * @param withClasses       if classes are predicted
+     * @param withDistributions if densities are predicted
+     * @param rounds            number of rounds used for prediction
+     * @return classifier result
+     */
+    public ClassifierResult predict(Frame df, boolean withClasses, boolean withDistributions, int rounds) {
+        PredSetup setup = preparePredict(df, withClasses, withDistributions);
+        return corePredict(setup.df, setup.withClasses, setup.withDistributions, rounds);
+    }
+
     @Override
     public ClassifierResult corePredict(Frame df, boolean withClasses, boolean withDistributions) {
-        ClassifierResult cr = ClassifierResult.build(this, df, withClasses, withDistributions);
+        return corePredict(df, withClasses, withDistributions, trees.get(0).size());
+    }
 
-        DM p_f = rapaio.math.linear.dense.DMStripe.empty(K, df.rowCount());
+    private ClassifierResult corePredict(Frame df, boolean withClasses, boolean withDistributions, int rounds) {
+        ClassifierResult cr = ClassifierResult.build(this, df, withClasses, withDistributions);
 
+        ColumnSnapshot snapshot = ColumnSnapshot.of(df, inputNames());
+        double[][] fk = new double[K][df.rowCount()];
         for (int k = 0; k < K; k++) {
-            for (RegressionModel tree : trees.get(k)) {
-                var rr = tree.predict(df, false).firstPrediction();
-                for (int i = 0; i < df.rowCount(); i++) {
-                    p_f.set(k, i, p_f.get(k, i) + shrinkage.get() * rr.getDouble(i));
-                }
+            List<RTree> kTrees = trees.get(k);
+            int len = Math.min(rounds, kTrees.size());
+            for (int m = 0; m < len; m++) {
+                kTrees.get(m).predictAdd(df, snapshot, shrinkage.get(), fk[k]);
             }
         }
 
         // make probabilities
 
-        DV max = p_f.t().amax(1);
-
+        double[] density = new double[K];
         for (int i = 0; i < df.rowCount(); i++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < K; k++) {
+                max = Math.max(max, fk[k][i]);
+            }
             double t = 0.0;
             for (int k = 0; k < K; k++) {
-                t += Math.exp(p_f.get(k, i) - max.get(i));
+                t += Math.exp(fk[k][i] - max);
             }
+            Arrays.fill(density, 0);
             if (t != 0) {
                 for (int k = 0; k < K; k++) {
-                    cr.firstDensity().setDouble(i, k + 1, Math.exp(p_f.get(k, i) - max.get(i)) / t);
+                    density[k] = Math.exp(fk[k][i] - max) / t;
                 }
             }
-        }
-
-        for (int i = 0; i < df.rowCount(); i++) {
             int maxIndex = 0;
             double maxValue = Double.NEGATIVE_INFINITY;
             for (int k = 0; k < K; k++) {
-                if (cr.firstDensity().getDouble(i, k + 1) > maxValue) {
-                    maxValue = cr.firstDensity().getDouble(i, k + 1);
+                if (withDistributions) {
+                    cr.firstDensity().setDouble(i, k + 1, density[k]);
+                }
+                if (density[k] > maxValue) {
+                    maxValue = density[k];
                     maxIndex = k + 1;
                 }
             }
-            cr.firstClasses().setInt(i, maxIndex);
+            if (withClasses) {
+                cr.firstClasses().setInt(i, maxIndex);
+            }
         }
         return cr;
     }
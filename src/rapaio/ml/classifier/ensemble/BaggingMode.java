@@ -29,7 +29,7 @@ package rapaio.ml.classifier.ensemble;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import rapaio.core.tools.DensityVector;
+import rapaio.core.RandomSource;
 import rapaio.data.Frame;
 import rapaio.data.VarNominal;
 import rapaio.ml.classifier.ClassifierResult;
@@ -48,55 +48,21 @@ public enum BaggingMode implements Serializable {
 
     VOTING(true, false) {
         @Override
-        public void computeDensity(List<String> dictionary, List<ClassifierResult> predictions, VarNominal classes, Frame densities) {
-            predictions.stream().map(ClassifierResult::firstClasses).forEach(d -> {
-                for (int i = 0; i < d.rowCount(); i++) {
-                    int best = d.getInt(i);
-                    densities.setDouble(i, best, densities.getDouble(i, best) + 1);
-                }
-            });
-            for (int i = 0; i < classes.rowCount(); i++) {
-                var dv = DensityVector.emptyByLabels(false, dictionary);
-                for (int j = 1; j < dictionary.size(); j++) {
-                    dv.increment(dictionary.get(j), densities.getDouble(i, j));
-                }
-                dv.normalize();
-                for (int j = 1; j < dictionary.size(); j++) {
-                    densities.setDouble(i, j, dv.get(dictionary.get(j)));
-                }
-                classes.setDouble(i, dv.findBestIndex() + 1);
+        void accumulate(int label, double[] densities, int offset, int levels, double[] acc, int accOffset) {
+            if (label >= 0) {
+                acc[accOffset + label]++;
             }
         }
     },
     DISTRIBUTION(false, true) {
         @Override
-        public void computeDensity(List<String> dictionary, List<ClassifierResult> results, VarNominal classes, Frame densities) {
-            for (int i = 0; i < densities.rowCount(); i++) {
-                for (int j = 0; j < densities.varCount(); j++) {
-                    densities.setDouble(i, j, 0);
-                }
+        void accumulate(int label, double[] densities, int offset, int levels, double[] acc, int accOffset) {
+            double t = 0.0;
+            for (int j = 0; j < levels; j++) {
+                t += densities[offset + j];
             }
-            results.stream().map(ClassifierResult::firstDensity).forEach(d -> {
-                for (int i = 0; i < densities.rowCount(); i++) {
-                    double t = 0.0;
-                    for (int j = 0; j < densities.varCount(); j++) {
-                        t += d.getDouble(i, j);
-                    }
-                    for (int j = 0; j < densities.varCount(); j++) {
-                        densities.setDouble(i, j, densities.getDouble(i, j) + d.getDouble(i, j) / t);
-                    }
-                }
-            });
-            for (int i = 0; i < classes.rowCount(); i++) {
-                var dv = DensityVector.emptyByLabels(false, dictionary);
-                for (int j = 1; j < dictionary.size(); j++) {
-                    dv.increment(dictionary.get(j), densities.getDouble(i, j));
-                }
-                dv.normalize();
-                for (int j = 1; j < dictionary.size(); j++) {
-                    densities.setDouble(i, j, dv.get(dictionary.get(j)));
-                }
-                classes.setDouble(i, dv.findBestIndex() + 1);
+            for (int j = 0; j < levels; j++) {
+                acc[accOffset + j] += densities[offset + j] / t;
             }
         }
     };
@@ -104,5 +70,99 @@ public enum BaggingMode implements Serializable {
     private final boolean useClass;
     private final boolean useDensities;
 
-    abstract void computeDensity(List<String> dictionary, List<ClassifierResult> treeFits, VarNominal classes, Frame densities);
+    /**
+     * Adds the prediction of a single tree for a single row into the accumulator.
+     * Level indexes do not include the missing level.
+     *
+     * @param label     predicted level index, negative if not available
+     * @param densities predicted densities
+     * @param offset    offset of the row in predicted densities
+     * @param levels    number of levels
+     * @param acc       accumulator with levels values for each row
+     * @param accOffset offset of the row in accumulator
+     */
+    abstract void accumulate(int label, double[] densities, int offset, int levels, double[] acc, int accOffset);
+
+    /**
+     * Adds the prediction of a single tree for all rows into the accumulator.
+     *
+     * @param result tree prediction
+     * @param acc    accumulator with levels values for each row
+     * @param levels number of levels, without the missing level
+     */
+    void accumulate(ClassifierResult result, double[] acc, int levels) {
+        VarNominal classes = useClass ? result.firstClasses() : null;
+        Frame densities = useDensities ? result.firstDensity() : null;
+        int rowCount = classes != null ? classes.rowCount() : densities.rowCount();
+        double[] row = new double[levels];
+        for (int i = 0; i < rowCount; i++) {
+            if (densities != null) {
+                for (int j = 0; j < levels; j++) {
+                    row[j] = densities.getDouble(i, j + 1);
+                }
+            }
+            accumulate(classes != null ? classes.getInt(i) - 1 : -1, row, 0, levels, acc, i * levels);
+        }
+    }
+
+    /**
+     * Normalizes accumulated values and writes the resulted densities and classes.
+     * Ties between best levels are broken at random.
+     *
+     * @param dictionary target levels, including the missing level
+     * @param acc        accumulator with a value for each level without missing level, for each row
+     * @param classes    predicted classes
+     * @param densities  predicted densities
+     */
+    static void computeResult(List<String> dictionary, double[] acc, VarNominal classes, Frame densities) {
+        int levels = dictionary.size() - 1;
+        for (int i = 0; i < classes.rowCount(); i++) {
+            int offset = i * levels;
+            double total = 0.0;
+            for (int j = 0; j < levels; j++) {
+                total += acc[offset + j];
+            }
+            if (total != 0) {
+                for (int j = 0; j < levels; j++) {
+                    acc[offset + j] /= total;
+                }
+            }
+            for (int j = 0; j < levels; j++) {
+                densities.setDouble(i, j + 1, acc[offset + j]);
+            }
+            classes.setInt(i, findBestIndex(acc, offset, levels) + 1);
+        }
+    }
+
+    private static int findBestIndex(double[] values, int offset, int len) {
+        double n = 1;
+        int bestIndex = 0;
+        double best = values[offset];
+        for (int i = 1; i < len; i++) {
+            double value = values[offset + i];
+            if (value > best) {
+                best = value;
+                bestIndex = i;
+                n = 1;
+                continue;
+            }
+            if (value == best) {
+                if (RandomSource.nextDouble() > n / (n + 1)) {
+                    best = value;
+                    bestIndex = i;
+                }
+                n++;
+            }
+        }
+        return bestIndex;
+    }
+
+    void computeDensity(List<String> dictionary, List<ClassifierResult> predictions, VarNominal classes, Frame densities) {
+        int levels = dictionary.size() - 1;
+        double[] acc = new double[classes.rowCount() * levels];
+        for (ClassifierResult prediction : predictions) {
+            accumulate(prediction, acc, levels);
+        }
+        computeResult(dictionary, acc, classes, densities);
+    }
 }
@@ -28,6 +28,8 @@
 package rapaio.ml.classifier.ensemble;
 
 import lombok.Getter;
+import rapaio.core.RandomSource;
+import rapaio.core.RandomStream;
 import rapaio.core.distributions.Distribution;
 import rapaio.core.distributions.Normal;
 import rapaio.core.stat.Maximum;
@@ -55,11 +57,12 @@ import rapaio.ml.classifier.tree.ctree.Node;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.ValueParam;
 import rapaio.ml.common.VarSelector;
-import rapaio.ml.eval.metric.Confusion;
+import rapaio.ml.common.tree.ColumnSnapshot;
+import rapaio.ml.common.tree.FlatTree;
 import rapaio.printer.Format;
 import rapaio.printer.Printer;
 import rapaio.printer.opt.POption;
-import rapaio.util.Pair;
+import rapaio.util.collection.DoubleArrays;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -82,6 +85,9 @@ public class CForest extends AbstractClassifierModel<CForest, ClassifierResult>
 
     private static final long serialVersionUID = -145958939373105497L;
 
+    // number of rows evaluated together by all trees at prediction
+    private static final int PREDICT_BLOCK = 4096;
+
     public final ValueParam<Boolean, CForest> oob = new ValueParam<>(this, false,
             "oob", "Performs out of the bag computations.");
 
@@ -105,8 +111,14 @@ public class CForest extends AbstractClassifierModel<CForest, ClassifierResult>
     // learning artifacts
     @Getter
     private List<ClassifierModel> predictors = new ArrayList<>();
+    /**
+     * Out of bag error, updated after each tree is merged into the forest, thus
+     * it can be read from the running hook.
+     */
     @Getter
     private double oobError = Double.NaN;
+    // number of rows with wrong out of bag prediction
+    private int oobErrorCount;
     @Getter
     private DM oobDensities;
     @Getter
@@ -194,12 +206,11 @@ public class CForest extends AbstractClassifierModel<CForest, ClassifierResult>
     @Override
     protected boolean coreFit(Frame df, Var weights) {
 
-        double totalOobInstances = 0;
-        double totalOobError = 0;
         if (oob.get()) {
             oobDensities = DMStripe.fill(df.rowCount(), firstTargetLevels().size() - 1, 0.0);
             oobTrueClass = df.rvar(firstTargetName()).copy();
             oobPredictedClasses = VarNominal.empty(df.rowCount(), firstTargetLevels());
+            oobErrorInit();
         }
         if (viFreq.get()) {
             freqVIMap.clear();
@@ -211,86 +222,159 @@ public class CForest extends AbstractClassifierModel<CForest, ClassifierResult>
             permVIMap.clear();
         }
 
-        // build in parallel the trees, than oob and running hook cannot run at the
-        // same moment when weak tree was built
-        // for a real running hook behavior run without threading
+        // build in parallel the trees, oob votes and variable importance scores are
+        // computed in the same task which builds the tree and merged afterwards in tree order
+        // the running hook is called after each tree is merged, with oob error updated with the
+        // votes merged so far, but when running in parallel all trees are already built at that moment
+        // each tree uses its own random stream, thus results do not depend on threading
         predictors = new ArrayList<>();
+        RandomStream stream = RandomSource.newStream();
         IntStream range = IntStream.range(0, runs.get());
         if (poolSize.get() != 0) {
             range = range.parallel();
         }
-        List<Pair<ClassifierModel, Mapping>> list = range
-                .mapToObj(s -> buildWeakPredictor(df, weights))
+        List<WeakFit> list = range
+                .mapToObj(s -> RandomSource.withStream(stream.split(s), () -> buildWeakPredictor(df, weights)))
                 .collect(Collectors.toList());
         for (int i = 0; i < list.size(); i++) {
-            Pair<ClassifierModel, Mapping> weak = list.get(i);
-            predictors.add(weak.v1);
+            WeakFit weak = list.get(i);
+            predictors.add(weak.model);
             if (oob.get()) {
-                oobCompute(df, weak);
+                oobErrorUpdate(weak);
             }
             if (viFreq.get()) {
-                freqVICompute(weak);
+                mergeVI(freqVIMap, weak.freqVI);
             }
             if (viGain.get()) {
-                gainVICompute(weak);
+                mergeVI(gainVIMap, weak.gainVI);
             }
             if (viPerm.get()) {
-                permVICompute(df, weak);
+                mergeVI(permVIMap, weak.permVI);
             }
             runningHook.get().accept(this, i + 1);
         }
         return true;
     }
 
-    private void permVICompute(Frame df, Pair<ClassifierModel, Mapping> weak) {
-        ClassifierModel c = weak.v1;
-        Mapping oobIndexes = weak.v2;
-
-        // build oob data frame
-        Frame oobFrame = df.mapRows(oobIndexes);
-
-        // build accuracy on oob data frame
-        ClassifierResult fit = c.predict(oobFrame);
-        double refScore = Confusion.from(
-                oobFrame.rvar(firstTargetName()),
-                fit.firstClasses())
-                .acceptedCases();
+    /**
+     * Artifacts of a weak tree: the tree, out of bag rows with predicted labels
+     * and variable importance scores, indexed as input names.
+     */
+    private static final class WeakFit {
+        private final CTree model;
+        private final Mapping oobRows;
+        private int[] oobLabels;
+        private double[] freqVI;
+        private double[] gainVI;
+        private double[] permVI;
+
+        private WeakFit(CTree model, Mapping oobRows) {
+            this.model = model;
+            this.oobRows = oobRows;
+        }
+    }
 
-        // now for each input variable do computation
-        for (String varName : inputNames()) {
+    private WeakFit buildWeakPredictor(Frame df, Var weights) {
+        CTree weak = model.get().newInstance();
+        RowSampler.Sample sample = rowSampler.get().nextSample(df, weights);
+        weak.fit(sample.getDf(), sample.getWeights(), firstTargetName());
+        WeakFit fit = new WeakFit(weak, sample.getComplementMapping());
 
-            // shuffle values from variable
-            Var shuffled = oobFrame.rvar(varName).fapply(VShuffle.filter());
+        if (oob.get() || viPerm.get()) {
+            Frame oobFrame = df.mapRows(fit.oobRows);
+            ColumnSnapshot snapshot = ColumnSnapshot.of(oobFrame, inputNames());
+            fit.oobLabels = predictLabels(weak, oobFrame, snapshot);
+            if (viPerm.get()) {
+                fit.permVI = permVICompute(weak, oobFrame, snapshot, fit.oobLabels);
+            }
+        }
+        if (viFreq.get()) {
+            var scores = DensityVector.emptyByLabels(true, inputNames());
+            collectFreqVI(weak.getRoot(), scores);
+            fit.freqVI = scoresOf(scores);
+        }
+        if (viGain.get()) {
+            var scores = DensityVector.emptyByLabels(true, inputNames());
+            collectGainVI(weak.getRoot(), scores);
+            fit.gainVI = scoresOf(scores);
+        }
+        return fit;
+    }
 
-            // build oob frame with shuffled variable
-            Frame oobReduced = oobFrame.removeVars(VRange.of(varName)).bindVars(shuffled);
+    private double[] scoresOf(DensityVector<String> dv) {
+        double[] scores = new double[inputNames().length];
+        for (int j = 0; j < scores.length; j++) {
+            scores[j] = dv.get(inputName(j));
+        }
+        return scores;
+    }
 
-            // compute accuracy on oob shuffled frame
+    private void mergeVI(Map<String, List<Double>> viMap, double[] scores) {
+        for (int j = 0; j < scores.length; j++) {
+            viMap.computeIfAbsent(inputName(j), name -> new ArrayList<>()).add(scores[j]);
+        }
+    }
 
-            ClassifierResult pfit = c.predict(oobReduced);
-            double acc = Confusion.from(
-                    oobReduced.rvar(firstTargetName()),
-                    pfit.firstClasses()
-            ).acceptedCases();
+    /**
+     * Predicts target level indexes of the frame rows, using the compiled tree on
+     * the snapshot when possible.
+     */
+    private int[] predictLabels(CTree tree, Frame df, ColumnSnapshot snapshot) {
+        int[] labels = new int[df.rowCount()];
+        FlatTree flat = tree.compile();
+        if (flat != null && flat.accepts(snapshot)) {
+            flat.predictDensities(snapshot, labels, new double[df.rowCount() * (firstTargetLevels().size() - 1)]);
+            for (int i = 0; i < labels.length; i++) {
+                labels[i]++;
+            }
+            return labels;
+        }
+        Var classes = tree.predict(df, true, false).firstClasses();
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = classes.getInt(i);
+        }
+        return labels;
+    }
 
-            if (!permVIMap.containsKey(varName)) {
-                permVIMap.put(varName, new ArrayList<>());
+    private int acceptedCases(Var target, int[] labels) {
+        int count = 0;
+        for (int i = 0; i < labels.length; i++) {
+            if (target.getInt(i) == labels[i]) {
+                count++;
             }
-            permVIMap.get(varName).add(refScore - acc);
         }
+        return count;
     }
 
-    private void gainVICompute(Pair<ClassifierModel, Mapping> weak) {
-        CTree weakTree = (CTree) weak.v1;
-        var scores = DensityVector.emptyByLabels(true, inputNames());
-        collectGainVI(weakTree.getRoot(), scores);
+    /**
+     * Computes permutation importance on out of bag rows. Each input column is shuffled
+     * in place in the snapshot and restored after prediction, thus no frames are built.
+     */
+    private double[] permVICompute(CTree tree, Frame oobFrame, ColumnSnapshot snapshot, int[] refLabels) {
+        Var target = oobFrame.rvar(firstTargetName());
+        double refScore = acceptedCases(target, refLabels);
+
+        double[] scores = new double[inputNames().length];
+        FlatTree flat = tree.compile();
+        boolean useSnapshot = flat != null && flat.accepts(snapshot);
+        double[] saved = new double[oobFrame.rowCount()];
         for (int j = 0; j < inputNames().length; j++) {
             String varName = inputName(j);
-            if (!gainVIMap.containsKey(varName)) {
-                gainVIMap.put(varName, new ArrayList<>());
+            int[] labels;
+            if (useSnapshot) {
+                double[] column = snapshot.column(snapshot.columnIndex(varName));
+                System.arraycopy(column, 0, saved, 0, column.length);
+                DoubleArrays.shuffle(column, RandomSource.getRandom());
+                labels = predictLabels(tree, oobFrame, snapshot);
+                System.arraycopy(saved, 0, column, 0, column.length);
+            } else {
+                Var shuffled = oobFrame.rvar(varName).fapply(VShuffle.filter());
+                Frame oobReduced = oobFrame.removeVars(VRange.of(varName)).bindVars(shuffled);
+                labels = predictLabels(tree, oobReduced, snapshot);
             }
-            gainVIMap.get(varName).add(scores.get(varName));
+            scores[j] = refScore - acceptedCases(target, labels);
         }
+        return scores;
     }
 
     private void collectGainVI(Node node, DensityVector<String> dv) {
@@ -302,69 +386,98 @@ public class CForest extends AbstractClassifierModel<CForest, ClassifierResult>
         node.children.forEach(child -> collectGainVI(child, dv));
     }
 
-    private void freqVICompute(Pair<ClassifierModel, Mapping> pair) {
-        CTree weak = (CTree) pair.v1;
-        var scores = DensityVector.emptyByLabels(true, inputNames());
-        collectFreqVI(weak.getRoot(), scores);
-        for (String varName : inputNames) {
-            freqVIMap.computeIfAbsent(varName, name -> new ArrayList<>()).add(scores.get(varName));
-        }
-    }
-
     private void collectFreqVI(Node node, DensityVector<String> dv) {
         if (node.leaf) {
             return;
         }
         String varName = node.bestCandidate.testName;
-        double score = Math.abs(node.bestCandidate.score);
         dv.increment(varName, node.density.sum());
         node.children.forEach(child -> collectFreqVI(child, dv));
     }
 
-    private void oobCompute(Frame df, Pair<ClassifierModel, Mapping> pair) {
-        double totalOobError;
-        double totalOobInstances;
-        Mapping oobMap = pair.v2;
-        Frame oobTest = df.mapRows(oobMap);
-
-        var fit = pair.v1.predict(oobTest);
-        for (int j = 0; j < oobTest.rowCount(); j++) {
-            int fitIndex = fit.firstClasses().getInt(j);
-            oobDensities.inc(oobMap.get(j), fitIndex - 1, 1.0);
-        }
-        oobPredictedClasses.clearRows();
-        totalOobError = 0.0;
-        totalOobInstances = 0.0;
-
-        int[] indexes = oobDensities.argmax(1);
-        for (int i = 0; i < indexes.length; i++) {
-            String bestLevel = firstTargetLevels().get(indexes[i] + 1);
-            oobPredictedClasses.setLabel(i, bestLevel);
-            if (!bestLevel.equals(oobTrueClass.getLabel(i))) {
-                totalOobError++;
+    /**
+     * Initializes out of bag predictions when there are no votes, in which case
+     * the prediction is the first level, as the first maximum of zero densities.
+     */
+    private void oobErrorInit() {
+        String firstLevel = firstTargetLevels().get(1);
+        oobErrorCount = 0;
+        for (int i = 0; i < oobTrueClass.rowCount(); i++) {
+            oobPredictedClasses.setLabel(i, firstLevel);
+            if (!firstLevel.equals(oobTrueClass.getLabel(i))) {
+                oobErrorCount++;
             }
-            totalOobInstances++;
         }
-        oobError = (totalOobInstances > 0) ? totalOobError / totalOobInstances : 0.0;
+        oobError = oobTrueClass.rowCount() > 0 ? oobErrorCount / (double) oobTrueClass.rowCount() : 0.0;
     }
 
-    private Pair<ClassifierModel, Mapping> buildWeakPredictor(Frame df, Var weights) {
-        var weak = model.get().newInstance();
-        RowSampler.Sample sample = rowSampler.get().nextSample(df, weights);
-        weak.fit(sample.getDf(), sample.getWeights(), firstTargetName());
-        return Pair.from(weak, sample.getComplementMapping());
+    /**
+     * Merges out of bag votes of a tree and updates the predictions
+     * and the error only for the rows which received votes.
+     */
+    private void oobErrorUpdate(WeakFit weak) {
+        int levels = oobDensities.colCount();
+        for (int j = 0; j < weak.oobRows.size(); j++) {
+            int row = weak.oobRows.get(j);
+            oobDensities.inc(row, weak.oobLabels[j] - 1, 1.0);
+
+            int best = 0;
+            for (int k = 1; k < levels; k++) {
+                if (oobDensities.get(row, best) < oobDensities.get(row, k)) {
+                    best = k;
+                }
+            }
+            String bestLevel = firstTargetLevels().get(best + 1);
+            String trueLevel = oobTrueClass.getLabel(row);
+            if (!oobPredictedClasses.getLabel(row).equals(trueLevel)) {
+                oobErrorCount--;
+            }
+            oobPredictedClasses.setLabel(row, bestLevel);
+            if (!bestLevel.equals(trueLevel)) {
+                oobErrorCount++;
+            }
+        }
+        oobError = oobTrueClass.rowCount() > 0 ? oobErrorCount / (double) oobTrueClass.rowCount() : 0.0;
     }
 
     @Override
     protected ClassifierResult corePredict(Frame df, boolean withClasses, boolean withDensities) {
         ClassifierResult cp = ClassifierResult.build(this, df, true, true);
-        List<ClassifierResult> predictions = new ArrayList<>();
+        BaggingMode mode = baggingMode.get();
+        int levels = firstTargetLevels().size() - 1;
+        double[] acc = new double[df.rowCount() * levels];
+
+        // trees which cannot be compiled are predicted one at a time and accumulated directly
+        ColumnSnapshot snapshot = ColumnSnapshot.of(df, inputNames());
+        List<FlatTree> flats = new ArrayList<>();
         for (var predictor : predictors) {
-            predictions.add(predictor.predict(df,
-                    baggingMode.get().isUseClass(),
-                    baggingMode.get().isUseDensities()));
+            FlatTree flat = (predictor instanceof CTree) ? ((CTree) predictor).compile() : null;
+            if (flat != null && flat.accepts(snapshot)) {
+                flats.add(flat);
+            } else {
+                mode.accumulate(predictor.predict(df, mode.isUseClass(), mode.isUseDensities()), acc, levels);
+            }
         }
-        baggingMode.get().computeDensity(firstTargetLevels(), predictions, cp.firstClasses(), cp.firstDensity());
+
+        // compiled trees are evaluated on blocks of rows, each block accumulates into its own slice
+        int blocks = (df.rowCount() + PREDICT_BLOCK - 1) / PREDICT_BLOCK;
+        IntStream range = IntStream.range(0, blocks);
+        if (poolSize.get() != 0) {
+            range = range.parallel();
+        }
+        range.forEach(block -> {
+            int from = block * PREDICT_BLOCK;
+            int to = Math.min(df.rowCount(), from + PREDICT_BLOCK);
+            int[] labels = new int[to - from];
+            double[] densities = new double[(to - from) * levels];
+            for (FlatTree flat : flats) {
+                flat.predictDensities(snapshot, from, to, labels, densities);
+                for (int i = 0; i < to - from; i++) {
+                    mode.accumulate(labels[i], densities, i * levels, levels, acc, (from + i) * levels);
+                }
+            }
+        });
+        BaggingMode.computeResult(firstTargetLevels(), acc, cp.firstClasses(), cp.firstDensity());
         return cp;
     }
 
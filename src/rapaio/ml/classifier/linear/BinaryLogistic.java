@@ -30,12 +30,15 @@ package rapaio.ml.classifier.linear;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
 import rapaio.data.VType;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
+import rapaio.math.linear.DM;
 import rapaio.math.linear.DV;
 import rapaio.math.linear.dense.DMStripe;
 import rapaio.math.linear.dense.DVDense;
+import rapaio.math.linear.sparse.DMSparse;
 import rapaio.ml.classifier.AbstractClassifierModel;
 import rapaio.ml.classifier.ClassifierResult;
 import rapaio.ml.classifier.linear.binarylogistic.BinaryLogisticIRLS;
@@ -105,6 +108,23 @@ public class BinaryLogistic extends AbstractClassifierModel<BinaryLogistic, Clas
             "eps",
             "Tolerance threshold used to signal when fit iterative procedure converged");
 
+    /**
+     * If true the input values are stored in a sparse matrix, which is appropriate
+     * when most of the input values are zero, as it happens with one hot encodings.
+     */
+    public final ValueParam<Boolean, BinaryLogistic> sparse = new ValueParam<>(this, false,
+            "sparse",
+            "Stores input values in a sparse matrix");
+
+    /**
+     * Learning rate used by partial fit. Each batch given to partial fit produces
+     * a single gradient descent step, thus the batches play the role of mini-batches.
+     */
+    public final ValueParam<Double, BinaryLogistic> learningRate = new ValueParam<>(this, 1.0,
+            "learningRate",
+            "Learning rate of the gradient descent steps performed by partial fit",
+            x -> x != null && x > 0);
+
     // learning artifacts
 
     /**
@@ -149,14 +169,63 @@ public class BinaryLogistic extends AbstractClassifierModel<BinaryLogistic, Clas
                 .minTargetCount(1).maxTargetCount(1)
                 .allowMissingInputValues(false)
                 .allowMissingTargetValues(false)
+                .partialFit(true)
                 .build();
     }
 
+    /**
+     * Fits the model on input values stored in a sparse matrix, for example as produced by
+     * {@link rapaio.data.filter.FOneHotEncoding#applySparse(Frame)}. The solvers work directly
+     * on the sparse matrix, thus dense input variables or matrices are never built.
+     *
+     * @param x          input values, one column for each input variable
+     * @param inputNames names of input variables
+     * @param target     target variable
+     * @return fitted model
+     */
+    public BinaryLogistic fit(DMSparse x, String[] inputNames, Var target) {
+        if (x.colCount() != inputNames.length || x.rowCount() != target.rowCount()) {
+            throw new IllegalArgumentException("Sparse matrix is not conform with input names and target variable.");
+        }
+        FitSetup setup = prepareFit(inputNames, VarDouble.fill(x.rowCount(), 1), target);
+        DM input = intercept.get() != 0 ? x.prependConstCol(intercept.get()) : x;
+        learned = fitMatrix(input, computeTargetVector(setup.df.rvar(firstTargetName())));
+        return this;
+    }
+
+    /**
+     * Predicts classes and densities for input values stored in a sparse matrix, with
+     * the same columns as the matrix used for fitting.
+     *
+     * @param x                 input values, one column for each input variable
+     * @param withClasses       if true, predicted classes are computed
+     * @param withDistributions if true, predicted densities are computed
+     * @return prediction result
+     */
+    public ClassifierResult predict(DMSparse x, boolean withClasses, boolean withDistributions) {
+        if (!hasLearned()) {
+            throw new IllegalArgumentException("Model has not been trained");
+        }
+        if (x.colCount() != inputNames.length) {
+            throw new IllegalArgumentException("Sparse matrix is not conform with input names.");
+        }
+        int offset = intercept.get() == 0 ? 0 : 1;
+        DVDense coefficients = DVDense.zeros(inputNames.length);
+        for (int i = 0; i < inputNames.length; i++) {
+            coefficients.set(i, w.getDouble(i + offset));
+        }
+        DV z = x.dot(coefficients).add(intercept.get() * w.getDouble(0));
+        return buildResult(SolidFrame.byVars(x.rowCount()), z, withClasses, withDistributions);
+    }
+
     @Override
     protected boolean coreFit(Frame df, Var weights) {
-
-        DMStripe x = computeInputMatrix(df, firstTargetName());
+        DM x = computeInputMatrix(df, firstTargetName());
         DVDense y = computeTargetVector(df.rvar(firstTargetName()));
+        return fitMatrix(x, y);
+    }
+
+    private boolean fitMatrix(DM x, DVDense y) {
         DVDense w0 = DVDense.fill(x.colCount(), init.get().getFunction().apply(y));
 
         switch (solver.get()) {
@@ -194,6 +263,54 @@ public class BinaryLogistic extends AbstractClassifierModel<BinaryLogistic, Clas
         return true;
     }
 
+    @Override
+    protected boolean corePartialFit(Frame df, Var weights) {
+
+        DM x = computeInputMatrix(df, firstTargetName());
+        DVDense y = computeTargetVector(df.rvar(firstTargetName()));
+
+        DV wv;
+        if (!hasLearned() || w == null) {
+            double w0 = init.get().getFunction().apply(y);
+            wv = DVDense.fill(x.colCount(), Double.isFinite(w0) ? w0 : 0.0);
+            iterationLoss = new ArrayList<>();
+            iterationWeights = new ArrayList<>();
+        } else {
+            wv = DVDense.from(w).copy();
+        }
+
+        // weighted residuals and negative log likelihood of the batch
+
+        DV z = x.dot(wv);
+        DVDense r = DVDense.zeros(x.rowCount());
+        double nll = 0;
+        double wsum = 0;
+        for (int i = 0; i < x.rowCount(); i++) {
+            double p = 1.0 / (1.0 + Math.exp(-z.get(i)));
+            double wi = weights.getDouble(i);
+            r.set(i, wi * (p - y.get(i)));
+            nll -= wi * (y.get(i) * Math.log(Math.max(p, 1e-300)) + (1 - y.get(i)) * Math.log(Math.max(1 - p, 1e-300)));
+            wsum += wi;
+        }
+        if (wsum <= 0) {
+            return hasLearned();
+        }
+
+        // gradient descent step on the mean loss of the batch
+
+        DV grad = x.t().dot(r).mult(1.0 / wsum);
+        if (l2Factor.get() > 0) {
+            grad.add(wv.copy().mult(l2Factor.get()));
+        }
+        wv.sub(grad.mult(learningRate.get()));
+
+        w = wv.asVarDouble();
+        iterationLoss.add(nll / wsum);
+        iterationWeights.add(wv.copy());
+        converged = false;
+        return true;
+    }
+
     private DVDense computeTargetVector(Var target) {
         switch (target.type()) {
             case BINARY:
@@ -202,7 +319,7 @@ public class BinaryLogistic extends AbstractClassifierModel<BinaryLogistic, Clas
                 DVDense result = DVDense.zeros(target.rowCount());
                 if (targetLevels.get(firstTargetName()).size() == 3) {
                     for (int i = 0; i < target.rowCount(); i++) {
-                        result.set(i, target.getInt(i) - 1);
+                        result.set(i, target.getLabel(i).equals(firstTargetLevel(2)) ? 1 : 0);
                     }
                 } else {
                     for (int i = 0; i < target.rowCount(); i++) {
@@ -214,15 +331,16 @@ public class BinaryLogistic extends AbstractClassifierModel<BinaryLogistic, Clas
         return null;
     }
 
-    private DMStripe computeInputMatrix(Frame df, String targetName) {
+    private DM computeInputMatrix(Frame df, String targetName) {
         List<Var> variables = new ArrayList<>();
         if (intercept.get() != 0) {
             variables.add(VarDouble.fill(df.rowCount(), intercept.get()).name("Intercept"));
         }
-        df.varStream()
-                .filter(v -> !firstTargetName().equals(v.name()))
-                .forEach(variables::add);
-        return rapaio.math.linear.dense.DMStripe.copy(variables.toArray(Var[]::new));
+        for (String inputName : inputNames) {
+            variables.add(df.rvar(inputName));
+        }
+        Var[] vars = variables.toArray(Var[]::new);
+        return sparse.get() ? DMSparse.copy(vars) : DMStripe.copy(vars);
     }
 
     @Override
@@ -230,20 +348,26 @@ public class BinaryLogistic extends AbstractClassifierModel<BinaryLogistic, Clas
         if (!hasLearned()) {
             throw new IllegalArgumentException("Model has not been trained");
         }
-
-        ClassifierResult cr = ClassifierResult.build(this, df, withClasses, withDistributions);
-
         int offset = intercept.get() == 0 ? 0 : 1;
 
-        VarDouble p = VarDouble.fill(df.rowCount(), intercept.get() * w.getDouble(0));
+        DVDense z = DVDense.fill(df.rowCount(), intercept.get() * w.getDouble(0));
         for (int i = 0; i < inputNames.length; i++) {
             double wvalue = w.getDouble(i + offset);
-            VarDouble z = df.rvar(inputName(i)).op().capply(v -> 1 / (1 + Math.exp(-v * wvalue)));
-            p.op().plus(z);
+            Var x = df.rvar(inputName(i));
+            for (int r = 0; r < df.rowCount(); r++) {
+                z.inc(r, wvalue * x.getDouble(r));
+            }
         }
+        return buildResult(df, z, withClasses, withDistributions);
+    }
 
+    /**
+     * Builds prediction result from the linear scores of the rows.
+     */
+    private ClassifierResult buildResult(Frame df, DV z, boolean withClasses, boolean withDistributions) {
+        ClassifierResult cr = ClassifierResult.build(this, df, withClasses, withDistributions);
         for (int r = 0; r < df.rowCount(); r++) {
-            double pi = p.getDouble(r);
+            double pi = 1 / (1 + Math.exp(-z.get(r)));
             if (withClasses) {
                 cr.firstClasses().setInt(r, pi < 0.5 ? 1 : 2);
             }
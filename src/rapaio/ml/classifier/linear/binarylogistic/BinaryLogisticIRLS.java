@@ -120,17 +120,11 @@ public class BinaryLogisticIRLS {
         // z = Wx - I(p(1-p))^{-1}(y-p)
         DV z = xw.add(y.copy().sub(p).div(pvars));
 
-        // Xt(p(1-p)
-        DM xpvar = x.copy();
-        for (int i = 0; i < xpvar.rowCount(); i++) {
-            double pvar = pvars.get(i);
-            for (int j = 0; j < xpvar.colCount(); j++) {
-                xpvar.set(i, j, xpvar.get(i, j) * pvar);
-            }
-        }
+        // Xt(p(1-p), rows are scaled in place which keeps sparse matrices sparse
+        DM xpvar = x.copy().mult(pvars, 1);
 
         // XI(p(1-p))^T * X
-        DM mA = xpvar.t().dot(x);
+        DM mA = xpvar.tDot(x);
 
         // for L2 regularization we inflate main diagonal
         if (lambda != 0) {
@@ -140,7 +134,7 @@ public class BinaryLogisticIRLS {
         }
 
         //XI(p(1-p))^T * X * z
-        DM b = xpvar.t().dot(z.asMatrix());
+        DM b = xpvar.tDot(z.asMatrix());
 
         CholeskyDecomposition chol = CholeskyDecomposition.from(mA);
         if (chol.isSPD()) {
@@ -111,17 +111,11 @@ public class BinaryLogisticNewton {
         // p(1-p) diag from p diag
         DV pvars = p.copy().apply(value -> value * (1 - value));
 
-        // Xt(p(1-p)
-        DM xpvar = x.copy();
-        for (int i = 0; i < xpvar.rowCount(); i++) {
-            double pvar = pvars.get(i);
-            for (int j = 0; j < xpvar.colCount(); j++) {
-                xpvar.set(i, j, xpvar.get(i, j) * pvar);
-            }
-        }
+        // Xt(p(1-p), rows are scaled in place which keeps sparse matrices sparse
+        DM xpvar = x.copy().mult(pvars, 1);
 
         // X^t * I(p(1-p))^T * X
-        DM mA = xpvar.t().dot(x);
+        DM mA = xpvar.tDot(x);
 
         DM invA;
         CholeskyDecomposition chol = CholeskyDecomposition.from(mA);
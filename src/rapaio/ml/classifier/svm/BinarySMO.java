@@ -30,9 +30,12 @@ package rapaio.ml.classifier.svm;
 import rapaio.core.RandomSource;
 import rapaio.data.Frame;
 import rapaio.data.Mapping;
+import rapaio.data.SolidFrame;
 import rapaio.data.VType;
 import rapaio.data.Var;
+import rapaio.data.VarDouble;
 import rapaio.math.MTools;
+import rapaio.math.linear.sparse.DMSparse;
 import rapaio.ml.classifier.AbstractClassifierModel;
 import rapaio.ml.classifier.ClassifierResult;
 import rapaio.ml.classifier.svm.kernel.Kernel;
@@ -92,6 +95,13 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
             "solver", "Solver for problem with valid values: Keerthi1 and Keerthi2",
             x -> "Keerthi1".equals(x) || "Keerthi2".equals(x));
 
+    public final ValueParam<Integer, BinarySMO> cacheSize = new ValueParam<>(this, 100,
+            "cacheSize", "Kernel cache size in megabytes", x -> x != null && x > 0);
+
+    public final ValueParam<Boolean, BinarySMO> sparse = new ValueParam<>(this, false,
+            "sparse", "If true and the kernel is linear, the inputs are stored in a sparse matrix and weight updates "
+            + "and outputs on training instances visit only non zero values", x -> x != null);
+
     private static final double eps_delta = 1e-200;
 
     private double[] alpha; // Lagrange multipliers from dual
@@ -121,6 +131,16 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
      */
     private double[] linear_weights;
 
+    /**
+     * Training inputs as a sparse matrix in CSR format, used only for linear machines.
+     */
+    private transient DMSparse sparseTrain;
+
+    /**
+     * True if training inputs are given directly as a sparse matrix and there is no frame with input variables.
+     */
+    private transient boolean sparseInput;
+
     private static final class State {
         double bLow;
         double bUp; // thresholds
@@ -135,6 +155,11 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
         BitSet I2; // i: classes[i] = -1, alpha[i] =C
         BitSet I3; // i: classes[i] = 1, alpha[i] = C
         BitSet I4; // i: classes[i] = -1, alpha[i] = 0
+
+        /* Buffers used to compute kernel rows from sparse inputs. */
+        double[] row1;
+        double[] row2;
+        double[] dense;
     }
 
     private BinarySMO() {
@@ -179,6 +204,77 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
         System.arraycopy(sparseIndices, 0, this.sparseIndices, 0, counter);
     }
 
+    /**
+     * Fits a linear machine on input values given as a sparse matrix, for example the matrix
+     * produced by one hot encoding with {@code FOneHotEncoding.applySparse}. Input values
+     * are not copied into dense variables, weight updates and kernel values visit only non zero values.
+     *
+     * @param x          sparse matrix with input values, one column for each input name
+     * @param inputNames names of the input variables
+     * @param target     nominal target variable
+     * @return fitted model
+     */
+    public BinarySMO fit(DMSparse x, String[] inputNames, Var target) {
+        if (!kernel.get().isLinear()) {
+            throw new IllegalArgumentException("Sparse matrix inputs are allowed only for linear kernels.");
+        }
+        if (x.colCount() != inputNames.length || x.rowCount() != target.rowCount()) {
+            throw new IllegalArgumentException("Sparse matrix is not conform with input names and target variable.");
+        }
+        FitSetup setup = prepareFit(inputNames, VarDouble.fill(x.rowCount(), 1), target);
+        sparseTrain = x.asCSR();
+        sparseInput = true;
+        try {
+            learned = coreFit(setup.df, setup.w);
+        } finally {
+            sparseInput = false;
+            sparseTrain = null;
+        }
+        return this;
+    }
+
+    /**
+     * Predicts classes and densities for input values given as a sparse matrix with
+     * the same columns as the matrix used for fitting. Works only for linear machines.
+     *
+     * @param x                 sparse matrix with input values
+     * @param withClasses       if classes are predicted
+     * @param withDistributions if densities are predicted
+     * @return classifier result
+     */
+    public ClassifierResult predict(DMSparse x, boolean withClasses, boolean withDistributions) {
+        if (!kernel.get().isLinear()) {
+            throw new IllegalArgumentException("Sparse matrix inputs are allowed only for linear kernels.");
+        }
+        if (x.colCount() != inputNames().length) {
+            throw new IllegalArgumentException("Sparse matrix is not conform with input names.");
+        }
+        double[] w = new double[x.colCount()];
+        for (int i = 0; i < sparseIndices.length; i++) {
+            w[sparseIndices[i]] = sparseWeights[i];
+        }
+        DMSparse csr = x.asCSR();
+        int[] pointers = csr.pointers();
+        int[] indexes = csr.indexes();
+        double[] values = csr.elements();
+
+        ClassifierResult cr = ClassifierResult.build(this, SolidFrame.byVars(x.rowCount()), withClasses, withDistributions);
+        for (int i = 0; i < x.rowCount(); i++) {
+            double pred = -b;
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                pred += w[indexes[p]] * values[p];
+            }
+            if (withClasses) {
+                cr.firstClasses().setLabel(i, pred < 0 ? label1 : label2);
+            }
+            if (withDistributions) {
+                cr.firstDensity().setDouble(i, label1, -pred);
+                cr.firstDensity().setDouble(i, label2, pred);
+            }
+        }
+        return cr;
+    }
+
     @Override
     protected boolean coreFit(Frame initDf, Var initWeights) {
         State s = new State();
@@ -258,6 +354,7 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
 
         // Save memory
         kernel.get().clean();
+        sparseTrain = null;
 
         // If machine is linear, delete training data
         // and store weight vector in sparse format
@@ -297,6 +394,9 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
             }
             this.train = df.mapRows(map).copy();
             this.weights = w.mapRows(map).copy();
+            if (sparseInput) {
+                sparseTrain = sparseTrain.mapRowsCopy(map.elements());
+            }
             valid = true;
         } else if (!"?".equals(firstLabel.get())) {
             // one vs all type of classification
@@ -379,6 +479,21 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
             linear_weights = null;
         }
 
+        // inputs are accessed by position, as in the dense version
+        if (sparseInput) {
+            s.row1 = new double[n];
+            s.row2 = new double[n];
+            s.dense = new double[inputNames().length];
+        } else if (kernel.get().isLinear() && sparse.get()) {
+            Var[] inputs = new Var[inputNames().length];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = train.rvar(i);
+            }
+            sparseTrain = DMSparse.copy(inputs);
+        } else {
+            sparseTrain = null;
+        }
+
         // Initialize alpha array to zero
         alpha = new double[n];
 
@@ -394,8 +509,10 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
         sparseWeights = null;
         sparseIndices = null;
 
-        // init kernel
-        kernel.get().buildKernelCache(inputNames(), train);
+        // init kernel, kernel rows are computed from sparse inputs if there is no input frame
+        if (!sparseInput) {
+            kernel.get().buildKernelCache(inputNames(), train, cacheSize.get());
+        }
 
         // Initialize error cache
         s.fCache = new double[n];
@@ -452,6 +569,68 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
         return result;
     }
 
+    /**
+     * Computes SVM output for a training instance, using the sparse inputs if available.
+     */
+    private double predictTrain(int row) {
+        if (sparseTrain == null) {
+            return predict(train, row);
+        }
+        int[] pointers = sparseTrain.pointers();
+        int[] indexes = sparseTrain.indexes();
+        double[] values = sparseTrain.elements();
+        double result = -b;
+        for (int p = pointers[row]; p < pointers[row + 1]; p++) {
+            result += linear_weights[indexes[p]] * values[p];
+        }
+        return result;
+    }
+
+    /**
+     * Computes a row of the kernel matrix for a training instance. If training inputs are given as
+     * sparse matrix, the linear kernel row is computed as sparse product in the given buffer.
+     */
+    private double[] kernelRow(State s, int row, double[] buffer) {
+        if (!sparseInput) {
+            return kernel.get().computeRow(train, row);
+        }
+        int[] pointers = sparseTrain.pointers();
+        int[] indexes = sparseTrain.indexes();
+        double[] values = sparseTrain.elements();
+        for (int p = pointers[row]; p < pointers[row + 1]; p++) {
+            s.dense[indexes[p]] = values[p];
+        }
+        for (int i = 0; i < buffer.length; i++) {
+            double sum = 0;
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                sum += s.dense[indexes[p]] * values[p];
+            }
+            buffer[i] = sum;
+        }
+        for (int p = pointers[row]; p < pointers[row + 1]; p++) {
+            s.dense[indexes[p]] = 0;
+        }
+        return buffer;
+    }
+
+    /**
+     * Adds to the weight vector the given row of training inputs multiplied with a factor.
+     */
+    private void updateLinearWeights(int row, double factor) {
+        if (sparseTrain == null) {
+            for (int p = 0; p < inputNames().length; p++) {
+                linear_weights[p] += factor * train.getDouble(row, p);
+            }
+            return;
+        }
+        int[] pointers = sparseTrain.pointers();
+        int[] indexes = sparseTrain.indexes();
+        double[] values = sparseTrain.elements();
+        for (int p = pointers[row]; p < pointers[row + 1]; p++) {
+            linear_weights[indexes[p]] += factor * values[p];
+        }
+    }
+
     /**
      * Examines instance.
      *
@@ -466,7 +645,7 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
         if (s.I0.get(i2)) {
             F2 = s.fCache[i2];
         } else {
-            F2 = predict(train, i2) + b - y2;
+            F2 = predictTrain(i2) + b - y2;
             s.fCache[i2] = F2;
 
             // Update thresholds
@@ -545,9 +724,11 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
         }
 
         // Compute second derivative of objective function
-        double k11 = kernel.get().compute(train, i1, train, i1);
-        double k12 = kernel.get().compute(train, i1, train, i2);
-        double k22 = kernel.get().compute(train, i2, train, i2);
+        double[] row1 = kernelRow(s, i1, s.row1);
+        double[] row2 = kernelRow(s, i2, s.row2);
+        double k11 = row1[i1];
+        double k12 = row1[i2];
+        double k22 = row2[i2];
         double eta = 2 * k12 - k11 - k22;
 
         double a1, a2;
@@ -564,8 +745,8 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
         } else {
 
             // Look at endpoints of diagonal
-            double f1 = predict(train, i1);
-            double f2 = predict(train, i2);
+            double f1 = predictTrain(i1);
+            double f2 = predictTrain(i2);
             double v1 = f1 + b - y1 * alpha1 * k11 - y2 * alpha2 * k12;
             double v2 = f2 + b - y1 * alpha1 * k12 - y2 * alpha2 * k22;
             double gamma = alpha1 + ss * alpha2;
@@ -621,20 +802,15 @@ public class BinarySMO extends AbstractClassifierModel<BinarySMO, ClassifierResu
 
         // Update weight vector to reflect change a1 and a2, if linear SVM
         if (kernel.get().isLinear()) {
-            for (int p1 = 0; p1 < inputNames().length; p1++) {
-                linear_weights[p1] += y1 * (a1 - alpha1) * train.getDouble(i1, p1);
-            }
-            for (int p2 = 0; p2 < inputNames().length; p2++) {
-                linear_weights[p2] += y2 * (a2 - alpha2) * train.getDouble(i2, p2);
-            }
+            updateLinearWeights(i1, y1 * (a1 - alpha1));
+            updateLinearWeights(i2, y2 * (a2 - alpha2));
         }
 
         // Update error cache using new Lagrange multipliers
         for (int j = s.I0.nextSetBit(0); j != -1; j = s.I0.nextSetBit(j + 1)) {
             if ((j != i1) && (j != i2)) {
                 s.fCache[j] +=
-                        y1 * (a1 - alpha1) * kernel.get().compute(train, i1, train, j) +
-                                y2 * (a2 - alpha2) * kernel.get().compute(train, i2, train, j);
+                        y1 * (a1 - alpha1) * row1[j] + y2 * (a2 - alpha2) * row2[j];
             }
         }
 
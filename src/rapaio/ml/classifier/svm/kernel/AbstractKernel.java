@@ -29,29 +29,58 @@ package rapaio.ml.classifier.svm.kernel;
 
 import rapaio.data.Frame;
 import rapaio.ml.classifier.svm.kernel.cache.KernelCache;
-import rapaio.ml.classifier.svm.kernel.cache.MapKernelCache;
-import rapaio.ml.classifier.svm.kernel.cache.SolidKernelCache;
+import rapaio.ml.classifier.svm.kernel.cache.LRUKernelCache;
 
 import java.util.Arrays;
 
 /**
+ * Base class for kernels.
+ * <p>
+ * When the kernel cache is built, the values of the input variables are copied once into a
+ * dense row-major snapshot. Kernel functions are implemented over rows of double values,
+ * thus evaluations on the training instances avoid variable name lookups, and whole kernel
+ * rows can be computed in a single call with {@link #evalRow(int, double[])}.
+ * <p>
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> at 1/16/15.
  */
 public abstract class AbstractKernel implements Kernel {
 
     private static final long serialVersionUID = -2216556261751685749L;
 
+    /**
+     * Default kernel cache size in megabytes
+     */
+    public static final int DEFAULT_CACHE_SIZE = 100;
+
     protected String[] varNames;
     private KernelCache cache;
 
+    // dense row-major snapshot of the frame used to build the cache
+    private transient Frame snapshotFrame;
+    private transient double[][] snapshot;
+
+    // per thread buffers used for instances which are not part of the snapshot,
+    // such that the kernel can be evaluated concurrently
+    private transient ThreadLocal<RowBuffer[]> buffers;
+
     @Override
     public void buildKernelCache(String[] varNames, Frame df) {
+        buildKernelCache(varNames, df, DEFAULT_CACHE_SIZE);
+    }
+
+    @Override
+    public void buildKernelCache(String[] varNames, Frame df, int cacheSize) {
         this.varNames = Arrays.copyOf(varNames, varNames.length);
-        if (df.rowCount() <= 10_000) {
-            cache = new SolidKernelCache(df);
-        } else {
-            cache = new MapKernelCache();
+        int[] indexes = varIndexes(df);
+        snapshot = new double[df.rowCount()][varNames.length];
+        for (int i = 0; i < varNames.length; i++) {
+            for (int j = 0; j < df.rowCount(); j++) {
+                snapshot[j][i] = df.getDouble(j, indexes[i]);
+            }
         }
+        snapshotFrame = df;
+        buffers = null;
+        cache = new LRUKernelCache(df, cacheSize);
     }
 
     @Override
@@ -59,18 +88,19 @@ public abstract class AbstractKernel implements Kernel {
         return false;
     }
 
-    protected double dotProd(Frame df1, int row1, Frame df2, int row2) {
+    protected double dotProd(double[] x, double[] y) {
         double result = 0;
-        for (String varName : varNames) {
-            result += df1.getDouble(row1, varName) * df2.getDouble(row2, varName);
+        for (int i = 0; i < x.length; i++) {
+            result += x[i] * y[i];
         }
         return result;
     }
 
-    protected double deltaDotProd(Frame df1, int row1, Frame df2, int row2) {
+    protected double deltaDotProd(double[] x, double[] y) {
         double result = 0;
-        for (String varName : varNames) {
-            result += Math.pow(df1.getDouble(row1, varName) - df2.getDouble(row2, varName), 2);
+        for (int i = 0; i < x.length; i++) {
+            double delta = x[i] - y[i];
+            result += delta * delta;
         }
         return result;
     }
@@ -85,12 +115,94 @@ public abstract class AbstractKernel implements Kernel {
         return value;
     }
 
+    @Override
+    public double[] computeRow(Frame df, int row) {
+        double[] values = cache.retrieveRow(df, row);
+        if (values == null) {
+            values = new double[df.rowCount()];
+            if (df == snapshotFrame) {
+                evalRow(row, values);
+            } else {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = eval(df, row, df, i);
+                }
+            }
+            cache.storeRow(df, row, values);
+        }
+        return values;
+    }
+
+    @Override
+    public void evalRow(int row, double[] out) {
+        if (snapshot == null) {
+            throw new IllegalStateException("Kernel cache was not built.");
+        }
+        double[] x = snapshot[row];
+        for (int i = 0; i < snapshot.length; i++) {
+            out[i] = eval(x, snapshot[i]);
+        }
+    }
+
+    public double eval(Frame df1, int row1, Frame df2, int row2) {
+        if (varNames == null) {
+            throw new IllegalArgumentException("This kernel is not build with var names");
+        }
+        RowBuffer[] rowBuffers = buffers().get();
+        return eval(row(df1, row1, rowBuffers[0]), row(df2, row2, rowBuffers[1]));
+    }
 
-    public abstract double eval(Frame df1, int row1, Frame df2, int row2);
+    /**
+     * Evaluates kernel function on two instances given as arrays of values
+     * of the input variables.
+     *
+     * @param x values of the first instance
+     * @param y values of the second instance
+     * @return kernel value
+     */
+    public abstract double eval(double[] x, double[] y);
 
     @Override
     public void clean() {
-        cache.clear();
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private double[] row(Frame df, int row, RowBuffer buffer) {
+        if (df == snapshotFrame) {
+            return snapshot[row];
+        }
+        if (df != buffer.df) {
+            buffer.df = df;
+            buffer.indexes = varIndexes(df);
+            buffer.values = new double[varNames.length];
+        }
+        for (int i = 0; i < buffer.indexes.length; i++) {
+            buffer.values[i] = df.getDouble(row, buffer.indexes[i]);
+        }
+        return buffer.values;
     }
-}
 
+    private ThreadLocal<RowBuffer[]> buffers() {
+        ThreadLocal<RowBuffer[]> local = buffers;
+        if (local == null) {
+            local = ThreadLocal.withInitial(() -> new RowBuffer[]{new RowBuffer(), new RowBuffer()});
+            buffers = local;
+        }
+        return local;
+    }
+
+    private int[] varIndexes(Frame df) {
+        int[] indexes = new int[varNames.length];
+        for (int i = 0; i < varNames.length; i++) {
+            indexes[i] = df.varIndex(varNames[i]);
+        }
+        return indexes;
+    }
+
+    private static final class RowBuffer {
+        Frame df;
+        int[] indexes;
+        double[] values;
+    }
+}
@@ -27,7 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
 import rapaio.printer.Format;
 
 /**
@@ -59,8 +58,8 @@ public class CauchyKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double dot = deltaDotProd(df1, row1, df2, row2);
+    public double eval(double[] x, double[] y) {
+        double dot = deltaDotProd(x, y);
         return 1.0 / (1.0 + Math.pow(dot / sigma, 2));
     }
 
@@ -27,8 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
-
 /**
  * The Chi-Square kernel comes from the Chi-Square distribution.
  * <p>
@@ -41,12 +39,12 @@ public class ChiSquareKernel extends AbstractKernel {
     private static final long serialVersionUID = -3301596992870913061L;
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
+    public double eval(double[] x, double[] y) {
         double result = 0;
-        for (String varName : varNames) {
-            double sum = df1.getDouble(row1, varName) + df2.getDouble(row2, varName);
-            double diff = df1.getDouble(row1, varName) - df2.getDouble(row2, varName);
-            result = 2 * Math.pow(diff, 2) / sum;
+        for (int i = 0; i < x.length; i++) {
+            double sum = x[i] + y[i];
+            double diff = x[i] - y[i];
+            result = 2 * diff * diff / sum;
         }
         return 1 - result;
     }
@@ -27,7 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
 import rapaio.printer.Format;
 
 /**
@@ -54,8 +53,8 @@ public class ExponentialKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double value = deltaDotProd(df1, row1, df2, row2);
+    public double eval(double[] x, double[] y) {
+        double value = deltaDotProd(x, y);
         return 1.0 / Math.pow(Math.E, factor * value);
     }
 
@@ -27,7 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
 import rapaio.printer.Format;
 
 /**
@@ -53,12 +52,12 @@ public class GeneralizedMinKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
+    public double eval(double[] x, double[] y) {
         double sum = 0;
-        for (String varName : varNames) {
+        for (int i = 0; i < x.length; i++) {
             sum += Math.min(
-                    Math.pow(Math.abs(df1.getDouble(row1, varName)), alpha),
-                    Math.pow(Math.abs(df2.getDouble(row2, varName)), beta)
+                    Math.pow(Math.abs(x[i]), alpha),
+                    Math.pow(Math.abs(y[i]), beta)
             );
         }
         return sum;
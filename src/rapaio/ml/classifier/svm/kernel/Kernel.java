@@ -46,8 +46,38 @@ public interface Kernel extends Serializable {
 
     void buildKernelCache(String[] varNames, Frame df);
 
+    /**
+     * Builds kernel cache with a memory budget.
+     *
+     * @param varNames  names of the variables used to compute kernel
+     * @param df        frame with instances for which kernel values are cached
+     * @param cacheSize cache memory budget in megabytes
+     */
+    void buildKernelCache(String[] varNames, Frame df, int cacheSize);
+
     double compute(Frame df1, int row1, Frame df2, int row2);
 
+    /**
+     * Computes kernel values between the given instance and all the instances
+     * of the same frame. The returned array can be shared with the kernel cache
+     * and must not be modified.
+     *
+     * @param df  frame with instances
+     * @param row instance row
+     * @return array of kernel values
+     */
+    double[] computeRow(Frame df, int row);
+
+    /**
+     * Evaluates kernel values between the given instance of the frame used to
+     * build the kernel cache and all instances of the same frame, without
+     * using the cache.
+     *
+     * @param row instance row
+     * @param out array where kernel values are stored, with length at least the number of rows
+     */
+    void evalRow(int row, double[] out);
+
     default void clean() {
     }
 }
@@ -27,8 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
-
 /**
  * The Histogram Intersection Kernel is also known as the Min Kernel
  * and has been proven useful in image classification.
@@ -42,10 +40,10 @@ public class MinKernel extends AbstractKernel {
     private static final long serialVersionUID = -2388704255494979581L;
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
+    public double eval(double[] x, double[] y) {
         double sum = 0;
-        for (String varName : varNames) {
-            sum += Math.min(df1.getDouble(row1, varName), df2.getDouble(row2, varName));
+        for (int i = 0; i < x.length; i++) {
+            sum += Math.min(x[i], y[i]);
         }
         return sum;
     }
@@ -27,7 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
 import rapaio.math.MTools;
 
 import static rapaio.printer.Format.floatFlex;
@@ -92,13 +91,8 @@ public class PolyKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-
-        if (varNames == null) {
-            throw new IllegalArgumentException("This kernel is not build with var names");
-        }
-
-        double result = dotProd(df1, row1, df2, row2);
+    public double eval(double[] x, double[] y) {
+        double result = dotProd(x, y);
         if (exponent != 1.0) {
             result = Math.pow(slope * result + bias, exponent);
         }
@@ -27,7 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
 import rapaio.printer.Format;
 
 /**
@@ -50,8 +49,8 @@ public class PowerKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        return -Math.pow(deltaDotProd(df1, row1, df2, row2), degree);
+    public double eval(double[] x, double[] y) {
+        return -Math.pow(deltaDotProd(x, y), degree);
     }
 
     @Override
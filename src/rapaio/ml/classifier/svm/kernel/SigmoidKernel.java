@@ -27,7 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
 import rapaio.printer.Format;
 
 /**
@@ -66,8 +65,8 @@ public class SigmoidKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        return Math.atan(alpha * dotProd(df1, row1, df2, row2) + c);
+    public double eval(double[] x, double[] y) {
+        return Math.atan(alpha * dotProd(x, y) + c);
     }
 
     @Override
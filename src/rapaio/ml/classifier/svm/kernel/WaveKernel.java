@@ -27,7 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
 import rapaio.printer.Format;
 
 /**
@@ -65,8 +64,8 @@ public class WaveKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
-        double dot = dotProd(df1, row1, df2, row2);
+    public double eval(double[] x, double[] y) {
+        double dot = dotProd(x, y);
         return theta * Math.sin(dot / theta) / dot;
     }
 
@@ -27,7 +27,6 @@
 
 package rapaio.ml.classifier.svm.kernel;
 
-import rapaio.data.Frame;
 import rapaio.printer.Format;
 
 import java.util.function.Function;
@@ -79,15 +78,15 @@ public class WaveletKernel extends AbstractKernel {
     }
 
     @Override
-    public double eval(Frame df1, int row1, Frame df2, int row2) {
+    public double eval(double[] x, double[] y) {
         double result = 1;
-        for (String varName : varNames) {
+        for (int i = 0; i < x.length; i++) {
             if (invariant) {
-                double diff = df1.getDouble(row1, varName) - df2.getDouble(row2, varName);
+                double diff = x[i] - y[i];
                 result *= wavelet.apply(diff / dilation);
             } else {
-                result *= wavelet.apply((df1.getDouble(row1, varName) - translation) / dilation);
-                result *= wavelet.apply((df2.getDouble(row2, varName) - translation) / dilation);
+                result *= wavelet.apply((x[i] - translation) / dilation);
+                result *= wavelet.apply((y[i] - translation) / dilation);
             }
         }
         return result;
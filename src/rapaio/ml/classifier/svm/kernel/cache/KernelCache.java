@@ -44,5 +44,28 @@ public interface KernelCache extends Serializable {
 
     void store(Frame df1, int row1, Frame df2, int row2, double value);
 
+    /**
+     * Retrieves the cached kernel values between the given instance and all
+     * instances of the same frame.
+     *
+     * @param df  frame with instances
+     * @param row instance row
+     * @return cached kernel row or null if it is not available
+     */
+    default double[] retrieveRow(Frame df, int row) {
+        return null;
+    }
+
+    /**
+     * Stores the kernel values between the given instance and all instances
+     * of the same frame.
+     *
+     * @param df     frame with instances
+     * @param row    instance row
+     * @param values kernel values
+     */
+    default void storeRow(Frame df, int row, double[] values) {
+    }
+
     void clear();
 }
@@ -0,0 +1,162 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.classifier.svm.kernel.cache;
+
+import rapaio.data.Frame;
+
+/**
+ * Kernel cache which stores whole kernel rows as primitive arrays and
+ * bounds the used memory by evicting the least recently used rows,
+ * following the design of the LIBSVM kernel cache.
+ * <p>
+ * A row contains the kernel values between one instance of the cached frame
+ * and all instances of the same frame. Single values are answered from the
+ * cache if any of the two corresponding rows is cached, but are never stored
+ * individually.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class LRUKernelCache implements KernelCache {
+
+    private static final long serialVersionUID = 4212935871626127035L;
+
+    private final transient Frame df;
+    private final int rowCount;
+    private final int capacity;
+
+    private transient double[][] rows;
+    // doubly linked list of cached rows, position rowCount is the sentinel head,
+    // the element after head is the most recently used row
+    private transient int[] prev;
+    private transient int[] next;
+    private int size;
+
+    /**
+     * Builds a new kernel cache.
+     *
+     * @param df        frame with instances for which kernel rows are cached
+     * @param cacheSize cache memory budget in megabytes
+     */
+    public LRUKernelCache(Frame df, int cacheSize) {
+        this.df = df;
+        this.rowCount = df.rowCount();
+        long rowBytes = 8L * Math.max(1, rowCount);
+        long budget = (long) cacheSize * 1024 * 1024;
+        // at least two rows are needed to keep both rows of a working pair
+        this.capacity = (int) Math.max(2, Math.min(rowCount, budget / rowBytes));
+        this.rows = new double[rowCount][];
+        this.prev = new int[rowCount + 1];
+        this.next = new int[rowCount + 1];
+        prev[rowCount] = rowCount;
+        next[rowCount] = rowCount;
+    }
+
+    /**
+     * @return maximum number of kernel rows kept in cache
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of kernel rows currently cached
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Double retrieve(Frame df1, int row1, Frame df2, int row2) {
+        if (rows == null || df1 != df || df2 != df) {
+            return null;
+        }
+        if (rows[row1] != null) {
+            return rows[row1][row2];
+        }
+        if (rows[row2] != null) {
+            return rows[row2][row1];
+        }
+        return null;
+    }
+
+    @Override
+    public void store(Frame df1, int row1, Frame df2, int row2, double value) {
+        // single values are not cached
+    }
+
+    @Override
+    public double[] retrieveRow(Frame df, int row) {
+        if (rows == null || df != this.df || rows[row] == null) {
+            return null;
+        }
+        unlink(row);
+        linkFirst(row);
+        return rows[row];
+    }
+
+    @Override
+    public void storeRow(Frame df, int row, double[] values) {
+        if (rows == null || df != this.df) {
+            return;
+        }
+        if (rows[row] != null) {
+            unlink(row);
+            size--;
+        }
+        while (size >= capacity) {
+            int last = prev[rowCount];
+            unlink(last);
+            rows[last] = null;
+            size--;
+        }
+        rows[row] = values;
+        linkFirst(row);
+        size++;
+    }
+
+    private void unlink(int row) {
+        next[prev[row]] = next[row];
+        prev[next[row]] = prev[row];
+    }
+
+    private void linkFirst(int row) {
+        int first = next[rowCount];
+        next[rowCount] = row;
+        prev[row] = rowCount;
+        next[row] = first;
+        prev[first] = row;
+    }
+
+    @Override
+    public void clear() {
+        rows = null;
+        prev = null;
+        next = null;
+        size = 0;
+    }
+}
@@ -30,6 +30,7 @@ package rapaio.ml.classifier.tree;
 import lombok.Getter;
 import rapaio.core.tools.DensityVector;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.data.VType;
 import rapaio.data.Var;
 import rapaio.experiment.ml.common.predicate.RowPredicate;
@@ -46,12 +47,14 @@ import rapaio.ml.common.MultiParam;
 import rapaio.ml.common.ParametricEquals;
 import rapaio.ml.common.ValueParam;
 import rapaio.ml.common.VarSelector;
+import rapaio.ml.common.tree.ColumnSnapshot;
+import rapaio.ml.common.tree.FlatTree;
 import rapaio.printer.Format;
 import rapaio.printer.Printable;
 import rapaio.printer.Printer;
 import rapaio.printer.opt.POption;
 import rapaio.util.Pair;
-import rapaio.util.Triple;
+import rapaio.util.collection.IntArrays;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -164,9 +167,36 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
             "Pruning data frame",
             x -> true);
 
+    public final ValueParam<Boolean, CTree> presort = new ValueParam<>(this, true,
+            "presort",
+            "Sorts numeric variables once at root and partitions sorted rows at each split");
+
     @Getter
     private Node root;
 
+    // variable selector used while fitting
+    private transient VarSelector selector;
+
+    // compiled tree, built lazily at prediction
+    private transient FlatTree compiled;
+
+    /**
+     * Node waiting to be learned, together with its rows, weights and rows sorted by numeric variables.
+     */
+    private static final class NodeTask {
+        private final Node node;
+        private final Frame df;
+        private final Var weights;
+        private final int[][] sortedRows;
+
+        private NodeTask(Node node, Frame df, Var weights, int[][] sortedRows) {
+            this.node = node;
+            this.df = df;
+            this.weights = weights;
+            this.sortedRows = sortedRows;
+        }
+    }
+
     @Override
     public CTree newInstance() {
         return new CTree().copyParameterValues(this);
@@ -193,7 +223,8 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
     protected boolean coreFit(Frame df, Var weights) {
 
         additionalValidation(df);
-        this.varSelector.get().withVarNames(inputNames());
+        // each fit uses its own selector, since the parameter value can be shared between model instances
+        selector = varSelector.get().newInstance().withVarNames(inputNames());
 
         int rows = df.rowCount();
 
@@ -201,27 +232,27 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
         AtomicInteger idGenerator = new AtomicInteger();
         idGenerator.set(0);
         root = new Node(null, idGenerator.get(), 0, "root", RowPredicate.all());
+        compiled = null;
 
-        Queue<Triple<Node, Frame, Var>> queue = new ConcurrentLinkedQueue<>();
-        queue.add(Triple.of(root, df, weights));
+        Queue<NodeTask> queue = new ConcurrentLinkedQueue<>();
+        queue.add(new NodeTask(root, df, weights, presort.get() ? presortRows(df) : null));
 
         while (!queue.isEmpty()) {
-            var t = queue.poll();
+            NodeTask t = queue.poll();
 
-            Node node = t.getV1();
-            Frame nodeDf = t.getV2();
-            Var weightsDf = t.getV3();
+            Node node = t.node;
+            Frame nodeDf = t.df;
+            Var weightsDf = t.weights;
 
-            learnNode(node, nodeDf, weightsDf);
+            learnNode(node, nodeDf, weightsDf, t.sortedRows);
 
             if (node.leaf) {
                 continue;
             }
             Candidate bestCandidate = node.bestCandidate;
-            String testName = bestCandidate.testName;
 
             // now that we have a best candidate, do the effective split
-            Pair<List<Frame>, List<Var>> frames = splitter.get().performSplit(nodeDf, weightsDf,
+            Pair<List<Mapping>, List<Var>> split = splitter.get().performSplitMapping(nodeDf, weightsDf,
                     bestCandidate.groupPredicates);
 
             for (RowPredicate predicate : bestCandidate.groupPredicates) {
@@ -231,15 +262,74 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
             }
             for (int i = 0; i < node.children.size(); i++) {
                 var child = node.children.get(i);
-                queue.add(Triple.of(child, frames.v1.get(i), frames.v2.get(i)));
+                Mapping mapping = split.v1.get(i);
+                int[][] childSortedRows = t.sortedRows == null ? null : partitionSortedRows(t.sortedRows, nodeDf.rowCount(), mapping);
+                queue.add(new NodeTask(child, nodeDf.mapRows(mapping), split.v2.get(i), childSortedRows));
             }
         }
 
         pruning.get().prune(this, (pruningDf.get() == null) ? df : pruningDf.get(), false);
+        compiled = null;
         return true;
     }
 
-    private void learnNode(Node node, Frame df, Var weights) {
+    /**
+     * Sorts once the rows with non missing values for each input variable which has a
+     * search method able to use sorted rows. Variables without such a search method
+     * have null sorted rows.
+     */
+    private int[][] presortRows(Frame df) {
+        int[][] sortedRows = new int[df.varCount()][];
+        for (int i = 0; i < df.varCount(); i++) {
+            Var var = df.rvar(i);
+            Search search = testMap.get().get(var.type());
+            if (var.name().equals(firstTargetName()) || search == null || !search.usesSortedRows()) {
+                continue;
+            }
+            int[] rows = new int[df.rowCount()];
+            int len = 0;
+            double[] values = new double[df.rowCount()];
+            for (int j = 0; j < df.rowCount(); j++) {
+                values[j] = var.getDouble(j);
+                if (!var.isMissing(j)) {
+                    rows[len++] = j;
+                }
+            }
+            IntArrays.quickSort(rows, 0, len, (r1, r2) -> Double.compare(values[r1], values[r2]));
+            sortedRows[i] = Arrays.copyOf(rows, len);
+        }
+        return sortedRows;
+    }
+
+    /**
+     * Builds the sorted rows of a child node by a stable partition of the parent sorted rows,
+     * the row positions being translated into child positions.
+     */
+    private int[][] partitionSortedRows(int[][] sortedRows, int rowCount, Mapping mapping) {
+        int[] positions = new int[rowCount];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < mapping.size(); i++) {
+            positions[mapping.get(i)] = i;
+        }
+        int[][] childSortedRows = new int[sortedRows.length][];
+        for (int i = 0; i < sortedRows.length; i++) {
+            if (sortedRows[i] == null) {
+                continue;
+            }
+            int[] rows = new int[Math.min(sortedRows[i].length, mapping.size())];
+            int len = 0;
+            for (int row : sortedRows[i]) {
+                int pos = positions[row];
+                if (pos >= 0) {
+                    rows[len++] = pos;
+                }
+            }
+            childSortedRows[i] = len == rows.length ? rows : Arrays.copyOf(rows, len);
+        }
+        return childSortedRows;
+    }
+
+    private void learnNode(Node node, Frame df, Var weights, int[][] sortedRows) {
         node.density = DensityVector.fromLevelWeights(false, df.rvar(firstTargetName()), weights);
         node.counter = DensityVector.fromLevelCounts(false, df.rvar(firstTargetName()));
         node.bestLabel = node.density.findBestLabel();
@@ -253,11 +343,11 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
             return;
         }
 
-        String[] nextVarNames = varSelector.get().nextVarNames();
+        String[] nextVarNames = selector.nextVarNames();
         List<Candidate> candidateList = new ArrayList<>();
         Queue<String> exhaustList = new ConcurrentLinkedQueue<>();
 
-        int m = varSelector.get().mCount();
+        int m = selector.mCount();
         for (String testCol : nextVarNames) {
             if (m <= 0) {
                 continue;
@@ -272,8 +362,10 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
                         " [" + df.type(testCol).name() + "]");
             }
             var test = testMap.get().get(df.type(testCol));
-            var candidate = test.computeCandidate(
-                    this, df, weights, testCol, firstTargetName(), purity.get());
+            int testIndex = df.varIndex(testCol);
+            var candidate = (sortedRows != null && sortedRows[testIndex] != null)
+                    ? test.computeCandidate(this, df, weights, testCol, firstTargetName(), purity.get(), sortedRows[testIndex])
+                    : test.computeCandidate(this, df, weights, testCol, firstTargetName(), purity.get());
             if (candidate != null) {
                 candidateList.add(candidate);
                 m--;
@@ -292,7 +384,7 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
 
         node.leaf = false;
         node.bestCandidate = candidateList.get(0);
-        varSelector.get().removeVarNames(exhaustList);
+        selector.removeVarNames(exhaustList);
     }
 
     public void prune(Frame df) {
@@ -305,6 +397,13 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
 
     @Override
     protected ClassifierResult corePredict(Frame df, boolean withClasses, boolean withDensities) {
+        FlatTree flat = compile();
+        if (flat != null) {
+            ColumnSnapshot snapshot = ColumnSnapshot.of(df, flat.features());
+            if (flat.accepts(snapshot)) {
+                return predict(df, snapshot, withClasses, withDensities);
+            }
+        }
         ClassifierResult prediction = ClassifierResult.build(this, df, withClasses, withDensities);
         for (int i = 0; i < df.rowCount(); i++) {
             Pair<String, DensityVector<String>> res = predictPoint(this, root, i, df);
@@ -320,6 +419,84 @@ public class CTree extends AbstractClassifierModel<CTree, ClassifierResult> impl
         return prediction;
     }
 
+    /**
+     * Predicts using the compiled tree over a column snapshot of the given frame.
+     * The snapshot can be shared between the trees of an ensemble.
+     *
+     * @param df            frame to predict
+     * @param snapshot      column snapshot of the frame, which contains the variables tested by tree
+     * @param withClasses   if classes are predicted
+     * @param withDensities if densities are predicted
+     * @return classifier result
+     */
+    public ClassifierResult predict(Frame df, ColumnSnapshot snapshot, boolean withClasses, boolean withDensities) {
+        FlatTree flat = compile();
+        if (flat == null || !flat.accepts(snapshot)) {
+            return predict(df, withClasses, withDensities);
+        }
+        List<String> dict = firstTargetLevels();
+        int levels = dict.size() - 1;
+        int[] labels = new int[df.rowCount()];
+        double[] densities = new double[df.rowCount() * levels];
+        flat.predictDensities(snapshot, labels, densities);
+
+        ClassifierResult prediction = ClassifierResult.build(this, df, withClasses, withDensities);
+        for (int i = 0; i < df.rowCount(); i++) {
+            if (withClasses)
+                prediction.firstClasses().setLabel(i, dict.get(labels[i] + 1));
+            if (withDensities)
+                for (int j = 1; j <= levels; j++) {
+                    prediction.firstDensity().setDouble(i, j, densities[i * levels + j - 1]);
+                }
+        }
+        return prediction;
+    }
+
+    /**
+     * Compiles the fitted tree into flat arrays used for batch prediction.
+     * The compiled tree is cached until the tree is fitted again.
+     *
+     * @return compiled tree or null if the tree cannot be compiled
+     */
+    public FlatTree compile() {
+        if (compiled == null && root != null) {
+            List<String> levels = firstTargetLevels();
+            compiled = FlatTree.compile(root, levels.size() - 1, new FlatTree.NodeReader<>() {
+                @Override
+                public List<Node> children(Node node) {
+                    return node.leaf ? List.of() : node.children;
+                }
+
+                @Override
+                public RowPredicate predicate(Node node) {
+                    return node.predicate;
+                }
+
+                @Override
+                public double weight(Node node) {
+                    return node.density.sum();
+                }
+
+                @Override
+                public int label(Node node) {
+                    return node.leaf ? levels.indexOf(node.bestLabel) - 1 : -1;
+                }
+
+                @Override
+                public void payload(Node node, double[] buffer, int offset) {
+                    if (!node.leaf) {
+                        return;
+                    }
+                    var dv = node.density.copy().normalize();
+                    for (int j = 1; j < levels.size(); j++) {
+                        buffer[offset + j - 1] = dv.get(levels.get(j));
+                    }
+                }
+            });
+        }
+        return compiled;
+    }
+
     protected Pair<String, DensityVector<String>> predictPoint(CTree tree, Node node, int row, Frame df) {
         if (node.leaf)
             return Pair.from(node.bestLabel, node.density.copy().normalize());
@@ -37,6 +37,7 @@ import rapaio.util.IntComparator;
 import rapaio.util.collection.IntArrays;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -87,58 +88,72 @@ public enum Search implements Serializable {
     NumericBinary {
         @Override
         public Candidate computeCandidate(CTree c, Frame df, Var weights, String testName, String targetName, Purity function) {
-
-            int testNameIndex = df.varIndex(testName);
-            int targetNameIndex = df.varIndex(targetName);
-            var dt = DensityTable.emptyByLabel(false, DensityTable.NUMERIC_DEFAULT_LABELS, df.levels(targetName));
-
+            Var test = df.rvar(testName);
             int[] rows = new int[df.rowCount()];
             int len = 0;
             for (int i = 0; i < df.rowCount(); i++) {
-                if (!df.isMissing(i, testNameIndex)) {
+                if (!test.isMissing(i)) {
                     rows[len++] = i;
-                    dt.increment(1, dt.colIndex().getIndex(df, targetName, i), weights.getDouble(i));
                 }
             }
-            // TODO: Revise the implication of missing records
-            int misCount = df.rowCount() - len;
-
             double[] values = new double[df.rowCount()];
             for (int i = 0; i < df.rowCount(); i++) {
-                values[i] = df.getDouble(i, testNameIndex);
+                values[i] = test.getDouble(i);
             }
             IntComparator comparator = (i, j) -> Double.compare(values[i], values[j]);
             IntArrays.quickSort(rows, 0, len, comparator);
+            return computeCandidate(c, df, weights, testName, targetName, function, Arrays.copyOf(rows, len));
+        }
+
+        @Override
+        public boolean usesSortedRows() {
+            return true;
+        }
 
+        @Override
+        public Candidate computeCandidate(CTree c, Frame df, Var weights, String testName, String targetName,
+                                          Purity function, int[] sortedRows) {
+
+            Var test = df.rvar(testName);
+            Var target = df.rvar(targetName);
+            var dt = DensityTable.emptyByLabel(false, DensityTable.NUMERIC_DEFAULT_LABELS, df.levels(targetName));
+
+            for (int i = 0; i < df.rowCount(); i++) {
+                if (!test.isMissing(i)) {
+                    dt.increment(1, dt.colIndex().getIndex(df, targetName, i), weights.getDouble(i));
+                }
+            }
+            // TODO: Revise the implication of missing records
+
+            int len = sortedRows.length;
             Candidate best = null;
             double bestScore = 0.0;
 
             for (int i = 0; i < len; i++) {
-                int row = rows[i];
-
-                if (df.isMissing(row, testNameIndex)) continue;
+                int row = sortedRows[i];
 
-                int index = df.getInt(row, targetNameIndex) - 1;
+                int index = target.getInt(row) - 1;
                 double w = weights.getDouble(row);
                 dt.increment(1, index, -w);
                 dt.increment(0, index, +w);
 
-                if (i + 1 >= c.minCount.get() &&
-                        i < len - c.minCount.get() &&
-                        values[rows[i]] < values[rows[i + 1]]) {
+                if (i + 1 >= c.minCount.get() && i < len - c.minCount.get()) {
+                    double value = test.getDouble(row);
+                    double nextValue = test.getDouble(sortedRows[i + 1]);
+                    if (value < nextValue) {
+                        double currentScore = function.compute(dt);
+                        if (best != null) {
+                            int comp = Double.compare(bestScore, currentScore);
+                            if (comp > 0) continue;
+                            if (comp == 0 && RandomSource.nextDouble() > 0.5) continue;
+                        }
+                        best = new Candidate(bestScore, testName);
+                        double testValue = (value + nextValue) / 2.0;
+                        best.addGroup(RowPredicate.numLessEqual(testName, testValue));
+                        best.addGroup(RowPredicate.numGreater(testName, testValue));
 
-                    double currentScore = function.compute(dt);
-                    if (best != null) {
-                        int comp = Double.compare(bestScore, currentScore);
-                        if (comp > 0) continue;
-                        if (comp == 0 && RandomSource.nextDouble() > 0.5) continue;
+                        bestScore = currentScore;
                     }
-                    best = new Candidate(bestScore, testName);
-                    double testValue = (values[rows[i]] + values[rows[i + 1]]) / 2.0;
-                    best.addGroup(RowPredicate.numLessEqual(testName, testValue));
-                    best.addGroup(RowPredicate.numGreater(testName, testValue));
-
-                    bestScore = currentScore;
                 }
             }
             return best;
@@ -224,4 +239,21 @@ public enum Search implements Serializable {
     };
 
     public abstract Candidate computeCandidate(CTree c, Frame df, Var w, String testName, String targetName, Purity function);
+
+    /**
+     * @return true if the search can use rows presorted by the values of the test variable
+     */
+    public boolean usesSortedRows() {
+        return false;
+    }
+
+    /**
+     * Computes the candidate using the rows with non missing test values sorted ascending
+     * by test variable values. Searches which does not use sorted rows ignore them.
+     *
+     * @param sortedRows rows from the given frame with non missing test values, sorted by test values
+     */
+    public Candidate computeCandidate(CTree c, Frame df, Var w, String testName, String targetName, Purity function, int[] sortedRows) {
+        return computeCandidate(c, df, w, testName, targetName, function);
+    }
 }
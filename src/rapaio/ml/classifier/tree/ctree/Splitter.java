@@ -24,7 +24,7 @@ public enum Splitter implements Serializable {
      * Simply ignores the missing values, it will propagate only the instances which are accepted by a rule
      */
     Ignore {
-        public Pair<List<Frame>, List<Var>> performSplit(Frame df, Var weights, List<RowPredicate> p) {
+        public Pair<List<Mapping>, List<Var>> performSplitMapping(Frame df, Var weights, List<RowPredicate> p) {
             List<Mapping> mappings = new ArrayList<>(p.size());
             for (int i = 0; i < p.size(); i++) {
                 mappings.add(Mapping.empty());
@@ -38,14 +38,11 @@ public enum Splitter implements Serializable {
                     }
                 }
             }
-            return Pair.from(
-                    mappings.stream().map(df::mapRows).collect(toList()),
-                    mappings.stream().map(weights::mapRows).collect(toList())
-            );
+            return Pair.from(mappings, mappings.stream().map(weights::mapRows).collect(toList()));
         }
     },
     Majority {
-        public Pair<List<Frame>, List<Var>> performSplit(Frame df, Var weights, List<RowPredicate> p) {
+        public Pair<List<Mapping>, List<Var>> performSplitMapping(Frame df, Var weights, List<RowPredicate> p) {
             List<Mapping> mappings = new ArrayList<>(p.size());
             for (int i = 0; i < p.size(); i++) {
                 mappings.add(Mapping.empty());
@@ -78,17 +75,14 @@ public enum Splitter implements Serializable {
 
             mappings.get(index).addAll(missingSpots.iterator());
 
-            return Pair.from(
-                    mappings.stream().map(df::mapRows).collect(toList()),
-                    mappings.stream().map(weights::mapRows).collect(toList())
-            );
+            return Pair.from(mappings, mappings.stream().map(weights::mapRows).collect(toList()));
         }
     },
     /**
      * Put instances with missing value on test variable to all branches, with diminished weights
      */
     Weighted {
-        public Pair<List<Frame>, List<Var>> performSplit(Frame df, Var weights, List<RowPredicate> pred) {
+        public Pair<List<Mapping>, List<Var>> performSplitMapping(Frame df, Var weights, List<RowPredicate> pred) {
 
             List<Mapping> mappings = new ArrayList<>();
             List<Var> weighting = new ArrayList<>();
@@ -128,15 +122,14 @@ public enum Splitter implements Serializable {
                     }
                 }
             }
-            List<Frame> frames = mappings.stream().map(df::mapRows).collect(toList());
-            return Pair.from(frames, weighting);
+            return Pair.from(mappings, weighting);
         }
     },
     /**
      * Assign randomly to any child the instances with missing value on test variable
      */
     Random {
-        public Pair<List<Frame>, List<Var>> performSplit(Frame df, Var weights, List<RowPredicate> pred) {
+        public Pair<List<Mapping>, List<Var>> performSplitMapping(Frame df, Var weights, List<RowPredicate> pred) {
             // first we collect the prediction category for each observation
             // and the counts from each category,
             // missing values are placed randomly
@@ -172,13 +165,13 @@ public enum Splitter implements Serializable {
                 pos[t]++;
             }
             // and split the observations
-            List<Frame> frameList = new ArrayList<>();
+            List<Mapping> mappingList = new ArrayList<>();
             List<Var> weightList = new ArrayList<>();
             for (int i = 0; i < pred.size(); i++) {
-                frameList.add(df.mapRows(maps[i]));
+                mappingList.add(Mapping.wrap(maps[i]));
                 weightList.add(weights.mapRows(maps[i]));
             }
-            return Pair.from(frameList, weightList);
+            return Pair.from(mappingList, weightList);
         }
     };
 
@@ -191,7 +184,22 @@ public enum Splitter implements Serializable {
      * @param predicates rules/criteria used to perform the splitting
      * @return a pair with a list of frames and a list of weights
      */
-    public abstract Pair<List<Frame>, List<Var>> performSplit(Frame df, Var weights, List<RowPredicate> predicates);
+    public Pair<List<Frame>, List<Var>> performSplit(Frame df, Var weights, List<RowPredicate> predicates) {
+        Pair<List<Mapping>, List<Var>> split = performSplitMapping(df, weights, predicates);
+        return Pair.from(split.v1.stream().map(df::mapRows).collect(toList()), split.v2);
+    }
+
+    /**
+     * Splits the initial data set into row mappings and weights according with the
+     * policy for missing values implemented splitter. The mappings contains row
+     * positions from the initial data set.
+     *
+     * @param df         initial data set
+     * @param weights    initial weights
+     * @param predicates rules/criteria used to perform the splitting
+     * @return a pair with a list of row mappings and a list of weights
+     */
+    public abstract Pair<List<Mapping>, List<Var>> performSplitMapping(Frame df, Var weights, List<RowPredicate> predicates);
 
 
 }
@@ -11,6 +11,7 @@ import rapaio.util.function.SBiConsumer;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -90,6 +91,45 @@ public abstract class AbstractClusteringModel<M extends AbstractClusteringModel<
 
     public abstract ClusteringModel coreFit(Frame df, Var weights);
 
+    @Override
+    public M partialFit(Frame df) {
+        return partialFit(df, VarDouble.fill(df.rowCount(), 1));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public M partialFit(Frame df, Var weights) {
+        if (!capabilities().getPartialFit()) {
+            throw new IllegalStateException("Model " + name() + " does not support partial fit.");
+        }
+        FitSetup fitSetup = learned ? preparePartialFit(df, weights) : prepareFit(df, weights);
+        return (M) corePartialFit(fitSetup.df, fitSetup.weights);
+    }
+
+    public FitSetup preparePartialFit(Frame df, Var weights) {
+        HashSet<String> varNames = new HashSet<>(Arrays.asList(df.varNames()));
+        for (String inputName : inputNames) {
+            if (!varNames.contains(inputName)) {
+                throw new IllegalArgumentException("Input variable: " + inputName + " is not contained in batch data frame.");
+            }
+        }
+        Frame batch = df.mapVars(inputNames);
+        capabilities().checkAtLearnPhase(batch, weights);
+        return FitSetup.valueOf(batch, weights);
+    }
+
+    /**
+     * Updates the model with a batch of instances. It is called only for models
+     * which advertise partial fit capability.
+     *
+     * @param df      batch of instances
+     * @param weights weights of instances
+     * @return fitted model
+     */
+    public ClusteringModel corePartialFit(Frame df, Var weights) {
+        throw new IllegalStateException("Model " + name() + " does not support partial fit.");
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public R predict(Frame df, boolean withScores) {
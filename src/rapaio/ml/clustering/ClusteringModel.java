@@ -97,6 +97,27 @@ public interface ClusteringModel extends Printable {
      */
     ClusteringModel fit(Frame df, Var weights);
 
+    /**
+     * Updates a clustering model with a batch of instances, with row weights equal to 1.
+     * If the model is not fitted, the batch is used to initialize the model,
+     * otherwise learning continues from the current state of the model. This operation
+     * is available only if {@link Capabilities#getPartialFit()} is true.
+     *
+     * @param df batch of instances
+     */
+    ClusteringModel partialFit(Frame df);
+
+    /**
+     * Updates a clustering model with a batch of weighted instances.
+     * If the model is not fitted, the batch is used to initialize the model,
+     * otherwise learning continues from the current state of the model. This operation
+     * is available only if {@link Capabilities#getPartialFit()} is true.
+     *
+     * @param df      batch of instances
+     * @param weights instance weights
+     */
+    ClusteringModel partialFit(Frame df, Var weights);
+
     /**
      * Predict clusters for new data set instances, with
      * default option to compute probability scores if they are available.
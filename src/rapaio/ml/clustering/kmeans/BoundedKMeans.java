@@ -0,0 +1,469 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.clustering.kmeans;
+
+import rapaio.core.RandomSource;
+import rapaio.math.linear.DM;
+import rapaio.math.linear.dense.DMFlat;
+import rapaio.math.linear.dense.DMStripe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * KMeans iterations accelerated with triangle inequality bounds (Hamerly and Elkan).
+ * <p>
+ * Instances and centroids are kept in flat row major arrays. For each cluster the sum of
+ * assigned instances and their count are maintained incrementally, only instances which
+ * change their cluster update them. Rows are split into contiguous chunks which are
+ * assigned in parallel, each chunk accumulating its changes into its own partial sums.
+ * <p>
+ * Iterations do not compute the distance to the assigned centroid for instances whose bounds
+ * prove that the assignment does not change, thus iterations do not produce the clustering error.
+ * Convergence is detected when no instance changes its cluster, and the exact error is computed
+ * only on request with {@link #error()}.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+final class BoundedKMeans implements AutoCloseable {
+
+    private final boolean elkan;
+    private final int n;
+    private final int d;
+    private final int k;
+
+    private final double[] x;
+    private final double[] centers;
+    private final int[] assignment;
+
+    // upper bound of the distance to the assigned centroid
+    private final double[] upper;
+    // lower bound to the second closest centroid (Hamerly) or to each centroid (Elkan)
+    private final double[] lower;
+
+    private final double[] sums;
+    private final int[] counts;
+    private final double[] shift;
+    // half of the distance to the closest other centroid
+    private final double[] halfMin;
+    // half of the distances between centroids, used only by Elkan
+    private final double[] halfDist;
+
+    private final Chunk[] chunks;
+    private final ExecutorService pool;
+
+    BoundedKMeans(KMeansMethod method, DM m, DM c, int threads) {
+        this.elkan = method == KMeansMethod.ELKAN;
+        this.n = m.rowCount();
+        this.d = m.colCount();
+        this.k = c.rowCount();
+
+        this.x = DMFlat.copy(m).elements();
+        this.centers = DMFlat.copy(c).elements();
+        this.assignment = new int[n];
+        this.upper = new double[n];
+        this.lower = new double[elkan ? n * k : n];
+        this.sums = new double[k * d];
+        this.counts = new int[k];
+        this.shift = new double[k];
+        this.halfMin = new double[k];
+        this.halfDist = elkan ? new double[k * k] : null;
+
+        int chunkCount = Math.max(1, Math.min(threads, n));
+        this.chunks = new Chunk[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = new Chunk((int) ((long) n * i / chunkCount), (int) ((long) n * (i + 1) / chunkCount));
+        }
+        this.pool = chunkCount > 1 ? Executors.newFixedThreadPool(chunkCount) : null;
+    }
+
+    int[] assignment() {
+        return assignment;
+    }
+
+    DM centers() {
+        return DMStripe.copy(k, d, centers);
+    }
+
+    /**
+     * Assigns all instances computing distances to all centroids and
+     * rebuilds bounds, cluster sums and counts from scratch.
+     *
+     * @return sum of squared distances to assigned centroids
+     */
+    double assignAll() {
+        Arrays.fill(sums, 0);
+        Arrays.fill(counts, 0);
+        return run(chunk -> chunk.assignAll());
+    }
+
+    /**
+     * Performs one iteration: moves centroids to the mean of the assigned instances,
+     * updates the bounds and reassigns instances.
+     *
+     * @return number of instances which changed their cluster
+     */
+    int iterate() {
+        moveCenters();
+        computeCenterDistances();
+        return (int) run(chunk -> chunk.assignBounded());
+    }
+
+    /**
+     * Computes the exact sum of squared distances to assigned centroids. The upper bounds
+     * are tightened to the computed distances.
+     *
+     * @return sum of squared distances to assigned centroids
+     */
+    double error() {
+        return run(chunk -> chunk.error());
+    }
+
+    /**
+     * Replaces centroids of empty clusters with randomly selected instances,
+     * different from the existing centroids.
+     *
+     * @return true if any centroid was replaced, in which case all instances are reassigned
+     */
+    boolean repairEmptyClusters() {
+        boolean repaired = false;
+        for (int j = 0; j < k; j++) {
+            if (counts[j] > 0) {
+                continue;
+            }
+            for (int tries = 0; tries < n; tries++) {
+                int row = RandomSource.nextInt(n);
+                if (!isCenter(row)) {
+                    System.arraycopy(x, row * d, centers, j * d, d);
+                    repaired = true;
+                    break;
+                }
+            }
+        }
+        if (repaired) {
+            assignAll();
+        }
+        return repaired;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private boolean isCenter(int row) {
+        for (int j = 0; j < k; j++) {
+            if (Arrays.equals(x, row * d, row * d + d, centers, j * d, j * d + d)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void moveCenters() {
+        for (int j = 0; j < k; j++) {
+            if (counts[j] == 0) {
+                shift[j] = 0;
+                continue;
+            }
+            int off = j * d;
+            double sum = 0;
+            for (int t = 0; t < d; t++) {
+                double next = sums[off + t] / counts[j];
+                double delta = next - centers[off + t];
+                sum += delta * delta;
+                centers[off + t] = next;
+            }
+            shift[j] = Math.sqrt(sum);
+        }
+    }
+
+    private void computeCenterDistances() {
+        Arrays.fill(halfMin, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < k; j++) {
+            for (int l = j + 1; l < k; l++) {
+                double dist = 0.5 * distance(centers, j * d, centers, l * d, d);
+                if (elkan) {
+                    halfDist[j * k + l] = dist;
+                    halfDist[l * k + j] = dist;
+                }
+                halfMin[j] = Math.min(halfMin[j], dist);
+                halfMin[l] = Math.min(halfMin[l], dist);
+            }
+        }
+    }
+
+    private double run(ChunkTask task) {
+        double result = 0;
+        if (pool == null) {
+            result = task.apply(chunks[0]);
+        } else {
+            List<Callable<Double>> tasks = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                tasks.add(() -> task.apply(chunk));
+            }
+            try {
+                for (Future<Double> future : pool.invokeAll(tasks)) {
+                    result += future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("KMeans iteration was interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException("error at KMeans iteration", e.getCause());
+            }
+        }
+        // merge partial sums
+        for (Chunk chunk : chunks) {
+            if (chunk.changes == 0) {
+                continue;
+            }
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += chunk.sums[i];
+            }
+            for (int j = 0; j < k; j++) {
+                counts[j] += chunk.counts[j];
+            }
+        }
+        return result;
+    }
+
+    private static double distance(double[] a, int aOff, double[] b, int bOff, int len) {
+        double sum = 0;
+        for (int i = 0; i < len; i++) {
+            double delta = a[aOff + i] - b[bOff + i];
+            sum += delta * delta;
+        }
+        return Math.sqrt(sum);
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        double apply(Chunk chunk);
+    }
+
+    /**
+     * Contiguous range of rows processed by a single thread, together
+     * with the partial changes of cluster sums and counts.
+     */
+    private final class Chunk {
+
+        private final int start;
+        private final int end;
+        private final double[] sums;
+        private final int[] counts;
+        private int changes;
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.sums = new double[k * d];
+            this.counts = new int[k];
+        }
+
+        private void reset() {
+            if (changes > 0) {
+                Arrays.fill(sums, 0);
+                Arrays.fill(counts, 0);
+            }
+            changes = 0;
+        }
+
+        private void move(int row, int from, int to) {
+            int off = row * d;
+            if (from >= 0) {
+                int fromOff = from * d;
+                for (int t = 0; t < d; t++) {
+                    sums[fromOff + t] -= x[off + t];
+                }
+                counts[from]--;
+            }
+            int toOff = to * d;
+            for (int t = 0; t < d; t++) {
+                sums[toOff + t] += x[off + t];
+            }
+            counts[to]++;
+            changes++;
+        }
+
+        double assignAll() {
+            reset();
+            double error = 0;
+            for (int i = start; i < end; i++) {
+                int off = i * d;
+                double d1 = Double.POSITIVE_INFINITY;
+                double d2 = Double.POSITIVE_INFINITY;
+                int best = 0;
+                for (int j = 0; j < k; j++) {
+                    double dist = distance(x, off, centers, j * d, d);
+                    if (elkan) {
+                        lower[i * k + j] = dist;
+                    }
+                    if (dist < d1) {
+                        d2 = d1;
+                        d1 = dist;
+                        best = j;
+                    } else if (dist < d2) {
+                        d2 = dist;
+                    }
+                }
+                assignment[i] = best;
+                upper[i] = d1;
+                if (!elkan) {
+                    lower[i] = d2;
+                }
+                move(i, -1, best);
+                error += d1 * d1;
+            }
+            return error;
+        }
+
+        double assignBounded() {
+            reset();
+            if (elkan) {
+                elkan();
+            } else {
+                hamerly();
+            }
+            return changes;
+        }
+
+        double error() {
+            reset();
+            double error = 0;
+            for (int i = start; i < end; i++) {
+                int a = assignment[i];
+                upper[i] = distance(x, i * d, centers, a * d, d);
+                if (elkan) {
+                    lower[i * k + a] = upper[i];
+                }
+                error += upper[i] * upper[i];
+            }
+            return error;
+        }
+
+        private void hamerly() {
+            // the lower bound decreases with the largest move of any other centroid
+            int maxIndex = 0;
+            double max1 = 0;
+            double max2 = 0;
+            for (int j = 0; j < k; j++) {
+                if (shift[j] > max1) {
+                    max2 = max1;
+                    max1 = shift[j];
+                    maxIndex = j;
+                } else if (shift[j] > max2) {
+                    max2 = shift[j];
+                }
+            }
+            for (int i = start; i < end; i++) {
+                int off = i * d;
+                int a = assignment[i];
+                upper[i] += shift[a];
+                lower[i] -= (a == maxIndex) ? max2 : max1;
+
+                double bound = Math.max(halfMin[a], lower[i]);
+                if (upper[i] > bound) {
+                    upper[i] = distance(x, off, centers, a * d, d);
+                    if (upper[i] > bound) {
+                        double d1 = Double.POSITIVE_INFINITY;
+                        double d2 = Double.POSITIVE_INFINITY;
+                        int best = a;
+                        for (int j = 0; j < k; j++) {
+                            double dist = (j == a) ? upper[i] : distance(x, off, centers, j * d, d);
+                            if (dist < d1) {
+                                d2 = d1;
+                                d1 = dist;
+                                best = j;
+                            } else if (dist < d2) {
+                                d2 = dist;
+                            }
+                        }
+                        upper[i] = d1;
+                        lower[i] = d2;
+                        if (best != a) {
+                            assignment[i] = best;
+                            move(i, a, best);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void elkan() {
+            for (int i = start; i < end; i++) {
+                int off = i * d;
+                int lowOff = i * k;
+                int a = assignment[i];
+                for (int j = 0; j < k; j++) {
+                    lower[lowOff + j] = Math.max(0, lower[lowOff + j] - shift[j]);
+                }
+                upper[i] += shift[a];
+
+                boolean exact = false;
+                if (upper[i] > halfMin[a]) {
+                    int best = a;
+                    for (int j = 0; j < k; j++) {
+                        if (j == best || upper[i] <= lower[lowOff + j] || upper[i] <= halfDist[best * k + j]) {
+                            continue;
+                        }
+                        if (!exact) {
+                            upper[i] = distance(x, off, centers, best * d, d);
+                            lower[lowOff + best] = upper[i];
+                            exact = true;
+                            if (upper[i] <= lower[lowOff + j] || upper[i] <= halfDist[best * k + j]) {
+                                continue;
+                            }
+                        }
+                        double dist = distance(x, off, centers, j * d, d);
+                        lower[lowOff + j] = dist;
+                        if (dist < upper[i]) {
+                            best = j;
+                            upper[i] = dist;
+                        }
+                    }
+                    if (best != a) {
+                        assignment[i] = best;
+                        move(i, a, best);
+                    }
+                }
+            }
+        }
+    }
+}
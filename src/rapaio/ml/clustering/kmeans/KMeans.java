@@ -29,7 +29,6 @@ package rapaio.ml.clustering.kmeans;
 
 import lombok.Getter;
 import rapaio.core.RandomSource;
-import rapaio.core.stat.Mean;
 import rapaio.data.Frame;
 import rapaio.data.SolidFrame;
 import rapaio.data.Unique;
@@ -48,10 +47,10 @@ import rapaio.printer.Printer;
 import rapaio.printer.opt.POption;
 import rapaio.util.collection.IntArrays;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.IntStream;
 
 /**
  * KMeans clustering algorithm
@@ -71,14 +70,27 @@ public class KMeans extends AbstractClusteringModel<KMeans, KMeansResult> {
     public final ValueParam<KMeansInit, KMeans> init = new ValueParam<>(this, KMeansInit.Forgy,
             "init", "Initialization algorithm");
     public final ValueParam<Double, KMeans> eps = new ValueParam<>(this, 1e-20, "eps", "Tolerance for convergence measures");
+    public final ValueParam<KMeansMethod, KMeans> method = new ValueParam<>(this, KMeansMethod.LLOYD,
+            "method", "Algorithm used to assign instances to centroids");
+    /**
+     * Number of threads used by accelerated methods to assign instances. Value 0 means
+     * sequential computation, a negative value means all available processors.
+     */
+    public final ValueParam<Integer, KMeans> poolSize = new ValueParam<>(this, 0,
+            "poolSize", "Number of threads used to assign instances in parallel", x -> true);
 
     // clustering artifacts
 
     private DM c;
     @Getter
     private Frame centroids;
+    /**
+     * Clustering error after each iteration. Accelerated methods compute the error only for the
+     * last iteration, or for each iteration if there is a running hook, the other values are missing.
+     */
     @Getter
     private VarDouble errors;
+    private double[] clusterWeights;
 
     @Override
     public ClusteringModel newInstance() {
@@ -107,6 +119,7 @@ public class KMeans extends AbstractClusteringModel<KMeans, KMeansResult> {
                 .minInputCount(1).maxInputCount(10_000)
                 .minTargetCount(0).maxTargetCount(0)
                 .targetTypes(List.of())
+                .partialFit(true)
                 .build();
     }
 
@@ -126,6 +139,15 @@ public class KMeans extends AbstractClusteringModel<KMeans, KMeansResult> {
         DM m = DMStripe.copy(initialDf);
         c = initializeClusters(m);
 
+        if (method.get() != KMeansMethod.LLOYD && m.valueStream().noneMatch(Double::isNaN)) {
+            errors = VarDouble.empty().name("errors");
+            boundedFit(m);
+            clusterWeights = computeClusterWeights(m, weights);
+            centroids = SolidFrame.matrix(c, inputNames);
+            learned = true;
+            return this;
+        }
+
         int[] assignment = IntArrays.newFill(m.rowCount(), -1);
         errors = VarDouble.empty().name("errors");
 
@@ -147,11 +169,108 @@ public class KMeans extends AbstractClusteringModel<KMeans, KMeansResult> {
                 break;
             }
         }
+        clusterWeights = computeClusterWeights(m, weights);
         centroids = SolidFrame.matrix(c, inputNames);
         learned = true;
         return this;
     }
 
+    /**
+     * Mini-batch k-means update. The first batch is used to initialize centroids, thus
+     * it must contain at least k instances. For each batch the instances are assigned to
+     * the closest centroid and each centroid is moved towards its assigned instances with
+     * a learning rate equal with the inverse of the accumulated weight of the cluster.
+     */
+    @Override
+    public ClusteringModel corePartialFit(Frame df, Var weights) {
+
+        DM m = DMStripe.copy(df);
+        if (!learned || c == null) {
+            c = initializeClusters(m);
+            clusterWeights = new double[c.rowCount()];
+            errors = VarDouble.empty().name("errors");
+        }
+
+        int[] assignment = IntArrays.newFill(m.rowCount(), -1);
+        assignToCentroids(m, assignment);
+
+        for (int i = 0; i < m.rowCount(); i++) {
+            double w = weights.getDouble(i);
+            if (!(w > 0)) {
+                continue;
+            }
+            int cluster = assignment[i];
+            clusterWeights[cluster] += w;
+            double eta = w / clusterWeights[cluster];
+            for (int j = 0; j < c.colCount(); j++) {
+                double value = m.get(i, j);
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                double center = c.get(cluster, j);
+                c.set(cluster, j, Double.isNaN(center) ? value : center + eta * (value - center));
+            }
+        }
+        centroids = SolidFrame.matrix(c, inputNames);
+        learned = true;
+        return this;
+    }
+
+    private double[] computeClusterWeights(DM m, Var weights) {
+        double[] cw = new double[c.rowCount()];
+        for (int i = 0; i < m.rowCount(); i++) {
+            DV row = m.mapRow(i);
+            double d = distance(row, c.mapRow(0));
+            int cluster = 0;
+            for (int j = 1; j < c.rowCount(); j++) {
+                double dd = distance(row, c.mapRow(j));
+                if (dd < d) {
+                    d = dd;
+                    cluster = j;
+                }
+            }
+            cw[cluster] += weights.getDouble(i);
+        }
+        return cw;
+    }
+
+    /**
+     * Fits centroids with an accelerated method. The iterations stop when no instance changes
+     * its cluster, and the exact clustering error is computed only when it is needed: at each
+     * iteration if there is a running hook, otherwise only for the last iteration. Errors of
+     * the other iterations are stored as missing values.
+     */
+    private void boundedFit(DM m) {
+        int threads = poolSize.get() < 0 ? Runtime.getRuntime().availableProcessors() : Math.max(1, poolSize.get());
+        try (BoundedKMeans bounded = new BoundedKMeans(method.get(), m, c, threads)) {
+            errors.addDouble(bounded.assignAll());
+            bounded.repairEmptyClusters();
+
+            int rounds = runs.get();
+            while (rounds-- > 0) {
+                int changes = bounded.iterate();
+                boolean repaired = bounded.repairEmptyClusters();
+
+                if (!runningHook.hasDefaultValue()) {
+                    errors.addDouble(bounded.error());
+                    c = bounded.centers();
+                    learned = true;
+                    runningHook.get().accept(this, runs.get() - rounds);
+                } else {
+                    errors.addMissing();
+                }
+                if (changes == 0 && !repaired) {
+                    break;
+                }
+            }
+            int last = errors.rowCount() - 1;
+            if (errors.isMissing(last)) {
+                errors.setDouble(last, bounded.error());
+            }
+            c = bounded.centers();
+        }
+    }
+
     private DM initializeClusters(DM m) {
         DM bestCentroids = init.get().init(m, k.get());
         double bestError = computeInitError(m, bestCentroids);
@@ -204,17 +323,36 @@ public class KMeans extends AbstractClusteringModel<KMeans, KMeansResult> {
 
     private void recomputeCentroids(DM m, int[] assignment) {
 
-        // we compute mean for each feature separately
+        // we compute mean for each feature separately, skipping missing values,
+        // with a second pass which corrects the rounding errors of the first one
+        int kk = c.rowCount();
+        double[] sum = new double[kk];
+        double[] correction = new double[kk];
+        int[] count = new int[kk];
         for (int j = 0; j < m.colCount(); j++) {
-            // collect values for each cluster in mean, for a given input feature
-            Var[] means = IntStream.range(0, k.get()).boxed()
-                    .map(i -> VarDouble.empty())
-                    .toArray(VarDouble[]::new);
+            Arrays.fill(sum, 0);
+            Arrays.fill(correction, 0);
+            Arrays.fill(count, 0);
             for (int i = 0; i < m.rowCount(); i++) {
-                means[assignment[i]].addDouble(m.get(i, j));
+                double value = m.get(i, j);
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                sum[assignment[i]] += value;
+                count[assignment[i]]++;
+            }
+            for (int i = 0; i < kk; i++) {
+                sum[i] = count[i] == 0 ? Double.NaN : sum[i] / count[i];
+            }
+            for (int i = 0; i < m.rowCount(); i++) {
+                double value = m.get(i, j);
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                correction[assignment[i]] += value - sum[assignment[i]];
             }
-            for (int i = 0; i < k.get(); i++) {
-                c.set(i, j, Mean.of(means[i]).value());
+            for (int i = 0; i < kk; i++) {
+                c.set(i, j, count[i] == 0 ? Double.NaN : sum[i] + correction[i] / count[i]);
             }
         }
     }
@@ -0,0 +1,61 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.clustering.kmeans;
+
+import java.io.Serializable;
+
+/**
+ * Algorithm used by {@link KMeans} to assign instances to centroids at each iteration.
+ * <p>
+ * All methods produce the same assignments, the accelerated ones use the triangle
+ * inequality to maintain bounds on distances between instances and centroids, in
+ * order to skip most of the distance computations. Accelerated methods are used only
+ * on complete data, when missing values are present {@link #LLOYD} is used.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public enum KMeansMethod implements Serializable {
+
+    /**
+     * Standard algorithm, computes distances from each instance to all centroids.
+     */
+    LLOYD,
+    /**
+     * Hamerly algorithm, keeps an upper bound to the assigned centroid and a single
+     * lower bound to the second closest centroid for each instance. It needs
+     * linear additional memory and works well for a large number of clusters.
+     */
+    HAMERLY,
+    /**
+     * Elkan algorithm, keeps an upper bound to the assigned centroid and a lower
+     * bound to each centroid for each instance. It skips more distance computations
+     * than Hamerly, but needs additional memory proportional with the number of instances
+     * times the number of clusters.
+     */
+    ELKAN
+}
@@ -77,6 +77,14 @@ public class Capabilities {
     @NonNull
     private final Boolean allowMissingTargetValues;
 
+    /**
+     * True if the model can be updated incrementally from batches of instances
+     * through {@code partialFit}, without the need to see the whole data set at once.
+     */
+    @NonNull
+    @Builder.Default
+    private final Boolean partialFit = false;
+
     /**
      * This method evaluates the capabilities of the algorithm at the learning phase.
      *
@@ -95,6 +103,26 @@ public class Capabilities {
         checkMissingTargetValues(df, weights, targetVars);
     }
 
+    /**
+     * Evaluates the capabilities of the algorithm at the learning phase when input values
+     * are not given as frame variables, but as a matrix of double values without missing
+     * values, for example a sparse matrix.
+     *
+     * @param inputCount number of input variables
+     * @param df         data frame with target variables
+     * @param weights    weights of instances
+     * @param targetVars target variable names
+     */
+    public void checkAtLearnPhase(int inputCount, Frame df, Var weights, String... targetVars) {
+        checkInputCount(inputCount);
+        if (!inputTypes.contains(VType.DOUBLE)) {
+            throw new IllegalArgumentException("Algorithm does not allow input variables of give types: " + VType.DOUBLE.name());
+        }
+        checkTargetCount(df, weights, targetVars);
+        checkTargetTypes(df, weights, targetVars);
+        checkMissingTargetValues(df, weights, targetVars);
+    }
+
     private void checkTargetCount(Frame df, Var weights, String... targetVarNames) {
         List<String> varList = VRange.of(targetVarNames).parseVarNames(df);
         int size = varList.size();
@@ -134,7 +162,10 @@ public class Capabilities {
 
     private void checkInputCount(Frame df, Var weights, String... targetVars) {
         List<String> inputNames = VRange.of(targetVars).parseInverseVarNames(df);
-        int size = inputNames.size();
+        checkInputCount(inputNames.size());
+    }
+
+    private void checkInputCount(int size) {
         if (size < minInputCount) {
             throw new IllegalArgumentException("Algorithm requires more than " + minInputCount + " input variables.");
         }
@@ -0,0 +1,120 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.common.tree;
+
+import rapaio.data.Frame;
+import rapaio.data.VType;
+import rapaio.data.Var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense column snapshot of selected variables from a frame, used for batch prediction
+ * with compiled trees. Each column is stored as a double array with missing values
+ * encoded as {@link Double#NaN}. Nominal variables are stored as indexes in the level
+ * dictionary of the variable. Requested variables which are not present in the
+ * frame are skipped.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class ColumnSnapshot {
+
+    public static ColumnSnapshot of(Frame df, String... names) {
+        return new ColumnSnapshot(df, names);
+    }
+
+    private final int rowCount;
+    private final String[] names;
+    private final double[][] columns;
+    private final List<List<String>> levels;
+    private final Map<String, Integer> index = new HashMap<>();
+
+    private ColumnSnapshot(Frame df, String... names) {
+        this.rowCount = df.rowCount();
+        this.names = Arrays.stream(names).distinct().filter(name -> df.varIndex(name) >= 0).toArray(String[]::new);
+        this.columns = new double[this.names.length][];
+        this.levels = new ArrayList<>(this.names.length);
+        for (int i = 0; i < this.names.length; i++) {
+            index.put(this.names[i], i);
+            Var var = df.rvar(this.names[i]);
+            double[] column = new double[rowCount];
+            boolean nominal = var.type() == VType.NOMINAL;
+            for (int row = 0; row < rowCount; row++) {
+                if (var.isMissing(row)) {
+                    column[row] = Double.NaN;
+                } else {
+                    column[row] = nominal ? var.getInt(row) : var.getDouble(row);
+                }
+            }
+            columns[i] = column;
+            levels.add(nominal ? var.levels() : null);
+        }
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public String[] names() {
+        return names;
+    }
+
+    /**
+     * @param name variable name
+     * @return index of the column with given name or -1 if the variable is not in snapshot
+     */
+    public int columnIndex(String name) {
+        return index.getOrDefault(name, -1);
+    }
+
+    public double[] column(int col) {
+        return columns[col];
+    }
+
+    /**
+     * @param col column index
+     * @return true if the column contains codes of a nominal variable
+     */
+    public boolean isNominal(int col) {
+        return levels.get(col) != null;
+    }
+
+    /**
+     * @param col   column index
+     * @param label nominal label
+     * @return code used in snapshot for the label, -1 if the label is not in the
+     * dictionary of the nominal column
+     */
+    public int levelCode(int col, String label) {
+        return levels.get(col).indexOf(label);
+    }
+}
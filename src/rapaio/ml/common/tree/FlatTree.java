@@ -0,0 +1,522 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.common.tree;
+
+import rapaio.core.RandomSource;
+import rapaio.core.stat.Mean;
+import rapaio.core.stat.WeightedMean;
+import rapaio.data.VarDouble;
+import rapaio.experiment.ml.common.predicate.RowPredicate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fitted decision tree compiled into a struct of arrays, used for fast batch prediction.
+ * <p>
+ * Nodes are numbered in breadth first order, thus the children of a node are stored
+ * contiguously, starting from {@code firstChild} and having {@code childCount} elements.
+ * Each node stores the test which routes a row from its parent into the node: the kind
+ * of test, the index of the tested feature and the threshold, or label for nominal tests.
+ * Leaf payload is stored in a flat array with a fixed number of values for each node:
+ * one value for regression trees or the class densities for classification trees.
+ * <p>
+ * Rows are routed in blocks over a dense {@link ColumnSnapshot}. A row which has no
+ * child accepting it, which happens when the tested value is missing, is predicted
+ * by combining the predictions of all children, weighted by their weights, as the
+ * original trees do.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class FlatTree implements Serializable {
+
+    /**
+     * Reads the structure of a fitted tree, used to compile trees
+     * with different node implementations.
+     *
+     * @param <N> node type
+     */
+    public interface NodeReader<N> {
+
+        List<N> children(N node);
+
+        RowPredicate predicate(N node);
+
+        /**
+         * @return weight of the node used to combine children predictions for missing values
+         */
+        double weight(N node);
+
+        /**
+         * @return index of predicted label for classification trees, ignored for regression
+         */
+        int label(N node);
+
+        /**
+         * Writes the prediction values for a node into buffer.
+         */
+        void payload(N node, double[] buffer, int offset);
+    }
+
+    private static final long serialVersionUID = -2751095862219287457L;
+
+    private static final int BLOCK = 256;
+
+    private static final byte ALL = 0;
+    private static final byte LESS_EQUAL = 1;
+    private static final byte LESS = 2;
+    private static final byte GREATER_EQUAL = 3;
+    private static final byte GREATER = 4;
+    private static final byte EQUAL = 5;
+    private static final byte NOT_EQUAL = 6;
+    private static final byte NOM_EQUAL = 7;
+    private static final byte NOM_NOT_EQUAL = 8;
+
+    /**
+     * Compiles a fitted tree.
+     *
+     * @param root        root node
+     * @param payloadSize number of prediction values for each node
+     * @param reader      reader of tree nodes
+     * @param <N>         node type
+     * @return compiled tree or null if the tree contains predicates which cannot be compiled
+     */
+    public static <N> FlatTree compile(N root, int payloadSize, NodeReader<N> reader) {
+        List<N> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.addAll(reader.children(nodes.get(i)));
+        }
+        int len = nodes.size();
+        FlatTree tree = new FlatTree(len, payloadSize);
+        Map<String, Integer> features = new LinkedHashMap<>();
+
+        int next = 1;
+        for (int i = 0; i < len; i++) {
+            N node = nodes.get(i);
+            List<N> children = reader.children(node);
+            tree.firstChild[i] = next;
+            tree.childCount[i] = children.size();
+            next += children.size();
+
+            tree.weight[i] = reader.weight(node);
+            tree.label[i] = reader.label(node);
+            reader.payload(node, tree.payload, i * payloadSize);
+
+            if (i == 0) {
+                // root predicate is never tested
+                tree.op[i] = ALL;
+                tree.feature[i] = -1;
+                continue;
+            }
+            RowPredicate predicate = reader.predicate(node);
+            byte op = opCode(predicate.kind());
+            if (op < 0) {
+                return null;
+            }
+            tree.op[i] = op;
+            if (op == ALL) {
+                tree.feature[i] = -1;
+                continue;
+            }
+            String name = predicate.testName();
+            Integer feature = features.get(name);
+            if (feature == null) {
+                feature = features.size();
+                features.put(name, feature);
+            }
+            tree.feature[i] = feature;
+            if (op == NOM_EQUAL || op == NOM_NOT_EQUAL) {
+                tree.labels[i] = predicate.testLabel();
+                tree.hasNominal = true;
+            } else {
+                tree.threshold[i] = predicate.testValue();
+            }
+        }
+        tree.features = features.keySet().toArray(String[]::new);
+        return tree;
+    }
+
+    private static byte opCode(RowPredicate.Kind kind) {
+        switch (kind) {
+            case ALL:
+                return ALL;
+            case NUM_LESS_EQUAL:
+                return LESS_EQUAL;
+            case NUM_LESS:
+                return LESS;
+            case NUM_GREATER_EQUAL:
+                return GREATER_EQUAL;
+            case NUM_GREATER:
+                return GREATER;
+            case BIN_EQUAL:
+                return EQUAL;
+            case BIN_NOT_EQUAL:
+                return NOT_EQUAL;
+            case NOM_EQUAL:
+                return NOM_EQUAL;
+            case NOM_NOT_EQUAL:
+                return NOM_NOT_EQUAL;
+            default:
+                return -1;
+        }
+    }
+
+    private final int payloadSize;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final byte[] op;
+    private final int[] feature;
+    private final double[] threshold;
+    private final String[] labels;
+    private final double[] weight;
+    private final int[] label;
+    private final double[] payload;
+    private String[] features;
+    private boolean hasNominal = false;
+
+    private FlatTree(int len, int payloadSize) {
+        this.payloadSize = payloadSize;
+        this.firstChild = new int[len];
+        this.childCount = new int[len];
+        this.op = new byte[len];
+        this.feature = new int[len];
+        this.threshold = new double[len];
+        this.labels = new String[len];
+        this.weight = new double[len];
+        this.label = new int[len];
+        this.payload = new double[len * payloadSize];
+    }
+
+    /**
+     * @return number of nodes
+     */
+    public int size() {
+        return firstChild.length;
+    }
+
+    /**
+     * @return names of the variables tested by the tree
+     */
+    public String[] features() {
+        return features;
+    }
+
+    /**
+     * Checks if the tree can be evaluated over a snapshot. A snapshot can be used if it
+     * contains all tested variables and the variables with nominal tests are nominal.
+     */
+    public boolean accepts(ColumnSnapshot snapshot) {
+        return bind(snapshot) != null;
+    }
+
+    /**
+     * Predicts values of a regression tree for all rows from snapshot.
+     *
+     * @param snapshot column snapshot
+     * @param out      output array, with at least as many elements as snapshot rows
+     */
+    public void predictValues(ColumnSnapshot snapshot, double[] out) {
+        Arrays.fill(out, 0, snapshot.rowCount(), 0);
+        predictAdd(snapshot, 1.0, out);
+    }
+
+    /**
+     * Adds to output the values predicted by a regression tree multiplied with a factor.
+     *
+     * @param snapshot column snapshot
+     * @param factor   factor used to multiply predicted values
+     * @param out      output array, with at least as many elements as snapshot rows
+     */
+    public void predictAdd(ColumnSnapshot snapshot, double factor, double[] out) {
+        Binding b = checkedBind(snapshot);
+        int[] leaves = new int[BLOCK];
+        double[] weightOut = new double[1];
+        for (int start = 0; start < snapshot.rowCount(); start += BLOCK) {
+            int end = Math.min(snapshot.rowCount(), start + BLOCK);
+            route(b, start, end, leaves);
+            for (int row = start; row < end; row++) {
+                int leaf = leaves[row - start];
+                double value = leaf >= 0
+                        ? payload[leaf * payloadSize]
+                        : missingValue(b, ~leaf, row, weightOut);
+                out[row] += value * factor;
+            }
+        }
+    }
+
+    /**
+     * Predicts labels and densities of a classification tree for all rows from snapshot.
+     *
+     * @param snapshot  column snapshot
+     * @param labels    output array for label indexes, with at least as many elements as snapshot rows
+     * @param densities output array of densities stored by rows, each row having payload size elements
+     */
+    public void predictDensities(ColumnSnapshot snapshot, int[] labels, double[] densities) {
+        predictDensities(snapshot, 0, snapshot.rowCount(), labels, densities);
+    }
+
+    /**
+     * Predicts labels and densities of a classification tree for a range of rows from snapshot.
+     * Outputs are indexed relative to the first row of the range.
+     *
+     * @param snapshot  column snapshot
+     * @param from      first row, inclusive
+     * @param to        last row, exclusive
+     * @param labels    output array for label indexes, with at least {@code to - from} elements
+     * @param densities output array of densities stored by rows, each row having payload size elements
+     */
+    public void predictDensities(ColumnSnapshot snapshot, int from, int to, int[] labels, double[] densities) {
+        Binding b = checkedBind(snapshot);
+        int[] leaves = new int[BLOCK];
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(to, start + BLOCK);
+            route(b, start, end, leaves);
+            for (int row = start; row < end; row++) {
+                int leaf = leaves[row - start];
+                int pos = row - from;
+                if (leaf >= 0) {
+                    labels[pos] = label[leaf];
+                    System.arraycopy(payload, leaf * payloadSize, densities, pos * payloadSize, payloadSize);
+                } else {
+                    labels[pos] = missingDensity(b, ~leaf, row, densities, pos * payloadSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * Routes a block of rows from root. Rows advance one level at a time, all rows
+     * of the block being processed at each level. For each row the result is the leaf
+     * node, or the complement of the interior node where the row stopped since no
+     * child accepted it.
+     */
+    private void route(Binding b, int start, int end, int[] out) {
+        int len = end - start;
+        int[] active = new int[len];
+        for (int i = 0; i < len; i++) {
+            out[i] = 0;
+            active[i] = i;
+        }
+        int activeCount = len;
+        while (activeCount > 0) {
+            int next = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int i = active[a];
+                int node = out[i];
+                if (childCount[node] == 0) {
+                    continue;
+                }
+                int child = acceptingChild(b, node, start + i);
+                if (child < 0) {
+                    out[i] = ~node;
+                    continue;
+                }
+                out[i] = child;
+                active[next++] = i;
+            }
+            activeCount = next;
+        }
+    }
+
+    /**
+     * Routes a single row starting from a given node.
+     */
+    private int route(Binding b, int node, int row) {
+        while (childCount[node] > 0) {
+            int child = acceptingChild(b, node, row);
+            if (child < 0) {
+                return ~node;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private int acceptingChild(Binding b, int node, int row) {
+        int first = firstChild[node];
+        int last = first + childCount[node];
+        for (int child = first; child < last; child++) {
+            if (test(b, child, row)) {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    private boolean test(Binding b, int node, int row) {
+        if (op[node] == ALL) {
+            return true;
+        }
+        double x = b.columns[feature[node]][row];
+        double t = b.thresholds[node];
+        switch (op[node]) {
+            case LESS_EQUAL:
+                return x <= t;
+            case LESS:
+                return x < t;
+            case GREATER_EQUAL:
+                return x >= t;
+            case GREATER:
+                return x > t;
+            case EQUAL:
+            case NOM_EQUAL:
+                return x == t;
+            case NOT_EQUAL:
+            case NOM_NOT_EQUAL:
+                return !Double.isNaN(x) && x != t;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Regression prediction for a row which stopped at an interior node: weighted mean
+     * of children predictions, and mean of children weights as weight.
+     */
+    private double missingValue(Binding b, int node, int row, double[] weightOut) {
+        int first = firstChild[node];
+        int count = childCount[node];
+        double[] values = new double[count];
+        double[] weights = new double[count];
+        for (int i = 0; i < count; i++) {
+            int leaf = route(b, first + i, row);
+            if (leaf >= 0) {
+                values[i] = payload[leaf * payloadSize];
+                weights[i] = weight[leaf];
+            } else {
+                values[i] = missingValue(b, ~leaf, row, weightOut);
+                weights[i] = weightOut[0];
+            }
+        }
+        VarDouble weightVar = VarDouble.wrap(weights);
+        weightOut[0] = Mean.of(weightVar).value();
+        return WeightedMean.of(VarDouble.wrap(values), weightVar).value();
+    }
+
+    /**
+     * Classification prediction for a row which stopped at an interior node: children
+     * densities are added using children weights and normalized with the sum of weights.
+     * Ties of the best label are broken at random.
+     */
+    private int missingDensity(Binding b, int node, int row, double[] out, int offset) {
+        int first = firstChild[node];
+        int count = childCount[node];
+        double[] dv = new double[payloadSize];
+        double[] childDensity = new double[payloadSize];
+        double w = 0;
+        for (int i = 0; i < count; i++) {
+            int child = first + i;
+            int leaf = route(b, child, row);
+            if (leaf >= 0) {
+                System.arraycopy(payload, leaf * payloadSize, childDensity, 0, payloadSize);
+            } else {
+                missingDensity(b, ~leaf, row, childDensity, 0);
+            }
+            double wc = weight[child];
+            for (int j = 0; j < payloadSize; j++) {
+                dv[j] += childDensity[j] * wc;
+            }
+            w += wc;
+        }
+        for (int j = 0; j < payloadSize; j++) {
+            dv[j] /= w;
+        }
+        System.arraycopy(dv, 0, out, offset, payloadSize);
+
+        double n = 1;
+        int best = 0;
+        double bestValue = dv[0];
+        for (int j = 1; j < payloadSize; j++) {
+            if (dv[j] > bestValue) {
+                bestValue = dv[j];
+                best = j;
+                n = 1;
+                continue;
+            }
+            if (dv[j] == bestValue) {
+                if (RandomSource.nextDouble() > n / (n + 1)) {
+                    best = j;
+                }
+                n++;
+            }
+        }
+        return best;
+    }
+
+    private Binding checkedBind(ColumnSnapshot snapshot) {
+        Binding binding = bind(snapshot);
+        if (binding == null) {
+            throw new IllegalArgumentException("Snapshot does not contain all variables required by the tree.");
+        }
+        return binding;
+    }
+
+    private Binding bind(ColumnSnapshot snapshot) {
+        double[][] columns = new double[features.length][];
+        for (int i = 0; i < features.length; i++) {
+            int col = snapshot.columnIndex(features[i]);
+            if (col < 0) {
+                return null;
+            }
+            columns[i] = snapshot.column(col);
+        }
+        double[] thresholds = threshold;
+        if (hasNominal) {
+            thresholds = Arrays.copyOf(threshold, threshold.length);
+            for (int i = 0; i < op.length; i++) {
+                if (op[i] != NOM_EQUAL && op[i] != NOM_NOT_EQUAL) {
+                    continue;
+                }
+                int col = snapshot.columnIndex(features[feature[i]]);
+                if (!snapshot.isNominal(col)) {
+                    return null;
+                }
+                thresholds[i] = snapshot.levelCode(col, labels[i]);
+            }
+        }
+        return new Binding(columns, thresholds);
+    }
+
+    /**
+     * Columns and thresholds resolved for a given snapshot.
+     */
+    private static final class Binding {
+        private final double[][] columns;
+        private final double[] thresholds;
+
+        Binding(double[][] columns, double[] thresholds) {
+            this.columns = columns;
+            this.thresholds = thresholds;
+        }
+    }
+}
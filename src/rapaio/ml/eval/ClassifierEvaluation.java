@@ -2,6 +2,8 @@ package rapaio.ml.eval;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import rapaio.core.RandomSource;
+import rapaio.core.RandomStream;
 import rapaio.data.Frame;
 import rapaio.data.Var;
 import rapaio.datasets.Datasets;
@@ -13,16 +15,11 @@ import rapaio.ml.eval.metric.ClassifierMetric;
 import rapaio.ml.eval.split.Split;
 import rapaio.ml.eval.split.SplitStrategy;
 import rapaio.ml.eval.split.StratifiedKFold;
-import rapaio.sys.WS;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
 
 /**
  * Classifier evaluation tool.
@@ -62,6 +59,8 @@ public class ClassifierEvaluation {
     private String targetName;
     private SplitStrategy splitStrategy;
     private int threads = 1;
+    private boolean trainScores = true;
+    private EvaluationScheduler scheduler = EvaluationScheduler.common();
     private final List<ClassifierMetric> metrics = new ArrayList<>();
 
     public ClassifierEvaluation withData(Frame data) {
@@ -94,51 +93,75 @@ public class ClassifierEvaluation {
         return this;
     }
 
+    public ClassifierEvaluation withTrainScores(boolean trainScores) {
+        this.trainScores = trainScores;
+        return this;
+    }
+
+    public ClassifierEvaluation withScheduler(EvaluationScheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
     public ClassifierEvaluationResult run() {
-        ExecutorService executorService = Executors.newFixedThreadPool(threads);
-        List<Future<Run>> futures = new LinkedList<>();
-
-        // create features for parallel execution
-
-        List<Split> splits = splitStrategy.generateSplits(data, weights);
-
-        for (Split split : splits) {
-            Future<Run> futureRun = executorService.submit(() -> {
-                var m = model.newInstance();
-                m.fit(split.getTrainDf(), targetName);
-                var trainResult = m.predict(split.getTrainDf(), true, true);
-                var testResult = m.predict(split.getTestDf(), true, true);
-                return new Run(split, trainResult, testResult);
-            });
-            futures.add(futureRun);
-        }
+        return runGrid(scheduler, List.of(this), threads, result -> false).get(0);
+    }
+
+    /**
+     * Runs a grid of evaluations as a single job, with a bounded number of folds
+     * evaluated concurrently. This is typically used to evaluate multiple
+     * configurations of a model over the same data.
+     * <p>
+     * After each fold, the abort rule is called with the partial result of the
+     * evaluation. If the rule returns true, the remaining folds of that evaluation
+     * are skipped and its result is marked as aborted.
+     *
+     * @param evaluations    evaluations to run
+     * @param maxConcurrency maximum number of folds evaluated concurrently, a value less than 1 means all cores
+     * @param abortRule      rule which decides if an evaluation is hopeless given its partial result
+     * @return evaluation results in the same order as the evaluations
+     */
+    public static List<ClassifierEvaluationResult> runGrid(List<ClassifierEvaluation> evaluations, int maxConcurrency,
+                                                           Predicate<ClassifierEvaluationResult> abortRule) {
+        return runGrid(EvaluationScheduler.common(), evaluations, maxConcurrency, abortRule);
+    }
 
-        ClassifierEvaluationResult result = new ClassifierEvaluationResult(this);
-
-        // collect results
-        while (!futures.isEmpty()) {
-            Iterator<Future<Run>> iterator = futures.iterator();
-            while (iterator.hasNext()) {
-                Future<Run> future = iterator.next();
-                if (future.isDone()) {
-                    try {
-                        var run = future.get();
-                        result.appendRun(run.getSplit(), run.getTrainResult(), run.getTestResult());
-                        iterator.remove();
-                    } catch (InterruptedException | ExecutionException e) {
-                        // do nothing
-                        WS.println("ERROR:" + e.getMessage());
-                        e.printStackTrace();
-                        futures.clear();
-                        break;
-                    }
-                }
+    private static List<ClassifierEvaluationResult> runGrid(EvaluationScheduler scheduler, List<ClassifierEvaluation> evaluations,
+                                                            int maxConcurrency, Predicate<ClassifierEvaluationResult> abortRule) {
+        List<ClassifierEvaluationResult> results = new ArrayList<>();
+        List<List<Callable<Run>>> groups = new ArrayList<>();
+        for (ClassifierEvaluation eval : evaluations) {
+            results.add(new ClassifierEvaluationResult(eval));
+            List<Callable<Run>> tasks = new ArrayList<>();
+            List<Split> splits = eval.splitStrategy.generateSplits(eval.data, eval.weights);
+            // each fold uses its own random stream, thus results do not depend on scheduling
+            RandomStream stream = RandomSource.newStream();
+            for (int i = 0; i < splits.size(); i++) {
+                Split split = splits.get(i);
+                RandomStream foldStream = stream.split(i);
+                tasks.add(() -> RandomSource.withStream(foldStream, () -> eval.runSplit(split)));
             }
+            groups.add(tasks);
         }
+        boolean[] aborted = scheduler.run(groups, maxConcurrency, (group, run) -> {
+            var result = results.get(group);
+            result.appendRun(run.getSplit(), run.getTrainResult(), run.getTestResult());
+            return !abortRule.test(result);
+        });
+        for (int i = 0; i < aborted.length; i++) {
+            if (aborted[i]) {
+                results.get(i).abort();
+            }
+        }
+        return results;
+    }
 
-        // shut down executor
-        executorService.shutdownNow();
-        return result;
+    private Run runSplit(Split split) {
+        var m = model.newInstance();
+        m.fit(split.getTrainDf(), targetName);
+        var trainResult = trainScores ? m.predict(split.getTrainDf(), true, true) : null;
+        var testResult = m.predict(split.getTestDf(), true, true);
+        return new Run(split, trainResult, testResult);
     }
 
     @AllArgsConstructor
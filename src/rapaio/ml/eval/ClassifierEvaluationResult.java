@@ -39,6 +39,9 @@ public class ClassifierEvaluationResult implements Printable {
     @Getter
     private Frame testScores;
 
+    @Getter
+    private boolean aborted = false;
+
     private final ReentrantLock scoresLock = new ReentrantLock();
 
     public ClassifierEvaluationResult(ClassifierEvaluation eval) {
@@ -67,21 +70,23 @@ public class ClassifierEvaluationResult implements Printable {
 
         scoresLock.lock();
         try {
-            int lastRow = trainScores.rowCount();
-
-            trainScores.addRows(1);
-            trainScores.setLabel(lastRow, FIELD_DATASET, "train");
-            trainScores.setInt(lastRow, FIELD_ROUND, split.getRound());
-            trainScores.setInt(lastRow, FIELD_FOLD, split.getFold());
-            for (ClassifierMetric metric : eval.getMetrics()) {
-                trainScores.setDouble(lastRow, metric.getName(),
-                        metric.compute(split.getTrainDf().rvar(eval.getTargetName()), trainResult).getScore().getValue());
+            if (trainResult != null) {
+                int lastRow = trainScores.rowCount();
+                trainScores.addRows(1);
+                trainScores.setLabel(lastRow, FIELD_DATASET, "train");
+                trainScores.setInt(lastRow, FIELD_ROUND, split.getRound());
+                trainScores.setInt(lastRow, FIELD_FOLD, split.getFold());
+                for (ClassifierMetric metric : eval.getMetrics()) {
+                    trainScores.setDouble(lastRow, metric.getName(),
+                            metric.compute(split.getTrainDf().rvar(eval.getTargetName()), trainResult).getScore().getValue());
+                }
+                trainScores = trainScores.fapply(FRefSort.by(
+                        trainScores.rvar(FIELD_ROUND).refComparator(),
+                        trainScores.rvar(FIELD_FOLD).refComparator()
+                )).copy();
             }
-            trainScores = trainScores.fapply(FRefSort.by(
-                    trainScores.rvar(FIELD_ROUND).refComparator(),
-                    trainScores.rvar(FIELD_FOLD).refComparator()
-            )).copy();
 
+            int lastRow = testScores.rowCount();
             testScores.addRows(1);
             testScores.setLabel(lastRow, FIELD_DATASET, "test");
             testScores.setInt(lastRow, FIELD_ROUND, split.getRound());
@@ -100,6 +105,10 @@ public class ClassifierEvaluationResult implements Printable {
         }
     }
 
+    void abort() {
+        aborted = true;
+    }
+
     private String toContentName(Printer printer, POption<?>... options) {
         StringBuilder sb = new StringBuilder();
         sb.append("Model:\n");
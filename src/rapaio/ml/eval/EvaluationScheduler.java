@@ -0,0 +1,239 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.eval;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Scheduler which runs evaluation tasks on a {@link ForkJoinPool}.
+ * <p>
+ * Tasks are organized in groups, usually one group for each evaluated model
+ * configuration and one task for each fold. All the tasks of all groups are
+ * executed as a single job, with a bounded number of tasks in flight. Results
+ * are collected through a completion service as soon as they are available.
+ * After each result the handler decides if the remaining tasks of the group are
+ * still worth running, which allows early abort of hopeless configurations.
+ * <p>
+ * The default scheduler uses the common fork join pool. Models which use
+ * parallel streams internally share the same pool, thus nested parallelism
+ * does not oversubscribe the cores.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class EvaluationScheduler {
+
+    private static final EvaluationScheduler COMMON = new EvaluationScheduler(ForkJoinPool.commonPool());
+
+    /**
+     * @return scheduler which uses the common fork join pool
+     */
+    public static EvaluationScheduler common() {
+        return COMMON;
+    }
+
+    /**
+     * Builds a scheduler which runs tasks on the given pool.
+     *
+     * @param pool fork join pool used to execute tasks
+     * @return new scheduler
+     */
+    public static EvaluationScheduler of(ForkJoinPool pool) {
+        return new EvaluationScheduler(pool);
+    }
+
+    /**
+     * Handles the result of a task.
+     *
+     * @param <T> type of the task result
+     */
+    @FunctionalInterface
+    public interface ResultHandler<T> {
+
+        /**
+         * Consumes the result of a task from a group.
+         *
+         * @param group  index of the group
+         * @param result result of the task
+         * @return true if the remaining tasks of the group should run, false to abort the group
+         */
+        boolean accept(int group, T result);
+    }
+
+    private final ForkJoinPool pool;
+
+    private EvaluationScheduler(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Runs all tasks from all groups and passes the results to the handler.
+     * Tasks are submitted in group order, and no more than {@code maxConcurrency}
+     * tasks are running at any time. The handler is called from the calling thread,
+     * thus it does not need synchronization.
+     * <p>
+     * When the handler aborts a group, the tasks of the group which were not
+     * started are skipped. Running tasks are not interrupted, they finish normally
+     * and their results are discarded. A task counts as running until it finishes,
+     * thus aborted groups never allow more than {@code maxConcurrency} running tasks.
+     *
+     * @param groups         groups of tasks
+     * @param maxConcurrency maximum number of running tasks, a value less than 1 means the pool parallelism
+     * @param handler        consumer of the results
+     * @param <T>            type of the task result
+     * @return array with a flag for each group which tells if the group was aborted
+     */
+    public <T> boolean[] run(List<? extends List<? extends Callable<T>>> groups, int maxConcurrency, ResultHandler<T> handler) {
+        int limit = maxConcurrency > 0 ? maxConcurrency : Math.max(1, pool.getParallelism());
+        CompletionService<GroupResult<T>> completion = new ExecutorCompletionService<>(pool);
+
+        boolean[] aborted = new boolean[groups.size()];
+        // abort flags read by tasks before they start, to skip tasks of aborted groups
+        AtomicIntegerArray skip = new AtomicIntegerArray(groups.size());
+
+        int group = 0;
+        int next = 0;
+        int inFlight = 0;
+        try {
+            while (true) {
+                // submit tasks until the concurrency limit is reached
+                while (inFlight < limit && group < groups.size()) {
+                    if (aborted[group] || next >= groups.get(group).size()) {
+                        group++;
+                        next = 0;
+                        continue;
+                    }
+                    final int g = group;
+                    final Callable<T> task = groups.get(group).get(next++);
+                    completion.submit(() -> skip.get(g) != 0 ? new GroupResult<>(g) : new GroupResult<>(g, task.call()));
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+
+                // futures are never cancelled, thus a completed future means a finished task
+                GroupResult<T> result = get(take(completion));
+                inFlight--;
+                if (result.skipped || aborted[result.group]) {
+                    continue;
+                }
+                if (!handler.accept(result.group, result.value)) {
+                    aborted[result.group] = true;
+                    skip.set(result.group, 1);
+                }
+            }
+        } finally {
+            // when leaving with an error, the tasks which did not start are skipped
+            for (int i = 0; i < groups.size(); i++) {
+                skip.set(i, 1);
+            }
+        }
+        return aborted;
+    }
+
+    private static <T> Future<T> take(CompletionService<T> completion) {
+        try {
+            // the calling thread can be itself a worker of the pool, in which case
+            // the pool is allowed to compensate with another worker while blocking
+            CompletionTaker<T> taker = new CompletionTaker<>(completion);
+            ForkJoinPool.managedBlock(taker);
+            return taker.future;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evaluation was interrupted.", e);
+        }
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Evaluation was interrupted.", e);
+        } catch (ExecutionException | CancellationException e) {
+            throw new IllegalStateException("Evaluation task failed: " + e.getMessage(), e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    private static final class GroupResult<T> {
+
+        private final int group;
+        private final T value;
+        private final boolean skipped;
+
+        private GroupResult(int group, T value) {
+            this.group = group;
+            this.value = value;
+            this.skipped = false;
+        }
+
+        private GroupResult(int group) {
+            this.group = group;
+            this.value = null;
+            this.skipped = true;
+        }
+    }
+
+    private static final class CompletionTaker<T> implements ForkJoinPool.ManagedBlocker {
+
+        private final CompletionService<T> completion;
+        private Future<T> future;
+
+        private CompletionTaker(CompletionService<T> completion) {
+            this.completion = completion;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (future == null) {
+                future = completion.take();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (future == null) {
+                future = completion.poll();
+            }
+            return future != null;
+        }
+    }
+}
@@ -32,6 +32,8 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Singular;
+import rapaio.core.RandomSource;
+import rapaio.core.RandomStream;
 import rapaio.data.Frame;
 import rapaio.data.Var;
 import rapaio.ml.eval.metric.RegressionMetric;
@@ -40,13 +42,10 @@ import rapaio.ml.eval.split.SplitStrategy;
 import rapaio.ml.regression.RegressionModel;
 import rapaio.ml.regression.RegressionResult;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 8/6/19.
@@ -75,48 +74,71 @@ public class RegressionEvaluation {
     @Builder.Default
     private final boolean debug = false;
 
+    @Builder.Default
+    private final boolean trainScores = true;
+
+    @Builder.Default
+    private final EvaluationScheduler scheduler = EvaluationScheduler.common();
+
     public RegressionEvaluationResult run() {
-        ExecutorService executorService = Executors.newFixedThreadPool(threads);
-        List<Future<RegressionEvaluation.Run>> futures = new LinkedList<>();
-
-        // create features for parallel execution
-
-        List<Split> splits = splitStrategy.generateSplits(df, weights);
-
-        for (Split split : splits) {
-            Future<RegressionEvaluation.Run> futureRun = executorService.submit(() -> {
-                var m = model.newInstance();
-                m.fit(split.getTrainDf(), targetName);
-                var trainResult = m.predict(split.getTrainDf());
-                var testResult = m.predict(split.getTestDf());
-                return new RegressionEvaluation.Run(split, trainResult, testResult);
-            });
-            futures.add(futureRun);
-        }
+        return runGrid(scheduler, List.of(this), threads, result -> false).get(0);
+    }
 
-        RegressionEvaluationResult result = new RegressionEvaluationResult(this);
-
-        // collect results
-
-        while (!futures.isEmpty()) {
-            Iterator<Future<RegressionEvaluation.Run>> iterator = futures.iterator();
-            while (iterator.hasNext()) {
-                Future<RegressionEvaluation.Run> future = iterator.next();
-                if (future.isDone()) {
-                    try {
-                        var run = future.get();
-                        result.appendRun(run.getSplit(), run.getTrainResult(), run.getTestResult());
-                        iterator.remove();
-                    } catch (InterruptedException | ExecutionException e) {
-                        // do nothing
-                    }
-                }
+    /**
+     * Runs a grid of evaluations as a single job, with a bounded number of folds
+     * evaluated concurrently. This is typically used to evaluate multiple
+     * configurations of a model over the same data.
+     * <p>
+     * After each fold, the abort rule is called with the partial result of the
+     * evaluation. If the rule returns true, the remaining folds of that evaluation
+     * are skipped and its result is marked as aborted.
+     *
+     * @param evaluations    evaluations to run
+     * @param maxConcurrency maximum number of folds evaluated concurrently, a value less than 1 means all cores
+     * @param abortRule      rule which decides if an evaluation is hopeless given its partial result
+     * @return evaluation results in the same order as the evaluations
+     */
+    public static List<RegressionEvaluationResult> runGrid(List<RegressionEvaluation> evaluations, int maxConcurrency,
+                                                           Predicate<RegressionEvaluationResult> abortRule) {
+        return runGrid(EvaluationScheduler.common(), evaluations, maxConcurrency, abortRule);
+    }
+
+    private static List<RegressionEvaluationResult> runGrid(EvaluationScheduler scheduler, List<RegressionEvaluation> evaluations,
+                                                            int maxConcurrency, Predicate<RegressionEvaluationResult> abortRule) {
+        List<RegressionEvaluationResult> results = new ArrayList<>();
+        List<List<Callable<Run>>> groups = new ArrayList<>();
+        for (RegressionEvaluation eval : evaluations) {
+            results.add(new RegressionEvaluationResult(eval));
+            List<Callable<Run>> tasks = new ArrayList<>();
+            List<Split> splits = eval.splitStrategy.generateSplits(eval.df, eval.weights);
+            // each fold uses its own random stream, thus results do not depend on scheduling
+            RandomStream stream = RandomSource.newStream();
+            for (int i = 0; i < splits.size(); i++) {
+                Split split = splits.get(i);
+                RandomStream foldStream = stream.split(i);
+                tasks.add(() -> RandomSource.withStream(foldStream, () -> eval.runSplit(split)));
             }
+            groups.add(tasks);
         }
+        boolean[] aborted = scheduler.run(groups, maxConcurrency, (group, run) -> {
+            var result = results.get(group);
+            result.appendRun(run.getSplit(), run.getTrainResult(), run.getTestResult());
+            return !abortRule.test(result);
+        });
+        for (int i = 0; i < aborted.length; i++) {
+            if (aborted[i]) {
+                results.get(i).abort();
+            }
+        }
+        return results;
+    }
 
-        // shut down executor
-        executorService.shutdownNow();
-        return result;
+    private Run runSplit(Split split) {
+        var m = model.newInstance();
+        m.fit(split.getTrainDf(), targetName);
+        var trainResult = trainScores ? m.predict(split.getTrainDf()) : null;
+        var testResult = m.predict(split.getTestDf());
+        return new Run(split, trainResult, testResult);
     }
 
     @AllArgsConstructor
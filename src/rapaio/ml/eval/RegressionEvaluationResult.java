@@ -68,6 +68,9 @@ public class RegressionEvaluationResult implements Printable {
     @Getter
     private Frame testScores;
 
+    @Getter
+    private boolean aborted = false;
+
     private final ReentrantLock scoresLock = new ReentrantLock();
 
     public RegressionEvaluationResult(RegressionEvaluation eval) {
@@ -95,26 +98,28 @@ public class RegressionEvaluationResult implements Printable {
 
         scoresLock.lock();
         try {
-            int lastRow = trainScores.rowCount();
-
-            trainScores.addRows(1);
-            trainScores.setInt(lastRow, FIELD_ROUND, split.getRound());
-            trainScores.setInt(lastRow, FIELD_FOLD, split.getFold());
-            for (RegressionMetric metric : eval.getMetrics()) {
-                trainScores.setDouble(lastRow, metric.getName(),
-                        metric.compute(split.getTrainDf().rvar(eval.getTargetName()), trainResult).getValue());
+            if (trainResult != null) {
+                int lastRow = trainScores.rowCount();
+                trainScores.addRows(1);
+                trainScores.setInt(lastRow, FIELD_ROUND, split.getRound());
+                trainScores.setInt(lastRow, FIELD_FOLD, split.getFold());
+                for (RegressionMetric metric : eval.getMetrics()) {
+                    trainScores.setDouble(lastRow, metric.getName(),
+                            metric.compute(split.getTrainDf().rvar(eval.getTargetName()), trainResult).getValue());
+                }
+                trainScores = trainScores.fapply(FRefSort.by(
+                        trainScores.rvar(FIELD_ROUND).refComparator(),
+                        trainScores.rvar(FIELD_FOLD).refComparator()
+                )).copy();
             }
-            trainScores = trainScores.fapply(FRefSort.by(
-                    trainScores.rvar(FIELD_ROUND).refComparator(),
-                    trainScores.rvar(FIELD_FOLD).refComparator()
-            )).copy();
 
+            int lastRow = testScores.rowCount();
             testScores.addRows(1);
             testScores.setInt(lastRow, FIELD_ROUND, split.getRound());
             testScores.setInt(lastRow, FIELD_FOLD, split.getFold());
             for (RegressionMetric metric : eval.getMetrics()) {
                 testScores.setDouble(lastRow, metric.getName(),
-                        metric.compute(split.getTrainDf().rvar(eval.getTargetName()), trainResult).getValue());
+                        metric.compute(split.getTestDf().rvar(eval.getTargetName()), testResult).getValue());
             }
 
             testScores = testScores.fapply(FRefSort.by(
@@ -126,6 +131,10 @@ public class RegressionEvaluationResult implements Printable {
         }
     }
 
+    void abort() {
+        aborted = true;
+    }
+
     private String toContentName(Printer printer, POption<?>... options) {
         StringBuilder sb = new StringBuilder();
         sb.append("Model:\n");
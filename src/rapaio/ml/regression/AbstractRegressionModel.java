@@ -28,6 +28,7 @@
 package rapaio.ml.regression;
 
 import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
 import rapaio.data.VRange;
 import rapaio.data.VType;
 import rapaio.data.Var;
@@ -163,8 +164,76 @@ public abstract class AbstractRegressionModel<M extends AbstractRegressionModel<
         return FitSetup.valueOf(df, weights);
     }
 
+    /**
+     * Prepares learning phase when input values are given as a matrix instead of frame
+     * variables, for example as a sparse matrix. Input variables are considered of double type.
+     *
+     * @param inputNames names of input variables, one for each matrix column
+     * @param weights    weights of instances
+     * @param targets    target variables
+     * @return fit setup with a frame which contains only the target variables
+     */
+    protected FitSetup prepareFit(String[] inputNames, Var weights, Var... targets) {
+        Frame df = SolidFrame.byVars(targets);
+        this.targetNames = df.varNames();
+        this.targetTypes = Arrays.stream(targets).map(Var::type).toArray(VType[]::new);
+
+        this.inputNames = Arrays.copyOf(inputNames, inputNames.length);
+        this.inputTypes = new VType[inputNames.length];
+        Arrays.fill(this.inputTypes, VType.DOUBLE);
+
+        capabilities().checkAtLearnPhase(inputNames.length, df, weights, targetNames);
+        return FitSetup.valueOf(df, weights);
+    }
+
     protected abstract boolean coreFit(Frame df, Var weights);
 
+    @Override
+    public final M partialFit(Frame df, String... targetVarNames) {
+        VarDouble weights = VarDouble.fill(df.rowCount(), 1).name("weights");
+        return partialFit(df, weights, targetVarNames);
+    }
+
+    @Override
+    public final M partialFit(Frame df, Var weights, String... targetVarNames) {
+        if (!capabilities().getPartialFit()) {
+            throw new IllegalStateException("Model " + name() + " does not support partial fit.");
+        }
+        FitSetup setup = hasLearned ? preparePartialFit(df, weights, targetVarNames) : prepareFit(df, weights, targetVarNames);
+        hasLearned = corePartialFit(setup.df, setup.w);
+        return (M) this;
+    }
+
+    protected FitSetup preparePartialFit(Frame df, Var weights, String... targetVarNames) {
+        // target variables must be the same and all input variables must be available
+
+        List<String> targets = VRange.of(targetVarNames).parseVarNames(df);
+        if (!Arrays.equals(targetNames, targets.toArray(new String[0]))) {
+            throw new IllegalArgumentException("Target variables are different than the ones used for fitting.");
+        }
+        HashSet<String> varNames = new HashSet<>(Arrays.asList(df.varNames()));
+        for (String inputName : inputNames) {
+            if (!varNames.contains(inputName)) {
+                throw new IllegalArgumentException("Input variable: " + inputName + " is not contained in batch data frame.");
+            }
+        }
+
+        capabilities().checkAtLearnPhase(df, weights, targetNames);
+        return FitSetup.valueOf(df, weights);
+    }
+
+    /**
+     * Updates the model with a batch of instances. It is called only for models
+     * which advertise partial fit capability.
+     *
+     * @param df      batch of instances
+     * @param weights weights of instances
+     * @return true if the model is fitted
+     */
+    protected boolean corePartialFit(Frame df, Var weights) {
+        throw new IllegalStateException("Model " + name() + " does not support partial fit.");
+    }
+
     @Override
     public R predict(Frame df, boolean withResiduals) {
         PredSetup setup = preparePredict(df, withResiduals);
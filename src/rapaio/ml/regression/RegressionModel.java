@@ -176,6 +176,29 @@ public interface RegressionModel extends Printable, Serializable {
      */
     <M extends RegressionModel> M fit(Frame df, Var weights, String... targetVarNames);
 
+    /**
+     * Updates a regression model with a batch of instances, with row weights equal to 1.
+     * If the model is not fitted, the batch is used to initialize the model,
+     * otherwise learning continues from the current state of the model. This operation
+     * is available only if {@link Capabilities#getPartialFit()} is true.
+     *
+     * @param df         batch of instances
+     * @param targetVars target variables
+     */
+    <M extends RegressionModel> M partialFit(Frame df, String... targetVars);
+
+    /**
+     * Updates a regression model with a batch of weighted instances.
+     * If the model is not fitted, the batch is used to initialize the model,
+     * otherwise learning continues from the current state of the model. This operation
+     * is available only if {@link Capabilities#getPartialFit()} is true.
+     *
+     * @param df             batch of instances
+     * @param weights        instance weights
+     * @param targetVarNames target variables
+     */
+    <M extends RegressionModel> M partialFit(Frame df, Var weights, String... targetVarNames);
+
     /**
      * Predict results for given data set of instances
      * and also produce residuals and other derivatives.
@@ -30,6 +30,7 @@ package rapaio.ml.regression.boost;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import rapaio.core.SamplingTools;
 import rapaio.data.Frame;
 import rapaio.data.Mapping;
 import rapaio.data.VRange;
@@ -39,6 +40,7 @@ import rapaio.data.VarDouble;
 import rapaio.experiment.ml.regression.tree.GBTRtree;
 import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.ValueParam;
+import rapaio.ml.common.tree.ColumnSnapshot;
 import rapaio.ml.loss.L2Loss;
 import rapaio.ml.loss.Loss;
 import rapaio.ml.regression.AbstractRegressionModel;
@@ -46,6 +48,7 @@ import rapaio.ml.regression.RegressionModel;
 import rapaio.ml.regression.RegressionResult;
 import rapaio.ml.regression.simple.L2Regression;
 import rapaio.ml.regression.tree.RTree;
+import rapaio.ml.regression.tree.rtree.BinnedFrame;
 import rapaio.printer.Printer;
 import rapaio.printer.opt.POption;
 
@@ -94,12 +97,37 @@ public class GBTRegression extends AbstractRegressionModel<GBTRegression, Regres
             "Threshold to stop growing trees if gain is not met.",
             Double::isFinite);
 
+    public final ValueParam<Double, GBTRegression> colSample = new ValueParam<>(this, 1.0,
+            "colSample",
+            "Fraction of input variables sampled for each round",
+            x -> Double.isFinite(x) && x > 0 && x <= 1);
+
+    public final ValueParam<Integer, GBTRegression> patience = new ValueParam<>(this, 0,
+            "patience",
+            "Number of rounds without improvement on validation frame before stopping, 0 disables early stopping",
+            x -> x >= 0);
+
     @Getter
     private VarDouble fitValues;
 
     @Getter
     private List<GBTRtree<? extends RegressionModel, ? extends RegressionResult>> trees;
 
+    /**
+     * Validation score after each added tree, if a validation frame was used.
+     */
+    @Getter
+    private VarDouble validationScores;
+
+    /**
+     * Number of trees with the best validation score, which is also the number of trees kept
+     * when early stopping is enabled.
+     */
+    @Getter
+    private int bestRound;
+
+    private transient Frame validation;
+
     @Override
     public GBTRegression newInstance() {
         return new GBTRegression().copyParameterValues(this);
@@ -122,6 +150,19 @@ public class GBTRegression extends AbstractRegressionModel<GBTRegression, Regres
                 .build();
     }
 
+    /**
+     * Sets a validation frame used to score the model after each added tree. The frame is used
+     * only for the next fit. If patience is positive, fitting stops when the validation score
+     * does not improve for that many trees, and only the best trees are kept.
+     *
+     * @param validation validation frame, which contains inputs and target variables
+     * @return model instance
+     */
+    public GBTRegression withValidation(Frame validation) {
+        this.validation = validation;
+        return this;
+    }
+
     @Override
     protected boolean coreFit(Frame df, Var weights) {
 
@@ -129,10 +170,39 @@ public class GBTRegression extends AbstractRegressionModel<GBTRegression, Regres
 
         Var y = df.rvar(firstTargetName());
         Frame x = df.removeVars(VRange.of(firstTargetName()));
+        ColumnSnapshot snapshot = ColumnSnapshot.of(df, inputNames());
 
         initModel.get().fit(df, weights, firstTargetName());
         fitValues = initModel.get().predict(df, false).firstPrediction().copy();
 
+        // fitted values are kept in a primitive array, next values are computed in a second
+        // array and the two arrays are swapped when the tree is accepted
+        String fitName = fitValues.name();
+        double[] fit = Arrays.copyOf(fitValues.elements(), df.rowCount());
+        double[] next = new double[df.rowCount()];
+        fitValues = VarDouble.wrap(fit).name(fitName);
+
+        // bin inputs once if trees use histogram search
+        BinnedFrame binned = null;
+        if (model.get() instanceof RTree && ((RTree) model.get()).bins.get() > 0) {
+            binned = ((RTree) model.get()).binInputs(x);
+        }
+
+        // validation values are updated with each accepted tree
+        Frame vdf = validation;
+        ColumnSnapshot vSnapshot = null;
+        Var vy = null;
+        double[] fv = null;
+        validationScores = VarDouble.empty().name("validation");
+        bestRound = 0;
+        double bestScore = Double.POSITIVE_INFINITY;
+        if (vdf != null) {
+            vSnapshot = ColumnSnapshot.of(vdf, inputNames());
+            vy = vdf.rvar(firstTargetName());
+            VarDouble vInit = initModel.get().predict(vdf, false).firstPrediction();
+            fv = Arrays.copyOf(vInit.elements(), vdf.rowCount());
+        }
+
         for (int i = 1; i <= runs.get(); i++) {
 
             Var gradient = loss.get().gradient(y, fitValues).name("target");
@@ -144,6 +214,12 @@ public class GBTRegression extends AbstractRegressionModel<GBTRegression, Regres
 
             Mapping sampleRows = rowSampler.get().nextSample(xm, weights).getMapping();
             Frame xmLearn = xm.mapRows(sampleRows);
+            if (colSample.get() < 1) {
+                xmLearn = xmLearn.mapVars(sampleColumns());
+            }
+            if (binned != null) {
+                ((RTree) tree).withBinnedInputs(binned, sampleRows);
+            }
 
             // build regions
 
@@ -154,8 +230,9 @@ public class GBTRegression extends AbstractRegressionModel<GBTRegression, Regres
             tree.boostUpdate(xmLearn, y.mapRows(sampleRows), fitValues.mapRows(sampleRows), loss.get());
 
             // add next prediction to the predict values
-            var pred = tree.predict(df, false).firstPrediction();
-            VarDouble nextFit = fitValues.copy().op().plus(pred.op().mult(shrinkage.get()));
+            System.arraycopy(fit, 0, next, 0, fit.length);
+            predictAdd(tree, df, snapshot, next);
+            VarDouble nextFit = VarDouble.wrap(next).name(fitName);
 
             double initScore = loss.get().errorScore(y, fitValues);
             double nextScore = loss.get().errorScore(y, nextFit);
@@ -165,24 +242,88 @@ public class GBTRegression extends AbstractRegressionModel<GBTRegression, Regres
             }
 
             if (initScore > nextScore) {
+                double[] tmp = fit;
+                fit = next;
+                next = tmp;
                 fitValues = nextFit;
                 // add tree in the predictors list
                 trees.add(tree);
+
+                if (vdf != null) {
+                    predictAdd(tree, vdf, vSnapshot, fv);
+                    double score = loss.get().errorScore(vy, VarDouble.wrap(fv));
+                    validationScores.addDouble(score);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestRound = trees.size();
+                    } else if (patience.get() > 0 && trees.size() - bestRound >= patience.get()) {
+                        break;
+                    }
+                }
             }
             runningHook.get().accept(this, i);
         }
+        validation = null;
+        if (vdf != null && patience.get() > 0 && bestRound < trees.size()) {
+            trees = new ArrayList<>(trees.subList(0, bestRound));
+            fitValues = corePredict(df, false, bestRound).firstPrediction();
+        }
         return true;
     }
 
+    private List<String> sampleColumns() {
+        int count = Math.max(1, (int) Math.round(colSample.get() * inputNames().length));
+        int[] indexes = SamplingTools.sampleWOR(inputNames().length, count);
+        Arrays.sort(indexes);
+        List<String> names = new ArrayList<>();
+        for (int index : indexes) {
+            names.add(inputName(index));
+        }
+        names.add("target");
+        return names;
+    }
+
+    private void predictAdd(GBTRtree<? extends RegressionModel, ? extends RegressionResult> tree,
+                            Frame df, ColumnSnapshot snapshot, double[] values) {
+        if (tree instanceof RTree) {
+            ((RTree) tree).predictAdd(df, snapshot, shrinkage.get(), values);
+            return;
+        }
+        var pred = tree.predict(df, false).firstPrediction();
+        for (int i = 0; i < df.rowCount(); i++) {
+            values[i] += pred.getDouble(i) * shrinkage.get();
+        }
+    }
+
+    /**
+     * Predicts using only the first trees.
+     *
+     * @param df            frame to predict
+     * @param withResiduals if residuals are computed
+     * @param rounds        number of trees used for prediction
+     * @return regression result
+     */
+    public RegressionResult predict(Frame df, boolean withResiduals, int rounds) {
+        PredSetup setup = preparePredict(df, withResiduals);
+        return corePredict(setup.df, setup.withResiduals, rounds);
+    }
+
     @Override
     protected RegressionResult corePredict(final Frame df, final boolean withResiduals) {
+        return corePredict(df, withResiduals, trees.size());
+    }
+
+    private RegressionResult corePredict(final Frame df, final boolean withResiduals, int rounds) {
         RegressionResult result = RegressionResult.build(this, df, withResiduals);
         var prediction = result.firstPrediction();
 
         prediction.op().fill(0);
         prediction.op().plus(initModel.get().predict(df, false).firstPrediction());
-        for (var tree : trees) {
-            prediction.op().plus(tree.predict(df, false).firstPrediction().op().mult(shrinkage.get()));
+        ColumnSnapshot snapshot = ColumnSnapshot.of(df, inputNames());
+        double[] values = prediction.elements();
+        int len = Math.min(rounds, trees.size());
+        for (int i = 0; i < len; i++) {
+            predictAdd(trees.get(i), df, snapshot, values);
         }
         result.buildComplete();
         return result;
@@ -28,6 +28,8 @@
 package rapaio.ml.regression.ensemble;
 
 import lombok.AllArgsConstructor;
+import rapaio.core.RandomSource;
+import rapaio.core.RandomStream;
 import rapaio.data.Frame;
 import rapaio.data.VType;
 import rapaio.data.Var;
@@ -37,6 +39,7 @@ import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.Param;
 import rapaio.ml.common.ValueParam;
 import rapaio.ml.common.VarSelector;
+import rapaio.ml.common.tree.ColumnSnapshot;
 import rapaio.ml.regression.AbstractRegressionModel;
 import rapaio.ml.regression.RegressionModel;
 import rapaio.ml.regression.RegressionResult;
@@ -129,10 +132,11 @@ public class RForest extends AbstractRegressionModel<RForest, RegressionResult>
         int threads = poolSize.get() < 0 ? Runtime.getRuntime().availableProcessors() - 1 : poolSize.get();
         ExecutorService pool = Executors.newFixedThreadPool(threads);
         Queue<Future<RegressionModel>> futures = new LinkedList<>();
+        RandomStream stream = RandomSource.newStream();
         for (int i = 0; i < runs.get(); i++) {
             RowSampler.Sample sample = rowSampler.get().nextSample(df, weights);
             RegressionModel m = model.get().newInstance();
-            Future<RegressionModel> future = pool.submit(new FitTask(sample, m, targetNames));
+            Future<RegressionModel> future = pool.submit(new FitTask(sample, m, targetNames, stream.split(i)));
             futures.add(future);
         }
 
@@ -162,13 +166,17 @@ public class RForest extends AbstractRegressionModel<RForest, RegressionResult>
     @Override
     protected RegressionResult corePredict(Frame df, boolean withResiduals) {
         RegressionResult fit = RegressionResult.build(this, df, withResiduals);
-        List<VarDouble> results = regressions
+        ColumnSnapshot snapshot = ColumnSnapshot.of(df, inputNames());
+        List<double[]> results = regressions
                 .parallelStream()
-                .map(r -> r.predict(df, false).firstPrediction())
+                .map(r -> predictValues(r, df, snapshot))
                 .collect(Collectors.toList());
         fit.firstPrediction().op().fill(0);
-        for (VarDouble result : results) {
-            fit.firstPrediction().op().plus(result);
+        double[] values = fit.firstPrediction().elements();
+        for (double[] result : results) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] += result[i];
+            }
         }
         fit.firstPrediction().op().divide(regressions.size());
         if (withResiduals) {
@@ -177,6 +185,19 @@ public class RForest extends AbstractRegressionModel<RForest, RegressionResult>
         return fit;
     }
 
+    private static double[] predictValues(RegressionModel model, Frame df, ColumnSnapshot snapshot) {
+        double[] values = new double[df.rowCount()];
+        if (model instanceof RTree) {
+            ((RTree) model).predictAdd(df, snapshot, 1, values);
+        } else {
+            VarDouble fit = model.predict(df, false).firstPrediction();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = fit.getDouble(i);
+            }
+        }
+        return values;
+    }
+
     @AllArgsConstructor
     private static class FitTask implements Callable<RegressionModel>, Serializable {
 
@@ -185,10 +206,11 @@ public class RForest extends AbstractRegressionModel<RForest, RegressionResult>
         private final RowSampler.Sample sample;
         private final RegressionModel model;
         private final String[] targetNames;
+        private final RandomStream stream;
 
         @Override
         public RegressionModel call() {
-            return model.fit(sample.getDf(), sample.getWeights(), targetNames);
+            return RandomSource.withStream(stream, () -> model.fit(sample.getDf(), sample.getWeights(), targetNames));
         }
     }
 
@@ -30,13 +30,20 @@ package rapaio.ml.regression.linear;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
 import rapaio.data.Var;
+import rapaio.data.VarDouble;
 import rapaio.data.filter.FIntercept;
 import rapaio.math.linear.DM;
+import rapaio.math.linear.decomposition.CholeskyDecomposition;
 import rapaio.math.linear.decomposition.QRDecomposition;
 import rapaio.math.linear.dense.DMStripe;
+import rapaio.math.linear.sparse.DMSparse;
+import rapaio.ml.common.ValueParam;
 import rapaio.ml.regression.linear.impl.BaseLinearRegressionModel;
 
+import java.util.Objects;
+
 /**
  * User: Aurelian Tutuianu <padreati@yahoo.com>
  */
@@ -54,6 +61,17 @@ public class LinearRegressionModel extends BaseLinearRegressionModel<LinearRegre
 
     private static final long serialVersionUID = 8595413796946622895L;
 
+    /**
+     * If true the input values are stored in a sparse matrix and the coefficients are
+     * obtained from normal equations {@code X^T X beta = X^T Y}, which are computed
+     * visiting only the non zero input values. Otherwise the coefficients are obtained
+     * from the QR decomposition of the dense input matrix.
+     */
+    public final ValueParam<Boolean, LinearRegressionModel> sparse = new ValueParam<>(this, false,
+            "sparse",
+            "Stores input values in a sparse matrix and solves normal equations",
+            Objects::nonNull);
+
     @Override
     public LinearRegressionModel newInstance() {
         return new LinearRegressionModel().copyParameterValues(this);
@@ -76,9 +94,74 @@ public class LinearRegressionModel extends BaseLinearRegressionModel<LinearRegre
 
     @Override
     protected boolean coreFit(Frame df, Var weights) {
-        DM X = DMStripe.copy(df.mapVars(inputNames()));
         DM Y = rapaio.math.linear.dense.DMStripe.copy(df.mapVars(targetNames()));
+        if (sparse.get()) {
+            beta = solveNormalEquations(DMSparse.copy(df.mapVars(inputNames())), Y);
+            return true;
+        }
+        DM X = DMStripe.copy(df.mapVars(inputNames()));
         beta = QRDecomposition.from(X).solve(Y);
         return true;
     }
+
+    /**
+     * Fits the model on input values given as a sparse matrix, for example the matrix
+     * produced by one hot encoding with {@code FOneHotEncoding.applySparse}. Input values
+     * are not copied into dense variables and the coefficients are obtained from normal equations.
+     *
+     * @param x          sparse matrix with input values, one column for each input name
+     * @param inputNames names of the input variables
+     * @param targets    target variables
+     * @return fitted model
+     */
+    public LinearRegressionModel fit(DMSparse x, String[] inputNames, Var... targets) {
+        for (Var target : targets) {
+            if (x.colCount() != inputNames.length || x.rowCount() != target.rowCount()) {
+                throw new IllegalArgumentException("Sparse matrix is not conform with input names and target variables.");
+            }
+        }
+        DMSparse input = x;
+        String[] names = inputNames;
+        if (intercept.get()) {
+            input = x.prependConstCol(1);
+            names = new String[inputNames.length + 1];
+            names[0] = FIntercept.INTERCEPT;
+            System.arraycopy(inputNames, 0, names, 1, inputNames.length);
+        }
+        FitSetup setup = prepareFit(names, VarDouble.fill(x.rowCount(), 1), targets);
+        beta = solveNormalEquations(input, DMStripe.copy(setup.df));
+        hasLearned = true;
+        return this;
+    }
+
+    /**
+     * Predicts target values for input values given as a sparse matrix with
+     * the same columns as the matrix used for fitting.
+     *
+     * @param x sparse matrix with input values
+     * @return regression result without residuals
+     */
+    public LinearRegressionResult predict(DMSparse x) {
+        int offset = intercept.get() ? 1 : 0;
+        if (x.colCount() + offset != inputNames().length) {
+            throw new IllegalArgumentException("Sparse matrix is not conform with input names.");
+        }
+        DM fit = (intercept.get() ? x.prependConstCol(1) : x).dot(beta);
+        LinearRegressionResult result = new LinearRegressionResult(this, SolidFrame.byVars(x.rowCount()), false);
+        for (int i = 0; i < targetNames().length; i++) {
+            VarDouble prediction = result.prediction(targetName(i));
+            for (int j = 0; j < x.rowCount(); j++) {
+                prediction.setDouble(j, fit.get(j, i));
+            }
+        }
+        result.buildComplete();
+        return result;
+    }
+
+    private DM solveNormalEquations(DMSparse X, DM Y) {
+        DM XtX = X.tDot(X);
+        DM XtY = X.tDot(Y);
+        CholeskyDecomposition chol = CholeskyDecomposition.from(XtX);
+        return chol.isSPD() ? chol.solve(XtY) : QRDecomposition.from(XtX).solve(XtY);
+    }
 }
@@ -127,7 +127,7 @@ public class LinearRegressionResult extends RegressionResult {
                     }
                 }
                 DM X = rapaio.math.linear.dense.DMStripe.copy(features.mapVars(model.inputNames()));
-                DM m_beta_hat = QRDecomposition.from(X.t().dot(X)).solve(rapaio.math.linear.dense.DMStripe.identity(X.colCount()));
+                DM m_beta_hat = QRDecomposition.from(X.tDot(X)).solve(rapaio.math.linear.dense.DMStripe.identity(X.colCount()));
 
                 for (int j = 0; j < model.inputNames().length; j++) {
                     beta_std_error.set(j, i, Math.sqrt(m_beta_hat.get(j, j) * var));
@@ -148,8 +148,8 @@ public class RidgeRegressionModel extends BaseLinearRegressionModel<RidgeRegress
 
         // solve the scaled system
         DM l = rapaio.math.linear.dense.DMStripe.identity(X.colCount()).mult(lambda.get());
-        DM A = X.t().dot(X).add(l);
-        DM B = X.t().dot(Y);
+        DM A = X.tDot(X).add(l);
+        DM B = X.tDot(Y);
         DM scaledBeta = QRDecomposition.from(A).solve(B);
 
         if (intercept.get()) {
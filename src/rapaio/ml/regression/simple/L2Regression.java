@@ -57,6 +57,7 @@ public class L2Regression extends AbstractRegressionModel<L2Regression, Regressi
     }
 
     private double[] means;
+    private double[] counts;
 
     private L2Regression() {
     }
@@ -80,15 +81,40 @@ public class L2Regression extends AbstractRegressionModel<L2Regression, Regressi
                 .targetType(VType.DOUBLE)
                 .allowMissingInputValues(true)
                 .allowMissingTargetValues(true)
+                .partialFit(true)
                 .build();
     }
 
     @Override
     protected boolean coreFit(Frame df, Var weights) {
         means = new double[targetNames().length];
+        counts = new double[targetNames().length];
         for (int i = 0; i < targetNames().length; i++) {
             double mean = Mean.of(df.rvar(targetName(i))).value();
             means[i] = mean;
+            counts[i] = df.rvar(targetName(i)).stream().complete().count();
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean corePartialFit(Frame df, Var weights) {
+        if (!isFitted()) {
+            means = new double[targetNames().length];
+            counts = new double[targetNames().length];
+            Arrays.fill(means, Double.NaN);
+        }
+        // running means are updated with each non missing value
+        for (int i = 0; i < targetNames().length; i++) {
+            Var target = df.rvar(targetName(i));
+            for (int j = 0; j < target.rowCount(); j++) {
+                if (target.isMissing(j)) {
+                    continue;
+                }
+                double value = target.getDouble(j);
+                counts[i]++;
+                means[i] = counts[i] == 1 ? value : means[i] + (value - means[i]) / counts[i];
+            }
         }
         return true;
     }
@@ -27,6 +27,8 @@
 
 package rapaio.ml.regression.tree;
 
+import rapaio.core.RandomSource;
+import rapaio.core.RandomStream;
 import rapaio.core.stat.Mean;
 import rapaio.core.stat.Sum;
 import rapaio.core.stat.WeightedMean;
@@ -41,11 +43,15 @@ import rapaio.ml.common.Capabilities;
 import rapaio.ml.common.MultiParam;
 import rapaio.ml.common.ValueParam;
 import rapaio.ml.common.VarSelector;
+import rapaio.ml.common.tree.ColumnSnapshot;
+import rapaio.ml.common.tree.FlatTree;
 import rapaio.ml.loss.L2Loss;
 import rapaio.ml.loss.Loss;
 import rapaio.ml.regression.AbstractRegressionModel;
 import rapaio.ml.regression.RegressionResult;
+import rapaio.ml.regression.tree.rtree.BinnedFrame;
 import rapaio.ml.regression.tree.rtree.Candidate;
+import rapaio.ml.regression.tree.rtree.Histogram;
 import rapaio.ml.regression.tree.rtree.Node;
 import rapaio.ml.regression.tree.rtree.Search;
 import rapaio.ml.regression.tree.rtree.Splitter;
@@ -53,6 +59,7 @@ import rapaio.printer.Printer;
 import rapaio.printer.opt.POption;
 import rapaio.util.DoublePair;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -61,7 +68,7 @@ import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 import static rapaio.printer.Format.floatFlex;
 
@@ -158,10 +165,26 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
             "Map with test method for each variable type",
             Objects::nonNull);
 
+    public final ValueParam<Integer, RTree> bins = new ValueParam<>(this, 0,
+            "bins",
+            "Number of bins used by histogram search on numeric variables, value 0 disables histogram search",
+            x -> x != null && (x == 0 || (x >= 2 && x <= BinnedFrame.MAX_BINS)));
+
     // tree root node
 
     private Node root;
 
+    // binned inputs provided for the next fit
+
+    private transient BinnedFrame binnedInputs;
+    private transient int[] binnedRows;
+
+    // variable selector used while fitting
+    private transient VarSelector selector;
+
+    // compiled tree, built lazily at prediction
+    private transient FlatTree compiled;
+
     private RTree() {
     }
 
@@ -191,6 +214,99 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
         return root;
     }
 
+    /**
+     * Compiles the fitted tree into flat arrays used for batch prediction.
+     * The compiled tree is cached until the tree is fitted or updated again.
+     *
+     * @return compiled tree or null if the tree cannot be compiled
+     */
+    public FlatTree compile() {
+        if (compiled == null && root != null) {
+            compiled = FlatTree.compile(root, 1, new FlatTree.NodeReader<>() {
+                @Override
+                public List<Node> children(Node node) {
+                    return node.leaf ? List.of() : node.children;
+                }
+
+                @Override
+                public RowPredicate predicate(Node node) {
+                    return node.predicate;
+                }
+
+                @Override
+                public double weight(Node node) {
+                    return node.weight;
+                }
+
+                @Override
+                public int label(Node node) {
+                    return -1;
+                }
+
+                @Override
+                public void payload(Node node, double[] buffer, int offset) {
+                    buffer[offset] = node.value;
+                }
+            });
+        }
+        return compiled;
+    }
+
+    /**
+     * Adds the scaled predictions of the tree to the given array. The compiled tree
+     * is used when the snapshot contains the tested variables, otherwise the
+     * prediction falls back to the tree traversal over the frame.
+     *
+     * @param df       frame to predict
+     * @param snapshot column snapshot of the frame, which can be shared between trees
+     * @param factor   factor applied to each predicted value
+     * @param out      array which accumulates the scaled predictions
+     */
+    public void predictAdd(Frame df, ColumnSnapshot snapshot, double factor, double[] out) {
+        FlatTree flat = compile();
+        if (flat != null && flat.accepts(snapshot)) {
+            flat.predictAdd(snapshot, factor, out);
+            return;
+        }
+        VarDouble fit = predict(df, false).firstPrediction();
+        for (int i = 0; i < df.rowCount(); i++) {
+            out[i] += fit.getDouble(i) * factor;
+        }
+    }
+
+    /**
+     * Builds the binned representation of the numeric input variables which are
+     * evaluated with {@link Search#NumericBinary}, using the configured number of bins.
+     *
+     * @param df frame with input variables
+     * @return binned inputs
+     */
+    public BinnedFrame binInputs(Frame df) {
+        List<String> names = new ArrayList<>();
+        for (String name : df.varNames()) {
+            VType type = df.type(name);
+            if (type.isNumeric() && search.get(type) == Search.NumericBinary) {
+                names.add(name);
+            }
+        }
+        return BinnedFrame.of(df, names, bins.get());
+    }
+
+    /**
+     * Provides binned inputs to be used by the next fit instead of binning the
+     * fitted frame again. This allows boosting algorithms to bin the data once
+     * and reuse it for every fitted tree.
+     *
+     * @param binned binned inputs built with {@link #binInputs(Frame)}
+     * @param rows   mapping from fitted frame rows to binned inputs rows
+     * @return model instance
+     */
+    public RTree withBinnedInputs(BinnedFrame binned, Mapping rows) {
+        this.binnedInputs = binned;
+        this.binnedRows = Arrays.copyOf(rows.elements(), rows.size());
+        return this;
+    }
+
     @Override
     protected boolean coreFit(Frame df, Var weights) {
 
@@ -200,14 +316,37 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
 
         HashMap<Integer, Frame> frameMap = new HashMap<>();
         HashMap<Integer, Var> weightsMap = new HashMap<>();
+        HashMap<Integer, int[]> rowsMap = new HashMap<>();
+        HashMap<Integer, Histogram[]> histogramMap = new HashMap<>();
 
-        this.varSelector.get().withVarNames(inputNames());
+        // each fit uses its own selector, since the parameter value can be shared between model instances
+        selector = varSelector.get().newInstance().withVarNames(inputNames());
+        compiled = null;
         root = new Node(null, id++, "root", (row, frame) -> true, 1);
 
         // prepare data for root
         frameMap.put(root.id, df);
         weightsMap.put(root.id, weights);
 
+        BinnedFrame binned = null;
+        if (bins.get() > 0) {
+            int[] rows;
+            if (binnedInputs != null) {
+                binned = binnedInputs;
+                rows = binnedRows;
+            } else {
+                binned = binInputs(df);
+                rows = new int[df.rowCount()];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = i;
+                }
+            }
+            rowsMap.put(root.id, rows);
+            histogramMap.put(root.id, new Histogram[binned.columnCount()]);
+        }
+        binnedInputs = null;
+        binnedRows = null;
+
         // make queue and initialize it
 
         Queue<Node> queue = new ConcurrentLinkedQueue<>();
@@ -216,9 +355,11 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
         while (!queue.isEmpty()) {
             Node last = queue.poll();
             int lastId = last.id;
-            Frame lastDf = frameMap.get(lastId);
-            Var lastWeights = weightsMap.get(lastId);
-            learnNode(last, lastDf, lastWeights);
+            Frame lastDf = frameMap.remove(lastId);
+            Var lastWeights = weightsMap.remove(lastId);
+            int[] lastRows = rowsMap.remove(lastId);
+            Histogram[] lastHistograms = histogramMap.remove(lastId);
+            learnNode(last, lastDf, lastWeights, binned, lastRows, lastHistograms);
 
             if (last.leaf) {
                 continue;
@@ -228,10 +369,12 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
             List<RowPredicate> predicates = last.bestCandidate.getGroupPredicates();
             List<Mapping> mappings = splitter.get().performSplitMapping(lastDf, lastWeights, predicates);
 
+            List<Node> children = new ArrayList<>();
             for (int i = 0; i < predicates.size(); i++) {
                 RowPredicate predicate = predicates.get(i);
                 Node child = new Node(last, id++, predicate.toString(), predicate, last.depth + 1);
                 last.children.add(child);
+                children.add(child);
 
                 frameMap.put(child.id, lastDf.mapRows(mappings.get(i)));
                 weightsMap.put(child.id, lastWeights.mapRows(mappings.get(i)).copy());
@@ -239,13 +382,107 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
                 queue.add(child);
             }
 
-            frameMap.remove(last.id);
-            weightsMap.remove(last.id);
+            if (binned != null) {
+                splitHistograms(binned, lastRows, lastHistograms, children, mappings, frameMap, weightsMap, rowsMap, histogramMap);
+            }
         }
         return true;
     }
 
-    private void learnNode(Node node, Frame df, Var weights) {
+    /**
+     * Builds the histograms of the given binned columns which do not already have one.
+     */
+    private void buildHistograms(BinnedFrame binned, int[] rows, Frame df, Var weights,
+                                 Histogram[] histograms, int[] columns) {
+        double[] w = null;
+        double[] y = null;
+        for (int col : columns) {
+            if (histograms[col] != null) {
+                continue;
+            }
+            if (w == null) {
+                w = new double[rows.length];
+                y = new double[rows.length];
+                int targetIndex = df.varIndex(firstTargetName());
+                for (int i = 0; i < rows.length; i++) {
+                    w[i] = weights.getDouble(i);
+                    y[i] = df.getDouble(i, targetIndex);
+                }
+            }
+            histograms[col] = Histogram.build(binned, col, rows, w, y);
+        }
+    }
+
+    /**
+     * Computes histograms for child nodes, only for the columns which have a histogram
+     * on the parent node; the other columns are built on demand when a node samples them.
+     * If the children are a partition of the parent instances, the histograms of the largest
+     * child are obtained by subtracting the histograms of its siblings from the parent
+     * histograms, which avoids a pass through the largest child instances.
+     */
+    private void splitHistograms(BinnedFrame binned, int[] parentRows, Histogram[] parentHistograms,
+                                 List<Node> children, List<Mapping> mappings,
+                                 Map<Integer, Frame> frameMap, Map<Integer, Var> weightsMap,
+                                 Map<Integer, int[]> rowsMap, Map<Integer, Histogram[]> histogramMap) {
+        int total = 0;
+        int largest = 0;
+        for (int i = 0; i < mappings.size(); i++) {
+            total += mappings.get(i).size();
+            if (mappings.get(i).size() > mappings.get(largest).size()) {
+                largest = i;
+            }
+        }
+        // instances with missing values can be dropped or replicated, in that case no subtraction
+        boolean partition = total == parentRows.length;
+        // children at maximum depth are leaves and do not need histograms
+        boolean leaves = children.get(0).depth >= maxDepth.get();
+
+        int[] columns = leaves ? new int[0] : IntStream.range(0, parentHistograms.length)
+                .filter(j -> parentHistograms[j] != null)
+                .toArray();
+
+        Histogram[] remaining = new Histogram[parentHistograms.length];
+        if (partition) {
+            for (int j : columns) {
+                remaining[j] = parentHistograms[j].copy();
+            }
+        }
+        for (int i = 0; i < children.size(); i++) {
+            Mapping mapping = mappings.get(i);
+            int[] rows = new int[mapping.size()];
+            for (int j = 0; j < rows.length; j++) {
+                rows[j] = parentRows[mapping.get(j)];
+            }
+            int childId = children.get(i).id;
+            rowsMap.put(childId, rows);
+            if (partition && i == largest) {
+                continue;
+            }
+            Histogram[] histograms = new Histogram[parentHistograms.length];
+            if (partition) {
+                buildHistograms(binned, rows, frameMap.get(childId), weightsMap.get(childId), histograms, columns);
+                for (int j : columns) {
+                    remaining[j].subtract(histograms[j]);
+                }
+            }
+            histogramMap.put(childId, histograms);
+        }
+        if (partition) {
+            histogramMap.put(children.get(largest).id, remaining);
+        }
+    }
+
+    private Candidate computeCandidate(Frame df, Var weights, BinnedFrame binned, Histogram[] histograms, String testCol) {
+        int col = (histograms == null) ? -1 : binned.columnIndex(testCol);
+        if (col >= 0) {
+            return histograms[col].computeCandidate(this, binned, col).orElse(null);
+        }
+        return search.get(df.type(testCol))
+                .computeCandidate(this, df, weights, testCol, firstTargetName())
+                .orElse(null);
+    }
+
+    private void learnNode(Node node, Frame df, Var weights, BinnedFrame binned, int[] rows, Histogram[] histograms) {
 
         node.leaf = true;
         node.value = loss.get().scalarMinimizer(df.rvar(firstTargetName()), weights);
@@ -260,18 +497,28 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
             return;
         }
 
-        Stream<String> stream = Arrays.stream(varSelector.get().nextVarNames());
+        String[] testNames = selector.nextVarNames();
+        if (binned != null) {
+            // histograms are built only for the sampled binned columns
+            int[] columns = Arrays.stream(testNames).mapToInt(binned::columnIndex).filter(col -> col >= 0).toArray();
+            buildHistograms(binned, rows, df, weights, histograms, columns);
+        }
+        List<Candidate> candidates;
         if (runs.get() > 1) {
-            stream = stream.parallel();
+            // each test variable uses its own random stream to keep parallel search reproducible
+            RandomStream stream = RandomSource.newStream();
+            candidates = IntStream.range(0, testNames.length).parallel()
+                    .mapToObj(i -> RandomSource.withStream(stream.split(i),
+                            () -> computeCandidate(df, weights, binned, histograms, testNames[i])))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } else {
+            candidates = Arrays.stream(testNames)
+                    .map(testCol -> computeCandidate(df, weights, binned, histograms, testCol))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
         }
 
-        List<Candidate> candidates = stream
-                .map(testCol -> search.get(df.type(testCol))
-                        .computeCandidate(this, df, weights, testCol, firstTargetName())
-                        .orElse(null))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
         Candidate bestCandidate = null;
         for (Candidate candidate : candidates) {
             if (bestCandidate == null || candidate.getScore() >= bestCandidate.getScore()) {
@@ -292,6 +539,16 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
     protected RegressionResult corePredict(Frame df, boolean withResiduals) {
         RegressionResult prediction = RegressionResult.build(this, df, withResiduals);
 
+        FlatTree flat = compile();
+        if (flat != null) {
+            ColumnSnapshot snapshot = ColumnSnapshot.of(df, flat.features());
+            if (flat.accepts(snapshot)) {
+                flat.predictValues(snapshot, prediction.prediction(firstTargetName()).elements());
+                prediction.buildComplete();
+                return prediction;
+            }
+        }
+
         for (int i = 0; i < df.rowCount(); i++) {
             DoublePair result = predict(i, df, root);
             prediction.prediction(firstTargetName()).setDouble(i, result.v1);
@@ -384,6 +641,7 @@ public class RTree extends AbstractRegressionModel<RTree, RegressionResult> impl
      * @param lossFunction loss function used to compute additive gradient
      */
     public void boostUpdate(Frame x, Var y, Var fx, Loss lossFunction) {
+        compiled = null;
         root.boostUpdate(x, y, fx, lossFunction, splitter.get());
     }
 }
@@ -0,0 +1,198 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.regression.tree.rtree;
+
+import rapaio.data.Frame;
+import rapaio.data.Var;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quantized representation of numeric input variables used by histogram split search.
+ * <p>
+ * Each variable is discretized once into at most {@link #MAX_BINS} bins with
+ * quantile based boundaries and stored as one byte code per row. When a variable
+ * has fewer distinct values than the number of bins, each distinct value receives
+ * its own bin and the histogram search evaluates exactly the same thresholds as
+ * the exact numeric search. Missing values are encoded with {@link #MISSING}.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class BinnedFrame {
+
+    public static final int MAX_BINS = 255;
+    public static final int MISSING = 0xff;
+
+    /**
+     * Builds binned representation for the given variables.
+     *
+     * @param df       source frame
+     * @param varNames names of numeric variables to be binned
+     * @param maxBins  maximum number of bins for each variable
+     * @return binned frame
+     */
+    public static BinnedFrame of(Frame df, List<String> varNames, int maxBins) {
+        if (maxBins < 2 || maxBins > MAX_BINS) {
+            throw new IllegalArgumentException("Number of bins must be between 2 and " + MAX_BINS + ".");
+        }
+        BinnedFrame bf = new BinnedFrame(df.rowCount(), varNames.size());
+        for (int i = 0; i < varNames.size(); i++) {
+            bf.bin(i, varNames.get(i), df.rvar(varNames.get(i)), maxBins);
+        }
+        return bf;
+    }
+
+    private final int rowCount;
+    private final Map<String, Integer> index = new HashMap<>();
+    private final String[] names;
+    private final byte[][] codes;
+    private final double[][] binMin;
+    private final double[][] binMax;
+
+    private BinnedFrame(int rowCount, int columns) {
+        this.rowCount = rowCount;
+        this.names = new String[columns];
+        this.codes = new byte[columns][];
+        this.binMin = new double[columns][];
+        this.binMax = new double[columns][];
+    }
+
+    private void bin(int col, String name, Var var, int maxBins) {
+        double[] values = new double[var.rowCount()];
+        int len = 0;
+        for (int i = 0; i < var.rowCount(); i++) {
+            if (!var.isMissing(i)) {
+                values[len++] = var.getDouble(i);
+            }
+        }
+        Arrays.sort(values, 0, len);
+
+        int distinct = 0;
+        for (int i = 0; i < len; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                distinct++;
+            }
+        }
+
+        double[] min = new double[Math.min(distinct, maxBins)];
+        double[] max = new double[min.length];
+        int bins = 0;
+        if (distinct <= maxBins) {
+            for (int i = 0; i < len; i++) {
+                if (i == 0 || values[i] != values[i - 1]) {
+                    min[bins] = values[i];
+                    max[bins] = values[i];
+                    bins++;
+                }
+            }
+        } else {
+            // greedy quantile binning, distinct values are never split between bins
+            double step = len / (double) maxBins;
+            boolean open = false;
+            for (int i = 0; i < len; i++) {
+                if (!open) {
+                    min[bins] = values[i];
+                    open = true;
+                }
+                max[bins] = values[i];
+                boolean lastOfValue = (i == len - 1) || values[i + 1] != values[i];
+                if (lastOfValue && bins < maxBins - 1 && i + 1 >= (bins + 1) * step) {
+                    bins++;
+                    open = false;
+                }
+            }
+            if (open) {
+                bins++;
+            }
+            min = Arrays.copyOf(min, bins);
+            max = Arrays.copyOf(max, bins);
+        }
+
+        byte[] code = new byte[var.rowCount()];
+        for (int i = 0; i < var.rowCount(); i++) {
+            if (var.isMissing(i)) {
+                code[i] = (byte) MISSING;
+                continue;
+            }
+            int pos = Arrays.binarySearch(max, var.getDouble(i));
+            code[i] = (byte) (pos >= 0 ? pos : -pos - 1);
+        }
+
+        names[col] = name;
+        index.put(name, col);
+        codes[col] = code;
+        binMin[col] = min;
+        binMax[col] = max;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return names.length;
+    }
+
+    public String name(int col) {
+        return names[col];
+    }
+
+    /**
+     * @param name variable name
+     * @return column index of the binned variable, or -1 if the variable was not binned
+     */
+    public int columnIndex(String name) {
+        return index.getOrDefault(name, -1);
+    }
+
+    public int bins(int col) {
+        return binMax[col].length;
+    }
+
+    /**
+     * @return bin index of the value from the given column and row, or {@link #MISSING}
+     */
+    public int code(int col, int row) {
+        return codes[col][row] & 0xff;
+    }
+
+    /**
+     * Computes the split threshold which separates the values from bin {@code left}
+     * from the values of bin {@code right}, where {@code left < right}.
+     */
+    public double threshold(int col, int left, int right) {
+        return (binMax[col][left] + binMin[col][right]) / 2.0;
+    }
+
+    byte[] codes(int col) {
+        return codes[col];
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.regression.tree.rtree;
+
+import rapaio.core.RandomSource;
+import rapaio.experiment.ml.common.predicate.RowPredicate;
+import rapaio.ml.regression.tree.RTree;
+
+import java.util.Optional;
+
+/**
+ * Per node histogram of target statistics over the bins of a {@link BinnedFrame} column.
+ * <p>
+ * For each bin it keeps the number of instances, the sum of weights, the weighted sum
+ * of target values and the weighted sum of squared target values, which is enough to
+ * compute weighted variances of any contiguous group of bins. Since all statistics
+ * are additive, the histogram of a child node can be obtained by subtracting the
+ * histograms of its siblings from the histogram of the parent node.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class Histogram {
+
+    /**
+     * Builds histogram for a column of a binned frame.
+     *
+     * @param bf      binned frame
+     * @param col     binned column index
+     * @param rows    rows from binned frame which corresponds to node instances
+     * @param weights weights of node instances
+     * @param target  target values of node instances
+     * @return new histogram
+     */
+    public static Histogram build(BinnedFrame bf, int col, int[] rows, double[] weights, double[] target) {
+        Histogram h = new Histogram(bf.bins(col));
+        byte[] codes = bf.codes(col);
+        for (int i = 0; i < rows.length; i++) {
+            int bin = codes[rows[i]] & 0xff;
+            if (bin == BinnedFrame.MISSING) {
+                continue;
+            }
+            double w = weights[i];
+            double wy = w * target[i];
+            h.count[bin]++;
+            h.weight[bin] += w;
+            h.sum[bin] += wy;
+            h.sumSq[bin] += wy * target[i];
+        }
+        return h;
+    }
+
+    private final int[] count;
+    private final double[] weight;
+    private final double[] sum;
+    private final double[] sumSq;
+
+    private Histogram(int bins) {
+        count = new int[bins];
+        weight = new double[bins];
+        sum = new double[bins];
+        sumSq = new double[bins];
+    }
+
+    /**
+     * Subtracts in place the statistics of the given histogram.
+     *
+     * @param h histogram of a subset of the instances used to build this histogram
+     * @return this instance
+     */
+    public Histogram subtract(Histogram h) {
+        for (int i = 0; i < count.length; i++) {
+            count[i] -= h.count[i];
+            weight[i] -= h.weight[i];
+            sum[i] -= h.sum[i];
+            sumSq[i] -= h.sumSq[i];
+        }
+        return this;
+    }
+
+    public Histogram copy() {
+        Histogram h = new Histogram(count.length);
+        System.arraycopy(count, 0, h.count, 0, count.length);
+        System.arraycopy(weight, 0, h.weight, 0, count.length);
+        System.arraycopy(sum, 0, h.sum, 0, count.length);
+        System.arraycopy(sumSq, 0, h.sumSq, 0, count.length);
+        return h;
+    }
+
+    /**
+     * Selects the best binary split on bin boundaries, the equivalent of
+     * {@link Search#NumericBinary} evaluated on binned values.
+     *
+     * @param tree tree model
+     * @param bf   binned frame
+     * @param col  binned column index
+     * @return the best candidate
+     */
+    public Optional<Candidate> computeCandidate(RTree tree, BinnedFrame bf, int col) {
+
+        int totalCount = 0;
+        double totalWeight = 0;
+        double totalSum = 0;
+        double totalSumSq = 0;
+        for (int i = 0; i < count.length; i++) {
+            totalCount += count[i];
+            totalWeight += weight[i];
+            totalSum += sum[i];
+            totalSumSq += sumSq[i];
+        }
+        if (totalCount == 0) {
+            return Optional.empty();
+        }
+
+        String testName = bf.name(col);
+        int minCount = tree.minCount.get();
+
+        SearchPayload p = new SearchPayload(2);
+        p.totalVar = variance(totalWeight, totalSum, totalSumSq);
+        p.totalWeight = totalWeight;
+
+        Candidate best = null;
+        double bestScore = -1e100;
+
+        int leftCount = 0;
+        double leftWeight = 0;
+        double leftSum = 0;
+        double leftSumSq = 0;
+
+        int left = nextBin(0);
+        while (left != -1) {
+            int right = nextBin(left + 1);
+            if (right == -1) {
+                break;
+            }
+            leftCount += count[left];
+            leftWeight += weight[left];
+            leftSum += sum[left];
+            leftSumSq += sumSq[left];
+
+            int rightCount = totalCount - leftCount;
+            if (leftCount > minCount && rightCount > minCount) {
+                double rightWeight = totalWeight - leftWeight;
+                p.splitWeight[0] = leftWeight;
+                p.splitVar[0] = variance(leftWeight, leftSum, leftSumSq);
+                p.splitWeight[1] = rightWeight;
+                p.splitVar[1] = variance(rightWeight, totalSum - leftSum, totalSumSq - leftSumSq);
+
+                double score = tree.loss.get().computeSplitLossScore(p);
+                if (score > bestScore || (score == bestScore && RandomSource.nextDouble() >= 0.5)) {
+                    bestScore = score;
+                    best = new Candidate(score, testName);
+                    double testValue = bf.threshold(col, left, right);
+                    best.addGroup(RowPredicate.numLessEqual(testName, testValue));
+                    best.addGroup(RowPredicate.numGreater(testName, testValue));
+                }
+            }
+            left = right;
+        }
+        return (best != null) ? Optional.of(best) : Optional.empty();
+    }
+
+    private int nextBin(int start) {
+        for (int i = start; i < count.length; i++) {
+            if (count[i] > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static double variance(double weight, double sum, double sumSq) {
+        if (weight <= 0) {
+            return 0;
+        }
+        double mean = sum / weight;
+        return Math.max(0, sumSq / weight - mean * mean);
+    }
+}
@@ -32,6 +32,7 @@ import rapaio.core.stat.Variance;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
 import rapaio.data.VarInt;
+import rapaio.math.fourier.FFT;
 import rapaio.printer.Printable;
 import rapaio.printer.Printer;
 import rapaio.printer.TextTable;
@@ -40,11 +41,20 @@ import rapaio.printer.opt.POption;
 /**
  * Sample AutoCorrelation Function
  * <p>
+ * When many lags are requested on a long series, all auto covariances are computed at once
+ * from the power spectrum of the centered series, padded with zeros to avoid circular wrapping.
+ * For few lags or short series each lag is computed directly.
+ * <p>
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 9/11/17.
  */
 public final class Acf implements Printable {
 
-    private final Var ts;
+    /**
+     * The power spectrum is used when the direct computation would need more than
+     * this factor times the {@code L*log2(L)} operations of a transform of length L.
+     */
+    private static final int FFT_COST_FACTOR = 4;
+
     private final VarInt lags;
     private final VarDouble correlation;
     private final VarDouble covariance;
@@ -61,12 +71,30 @@ public final class Acf implements Printable {
         if (ts.stream().complete().count() != ts.rowCount()) {
             throw new IllegalArgumentException("Acf does not allow missing values.");
         }
-        this.ts = ts.copy();
         this.lags = lags.copy();
         this.correlation = VarDouble.fill(lags.rowCount(), 0).name("correlation");
         this.covariance = VarDouble.fill(lags.rowCount(), 0).name("covariance");
 
-        compute();
+        compute(ts);
+    }
+
+    /**
+     * Builds an auto correlation function from already computed auto covariances.
+     *
+     * @param lags lags, which must be non negative
+     * @param acf  sums of cross products of centered values for each lag
+     * @param var  biased variance of the series
+     * @param n    number of values of the series
+     */
+    Acf(VarInt lags, double[] acf, double var, long n) {
+        this.lags = lags.copy().name("lags");
+        this.correlation = VarDouble.fill(lags.rowCount(), 0).name("correlation");
+        this.covariance = VarDouble.fill(lags.rowCount(), 0).name("covariance");
+        fill(acf, var, n);
+    }
+
+    public VarInt lags() {
+        return lags;
     }
 
     public VarDouble correlation() {
@@ -77,17 +105,66 @@ public final class Acf implements Printable {
         return covariance;
     }
 
-    private void compute() {
+    private void compute(Var ts) {
+        int n = ts.rowCount();
         double mu = Mean.of(ts).value();
         double var = Variance.of(ts).biasedValue();
+
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = ts.getDouble(i) - mu;
+        }
+
+        int maxLag = 0;
         for (int i = 0; i < lags.rowCount(); i++) {
-            int lag = lags.getInt(i);
-            double acf = 0.0;
-            for (int j = 0; j < ts.rowCount() - lag; j++) {
-                acf += (ts.getDouble(j) - mu) * (ts.getDouble(j + lag) - mu);
+            maxLag = Math.max(maxLag, lags.getInt(i));
+        }
+        int len = FFT.nextPowerOf2(n + Math.min(maxLag, n));
+        long fftCost = (long) FFT_COST_FACTOR * len * Integer.numberOfTrailingZeros(len);
+        long directCost = (long) lags.rowCount() * n;
+
+        double[] acf = new double[lags.rowCount()];
+        if (n > 0 && directCost > fftCost) {
+            double[] sums = crossProducts(x, len);
+            for (int i = 0; i < acf.length; i++) {
+                int lag = lags.getInt(i);
+                acf[i] = lag < n ? sums[lag] : 0.0;
             }
-            correlation.setDouble(i, acf / (var * ts.rowCount()));
-            covariance.setDouble(i, acf / ts.rowCount());
+        } else {
+            for (int i = 0; i < acf.length; i++) {
+                int lag = lags.getInt(i);
+                double sum = 0.0;
+                for (int j = 0; j < n - lag; j++) {
+                    sum += x[j] * x[j + lag];
+                }
+                acf[i] = sum;
+            }
+        }
+        fill(acf, var, n);
+    }
+
+    /**
+     * Computes sums of cross products for all lags from the inverse transform of
+     * the power spectrum of the series padded with zeros up to the given length.
+     */
+    private static double[] crossProducts(double[] x, int len) {
+        double[] padded = new double[len];
+        System.arraycopy(x, 0, padded, 0, x.length);
+        double[] re = new double[len / 2 + 1];
+        double[] im = new double[len / 2 + 1];
+        FFT.rfft(padded, re, im);
+        for (int k = 0; k < re.length; k++) {
+            re[k] = re[k] * re[k] + im[k] * im[k];
+            im[k] = 0;
+        }
+        FFT.irfft(re, im, padded);
+        return padded;
+    }
+
+    private void fill(double[] acf, double var, double n) {
+        for (int i = 0; i < acf.length; i++) {
+            correlation.setDouble(i, acf[i] / (var * n));
+            covariance.setDouble(i, acf[i] / n);
         }
     }
 
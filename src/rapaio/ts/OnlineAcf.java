@@ -0,0 +1,158 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ts;
+
+import rapaio.data.Var;
+import rapaio.data.VarInt;
+
+/**
+ * Sample auto correlation function maintained while values are appended to a time series.
+ * <p>
+ * For each lag it keeps the sum of cross products of raw values, the sums of the first values
+ * and the last values of the series. Appending a value updates those sums in {@code O(maxLag)}
+ * time, and the centered auto covariances are rebuilt from them when an {@link Acf} is requested.
+ * Values are shifted by the first value of the series to reduce cancellation in the raw sums.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public final class OnlineAcf {
+
+    /**
+     * Creates an empty online auto correlation function for lags from 0 to {@code maxLag-1},
+     * which are the same lags as the ones used by {@link Acf#from(Var, int)}.
+     *
+     * @param maxLag number of lags
+     * @return new online auto correlation function
+     */
+    public static OnlineAcf of(int maxLag) {
+        if (maxLag < 1) {
+            throw new IllegalArgumentException("Number of lags must be positive.");
+        }
+        return new OnlineAcf(maxLag);
+    }
+
+    private final int maxLag;
+    // last maxLag shifted values, value j is stored at position j % maxLag
+    private final double[] last;
+    // head[k] is the sum of the first k shifted values
+    private final double[] head;
+    // cross[k] is the sum of products of shifted values found at distance k
+    private final double[] cross;
+    private double total;
+    private double shift;
+    private long n;
+
+    private OnlineAcf(int maxLag) {
+        this.maxLag = maxLag;
+        this.last = new double[maxLag];
+        this.head = new double[maxLag];
+        this.cross = new double[maxLag];
+    }
+
+    /**
+     * @return number of values appended to the series
+     */
+    public long n() {
+        return n;
+    }
+
+    /**
+     * Appends a value to the time series.
+     *
+     * @param x new value
+     * @return self instance
+     */
+    public OnlineAcf update(double x) {
+        if (Double.isNaN(x)) {
+            throw new IllegalArgumentException("Acf does not allow missing values.");
+        }
+        if (n == 0) {
+            shift = x;
+        }
+        double y = x - shift;
+        int pos = (int) (n % maxLag);
+        cross[0] += y * y;
+        int len = (int) Math.min(maxLag - 1, n);
+        for (int k = 1; k <= len; k++) {
+            int prev = pos - k;
+            cross[k] += y * last[prev < 0 ? prev + maxLag : prev];
+        }
+        last[pos] = y;
+        if (n + 1 < maxLag) {
+            head[(int) n + 1] = head[(int) n] + y;
+        }
+        total += y;
+        n++;
+        return this;
+    }
+
+    /**
+     * Appends all values of a variable to the time series.
+     *
+     * @param ts values to be appended
+     * @return self instance
+     */
+    public OnlineAcf update(Var ts) {
+        for (int i = 0; i < ts.rowCount(); i++) {
+            update(ts.getDouble(i));
+        }
+        return this;
+    }
+
+    /**
+     * Builds the auto correlation function of the values appended so far.
+     *
+     * @return auto correlation function for lags from 0 to {@code maxLag-1}
+     */
+    public Acf acf() {
+        double mu = n == 0 ? Double.NaN : total / n;
+        double[] acf = new double[maxLag];
+        double tail = 0;
+        int pos = (int) (n % maxLag);
+        for (int k = 0; k < maxLag && k < n; k++) {
+            if (k > 0) {
+                int prev = pos - k;
+                tail += last[prev < 0 ? prev + maxLag : prev];
+            }
+            // sum of the first n-k values and sum of the last n-k values
+            double first = total - tail;
+            double second = total - head[k];
+            acf[k] = cross[k] - mu * (first + second) + (n - k) * mu * mu;
+        }
+        return new Acf(VarInt.seq(0, maxLag), acf, acf[0] / n, n);
+    }
+
+    /**
+     * Builds the partial auto correlation function of the values appended so far.
+     *
+     * @return partial auto correlation function for lags from 1 to {@code maxLag-1}
+     */
+    public Pacf pacf() {
+        return Pacf.from(acf());
+    }
+}
@@ -27,7 +27,6 @@
 
 package rapaio.ts;
 
-import rapaio.core.stat.Maximum;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
 import rapaio.data.VarInt;
@@ -44,48 +43,76 @@ import rapaio.printer.opt.POption;
 public class Pacf implements Printable {
 
     public static Pacf from(Var ts, int maxLag) {
-        return new Pacf(ts, VarInt.seq(1, maxLag));
+        return from(Acf.from(ts, maxLag + 1));
     }
 
-    private final Var ts;
-    private final VarInt lags;
-
-    private VarDouble pacf;
-
-    private Pacf(Var ts, VarInt indexes) {
-        this.ts = ts;
-        this.lags = indexes;
-
-        computeDurbinLevinson();
+    /**
+     * Builds the partial auto correlation function from an auto correlation function
+     * computed for consecutive lags starting with 0.
+     *
+     * @param acf auto correlation function
+     * @return partial auto correlation function for lags from 1 to the maximum lag of acf
+     */
+    public static Pacf from(Acf acf) {
+        VarInt acfLags = acf.lags();
+        for (int i = 0; i < acfLags.rowCount(); i++) {
+            if (acfLags.getInt(i) != i) {
+                throw new IllegalArgumentException("Acf lags must be consecutive and start with 0.");
+            }
+        }
+        return new Pacf(acf.correlation());
     }
 
-    private void computeDurbinLevinson() {
-        Acf acf = Acf.from(ts, (int) Maximum.of(lags).value() + 1);
-        VarDouble cor = acf.correlation();
+    private final VarInt lags;
+    private final VarDouble pacf;
 
-        double a, b, c;
+    private Pacf(VarDouble cor) {
         int nlag = cor.rowCount() - 1;
+        this.lags = VarInt.seq(1, nlag);
 
-        double[] v = new double[nlag];
-        double[] w = new double[nlag];
-        pacf = VarDouble.empty(lags.rowCount()).name("pacf");
-        w[0] = cor.getDouble(1);
-        pacf.setDouble(0, cor.getDouble(1));
+        double[] r = new double[nlag + 1];
+        for (int i = 0; i <= nlag; i++) {
+            r[i] = cor.getDouble(i);
+        }
+        double[] values = new double[nlag];
+        durbinLevinson(r, new double[nlag], values);
+        this.pacf = VarDouble.wrap(values).name("pacf");
+    }
+
+    /**
+     * Durbin-Levinson recursion on auto correlations {@code r[0..nlag]}. The coefficients of
+     * the autoregressive model of each order are updated in place in {@code phi}, and the
+     * partial auto correlations are written in {@code pacf}. Both arrays have nlag elements.
+     */
+    static void durbinLevinson(double[] r, double[] phi, double[] pacf) {
+        int nlag = pacf.length;
+        if (nlag == 0) {
+            return;
+        }
+        phi[0] = r[1];
+        pacf[0] = r[1];
         for (int ll = 1; ll < nlag; ll++) {
-            a = cor.getDouble(ll + 1);
-            b = 1.0;
+            double a = r[ll + 1];
+            double b = 1.0;
             for (int i = 0; i < ll; i++) {
-                a -= w[i] * cor.getDouble(ll - i);
-                b -= w[i] * cor.getDouble(i + 1);
+                a -= phi[i] * r[ll - i];
+                b -= phi[i] * r[i + 1];
+            }
+            double c = a / b;
+            pacf[ll] = c;
+            if (ll + 1 == nlag) {
+                break;
+            }
+            // phi[i] -= c * phi[ll-1-i], updated in symmetric pairs to avoid a copy
+            for (int i = 0, j = ll - 1; i <= j; i++, j--) {
+                double pi = phi[i];
+                double pj = phi[j];
+                phi[i] = pi - c * pj;
+                if (i != j) {
+                    phi[j] = pj - c * pi;
+                }
             }
-            c = a / b;
-            pacf.setDouble(ll, c);
-            if (ll + 1 == nlag) break;
-            w[ll] = c;
-            for (int i = 0; i < ll; i++)
-                v[ll - i - 1] = w[i];
-            for (int i = 0; i < ll; i++)
-                w[i] -= c * v[i];
+            phi[ll] = c;
         }
     }
 
@@ -0,0 +1,164 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.util.collection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with primitive long keys and int values.
+ * Collisions are solved with linear probing and the table grows when
+ * it is half full.
+ * <p>
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class Long2IntOpenHashMap implements Serializable {
+
+    private static final long serialVersionUID = -2186432738476511042L;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public Long2IntOpenHashMap() {
+        this(16);
+    }
+
+    public Long2IntOpenHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return used[find(key)];
+    }
+
+    /**
+     * @param key          key to look for
+     * @param defaultValue value returned if the key is not present
+     * @return value associated with the key or the default value
+     */
+    public int get(long key, int defaultValue) {
+        int pos = find(key);
+        return used[pos] ? values[pos] : defaultValue;
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     *
+     * @param key   key
+     * @param value value
+     */
+    public void put(long key, int value) {
+        int pos = find(key);
+        values[pos] = value;
+        if (!used[pos]) {
+            insert(pos, key);
+        }
+    }
+
+    /**
+     * Associates the value with the key only if the key is not present.
+     *
+     * @param key   key
+     * @param value value to associate if the key is not present
+     * @return the value already associated with the key, or the given value if it was inserted
+     */
+    public int putIfAbsent(long key, int value) {
+        int pos = find(key);
+        if (used[pos]) {
+            return values[pos];
+        }
+        values[pos] = value;
+        insert(pos, key);
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int pos = hash(key) & mask;
+        while (used[pos] && keys[pos] != key) {
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    private void insert(int pos, long key) {
+        keys[pos] = key;
+        used[pos] = true;
+        size++;
+        if (2 * size > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int pos = find(oldKeys[i]);
+                keys[pos] = oldKeys[i];
+                values[pos] = oldValues[i];
+                used[pos] = true;
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -29,6 +29,8 @@ import rapaio.data.Var;
 import rapaio.data.VarInt;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 7/1/16.
@@ -51,4 +53,42 @@ public class RandomSourceTest {
             assertEquals(n1, n2);
         }
     }
+
+    @Test
+    void splitStreamsTest() {
+        RandomStream root = RandomStream.of(42);
+
+        // derived streams depend only on the root seed and task id
+        for (int task = 0; task < 10; task++) {
+            RandomStream s1 = root.split(task);
+            RandomStream s2 = RandomStream.of(42).split(task);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(s1.nextLong(), s2.nextLong());
+            }
+        }
+
+        // derivation does not consume values from the parent stream
+        RandomStream fresh = RandomStream.of(42);
+        assertEquals(fresh.nextDouble(), root.nextDouble());
+
+        assertNotEquals(root.split(0).nextLong(), root.split(1).nextLong());
+    }
+
+    @Test
+    void boundStreamTest() {
+        RandomSource.setSeed(123);
+        double global = RandomSource.nextDouble();
+
+        RandomSource.setSeed(123);
+        double bound = RandomSource.withStream(RandomStream.of(7), () -> {
+            // nested binding is restored after completion
+            RandomSource.withStream(RandomStream.of(8), RandomSource::nextDouble);
+            assertSame(RandomSource.getRandom(), RandomSource.getRandom());
+            return RandomSource.nextDouble();
+        });
+
+        assertEquals(RandomStream.of(7).nextDouble(), bound);
+        // global generator was not touched by the bound streams
+        assertEquals(global, RandomSource.nextDouble());
+    }
 }
@@ -81,6 +81,53 @@ public class KDETest {
         assertTrue(Math.abs(mean.value()) < TOL);
     }
 
+    @Test
+    void testBinned() {
+        KFunc[] kernels = new KFunc[]{new KFuncGaussian(), new KFuncBiWeight(), new KFuncCosine(), new KFuncEpanechnikov(),
+                new KFuncTriangular(), new KFuncTricube(), new KFuncTriweight()};
+        double[] xs = x.stream().mapToDouble().toArray();
+        for (KFunc kernel : kernels) {
+            double bandwidth = KDE.silvermanBandwidth(sample);
+            KDE exact = KDE.of(sample, kernel, bandwidth);
+            KDE binned = KDE.of(sample, kernel, bandwidth, KDE.DEFAULT_GRID_SIZE);
+            assertFalse(exact.isBinned());
+            assertTrue(binned.isBinned());
+
+            double[] pdf = binned.pdf(xs);
+            for (int i = 0; i < xs.length; i++) {
+                assertEquals(binned.pdf(xs[i]), pdf[i]);
+                assertEquals(exact.pdf(xs[i]), pdf[i], 1e-3);
+            }
+        }
+
+        assertFalse(KDE.auto(sample, new KFuncGaussian(), 0.1).isBinned());
+        assertTrue(KDE.auto(Normal.std().sample(KDE.BINNED_MIN_SIZE), new KFuncGaussian(), 0.1).isBinned());
+        assertThrows(IllegalArgumentException.class, () -> KDE.of(sample, new KFuncGaussian(), 0.1, 1));
+    }
+
+    @Test
+    void testBinnedOutlier() {
+        // a single far away value would make the grid step too large compared with bandwidth
+        RandomSource.setSeed(123);
+        VarDouble values = Normal.std().sample(3_000);
+        values.addDouble(1e5);
+
+        KDE kde = KDE.auto(values, new KFuncGaussian(), 0.2);
+        KDE exact = KDE.of(values, new KFuncGaussian(), 0.2);
+        assertFalse(kde.isBinned());
+        assertEquals(exact.pdf(0), kde.pdf(0), TOL);
+        assertEquals(0.397, kde.pdf(0), 0.03);
+
+        // a moderate outlier uses a larger grid which keeps the estimate accurate
+        values.setDouble(values.rowCount() - 1, 1e3);
+        kde = KDE.auto(values, new KFuncGaussian(), 0.2);
+        exact = KDE.of(values, new KFuncGaussian(), 0.2);
+        assertTrue(kde.isBinned());
+        for (double x = -3; x <= 3; x += 0.25) {
+            assertEquals(exact.pdf(x), kde.pdf(x), 1e-3);
+        }
+    }
+
     @Test
     void testOtherThings() {
         assertEquals(0, new KFuncCosine().pdf(10, 1, 2), TOL);
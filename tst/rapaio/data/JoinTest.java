@@ -0,0 +1,141 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class JoinTest {
+
+    private Frame left;
+    private Frame right;
+
+    @BeforeEach
+    void beforeEach() {
+        RandomSource.setSeed(42);
+        left = SolidFrame.byVars(
+                VarInt.wrap(1, 2, 2, 3).name("id"),
+                VarNominal.copy("a", "b", "c", "d").name("x"));
+        right = SolidFrame.byVars(
+                VarInt.wrap(2, 4, 1, 2).name("id"),
+                VarDouble.wrap(20, 40, 10, 21).name("y"),
+                VarNominal.copy("p", "q", "r", "s").name("x"));
+    }
+
+    @Test
+    void testInner() {
+        Frame df = Join.inner(left, right, "id");
+        assertArrayEquals(new String[]{"id", "x", "y", "x_right"}, df.varNames());
+        assertEquals(5, df.rowCount());
+        assertTrue(df.rvar("id").deepEquals(VarInt.wrap(1, 2, 2, 2, 2).name("id")));
+        assertTrue(df.rvar("x").deepEquals(VarNominal.copy("a", "b", "b", "c", "c").name("x")));
+        assertTrue(df.rvar("y").deepEquals(VarDouble.wrap(10, 20, 21, 20, 21).name("y")));
+    }
+
+    @Test
+    void testLeft() {
+        Frame df = left.join(right, Join.Type.LEFT, "id");
+        assertEquals(6, df.rowCount());
+        assertTrue(df.rvar("id").deepEquals(VarInt.wrap(1, 2, 2, 2, 2, 3).name("id")));
+        assertTrue(df.isMissing(5, "y"));
+        assertTrue(df.isMissing(5, "x_right"));
+    }
+
+    @Test
+    void testRight() {
+        Frame df = Join.right(left, right, "id");
+        assertArrayEquals(new String[]{"id", "y", "x", "x_left"}, df.varNames());
+        assertEquals(6, df.rowCount());
+        assertTrue(df.rvar("id").deepEquals(VarInt.wrap(2, 2, 4, 1, 2, 2).name("id")));
+        assertTrue(df.rvar("x_left").deepEquals(VarNominal.copy("b", "c", "?", "a", "b", "c").name("x_left")));
+    }
+
+    @Test
+    void testOuter() {
+        Frame df = Join.outer(left, right, "id");
+        assertEquals(7, df.rowCount());
+        assertTrue(df.rvar("id").deepEquals(VarInt.wrap(1, 2, 2, 2, 2, 3, 4).name("id")));
+        assertTrue(df.isMissing(6, "x"));
+        assertEquals(40, df.getDouble(6, "y"));
+    }
+
+    @Test
+    void testMultipleKeys() {
+        Frame a = SolidFrame.byVars(
+                VarNominal.copy("a", "a", "b", "b").name("k1"),
+                VarDouble.wrap(1, 2, 1, 2).name("k2"),
+                VarInt.seq(4).name("v"));
+        Frame b = SolidFrame.byVars(
+                VarNominal.copy("b", "a", "c").name("k1"),
+                VarDouble.wrap(2, 2, 1).name("k2"),
+                VarInt.wrap(10, 20, 30).name("w"));
+        Frame df = Join.inner(a, b, "k1", "k2");
+        assertEquals(2, df.rowCount());
+        assertTrue(df.rvar("v").deepEquals(VarInt.wrap(1, 3).name("v")));
+        assertTrue(df.rvar("w").deepEquals(VarInt.wrap(20, 10).name("w")));
+
+        Frame outer = Join.outer(a, b, "k1", "k2");
+        assertEquals(5, outer.rowCount());
+        assertEquals("c", outer.getLabel(4, "k1"));
+        assertEquals(1, outer.getDouble(4, "k2"));
+    }
+
+    @Test
+    void testStrategies() {
+        int n = 1_000;
+        VarInt leftId = VarInt.from(n, row -> RandomSource.nextInt(200)).name("id");
+        VarInt rightId = VarInt.from(n / 2, row -> RandomSource.nextInt(300)).name("id");
+        Frame l = SolidFrame.byVars(leftId, VarDouble.from(n, row -> RandomSource.nextDouble()).name("x"));
+        Frame r = SolidFrame.byVars(rightId, VarDouble.from(n / 2, row -> RandomSource.nextDouble()).name("y"));
+
+        for (Join.Type type : Join.Type.values()) {
+            Frame hash = Join.from(l, r, VRange.of("id"), VRange.of("id"), type, Join.Strategy.HASH);
+            Frame merge = Join.from(l.refSort("id"), r.refSort("id"),
+                    VRange.of("id"), VRange.of("id"), type, Join.Strategy.AUTO);
+            Frame mergeUnsorted = Join.from(l, r, VRange.of("id"), VRange.of("id"), type, Join.Strategy.MERGE);
+
+            assertEquals(hash.rowCount(), merge.rowCount());
+            assertEquals(hash.rowCount(), mergeUnsorted.rowCount());
+            assertTrue(hash.refSort("id", "x", "y").deepEquals(merge.refSort("id", "x", "y")));
+            assertTrue(hash.refSort("id", "x", "y").deepEquals(mergeUnsorted.refSort("id", "x", "y")));
+        }
+    }
+
+    @Test
+    void testInvalidKeys() {
+        Frame other = SolidFrame.byVars(VarDouble.wrap(1, 2).name("id"));
+        var ex = assertThrows(IllegalArgumentException.class, () -> Join.inner(left, other, "id"));
+        assertEquals("Variable types differ; left: id [ INT ], right: id [ DOUBLE ]", ex.getMessage());
+    }
+}
@@ -6,6 +6,8 @@ import rapaio.core.RandomSource;
 import rapaio.data.Frame;
 import rapaio.data.VRange;
 import rapaio.data.VType;
+import rapaio.math.linear.dense.DMStripe;
+import rapaio.math.linear.sparse.DMSparse;
 
 import java.util.List;
 
@@ -62,4 +64,22 @@ public class FOneHotEncodingTest {
             assertTrue(f2.varName(i - 2).contains(levels.get(i)));
         }
     }
+
+    @Test
+    void testSparse() {
+        Frame df = FFilterTestUtil.allDoubleNominal(100, 2, 2);
+
+        for (boolean lessOne : new boolean[]{false, true}) {
+            for (boolean useNa : new boolean[]{false, true}) {
+                FOneHotEncoding filter = FOneHotEncoding.on(lessOne, useNa, VRange.all());
+                Frame dense = df.fapply(filter);
+                DMSparse sparse = filter.applySparse(df);
+
+                assertArrayEquals(dense.varNames(), filter.encodedNames(df));
+                assertTrue(DMStripe.copy(dense).deepEquals(sparse));
+                // each nominal variable stores at most one value on each row
+                assertTrue(sparse.nnz() <= df.rowCount() * 4);
+            }
+        }
+    }
 }
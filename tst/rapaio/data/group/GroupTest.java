@@ -228,4 +228,15 @@ public class GroupTest {
             assertEquals((int) counts.get(sb), count);
         }
     }
+
+    @Test
+    void testParallelAggregate() {
+        Group group = Group.from(iris, "class");
+        GroupFun[] funs = new GroupFun[]{count("petal-width"), sum("sepal-length"), mean(1, "sepal-length"),
+                std("petal-length"), nunique("sepal-width"), max("sepal-width")};
+
+        Frame serial = group.aggregate(funs).toFrame();
+        Frame parallel = group.aggregate(4, funs).toFrame();
+        assertTrue(serial.deepEquals(parallel));
+    }
 }
@@ -6,6 +6,7 @@ import rapaio.core.RandomSource;
 import rapaio.data.Unique;
 import rapaio.data.VarInt;
 import rapaio.data.VarNominal;
+import rapaio.data.VarString;
 import rapaio.data.stream.VSpot;
 import rapaio.sys.WS;
 
@@ -109,6 +110,39 @@ public class UniqueLabelTest {
         }
     }
 
+    @Test
+    void testRowLists() {
+        VarNominal x = VarNominal.empty(0, "unused", "b", "a");
+        for (String label : new String[]{"a", "b", "?", "a", "c", "b", "a"}) {
+            x.addLabel(label);
+        }
+
+        UniqueLabel unsorted = UniqueLabel.of(x, false);
+        assertEquals(4, unsorted.uniqueCount());
+        assertEquals("a", unsorted.uniqueValue(0));
+        assertEquals("b", unsorted.uniqueValue(1));
+        assertEquals("?", unsorted.uniqueValue(2));
+        assertEquals("c", unsorted.uniqueValue(3));
+        assertArrayEquals(new int[]{0, 3, 6}, unsorted.rowList(0).stream().toArray());
+        assertArrayEquals(new int[]{1, 5}, unsorted.rowList(1).stream().toArray());
+
+        UniqueLabel sorted = UniqueLabel.of(x, true);
+        assertEquals("?", sorted.uniqueValue(0));
+        assertEquals("a", sorted.uniqueValue(1));
+        assertArrayEquals(new int[]{0, 3, 6}, sorted.rowList(1).stream().toArray());
+        assertArrayEquals(new int[]{4}, sorted.rowList(3).stream().toArray());
+        for (int i = 0; i < x.rowCount(); i++) {
+            assertEquals(x.getLabel(i), sorted.uniqueValue(sorted.idByRow(i)));
+        }
+
+        // mapped nominal variables and text variables give the same groups
+        UniqueLabel mapped = UniqueLabel.of(x.mapRows(6, 4, 0), true);
+        assertEquals(2, mapped.uniqueCount());
+        assertArrayEquals(new int[]{0, 2}, mapped.rowList(0).stream().toArray());
+        UniqueLabel text = UniqueLabel.of(VarString.copy("a", "b", "?", "a", "c", "b", "a"), true);
+        assertEquals(sorted.toString(), text.toString());
+    }
+
     @Test
     void testString() {
 
@@ -0,0 +1,131 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.experiment.io.json;
+
+import org.junit.jupiter.api.Test;
+import rapaio.data.Frame;
+import rapaio.data.VType;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class JsonFrameReaderTest {
+
+    private JsonFrameReader reader() {
+        return JsonFrameReader.newReader()
+                .field("x", VType.DOUBLE)
+                .field("n", VType.NOMINAL)
+                .field("u.c", VType.STRING)
+                .field("i", VType.INT)
+                .field("b", VType.BINARY)
+                .field("l", VType.LONG);
+    }
+
+    private File writeFiles() throws IOException {
+        File root = Files.createTempDirectory("json-frame-").toFile();
+        root.deleteOnExit();
+        File plain = new File(root, "a.json");
+        plain.deleteOnExit();
+        Files.writeString(plain.toPath(),
+                "{\"x\": 1.5, \"n\": \"a\", \"skip\": {\"q\": [1, 2, {\"z\": \"}\"}]}, \"u\": {\"c\": \"ro\", \"k\": 3}, \"i\": 7, \"b\": true}\n"
+                        + "{\"x\": -2e3, \"n\": \"b\\\"q\\u0041\", \"i\": \"8\", \"b\": 0, \"l\": 12345678901234}\n");
+        File gz = new File(root, "b.json.gz");
+        gz.deleteOnExit();
+        try (Writer w = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(gz)), StandardCharsets.UTF_8)) {
+            w.write("[{\"x\": null, \"n\": \"a\", \"i\": 3.0, \"i\": 4}, {\"u\": {\"c\": \"de\"}, \"x\": 0.1, \"b\": 2}]");
+        }
+        return root;
+    }
+
+    @Test
+    void testRead() throws IOException {
+        File root = writeFiles();
+        for (int bufferSize : new int[]{1, 3, 1024}) {
+            for (int poolSize : new int[]{0, 2}) {
+                Frame df = reader().bufferSize(bufferSize).poolSize(poolSize).read(root, file -> file.getName().startsWith("a"));
+                assertEquals(2, df.rowCount());
+
+                df = reader().bufferSize(bufferSize).poolSize(poolSize).read(root, file -> true);
+                assertEquals(4, df.rowCount());
+                assertArrayEquals(new String[]{"x", "n", "u.c", "i", "b", "l"}, df.varNames());
+
+                assertEquals(1.5, df.getDouble(0, "x"));
+                assertEquals(-2000, df.getDouble(1, "x"));
+                assertTrue(df.isMissing(2, "x"));
+                assertEquals(0.1, df.getDouble(3, "x"));
+
+                assertEquals("a", df.getLabel(0, "n"));
+                assertEquals("b\"qA", df.getLabel(1, "n"));
+                assertEquals("a", df.getLabel(2, "n"));
+                assertTrue(df.isMissing(3, "n"));
+
+                assertEquals("ro", df.getLabel(0, "u.c"));
+                assertTrue(df.isMissing(1, "u.c"));
+                assertEquals("de", df.getLabel(3, "u.c"));
+
+                assertEquals(7, df.getInt(0, "i"));
+                assertEquals(8, df.getInt(1, "i"));
+                assertEquals(4, df.getInt(2, "i"));
+                assertTrue(df.isMissing(3, "i"));
+
+                assertEquals(1, df.getInt(0, "b"));
+                assertEquals(0, df.getInt(1, "b"));
+                assertTrue(df.isMissing(3, "b"));
+
+                assertEquals(12345678901234L, df.getLong(1, "l"));
+                assertTrue(df.isMissing(0, "l"));
+            }
+        }
+    }
+
+    @Test
+    void testPropFilter() throws IOException {
+        Frame df = reader().read(writeFiles(), file -> true, Json.inFilter("n", "u"));
+        assertArrayEquals(new String[]{"n", "u.c"}, df.varNames());
+        assertEquals(4, df.rowCount());
+    }
+
+    @Test
+    void testMalformed() throws IOException {
+        File file = File.createTempFile("json-frame-", ".json");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "{\"x\": 1, \"n\": \"a}");
+        assertThrows(IOException.class, () -> reader().read(file, f -> true));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.experiment.io.json;
+
+import rapaio.data.VType;
+import rapaio.experiment.io.json.stream.LzJsonBlockOutput;
+import rapaio.experiment.io.json.tree.JsonNumber;
+import rapaio.experiment.io.json.tree.JsonObject;
+import rapaio.experiment.io.json.tree.JsonString;
+import rapaio.experiment.io.json.tree.JsonValue;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares gzip compressed json text files with block compressed lzjson files
+ * on file size, write time and read time. Reading is measured through json streams
+ * and through {@link JsonFrameReader}.
+ * <p>
+ * It is not a unit test, it is run manually with an optional argument for the
+ * number of records (default 1_000_000).
+ */
+public class LzJsonBlockBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<JsonValue> values = generate(records);
+
+        File gz = File.createTempFile("bench-", ".json.gz");
+        File lz = File.createTempFile("bench-", ".lzjson");
+        gz.deleteOnExit();
+        lz.deleteOnExit();
+
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            try (Writer w = new OutputStreamWriter(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(gz))),
+                    StandardCharsets.UTF_8)) {
+                for (JsonValue js : values) {
+                    w.append(js.toString()).append('\n');
+                }
+            }
+            double gzWrite = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            try (LzJsonBlockOutput out = new LzJsonBlockOutput(new BufferedOutputStream(new FileOutputStream(lz)))) {
+                for (JsonValue js : values) {
+                    out.write(js);
+                }
+            }
+            double lzWrite = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            long gzCount = Json.stream(gz, f -> true).count();
+            double gzStream = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            long lzCount = Json.stream(lz, f -> true).parallel().count();
+            double lzStream = (System.nanoTime() - start) / 1e6;
+
+            JsonFrameReader reader = JsonFrameReader.newReader()
+                    .field("id", VType.LONG)
+                    .field("user", VType.NOMINAL)
+                    .field("score", VType.DOUBLE);
+            start = System.nanoTime();
+            int gzRows = reader.read(gz, f -> true).rowCount();
+            double gzFrame = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            int lzRows = reader.read(lz, f -> true).rowCount();
+            double lzFrame = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("run %d, records %d/%d/%d/%d%n", run, gzCount, lzCount, gzRows, lzRows);
+            System.out.printf("gzip json : size %,d bytes, write %.1f ms, stream %.1f ms, frame %.1f ms%n",
+                    gz.length(), gzWrite, gzStream, gzFrame);
+            System.out.printf("block lzjson: size %,d bytes, write %.1f ms, stream %.1f ms, frame %.1f ms%n",
+                    lz.length(), lzWrite, lzStream, lzFrame);
+        }
+    }
+
+    private static List<JsonValue> generate(int records) {
+        Random random = new Random(42);
+        List<JsonValue> values = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            JsonObject js = new JsonObject();
+            js.addValue("id", new JsonNumber(String.valueOf(i)));
+            js.addValue("user", new JsonString("user-" + random.nextInt(1_000)));
+            js.addValue("country", new JsonString(random.nextBoolean() ? "ro" : "de"));
+            js.addValue("score", new JsonNumber(String.valueOf(Math.round(random.nextDouble() * 1e4) / 1e2)));
+            JsonObject device = new JsonObject();
+            device.addValue("os", new JsonString(random.nextBoolean() ? "linux" : "android"));
+            device.addValue("version", new JsonNumber(String.valueOf(random.nextInt(20))));
+            js.addValue("device", device);
+            values.add(js);
+        }
+        return values;
+    }
+}
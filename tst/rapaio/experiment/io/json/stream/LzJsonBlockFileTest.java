@@ -0,0 +1,141 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.experiment.io.json.stream;
+
+import org.junit.jupiter.api.Test;
+import rapaio.data.Frame;
+import rapaio.data.VType;
+import rapaio.experiment.io.json.Json;
+import rapaio.experiment.io.json.JsonFrameReader;
+import rapaio.experiment.io.json.tree.JsonNumber;
+import rapaio.experiment.io.json.tree.JsonObject;
+import rapaio.experiment.io.json.tree.JsonString;
+import rapaio.experiment.io.json.tree.JsonValue;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class LzJsonBlockFileTest {
+
+    private static final int RECORDS = 2_503;
+
+    private List<JsonValue> values() {
+        List<JsonValue> values = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            JsonObject js = new JsonObject();
+            js.addValue("id", new JsonNumber(String.valueOf(i)));
+            js.addValue("name", new JsonString("user" + (i % 17)));
+            JsonObject nested = new JsonObject();
+            nested.addValue("v", new JsonNumber(String.valueOf(i * 0.5)));
+            js.addValue("in", nested);
+            values.add(js);
+        }
+        return values;
+    }
+
+    private File write(List<JsonValue> values, int poolSize) throws IOException {
+        File file = File.createTempFile("lzjson-block-", ".lzjson");
+        file.deleteOnExit();
+        try (LzJsonBlockOutput out = new LzJsonBlockOutput(new BufferedOutputStream(new FileOutputStream(file)), poolSize)
+                .withBlockSize(100)) {
+            for (JsonValue js : values) {
+                out.write(js);
+            }
+        }
+        return file;
+    }
+
+    @Test
+    void testIndex() throws IOException {
+        List<JsonValue> values = values();
+        for (int poolSize : new int[]{0, 3}) {
+            File file = write(values, poolSize);
+            assertTrue(LzJsonBlockFile.isBlockFile(file));
+
+            LzJsonBlockFile index = LzJsonBlockFile.open(file);
+            assertEquals(26, index.blockCount());
+            assertEquals(RECORDS, index.recordCount());
+            assertEquals(3, index.blockRecords(25));
+            assertEquals(0, index.blockOf(99));
+            assertEquals(1, index.blockOf(100));
+            assertEquals(25, index.blockOf(RECORDS - 1));
+
+            for (int record : new int[]{0, 99, 100, 1234, RECORDS - 1}) {
+                assertEquals(values.get(record).toString(), index.read(record).toString());
+            }
+            List<JsonValue> block = index.readBlock(3, key -> key.equals("id"));
+            assertEquals(100, block.size());
+            assertEquals("{\"id\":300}", block.get(0).toString());
+        }
+    }
+
+    @Test
+    void testSplitStream() throws IOException {
+        List<JsonValue> values = values();
+        File file = write(values, 2);
+
+        JsonSpliterator spliterator = new JsonSpliterator(List.of(file), msg -> {
+        }, Json.allFilter());
+        assertTrue(spliterator.isParallel());
+        assertNotNull(spliterator.trySplit());
+
+        Set<String> expected = values.stream().map(JsonValue::toString).collect(Collectors.toSet());
+        List<String> actual = Json.stream(file, f -> true).parallel().map(JsonValue::toString).collect(Collectors.toList());
+        assertEquals(RECORDS, actual.size());
+        assertEquals(expected, new HashSet<>(actual));
+    }
+
+    @Test
+    void testFrameReader() throws IOException {
+        File file = write(values(), 2);
+        Frame df = JsonFrameReader.newReader()
+                .field("id", VType.INT)
+                .field("name", VType.NOMINAL)
+                .field("in.v", VType.DOUBLE)
+                .poolSize(3)
+                .read(file, f -> true);
+        assertEquals(RECORDS, df.rowCount());
+        for (int i = 0; i < RECORDS; i++) {
+            assertEquals(i, df.getInt(i, "id"));
+            assertEquals("user" + (i % 17), df.getLabel(i, "name"));
+            assertEquals(i * 0.5, df.getDouble(i, "in.v"));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.io;
+
+import org.junit.jupiter.api.Test;
+import rapaio.data.Frame;
+import rapaio.data.OperationNotAvailableException;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+import rapaio.data.VarString;
+import rapaio.datasets.Datasets;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarIOTest {
+
+    @Test
+    void testRoundTrip() throws IOException, ClassNotFoundException {
+        testFrame(Datasets.loadIrisDataset());
+        testFrame(Datasets.loadRandom());
+        testFrame(Datasets.loadCarMpgDataset());
+    }
+
+    private void testFrame(Frame df) throws IOException, ClassNotFoundException {
+        File tmp = File.createTempFile("columnar-", ".rcf");
+        tmp.deleteOnExit();
+        ColumnarIO.write(df, tmp);
+
+        Frame restored = ColumnarIO.read(tmp);
+        assertTrue(df.deepEquals(restored));
+        assertTrue(df.deepEquals(restored.copy()));
+        for (int i = 0; i < df.varCount(); i++) {
+            assertEquals(df.rvar(i).type(), restored.rvar(i).type());
+        }
+
+        // serialization stores a solid copy
+        File ser = File.createTempFile("columnar-", ".ser");
+        ser.deleteOnExit();
+        JavaIO.storeToFile(restored, ser);
+        assertTrue(df.deepEquals((Frame) JavaIO.restoreFromFile(ser)));
+    }
+
+    @Test
+    void testManyLevels() throws IOException {
+        // dictionary indexes above 32767 do not fit into signed shorts
+        File tmp = File.createTempFile("columnar-", ".rcf");
+        tmp.deleteOnExit();
+
+        Frame restored = ColumnarIO.read(writeTo(SolidFrame.byVars(nominal(40_000)), tmp));
+        assertEquals("l39998", restored.getLabel(0, 0));
+        assertEquals(39_999, restored.getInt(0, 0));
+        assertFalse(restored.isMissing(0, 0));
+        assertTrue(restored.isMissing(1, 0));
+        assertEquals("l2", restored.getLabel(2, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarIO.write(SolidFrame.byVars(nominal(65_536)), tmp));
+    }
+
+    private Var nominal(int levels) {
+        List<String> dict = new ArrayList<>();
+        dict.add("?");
+        for (int i = 0; i < levels - 1; i++) {
+            dict.add("l" + i);
+        }
+        short[] codes = new short[]{(short) (levels - 1), 0, 3};
+        return new MappedColumnVar.MappedNominal(codes.length, ShortBuffer.wrap(codes), dict).name("x");
+    }
+
+    private File writeTo(Frame df, File file) throws IOException {
+        ColumnarIO.write(df, file);
+        return file;
+    }
+
+    @Test
+    void testReadOnly() throws IOException {
+        File tmp = File.createTempFile("columnar-", ".rcf");
+        tmp.deleteOnExit();
+        ColumnarIO.write(Datasets.loadIrisDataset(), tmp);
+        Frame df = ColumnarIO.read(tmp);
+        assertThrows(OperationNotAvailableException.class, () -> df.setDouble(0, 0, 1.0));
+        assertThrows(OperationNotAvailableException.class, () -> df.rvar(0).addDouble(1.0));
+    }
+
+    @Test
+    void testInvalid() throws IOException {
+        File tmp = File.createTempFile("columnar-", ".rcf");
+        tmp.deleteOnExit();
+        assertThrows(IllegalArgumentException.class,
+                () -> ColumnarIO.write(SolidFrame.byVars(VarString.copy("a", "b").name("x")), tmp));
+
+        Csv.instance().write(Datasets.loadIrisDataset(), tmp);
+        assertThrows(IOException.class, () -> ColumnarIO.read(tmp));
+    }
+}
@@ -32,7 +32,10 @@ import rapaio.data.Var;
 import rapaio.datasets.Datasets;
 import rapaio.util.IntRule;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -247,4 +250,69 @@ public class CsvTest {
         Frame na4 = Csv.instance().naValues.set("virginica", "5").types.add(VType.NOMINAL, "sepal-length").read(Datasets.class, "iris-r.csv");
         assertEquals(89, na4.stream().complete().count());
     }
+
+    @Test
+    void testParallelRead() throws IOException {
+        File tmp = File.createTempFile("csv-parallel-", ".csv");
+        tmp.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(tmp)) {
+            writer.println("a,b,c,d");
+            for (int i = 0; i < 50_000; i++) {
+                // column b becomes double and column d gets extra values only after the sample
+                writer.print(i % 2);
+                writer.print(',');
+                writer.print(i < 40_000 ? String.valueOf(i) : (i + 0.5));
+                writer.print(',');
+                writer.print(i % 7 == 0 ? "?" : "x" + (i % 13));
+                if (i >= 45_000) {
+                    writer.print(",");
+                    writer.print(i);
+                }
+                writer.println();
+            }
+        }
+
+        Csv sequential = Csv.instance().defaultTypes.set(VType.BINARY, VType.INT, VType.DOUBLE, VType.NOMINAL);
+        Csv parallel = Csv.instance().defaultTypes.set(VType.BINARY, VType.INT, VType.DOUBLE, VType.NOMINAL)
+                .poolSize.set(4).sampleRows.set(100);
+
+        Frame expected = sequential.read(new FileInputStream(tmp));
+        Frame actual = parallel.read(tmp);
+        assertEquals(50_000, actual.rowCount());
+        assertEquals(VType.BINARY, actual.rvar("a").type());
+        assertEquals(VType.DOUBLE, actual.rvar("b").type());
+        assertEquals(VType.NOMINAL, actual.rvar("c").type());
+        assertEquals(VType.INT, actual.rvar("d").type());
+        for (String name : new String[]{"a", "b", "c"}) {
+            assertTrue(expected.rvar(name).deepEquals(actual.rvar(name)), name);
+        }
+        assertTrue(actual.isMissing(44_999, "d"));
+        assertEquals(49_999, actual.getInt(49_999, "d"));
+
+        Frame filtered = Csv.instance().poolSize.set(3)
+                .skipRows.set(row -> row % 2 == 1)
+                .skipCols.set(col -> col == 2)
+                .startRow.set(10)
+                .endRow.set(1010)
+                .read(tmp);
+        assertEquals(1000, filtered.rowCount());
+        assertEquals(3, filtered.varCount());
+        assertEquals(20, filtered.getInt(0, "b"));
+        assertEquals(2018, filtered.getInt(999, "b"));
+    }
+
+    @Test
+    void testMappedTokenizer() throws IOException {
+        File file = new File(getClass().getResource("csv-test.csv").getFile());
+        Frame expected = Csv.instance().quotes.set(true).read(new FileInputStream(file));
+        Frame actual = Csv.instance().quotes.set(true).poolSize.set(2).read(file);
+        assertTrue(expected.deepEquals(actual));
+
+        File defaults = new File(getClass().getResource("defaults-test.csv").getFile());
+        expected = Csv.instance().quotes.set(true).defaultTypes.set(VType.BINARY, VType.INT, VType.DOUBLE, VType.NOMINAL)
+                .read(new FileInputStream(defaults));
+        actual = Csv.instance().quotes.set(true).defaultTypes.set(VType.BINARY, VType.INT, VType.DOUBLE, VType.NOMINAL)
+                .poolSize.set(2).read(defaults);
+        assertTrue(expected.deepEquals(actual));
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.io;
+
+import org.junit.jupiter.api.Test;
+import rapaio.data.VType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class ParseToolsTest {
+
+    @Test
+    void testByteNumberParser() {
+        ParseTools.NumberParser parser = new ParseTools.NumberParser();
+        for (String value : doubleValues()) {
+            ByteBuffer buff = ByteBuffer.wrap(value.getBytes());
+            assertTrue(parser.parseDouble(buff, 0, buff.limit()), value);
+            assertEquals(Double.parseDouble(value), parser.doubleValue(), 0.0, value);
+        }
+        for (String value : new String[]{"", ".", "-", "1e", "1.2.3", "abc", "1,5"}) {
+            ByteBuffer buff = ByteBuffer.wrap(value.getBytes());
+            assertFalse(parser.parseDouble(buff, 0, buff.limit()), value);
+        }
+    }
+
+    @Test
+    void testCharNumberParser() {
+        ParseTools.NumberParser parser = new ParseTools.NumberParser();
+        for (String value : doubleValues()) {
+            char[] chars = ("[" + value + "]").toCharArray();
+            assertTrue(parser.parseDouble(chars, 1, chars.length - 1), value);
+            assertEquals(Double.parseDouble(value), parser.doubleValue(), 0.0, value);
+        }
+        for (String value : new String[]{"", ".", "-", "1e", "1.2.3", "abc", "1,5"}) {
+            assertFalse(parser.parseDouble(value.toCharArray(), 0, value.length()), value);
+        }
+    }
+
+    @Test
+    void testIntegralParser() {
+        ParseTools.NumberParser parser = new ParseTools.NumberParser();
+        assertTrue(parser.accepts(VType.INT, bytes("-2147483648"), 0, 11));
+        assertEquals(Integer.MIN_VALUE, parser.longValue());
+        assertFalse(parser.accepts(VType.INT, bytes("2147483648"), 0, 10));
+        assertTrue(parser.accepts(VType.LONG, bytes("2147483648"), 0, 10));
+        assertEquals(2147483648L, parser.longValue());
+        assertTrue(parser.accepts(VType.BINARY, bytes("TRUE"), 0, 4));
+        assertEquals(1, parser.longValue());
+        assertFalse(parser.accepts(VType.BINARY, bytes("2"), 0, 1));
+    }
+
+    @Test
+    void testLabelInterner() {
+        ParseTools.LabelInterner interner = new ParseTools.LabelInterner();
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            labels.add(interner.intern(bytes("label" + i + "ä"), 0, bytes("label" + i + "ä").limit()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            String text = "[label" + i + "ä]";
+            String label = interner.intern(text.toCharArray(), 1, text.length() - 1);
+            assertEquals("label" + i + "ä", label);
+            ByteBuffer buff = bytes("label" + i + "ä");
+            assertSame(labels.get(i), interner.intern(buff, 0, buff.limit()));
+        }
+    }
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> doubleValues() {
+        Random random = new Random(42);
+        List<String> values = new ArrayList<>(List.of("0", "-0", "1.", ".5", "+3.25", "1e10", "1E-5", "2.5d",
+                "123456789012345678901234", "0.000000000000000000000001234", "4.9e-324", "1.7976931348623157E308"));
+        for (int i = 0; i < 10_000; i++) {
+            values.add(String.valueOf(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20)));
+            values.add(String.format("%.4f", random.nextDouble() * 1000));
+        }
+        return values;
+    }
+}
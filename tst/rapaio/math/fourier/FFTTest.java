@@ -22,7 +22,7 @@
  *
  */
 
-package rapaio.experiment.math.fourier;
+package rapaio.math.fourier;
 
 import org.junit.jupiter.api.Test;
 import rapaio.core.RandomSource;
@@ -137,4 +137,104 @@ public class FFTTest {
             }
         }
     }
+
+    @Test
+    void primitiveTest() {
+        RandomSource.setSeed(42);
+        Normal normal = Normal.std();
+        for (int n = 1; n <= 256; n *= 2) {
+            double[] re = new double[n];
+            double[] im = new double[n];
+            for (int i = 0; i < n; i++) {
+                re[i] = normal.sampleNext();
+                im[i] = normal.sampleNext();
+            }
+            double[] re2 = re.clone();
+            double[] im2 = im.clone();
+            FFT.fft(re2, im2);
+
+            // compare with the discrete Fourier transform computed by definition
+            for (int k = 0; k < n; k++) {
+                double sre = 0;
+                double sim = 0;
+                for (int j = 0; j < n; j++) {
+                    double angle = -2 * Math.PI * j * k / n;
+                    sre += re[j] * Math.cos(angle) - im[j] * Math.sin(angle);
+                    sim += re[j] * Math.sin(angle) + im[j] * Math.cos(angle);
+                }
+                assertEquals(sre, re2[k], 1e-9);
+                assertEquals(sim, im2[k], 1e-9);
+            }
+
+            FFT.ifft(re2, im2);
+            for (int i = 0; i < n; i++) {
+                assertEquals(re[i], re2[i], 1e-12);
+                assertEquals(im[i], im2[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void bluesteinTest() {
+        RandomSource.setSeed(43);
+        Normal normal = Normal.std();
+        for (int n = 1; n <= 100; n++) {
+            double[] re = new double[n];
+            double[] im = new double[n];
+            for (int i = 0; i < n; i++) {
+                re[i] = normal.sampleNext();
+                im[i] = normal.sampleNext();
+            }
+            double[] re2 = re.clone();
+            double[] im2 = im.clone();
+            FFT.fft(re2, im2);
+
+            for (int k = 0; k < n; k++) {
+                double sre = 0;
+                double sim = 0;
+                for (int j = 0; j < n; j++) {
+                    double angle = -2 * Math.PI * ((long) j * k % n) / n;
+                    sre += re[j] * Math.cos(angle) - im[j] * Math.sin(angle);
+                    sim += re[j] * Math.sin(angle) + im[j] * Math.cos(angle);
+                }
+                assertEquals(sre, re2[k], 1e-9);
+                assertEquals(sim, im2[k], 1e-9);
+            }
+
+            FFT.ifft(re2, im2);
+            for (int i = 0; i < n; i++) {
+                assertEquals(re[i], re2[i], 1e-12);
+                assertEquals(im[i], im2[i], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void realTest() {
+        RandomSource.setSeed(44);
+        Normal normal = Normal.std();
+        for (int n = 1; n <= 70; n++) {
+            double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = normal.sampleNext();
+            }
+            double[] re = x.clone();
+            double[] im = new double[n];
+            FFT.fft(re, im);
+
+            double[] rre = new double[n / 2 + 1];
+            double[] rim = new double[n / 2 + 1];
+            FFT.rfft(x, rre, rim);
+            for (int k = 0; k < rre.length; k++) {
+                assertEquals(re[k], rre[k], 1e-12);
+                assertEquals(im[k], rim[k], 1e-12);
+            }
+
+            double[] y = new double[n];
+            FFT.irfft(rre, rim, y);
+            for (int i = 0; i < n; i++) {
+                assertEquals(x[i], y[i], 1e-12);
+            }
+        }
+    }
 }
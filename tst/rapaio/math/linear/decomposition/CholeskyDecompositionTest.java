@@ -28,6 +28,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import rapaio.core.RandomSource;
 import rapaio.math.linear.DM;
+import rapaio.math.linear.Linear;
 import rapaio.math.linear.dense.DMStripe;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -104,6 +105,18 @@ public class CholeskyDecompositionTest {
         assertTrue(x2.deepEquals(s2, TOL));
     }
 
+    @Test
+    void testChol2inv() {
+        for (int i = 0; i < TIMES; i++) {
+            DM a = DMStripe.random(10, 10);
+            DM b = a.t().dot(a).add(DMStripe.identity(10));
+
+            DM r = CholeskyDecomposition.from(b).getL().t();
+            DM inv = Linear.chol2inv(r);
+            assertTrue(DMStripe.identity(10).deepEquals(b.dot(inv), 1e-10));
+        }
+    }
+
     @Test
     void testSystemNonSymmetric() {
         assertThrows(IllegalArgumentException.class, () -> CholeskyDecomposition.from(rapaio.math.linear.dense.DMStripe.random(2, 2)).solve(rapaio.math.linear.dense.DMStripe.random(2, 1)));
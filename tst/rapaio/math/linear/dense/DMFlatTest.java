@@ -0,0 +1,224 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.dense;
+
+import org.junit.jupiter.api.Test;
+import rapaio.math.linear.DM;
+import rapaio.math.linear.DV;
+import rapaio.math.linear.StandardDMTest;
+import rapaio.math.linear.decomposition.CholeskyDecomposition;
+import rapaio.math.linear.decomposition.LUDecomposition;
+import rapaio.math.linear.decomposition.MatrixMultiplication;
+import rapaio.math.linear.decomposition.QRDecomposition;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DMFlatTest extends StandardDMTest {
+
+    @Override
+    protected DM.Type type() {
+        return DM.Type.FLAT;
+    }
+
+    @Override
+    protected DM generateSequential(int n, int m) {
+        DMFlat matrix = DMFlat.empty(n, m);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                matrix.set(i, j, i * m + j);
+            }
+        }
+        return matrix;
+    }
+
+    @Override
+    protected DM generateIdentity(int n) {
+        return DMFlat.identity(n);
+    }
+
+    @Override
+    protected DM generateFill(int n, int m, double fill) {
+        return DMFlat.fill(n, m, fill);
+    }
+
+    @Override
+    protected DM generateWrap(double[][] values) {
+        return DMFlat.copy(DMStripe.wrap(values));
+    }
+
+    @Override
+    protected String className() {
+        return "DMFlat";
+    }
+
+    @Test
+    void buildersTest() {
+        double[] values = new double[]{
+                1, 2, 3, 4,
+                5, 6, 7, 8,
+                9, 10, 11, 12
+        };
+        DMFlat byRows = DMFlat.wrap(3, 4, true, values);
+        DMFlat byCols = DMFlat.wrap(4, 3, false, values);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(values[i * 4 + j], byRows.get(i, j), TOL);
+                assertEquals(values[i * 4 + j], byCols.get(j, i), TOL);
+            }
+        }
+        assertTrue(byRows.isRowMajor());
+        assertFalse(byCols.isRowMajor());
+        assertSame(values, byRows.elements());
+
+        DMFlat copy = DMFlat.copy(3, 4, values);
+        assertNotSame(values, copy.elements());
+        assertTrue(copy.deepEquals(byRows));
+
+        DMFlat colMajor = DMFlat.copy(byRows, false);
+        assertFalse(colMajor.isRowMajor());
+        assertTrue(colMajor.deepEquals(byRows));
+        assertEquals(3, colMajor.stride());
+
+        assertThrows(IllegalArgumentException.class, () -> DMFlat.wrap(4, 4, true, values));
+    }
+
+    @Test
+    void zeroCopyViewsTest() {
+        DMFlat m = (DMFlat) generateSequential(6, 5);
+
+        DMFlat t = m.t();
+        assertEquals(5, t.rowCount());
+        assertEquals(6, t.colCount());
+        assertSame(m.elements(), t.elements());
+        assertFalse(t.isRowMajor());
+        assertTrue(t.deepEquals(m.copy().t().copy()));
+        assertSame(m.elements(), t.t().elements());
+        assertTrue(t.t().deepEquals(m));
+
+        DMFlat block = m.rangeRows(1, 5).rangeCols(2, 4);
+        assertSame(m.elements(), block.elements());
+        assertEquals(4, block.rowCount());
+        assertEquals(2, block.colCount());
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 2; j++) {
+                assertEquals(m.get(i + 1, j + 2), block.get(i, j), TOL);
+            }
+        }
+
+        // views on transposed storage
+        DMFlat tblock = block.t();
+        DMFlat tblockRows = tblock.rangeRows(1, 2);
+        assertEquals(1, tblockRows.rowCount());
+        assertEquals(4, tblockRows.colCount());
+        for (int j = 0; j < 4; j++) {
+            assertEquals(m.get(j + 1, 3), tblockRows.get(0, j), TOL);
+        }
+
+        block.set(0, 0, -1);
+        assertEquals(-1, m.get(1, 2), TOL);
+        assertEquals(-1, t.get(2, 1), TOL);
+
+        DMFlat blockCopy = block.copy();
+        assertNotSame(m.elements(), blockCopy.elements());
+        assertTrue(blockCopy.deepEquals(block));
+        assertEquals(2, blockCopy.stride());
+        blockCopy.set(0, 0, -2);
+        assertEquals(-1, m.get(1, 2), TOL);
+
+        block.apply(x -> x * 10);
+        assertEquals(-10, m.get(1, 2), TOL);
+        assertEquals(0, m.get(0, 0), TOL);
+        assertEquals(4, m.get(0, 4), TOL);
+    }
+
+    @Test
+    void stridedVectorViewsTest() {
+        DMFlat m = (DMFlat) generateSequential(4, 3);
+        for (DMFlat view : new DMFlat[]{m, DMFlat.copy(m, false), m.t().t()}) {
+            for (int i = 0; i < view.rowCount(); i++) {
+                DV row = view.mapRow(i);
+                assertEquals(DV.Type.VIEW, row.type());
+                assertTrue(row.deepEquals(view.mapRowCopy(i)));
+            }
+            for (int j = 0; j < view.colCount(); j++) {
+                DV col = view.mapCol(j);
+                assertEquals(DV.Type.VIEW, col.type());
+                assertTrue(col.deepEquals(view.mapColCopy(j)));
+                assertArrayEquals(view.mapColCopy(j).valueStream().toArray(), col.valueStream().toArray(), TOL);
+                assertArrayEquals(view.mapColCopy(j).valueStream().toArray(), col.asVarDouble().elements(), TOL);
+            }
+        }
+
+        DV col = m.mapCol(1);
+        col.set(2, 100);
+        assertEquals(100, m.get(2, 1), TOL);
+        col.inc(2, 1);
+        assertEquals(101, m.get(2, 1), TOL);
+        assertEquals(m.mapCol(1).dot(m.mapCol(2)), m.mapColCopy(1).dot(m.mapColCopy(2)), TOL);
+
+        DV copy = col.copy();
+        assertEquals(DV.Type.DENSE, copy.type());
+        copy.set(0, -1);
+        assertEquals(1, m.get(0, 1), TOL);
+        assertThrows(IllegalArgumentException.class, () -> col.copy(DV.Type.VIEW));
+    }
+
+    @Test
+    void dotTest() {
+        DMFlat a = DMFlat.copy(DMStripe.random(37, 23));
+        DMFlat b = DMFlat.copy(DMStripe.random(23, 41), false);
+        DM expected = MatrixMultiplication.ikjAlgorithm(a, b);
+        assertTrue(expected.deepEquals(a.dot(b), 1e-10));
+        assertTrue(expected.deepEquals(Gemm.dot(a.t(), true, b.t(), true), 1e-10));
+        assertTrue(expected.rangeRows(3, 20).deepEquals(a.rangeRows(3, 20).dot(b), 1e-10));
+    }
+
+    @Test
+    void decompositionsTest() {
+        DM x = DMStripe.random(30, 6);
+        DM spd = x.t().dot(x);
+        DM b = DMStripe.random(6, 2);
+        DMFlat flat = DMFlat.copy(spd);
+        DMFlat flatCols = DMFlat.copy(spd, false);
+
+        for (DM a : new DM[]{flat, flatCols, flatCols.t()}) {
+            assertTrue(CholeskyDecomposition.from(spd).solve(b).deepEquals(CholeskyDecomposition.from(a).solve(b), 1e-10));
+            assertTrue(LUDecomposition.from(spd).solve(b).deepEquals(LUDecomposition.from(a).solve(b), 1e-10));
+            assertTrue(QRDecomposition.from(spd).solve(b).deepEquals(QRDecomposition.from(a).solve(b), 1e-10));
+        }
+
+        CholeskyDecomposition chol = CholeskyDecomposition.from(flat);
+        assertTrue(chol.isSPD());
+        DM l = chol.getL();
+        assertEquals(DM.Type.FLAT, l.type());
+        assertTrue(spd.deepEquals(l.dot(l.t()), 1e-10));
+
+        QRDecomposition qr = QRDecomposition.from(flatCols);
+        assertTrue(spd.deepEquals(qr.getQ().dot(qr.getR()), 1e-10));
+
+        DM sol = LUDecomposition.from(flat).solve(b);
+        assertTrue(b.deepEquals(spd.dot(sol), 1e-10));
+    }
+}
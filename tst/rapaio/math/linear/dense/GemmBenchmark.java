@@ -0,0 +1,81 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.dense;
+
+import rapaio.core.RandomSource;
+import rapaio.math.linear.DM;
+import rapaio.math.linear.decomposition.MatrixMultiplication;
+
+/**
+ * Compares the packed and blocked matrix multiplication from {@link Gemm} with the
+ * previous row parallel implementation, on square shapes and skinny shapes
+ * (tall times wide, wide times tall and tall times small square).
+ * <p>
+ * It is not a unit test, it is run manually with an optional argument for the
+ * maximum size (default 4096). The previous implementation is measured only
+ * for sizes up to 1024.
+ */
+public class GemmBenchmark {
+
+    public static void main(String[] args) {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+
+        RandomSource.setSeed(42);
+        for (int size = 64; size <= maxSize; size *= 2) {
+            run("square", size, size, size);
+            run("tall x wide", size, 64, size);
+            run("wide x tall", 64, size, 64);
+            run("tall x small", size, 64, 64);
+        }
+    }
+
+    private static void run(String name, int m, int k, int n) {
+        DM a = DMStripe.random(m, k);
+        DM b = DMStripe.random(k, n);
+        int runs = (long) m * n * k > 1L << 30 ? 1 : 5;
+
+        // warm up
+        Gemm.dot(a, b);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            Gemm.dot(a, b);
+        }
+        double gemm = (System.nanoTime() - start) / 1e6 / runs;
+
+        double ikj = Double.NaN;
+        if (Math.max(m, Math.max(n, k)) <= 1024) {
+            MatrixMultiplication.ikjParallel(a, b);
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                MatrixMultiplication.ikjParallel(a, b);
+            }
+            ikj = (System.nanoTime() - start) / 1e6 / runs;
+        }
+        double gflops = 2.0 * m * n * k / (gemm * 1e6);
+        System.out.printf("%-13s [%d x %d] * [%d x %d]: gemm %.2f ms (%.2f GFlops), ikjParallel %.2f ms%n",
+                name, m, k, k, n, gemm, gflops, ikj);
+    }
+}
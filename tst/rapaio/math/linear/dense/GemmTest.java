@@ -0,0 +1,130 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.dense;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+import rapaio.math.linear.DM;
+import rapaio.math.linear.base.DMBase;
+import rapaio.math.linear.decomposition.MatrixMultiplication;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class GemmTest {
+
+    private static final double TOL = 1e-10;
+
+    @BeforeEach
+    void beforeEach() {
+        RandomSource.setSeed(123);
+    }
+
+    @Test
+    void testShapes() {
+        int[][] shapes = new int[][]{
+                {1, 1, 1}, {3, 5, 7}, {4, 4, 4}, {17, 9, 33}, {130, 70, 150}, {300, 2, 600}, {2, 700, 3}, {257, 513, 300},
+                // single result tile with a long inner dimension which is split between threads
+                {30, 5_000, 27}
+        };
+        for (int[] shape : shapes) {
+            DM a = DMStripe.random(shape[0], shape[1]);
+            DM b = DMStripe.random(shape[1], shape[2]);
+            DM expected = MatrixMultiplication.ikjAlgorithm(a, b);
+
+            assertTrue(expected.deepEquals(Gemm.dot(a, b), TOL));
+            assertTrue(expected.deepEquals(a.dot(b), TOL));
+            // generic operands which are not backed by arrays
+            assertTrue(expected.deepEquals(Gemm.dot(a.mapRows(rowIndexes(a)), b.mapCols(colIndexes(b))), TOL));
+            // transposed operands
+            assertTrue(expected.deepEquals(Gemm.dot(a.t(), true, b, false), TOL));
+            assertTrue(expected.deepEquals(Gemm.dot(a, false, b.t(), true), TOL));
+            assertTrue(expected.deepEquals(Gemm.dot(a.t(), true, b.t(), true), TOL));
+            assertTrue(expected.deepEquals(Gemm.dot(DMBase.wrap(toArray(a.t())), true, b, false), TOL));
+            assertTrue(expected.deepEquals(a.t().tDot(b), TOL));
+        }
+    }
+
+    @Test
+    void testEmptyAndInvalid() {
+        DMStripe c = Gemm.dot(DMStripe.empty(3, 0), DMStripe.empty(0, 2));
+        assertEquals(3, c.rowCount());
+        assertEquals(2, c.colCount());
+        assertEquals(0, c.sum());
+
+        assertThrows(IllegalArgumentException.class, () -> Gemm.dot(DMStripe.empty(3, 4), DMStripe.empty(3, 4)));
+        assertThrows(IllegalArgumentException.class, () -> Gemm.dot(DMStripe.empty(3, 4), true, DMStripe.empty(4, 3), false));
+    }
+
+    @Test
+    void testScatter() {
+        DM x = DMStripe.random(300, 17);
+        DM s = x.scatter();
+
+        DM centered = x.copy();
+        for (int j = 0; j < x.colCount(); j++) {
+            double mean = x.mapCol(j).mean();
+            for (int i = 0; i < x.rowCount(); i++) {
+                centered.set(i, j, x.get(i, j) - mean);
+            }
+        }
+        DM expected = MatrixMultiplication.ikjAlgorithm(centered.t(), centered);
+        assertTrue(expected.deepEquals(s, TOL));
+        for (int i = 0; i < s.rowCount(); i++) {
+            for (int j = 0; j < s.colCount(); j++) {
+                assertEquals(s.get(i, j), s.get(j, i));
+            }
+        }
+    }
+
+    private int[] rowIndexes(DM m) {
+        int[] indexes = new int[m.rowCount()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    private int[] colIndexes(DM m) {
+        int[] indexes = new int[m.colCount()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    private double[][] toArray(DM m) {
+        double[][] array = new double[m.rowCount()][m.colCount()];
+        for (int i = 0; i < m.rowCount(); i++) {
+            for (int j = 0; j < m.colCount(); j++) {
+                array[i][j] = m.get(i, j);
+            }
+        }
+        return array;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+import rapaio.data.VarDouble;
+import rapaio.math.linear.DM;
+import rapaio.math.linear.DV;
+import rapaio.math.linear.dense.DMStripe;
+import rapaio.math.linear.dense.DVDense;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class DMSparseTest {
+
+    private static final double TOL = 1e-12;
+
+    private DMStripe dense;
+    private DMSparse csr;
+    private DMSparse csc;
+
+    @BeforeEach
+    void beforeEach() {
+        RandomSource.setSeed(42);
+        dense = DMStripe.fill(40, 15, (r, c) -> RandomSource.nextDouble() < 0.15 ? RandomSource.nextDouble() - 0.5 : 0);
+        csr = DMSparse.copy(dense, true);
+        csc = DMSparse.copy(dense, false);
+    }
+
+    @Test
+    void testBuilders() {
+        assertEquals(DM.Type.SPARSE, csr.type());
+        assertTrue(csr.isCSR());
+        assertFalse(csc.isCSR());
+        assertEquals(csr.nnz(), csc.nnz());
+        assertEquals(dense.valueStream().filter(v -> v != 0).count(), csr.nnz());
+        assertTrue(dense.deepEquals(csr));
+        assertTrue(dense.deepEquals(csc));
+        assertTrue(csc.deepEquals(csr.asCSC()));
+        assertTrue(csr.deepEquals(csc.asCSR()));
+        assertSame(csr, csr.asCSR());
+
+        DMSparse m = DMSparse.csr(2, 3, new int[]{0, 2, 3}, new int[]{0, 2, 1}, new double[]{1, 2, 3});
+        assertTrue(m.deepEquals(DMStripe.wrap(new double[][]{{1, 0, 2}, {0, 3, 0}})));
+        DMSparse n = DMSparse.csc(2, 3, new int[]{0, 1, 2, 3}, new int[]{0, 1, 0}, new double[]{1, 3, 2});
+        assertTrue(n.deepEquals(m));
+        assertThrows(IllegalArgumentException.class,
+                () -> DMSparse.csr(2, 3, new int[]{0, 2, 3}, new int[]{2, 0, 1}, new double[]{1, 2, 3}));
+
+        DMSparse vars = DMSparse.copy(VarDouble.wrap(0, 1, 0), VarDouble.wrap(2, 0, 0));
+        assertTrue(vars.deepEquals(DMStripe.wrap(new double[][]{{0, 2}, {1, 0}, {0, 0}})));
+        assertEquals(2, vars.nnz());
+    }
+
+    @Test
+    void testSetAndInc() {
+        for (DMSparse m : new DMSparse[]{DMSparse.empty(4, 5), DMSparse.empty(4, 5).asCSC()}) {
+            m.set(3, 4, 1);
+            m.set(0, 2, 2);
+            m.inc(2, 1, 3);
+            m.inc(0, 2, 1);
+            m.set(1, 1, 0);
+            assertEquals(3, m.nnz());
+            assertEquals(1, m.get(3, 4), TOL);
+            assertEquals(3, m.get(0, 2), TOL);
+            assertEquals(3, m.get(2, 1), TOL);
+            assertEquals(0, m.get(1, 1), TOL);
+        }
+    }
+
+    @Test
+    void testRowsAndCols() {
+        for (int i = 0; i < dense.rowCount(); i++) {
+            assertTrue(dense.mapRow(i).deepEquals(csr.mapRow(i)));
+            assertTrue(dense.mapRow(i).deepEquals(csc.mapRow(i)));
+            assertTrue(csr.mapRow(i).isSparse());
+        }
+        for (int j = 0; j < dense.colCount(); j++) {
+            assertTrue(dense.mapCol(j).deepEquals(csr.mapCol(j)));
+            assertTrue(dense.mapCol(j).deepEquals(csc.mapCol(j)));
+        }
+    }
+
+    @Test
+    void testTranspose() {
+        DMSparse t = csr.t();
+        assertFalse(t.isCSR());
+        assertEquals(dense.colCount(), t.rowCount());
+        assertTrue(dense.t().deepEquals(t));
+        assertTrue(dense.t().deepEquals(csc.t()));
+
+        // transpose is a view over the same values
+        int[] pointers = csr.pointers();
+        int row = 0;
+        while (pointers[row] == pointers[row + 1]) {
+            row++;
+        }
+        int col = csr.indexes()[pointers[row]];
+        csr.set(row, col, 100);
+        assertEquals(100, t.get(col, row), TOL);
+    }
+
+    @Test
+    void testTransposeStructuralChange() {
+        DMSparse m = DMSparse.csr(2, 2, new int[]{0, 1, 2}, new int[]{0, 1}, new double[]{1, 2});
+        DMSparse t = m.t();
+        t.set(1, 0, 5.0);
+
+        // source keeps its structure and values
+        assertEquals(2, m.nnz());
+        assertEquals(1, m.get(0, 0), TOL);
+        assertEquals(0, m.get(0, 1), TOL);
+        assertEquals(0, m.get(1, 0), TOL);
+        assertEquals(2, m.get(1, 1), TOL);
+
+        assertEquals(3, t.nnz());
+        assertEquals(5, t.get(1, 0), TOL);
+        assertEquals(2, t.get(1, 1), TOL);
+
+        // structural change on the source does not change the transpose
+        DMSparse s = m.t();
+        m.set(0, 1, 7.0);
+        assertEquals(0, s.get(1, 0), TOL);
+        assertEquals(7, m.get(0, 1), TOL);
+        assertTrue(DMStripe.wrap(new double[][]{{1, 7}, {0, 2}}).deepEquals(m));
+    }
+
+    @Test
+    void testProducts() {
+        DV v = DVDense.from(dense.colCount(), i -> RandomSource.nextDouble());
+        assertTrue(dense.dot(v).deepEquals(csr.dot(v)));
+        assertTrue(dense.dot(v).deepEquals(csc.dot(v)));
+        assertTrue(dense.dot(v).deepEquals(csr.dot(DVSparse.copy(v))));
+
+        DM b = DMStripe.fill(dense.colCount(), 7, (r, c) -> RandomSource.nextDouble());
+        assertTrue(dense.dot(b).deepEquals(csr.dot(b)));
+        assertTrue(dense.dot(b).deepEquals(csc.dot(b)));
+
+        DM xtx = dense.t().dot(dense);
+        assertTrue(xtx.deepEquals(csr.t().dot(csr)));
+        assertTrue(xtx.deepEquals(csc.t().dot(csc)));
+        assertTrue(xtx.deepEquals(csr.t().dot(csc)));
+        assertTrue(xtx.deepEquals(dense.tDot(dense)));
+        assertTrue(xtx.deepEquals(csr.tDot(csr)));
+        assertTrue(xtx.deepEquals(csc.tDot(dense)));
+
+        assertTrue(dense.scatter().deepEquals(csr.scatter(), 1e-10));
+        assertTrue(dense.scatter().deepEquals(csc.scatter(), 1e-10));
+    }
+
+    @Test
+    void testScaling() {
+        DV rows = DVDense.from(dense.rowCount(), i -> i + 1);
+        DV cols = DVDense.from(dense.colCount(), i -> i + 1);
+        for (DMSparse m : new DMSparse[]{csr, csc}) {
+            assertTrue(dense.copy().mult(rows, 1).deepEquals(m.copy().mult(rows, 1)));
+            assertTrue(dense.copy().mult(cols, 0).deepEquals(m.copy().mult(cols, 0)));
+            assertTrue(dense.copy().div(cols, 0).deepEquals(m.copy().div(cols, 0)));
+            assertTrue(dense.copy().mult(2).deepEquals(m.copy().mult(2)));
+            assertTrue(dense.copy().dotDiagT(rows).deepEquals(m.dotDiagT(rows)));
+            assertTrue(dense.copy().apply(x -> x * x).deepEquals(m.copy().apply(x -> x * x)));
+            assertTrue(dense.copy().apply(x -> x + 1).deepEquals(m.copy().apply(x -> x + 1)));
+        }
+    }
+
+    @Test
+    void testStatistics() {
+        for (DMSparse m : new DMSparse[]{csr, csc}) {
+            assertEquals(dense.sum(), m.sum(), TOL);
+            assertEquals(dense.variance(), m.variance(), TOL);
+            assertEquals(dense.valueStream().sum(), m.valueStream().sum(), TOL);
+            for (int axis = 0; axis < 2; axis++) {
+                assertTrue(dense.sum(axis).deepEquals(m.sum(axis)));
+                assertTrue(dense.mean(axis).deepEquals(m.mean(axis)));
+                assertTrue(dense.variance(axis).deepEquals(m.variance(axis)));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *    Copyright 2017 Aurelian Tutuianu
+ *    Copyright 2018 Aurelian Tutuianu
+ *    Copyright 2019 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.math.linear.sparse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+import rapaio.math.linear.DV;
+import rapaio.math.linear.dense.DVDense;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class DVSparseTest {
+
+    private static final double TOL = 1e-12;
+
+    private DVDense dense;
+    private DVSparse sparse;
+
+    @BeforeEach
+    void beforeEach() {
+        RandomSource.setSeed(123);
+        dense = DVDense.from(100, row -> RandomSource.nextDouble() < 0.1 ? RandomSource.nextDouble() - 0.5 : 0);
+        sparse = DVSparse.copy(dense);
+    }
+
+    @Test
+    void testBuilders() {
+        assertEquals(DV.Type.SPARSE, sparse.type());
+        assertTrue(sparse.isSparse());
+        assertEquals(100, sparse.size());
+        assertEquals(dense.valueStream().filter(v -> v != 0).count(), sparse.nnz());
+        assertTrue(sparse.deepEquals(dense));
+        assertTrue(dense.deepEquals(sparse.copy(DV.Type.DENSE)));
+
+        DVSparse zeros = DVSparse.zeros(10);
+        assertEquals(0, zeros.nnz());
+        assertEquals(0, zeros.sum());
+
+        DVSparse wrap = DVSparse.wrap(5, 2, new int[]{1, 3}, new double[]{2, 4});
+        assertTrue(wrap.deepEquals(DVDense.wrap(0, 2, 0, 4, 0)));
+        assertThrows(IllegalArgumentException.class, () -> DVSparse.wrap(5, 2, new int[]{3, 1}, new double[]{2, 4}));
+    }
+
+    @Test
+    void testSetAndInc() {
+        DVSparse v = DVSparse.zeros(10);
+        v.set(7, 7);
+        v.set(2, 2);
+        v.inc(5, 5);
+        v.set(3, 0);
+        v.inc(7, 1);
+        assertEquals(3, v.nnz());
+        assertArrayEquals(new int[]{2, 5, 7}, Arrays.copyOf(v.indexes(), v.nnz()));
+        assertTrue(v.deepEquals(DVDense.wrap(0, 0, 2, 0, 0, 5, 0, 8, 0, 0)));
+        assertThrows(IndexOutOfBoundsException.class, () -> v.get(10));
+    }
+
+    @Test
+    void testOperations() {
+        DVDense other = DVDense.from(100, row -> RandomSource.nextDouble());
+        DVSparse otherSparse = DVSparse.copy(DVDense.from(100, row -> row % 3 == 0 ? row : 0));
+
+        assertEquals(dense.dot(other), sparse.dot(other), TOL);
+        assertEquals(dense.dot(other), other.dot(sparse), TOL);
+        assertEquals(dense.dot(otherSparse), sparse.dot(otherSparse), TOL);
+
+        assertEquals(dense.sum(), sparse.sum(), TOL);
+        assertEquals(dense.mean(), sparse.mean(), TOL);
+        assertEquals(dense.variance(), sparse.variance(), TOL);
+        assertEquals(dense.norm(1), sparse.norm(1), TOL);
+        assertEquals(dense.norm(2), sparse.norm(2), TOL);
+        assertEquals(dense.norm(Double.POSITIVE_INFINITY), sparse.norm(Double.POSITIVE_INFINITY), TOL);
+
+        assertTrue(dense.copy().mult(3).deepEquals(sparse.copy().mult(3)));
+        assertTrue(dense.copy().mult(other).deepEquals(sparse.copy().mult(other)));
+        assertTrue(dense.copy().add(otherSparse).deepEquals(sparse.copy().add(otherSparse)));
+        assertTrue(dense.copy().sub(otherSparse).deepEquals(sparse.copy().sub(otherSparse)));
+        assertTrue(other.copy().add(dense).deepEquals(other.copy().add(sparse)));
+        assertTrue(other.copy().sub(dense).deepEquals(other.copy().sub(sparse)));
+
+        double[] y = other.copy().elements();
+        sparse.scatter(2, y);
+        assertTrue(other.copy().add(dense.copy().mult(2)).deepEquals(DVDense.wrap(y)));
+    }
+}
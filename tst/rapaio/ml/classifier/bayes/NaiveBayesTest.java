@@ -26,6 +26,7 @@ package rapaio.ml.classifier.bayes;
 
 import org.junit.jupiter.api.Test;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.data.SolidFrame;
 import rapaio.data.VType;
 import rapaio.data.Var;
@@ -186,6 +187,48 @@ public class NaiveBayesTest {
         }
     }
 
+    @Test
+    void testPartialFit() {
+        var iris = Datasets.loadIrisDataset();
+
+        NaiveBayes full = NaiveBayes.newModel()
+                .estimators.set(GaussianEstimator.forType(iris, VType.DOUBLE).toArray(new Estimator[0]));
+        NaiveBayes partial = NaiveBayes.newModel()
+                .estimators.set(GaussianEstimator.forType(iris, VType.DOUBLE).toArray(new Estimator[0]));
+        assertTrue(partial.capabilities().getPartialFit());
+
+        full.fit(iris, "class");
+        for (int start = 0; start < iris.rowCount(); start += 30) {
+            partial.partialFit(iris.mapRows(Mapping.range(start, start + 30)), "class");
+        }
+        assertTrue(partial.hasLearned());
+        assertEquals(full.targetLevels(), partial.targetLevels());
+        assertEquals(full.fullName(), partial.fullName());
+
+        Frame fullDensities = full.predict(iris).firstDensity();
+        Frame partialDensities = partial.predict(iris).firstDensity();
+        for (int i = 0; i < iris.rowCount(); i++) {
+            for (int j = 0; j < fullDensities.varCount(); j++) {
+                assertEquals(fullDensities.getDouble(i, j), partialDensities.getDouble(i, j), TOLERANCE);
+            }
+        }
+
+        var ex = assertThrows(IllegalStateException.class, () -> NaiveBayes.newModel()
+                .estimators.add(KernelEstimator.forName("sepal-length"))
+                .partialFit(iris, "class"));
+        assertTrue(ex.getMessage().endsWith("cannot be partially fitted."));
+
+        // a failed partial fit does not change the prior or the estimators which support updates
+        GaussianEstimator gaussian = GaussianEstimator.forName("sepal-width");
+        NaiveBayes mixed = NaiveBayes.newModel()
+                .estimators.add(gaussian, KernelEstimator.forName("sepal-length"));
+        String before = mixed.prior.get().fittedName();
+        assertThrows(IllegalStateException.class, () -> mixed.partialFit(iris, "class"));
+        assertFalse(mixed.hasLearned());
+        assertEquals(before, mixed.prior.get().fittedName());
+        assertEquals("Gaussian{test=sepal-width, values=[]}", gaussian.fittedName());
+    }
+
     @Test
     void testPrinter() {
         Frame iris = Datasets.loadIrisDataset();
@@ -72,6 +72,55 @@ public class GBTClassifierModelTest {
         assertEquals(spam.rvar("spam").levels().size(), result.firstDensity().varCount());
     }
 
+    @Test
+    void earlyStoppingTest() throws IOException {
+
+        var spam = Datasets.loadSpamBase();
+        var split = SamplingTools.trainTestSplit(spam, null, 0.8, true, "spam");
+        var model = GBTClassifierModel.newModel()
+                .model.set(RTree.newCART().maxDepth.set(3).minCount.set(5))
+                .shrinkage.set(0.5)
+                .colSample.set(0.5)
+                .patience.set(5)
+                .runs.set(100);
+        model.withValidation(split.testDf).fit(split.trainDf, "spam");
+
+        // only the best rounds are kept
+        int rounds = model.getTrees().get(0).size();
+        var scores = model.getValidationScores();
+        assertEquals(model.getBestRound(), rounds);
+        assertTrue(scores.rowCount() - rounds <= 5);
+        for (int i = 0; i < scores.rowCount(); i++) {
+            assertTrue(scores.getDouble(rounds - 1) <= scores.getDouble(i));
+        }
+
+        // prediction at a number of rounds uses only the first trees
+        var full = model.predict(split.testDf);
+        var same = model.predict(split.testDf, true, true, rounds);
+        assertTrue(full.firstDensity().deepEquals(same.firstDensity()));
+        var first = model.predict(split.testDf, true, true, 1);
+        assertFalse(full.firstDensity().deepEquals(first.firstDensity()));
+    }
+
+    @Test
+    void invalidValidationTest() throws IOException {
+        var spam = Datasets.loadSpamBase();
+        var split = SamplingTools.trainTestSplit(spam, null, 0.8, true, "spam");
+        var model = GBTClassifierModel.newModel()
+                .model.set(RTree.newCART().maxDepth.set(3).minCount.set(5))
+                .runs.set(5);
+
+        // validation rows with missing target values can't be scored
+        var missing = split.testDf.copy();
+        missing.setMissing(3, "spam");
+        var ex = assertThrows(IllegalArgumentException.class, () -> model.withValidation(missing).fit(split.trainDf, "spam"));
+        assertEquals("Validation frame has a missing or unknown target label: '?' at row 3.", ex.getMessage());
+
+        // the validation frame is discarded and the next fit does not use it
+        model.fit(split.trainDf, "spam");
+        assertEquals(0, model.getValidationScores().rowCount());
+    }
+
     @Test
     void newInstanceTest() {
         var model = GBTClassifierModel.newModel()
@@ -5,8 +5,14 @@ import org.junit.jupiter.api.Test;
 import rapaio.core.RandomSource;
 import rapaio.data.Frame;
 import rapaio.datasets.Datasets;
+import rapaio.ml.classifier.ClassifierModel;
+import rapaio.ml.classifier.ClassifierResult;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 8/14/20.
@@ -56,6 +62,24 @@ public class CForestTest {
         }
     }
 
+    @Test
+    void oobRunningHookTest() {
+        // running hook sees the oob error of the trees merged so far
+        List<Double> errors = new ArrayList<>();
+        RandomSource.setSeed(42);
+        var model = CForest.newModel().runs.set(20).oob.set(true)
+                .runningHook.set((m, run) -> errors.add(((CForest) m).getOobError()))
+                .fit(iris, "class");
+        assertEquals(20, errors.size());
+        assertEquals(model.getOobError(), errors.get(19));
+
+        for (int runs : new int[]{1, 5, 10}) {
+            RandomSource.setSeed(42);
+            var partial = CForest.newModel().runs.set(runs).oob.set(true).fit(iris, "class");
+            assertEquals(partial.getOobError(), errors.get(runs - 1));
+        }
+    }
+
     @Test
     void viInfoTest() {
         var model = CForest.newModel().runs.set(10)
@@ -74,6 +98,91 @@ public class CForestTest {
         assertEquals(4, permInfo.rowCount());
     }
 
+    @Test
+    void reproducibleParallelTest() {
+        RandomSource.setSeed(42);
+        var sequential = CForest.newModel().runs.set(20).poolSize.set(0).fit(iris, "class");
+        RandomSource.setSeed(42);
+        var parallel = CForest.newModel().runs.set(20).poolSize.set(-1).fit(iris, "class");
+
+        var d1 = sequential.predict(iris).firstDensity();
+        var d2 = parallel.predict(iris).firstDensity();
+        for (int i = 0; i < iris.rowCount(); i++) {
+            for (int j = 0; j < d1.varCount(); j++) {
+                assertEquals(d1.getDouble(i, j), d2.getDouble(i, j));
+            }
+        }
+    }
+
+    @Test
+    void reproducibleParallelVITest() {
+        RandomSource.setSeed(42);
+        var sequential = CForest.newModel().runs.set(20).poolSize.set(0)
+                .oob.set(true).viGain.set(true).viPerm.set(true).fit(iris, "class");
+        RandomSource.setSeed(42);
+        var parallel = CForest.newModel().runs.set(20).poolSize.set(-1)
+                .oob.set(true).viGain.set(true).viPerm.set(true).fit(iris, "class");
+
+        assertEquals(sequential.getOobError(), parallel.getOobError());
+        assertTrue(sequential.getGainVIInfo().deepEquals(parallel.getGainVIInfo()));
+        assertTrue(sequential.getPermVIInfo().deepEquals(parallel.getPermVIInfo()));
+    }
+
+    @Test
+    void streamedPredictionTest() {
+        // more rows than a prediction block, such that compiled trees run over several blocks
+        int[] rows = new int[30 * iris.rowCount()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i % iris.rowCount();
+        }
+        Frame bigIris = iris.mapRows(rows).copy();
+        Frame mushrooms = Datasets.loadMushrooms();
+
+        for (BaggingMode mode : BaggingMode.values()) {
+            assertStreamedPrediction(CForest.newModel().runs.set(20).baggingMode.set(mode).fit(iris, "class"), bigIris);
+            assertStreamedPrediction(CForest.newModel().runs.set(10).baggingMode.set(mode).fit(mushrooms, "classes"), mushrooms);
+        }
+    }
+
+    /**
+     * Compares the streamed prediction with the prediction obtained by collecting
+     * the results of all trees and computing densities over the collected results.
+     */
+    private void assertStreamedPrediction(CForest model, Frame df) {
+        BaggingMode mode = model.baggingMode.get();
+        ClassifierResult streamed = model.predict(df);
+
+        List<ClassifierResult> results = new ArrayList<>();
+        for (ClassifierModel predictor : model.getPredictors()) {
+            results.add(predictor.predict(df, true, true));
+        }
+        ClassifierResult collected = ClassifierResult.build(model, df, true, true);
+        mode.computeDensity(model.firstTargetLevels(), results, collected.firstClasses(), collected.firstDensity());
+
+        Frame d1 = streamed.firstDensity();
+        Frame d2 = collected.firstDensity();
+        assertEquals(d2.rowCount(), d1.rowCount());
+        assertEquals(d2.varCount(), d1.varCount());
+        for (int i = 0; i < df.rowCount(); i++) {
+            int best = 1;
+            boolean tie = false;
+            for (int j = 1; j < d2.varCount(); j++) {
+                assertEquals(d2.getDouble(i, j), d1.getDouble(i, j), 1e-12, mode.name() + " row " + i);
+                if (j > 1 && d2.getDouble(i, j) == d2.getDouble(i, best)) {
+                    tie = true;
+                }
+                if (d2.getDouble(i, j) > d2.getDouble(i, best)) {
+                    best = j;
+                    tie = false;
+                }
+            }
+            // ties are broken at random, so only rows with a single best level have a deterministic class
+            if (!tie) {
+                assertEquals(collected.firstClasses().getLabel(i), streamed.firstClasses().getLabel(i), mode.name() + " row " + i);
+            }
+        }
+    }
+
     @Test
     void printTest() {
         var model = CForest.newModel()
@@ -130,7 +239,7 @@ public class CForestTest {
                 "\n" +
                 "Fitted trees:100\n" +
                 "oob enabled:true\n" +
-                "oob error:0.04\n", model.toSummary());
+                "oob error:0.06\n", model.toSummary());
         assertEquals(model.toSummary(), model.toContent());
         assertEquals("CForest\n" +
                 "=======\n" +
@@ -157,28 +266,28 @@ public class CForestTest {
                 "\n" +
                 "Fitted trees:100\n" +
                 "oob enabled:true\n" +
-                "oob error:0.04\n" +
+                "oob error:0.06\n" +
                 "\n" +
                 "Frequency Variable Importance:\n" +
                 "        name      mean      sd     scaled score \n" +
-                "[0] petal-length 164.71 82.3588226 100          \n" +
-                "[1]  petal-width 139.03 80.1589904  84.4089612  \n" +
-                "[2] sepal-length  78.6  85.4258495  47.7202356  \n" +
-                "[3]  sepal-width  35.46 37.9205496  21.5287475  \n" +
+                "[0]  petal-width 166.57 87.1192443 100          \n" +
+                "[1] petal-length 130.19 81.265085   78.1593324  \n" +
+                "[2] sepal-length  81.06 77.8699797  48.6642253  \n" +
+                "[3]  sepal-width  37.85 41.597488   22.7231794  \n" +
                 "\n" +
                 "Gain Variable Importance:\n" +
                 "        name        mean        sd     scaled score \n" +
-                "[0] petal-length 39.5796441 28.6634617 100          \n" +
-                "[1]  petal-width 33.9636502 28.1915658  85.8109035  \n" +
-                "[2] sepal-length  9.2588583 14.0932391  23.3929801  \n" +
-                "[3]  sepal-width  1.5107091  3.6596976   3.8168839  \n" +
+                "[0]  petal-width 43.6963219 28.2739312 100          \n" +
+                "[1] petal-length 30.7332988 26.6299306  70.3338348  \n" +
+                "[2] sepal-length  8.283735  12.5080647  18.9575109  \n" +
+                "[3]  sepal-width  2.317405   5.6641488   5.3034327  \n" +
                 "\n" +
                 "Permutation Variable Importance:\n" +
                 "        name        mean        sd     scaled score \n" +
-                "[0] petal-length 39.5796441 28.6634617 100          \n" +
-                "[1]  petal-width 33.9636502 28.1915658  85.8109035  \n" +
-                "[2] sepal-length  9.2588583 14.0932391  23.3929801  \n" +
-                "[3]  sepal-width  1.5107091  3.6596976   3.8168839  \n" +
+                "[0]  petal-width 43.6963219 28.2739312 100          \n" +
+                "[1] petal-length 30.7332988 26.6299306  70.3338348  \n" +
+                "[2] sepal-length  8.283735  12.5080647  18.9575109  \n" +
+                "[3]  sepal-width  2.317405   5.6641488   5.3034327  \n" +
                 "\n", model.toFullContent());
     }
 }
@@ -1,11 +1,17 @@
 package rapaio.ml.classifier.linear;
 
 import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+import rapaio.core.distributions.Normal;
 import rapaio.data.Frame;
 import rapaio.data.SolidFrame;
+import rapaio.data.VRange;
 import rapaio.data.VType;
 import rapaio.data.VarDouble;
 import rapaio.data.VarNominal;
+import rapaio.data.filter.FOneHotEncoding;
+import rapaio.math.linear.DV;
+import rapaio.math.linear.sparse.DMSparse;
 import rapaio.ml.common.Capabilities;
 
 import java.util.Arrays;
@@ -97,4 +103,101 @@ public class BinaryLogisticTest {
         assertTrue(result2.firstClasses().deepEquals(y));
     }
 
+    @Test
+    void testPartialFit() {
+        VarDouble x = VarDouble.copy(-5, -4, -3, -2, -1, 1, 2, 3, 4, 5).name("x");
+        VarNominal y = VarNominal.copy("1", "1", "1", "1", "1", "0", "0", "0", "0", "0").name("y");
+        Frame df = SolidFrame.byVars(x, y);
+
+        var model = BinaryLogistic.newModel()
+                .init.set(BinaryLogistic.Initialize.ZERO)
+                .learningRate.set(0.5);
+        assertTrue(model.capabilities().getPartialFit());
+
+        for (int epoch = 0; epoch < 50; epoch++) {
+            model.partialFit(df.mapRows(0, 1, 8, 9), "y");
+            model.partialFit(df.mapRows(2, 3, 6, 7), "y");
+            model.partialFit(df.mapRows(4, 5), "y");
+        }
+        assertTrue(model.hasLearned());
+        assertEquals(150, model.getIterationLoss().size());
+        assertTrue(model.getIterationLoss().get(147) < model.getIterationLoss().get(0));
+        assertTrue(model.predict(df).firstClasses().deepEquals(y));
+    }
+
+    @Test
+    void testSparseInputs() {
+        // full rank inputs with many zeros and labels drawn from a logistic model, thus not separable
+        RandomSource.setSeed(42);
+        int n = 500;
+        Normal normal = Normal.std();
+        VarDouble x1 = VarDouble.from(n, row -> row % 3 == 0 ? 0 : normal.sampleNext()).name("x1");
+        VarDouble x2 = VarDouble.from(n, row -> row % 3 == 1 ? 0 : normal.sampleNext()).name("x2");
+        VarNominal y = VarNominal.from(n, row -> {
+            double z = 0.5 + x1.getDouble(row) - 2 * x2.getDouble(row);
+            return RandomSource.nextDouble() < 1 / (1 + Math.exp(-z)) ? "1" : "0";
+        }).name("y");
+        Frame df = SolidFrame.byVars(x1, x2, y);
+
+        for (BinaryLogistic.Method method : BinaryLogistic.Method.values()) {
+            var dense = BinaryLogistic.newModel()
+                    .init.set(BinaryLogistic.Initialize.ZERO)
+                    .solver.set(method)
+                    .runs.set(20)
+                    .fit(df, "y");
+            var sparse = dense.newInstance().sparse.set(true).fit(df, "y");
+
+            assertTrue(dense.isConverged());
+            assertTrue(sparse.isConverged());
+            assertEquals(dense.getIterationWeights().size(), sparse.getIterationWeights().size());
+            for (int i = 0; i < dense.getIterationWeights().size(); i++) {
+                assertTrue(dense.getIterationWeights().get(i).deepEquals(sparse.getIterationWeights().get(i), 1e-9));
+            }
+
+            // coefficients are close to the ones used to generate the labels
+            DV w = sparse.getIterationWeights().get(sparse.getIterationWeights().size() - 1);
+            assertEquals(0.5, w.get(0), 0.3);
+            assertEquals(1, w.get(1), 0.3);
+            assertEquals(-2, w.get(2), 0.3);
+        }
+    }
+
+    @Test
+    void testOneHotSparseFit() {
+        // nominal inputs encoded directly into a sparse matrix, without dense encoded variables
+        RandomSource.setSeed(42);
+        int n = 600;
+        VarNominal c1 = VarNominal.from(n, row -> "abc".substring(row % 3, row % 3 + 1)).name("c1");
+        VarNominal c2 = VarNominal.from(n, row -> RandomSource.nextDouble() < 0.5 ? "u" : "v").name("c2");
+        VarNominal y = VarNominal.from(n, row -> {
+            double z = -0.5 + ("b".equals(c1.getLabel(row)) ? 1.5 : 0) + ("v".equals(c2.getLabel(row)) ? -1 : 0)
+                    + ("c".equals(c1.getLabel(row)) ? 0.5 : 0);
+            return RandomSource.nextDouble() < 1 / (1 + Math.exp(-z)) ? "1" : "0";
+        }).name("y");
+        Frame inputs = SolidFrame.byVars(c1, c2);
+
+        FOneHotEncoding encoding = FOneHotEncoding.on(true, false, VRange.all());
+        encoding.fit(inputs);
+        DMSparse x = encoding.applySparse(inputs);
+        String[] names = encoding.encodedNames(inputs);
+
+        var sparse = BinaryLogistic.newModel()
+                .init.set(BinaryLogistic.Initialize.ZERO)
+                .runs.set(20)
+                .fit(x, names, y);
+        var dense = sparse.newInstance().fit(encoding.apply(inputs).bindVars(y), "y");
+
+        assertTrue(sparse.isConverged());
+        assertArrayEquals(dense.inputNames(), sparse.inputNames());
+        DV ws = sparse.getIterationWeights().get(sparse.getIterationWeights().size() - 1);
+        DV wd = dense.getIterationWeights().get(dense.getIterationWeights().size() - 1);
+        assertTrue(wd.deepEquals(ws, 1e-9));
+
+        var sparseResult = sparse.predict(x, true, true);
+        var denseResult = dense.predict(encoding.apply(inputs));
+        assertTrue(denseResult.firstClasses().deepEquals(sparseResult.firstClasses()));
+        for (int i = 0; i < n; i++) {
+            assertEquals(denseResult.firstDensity().getDouble(i, "1"), sparseResult.firstDensity().getDouble(i, "1"), 1e-9);
+        }
+    }
 }
@@ -30,9 +30,14 @@ import org.junit.jupiter.api.Test;
 import rapaio.core.RandomSource;
 import rapaio.core.SamplingTools;
 import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
 import rapaio.data.VRange;
+import rapaio.data.VarDouble;
+import rapaio.data.VarNominal;
+import rapaio.data.filter.FOneHotEncoding;
 import rapaio.data.filter.FStandardize;
 import rapaio.datasets.Datasets;
+import rapaio.math.linear.sparse.DMSparse;
 import rapaio.ml.classifier.svm.kernel.CauchyKernel;
 import rapaio.ml.classifier.svm.kernel.ChiSquareKernel;
 import rapaio.ml.classifier.svm.kernel.ExponentialKernel;
@@ -92,6 +97,95 @@ public class BinarySMOTest {
         assertEquals(0.8953094777562862, result.getMeanTrainScore(Accuracy.newMetric(true).getName()), 1e-7);
     }
 
+    @Test
+    void testLinearSparse() throws IOException {
+        Frame df = Datasets.loadSonar();
+        // clear small values to have a sparse input
+        Frame sparseDf = df.copy();
+        for (int j = 0; j < sparseDf.varCount() - 1; j++) {
+            for (int i = 0; i < sparseDf.rowCount(); i++) {
+                if (sparseDf.getDouble(i, j) < 0.1) {
+                    sparseDf.setDouble(i, j, 0);
+                }
+            }
+        }
+
+        RandomSource.setSeed(1);
+        BinarySMO dense = BinarySMO.newModel().kernel.set(new PolyKernel(1)).c.set(.1);
+        var denseResult = dense.fit(sparseDf, "Class").predict(sparseDf);
+
+        RandomSource.setSeed(1);
+        BinarySMO sparse = BinarySMO.newModel().kernel.set(new PolyKernel(1)).c.set(.1).sparse.set(true);
+        var sparseResult = sparse.fit(sparseDf, "Class").predict(sparseDf);
+
+        assertTrue(denseResult.firstClasses().deepEquals(sparseResult.firstClasses()));
+        assertTrue(denseResult.firstDensity().deepEquals(sparseResult.firstDensity()));
+    }
+
+    @Test
+    void testOneHotSparseFit() {
+        // nominal inputs encoded directly into a sparse matrix, without dense encoded variables
+        RandomSource.setSeed(42);
+        int n = 300;
+        VarNominal c1 = VarNominal.from(n, row -> "abcd".substring(row % 4, row % 4 + 1)).name("c1");
+        VarNominal c2 = VarNominal.from(n, row -> RandomSource.nextDouble() < 0.5 ? "u" : "v").name("c2");
+        VarNominal y = VarNominal.from(n, row -> {
+            boolean positive = "a".equals(c1.getLabel(row)) || "b".equals(c1.getLabel(row)) && "u".equals(c2.getLabel(row));
+            return (RandomSource.nextDouble() < 0.9) == positive ? "p" : "n";
+        }).name("y");
+        Frame inputs = SolidFrame.byVars(c1, c2);
+
+        FOneHotEncoding encoding = FOneHotEncoding.on(VRange.all());
+        encoding.fit(inputs);
+        DMSparse x = encoding.applySparse(inputs);
+
+        RandomSource.setSeed(1);
+        BinarySMO sparse = BinarySMO.newModel().kernel.set(new PolyKernel(1)).c.set(1.0);
+        sparse.fit(x, encoding.encodedNames(inputs), y);
+        var sparseResult = sparse.predict(x, true, true);
+
+        RandomSource.setSeed(1);
+        BinarySMO dense = sparse.newInstance();
+        var denseResult = dense.fit(encoding.apply(inputs).bindVars(y), "y").predict(encoding.apply(inputs));
+
+        assertTrue(denseResult.firstClasses().deepEquals(sparseResult.firstClasses()));
+        for (int i = 0; i < n; i++) {
+            assertEquals(denseResult.firstDensity().getDouble(i, 1), sparseResult.firstDensity().getDouble(i, 1), 1e-9);
+        }
+        assertTrue(Accuracy.newMetric().compute(y, sparseResult).getScore().getValue() > 0.8);
+    }
+
+    @Test
+    void testSmallKernelCache() {
+        VarDouble x1 = VarDouble.empty().name("x1");
+        VarDouble x2 = VarDouble.empty().name("x2");
+        VarNominal y = VarNominal.empty(0, "a", "b").name("y");
+        for (int i = 0; i < 1_000; i++) {
+            double u = RandomSource.nextDouble() * 2 - 1;
+            double v = RandomSource.nextDouble() * 2 - 1;
+            x1.addDouble(u);
+            x2.addDouble(v);
+            y.addLabel(u * u + v * v < 0.5 ? "a" : "b");
+        }
+        Frame df = SolidFrame.byVars(x1, x2, y);
+
+        RandomSource.setSeed(1);
+        BinarySMO large = BinarySMO.newModel().kernel.set(new RBFKernel(1)).maxRuns.set(50);
+        large.fit(df, "y");
+
+        // one megabyte keeps only 131 rows out of 1000
+        RandomSource.setSeed(1);
+        BinarySMO small = BinarySMO.newModel().kernel.set(new RBFKernel(1)).maxRuns.set(50).cacheSize.set(1);
+        small.fit(df, "y");
+
+        var largeResult = large.predict(df);
+        var smallResult = small.predict(df);
+        for (int i = 0; i < df.rowCount(); i++) {
+            assertEquals(largeResult.firstClasses().getLabel(i), smallResult.firstClasses().getLabel(i));
+            assertEquals(largeResult.firstDensity().getDouble(i, 1), smallResult.firstDensity().getDouble(i, 1), 1e-10);
+        }
+    }
+
     @Test
     void testMultipleKernels() throws IOException {
 
@@ -0,0 +1,135 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.classifier.svm.kernel;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.VarDouble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class KernelTest {
+
+    private static final double TOL = 1e-12;
+
+    private Frame train;
+    private Frame test;
+
+    @BeforeEach
+    void beforeEach() {
+        RandomSource.setSeed(123);
+        train = SolidFrame.byVars(
+                VarDouble.from(50, RandomSource::nextDouble).name("a"),
+                VarDouble.from(50, RandomSource::nextDouble).name("b"),
+                VarDouble.from(50, RandomSource::nextDouble).name("c"));
+        // same variables in a different order
+        test = SolidFrame.byVars(
+                VarDouble.from(10, RandomSource::nextDouble).name("c"),
+                VarDouble.from(10, RandomSource::nextDouble).name("a"),
+                VarDouble.from(10, RandomSource::nextDouble).name("b"));
+    }
+
+    @Test
+    void testRowEvaluation() {
+        String[] varNames = new String[]{"a", "b", "c"};
+        List<Kernel> kernels = List.of(
+                new CauchyKernel(1), new ChiSquareKernel(), new CircularKernel(0.5), new ExponentialKernel(1),
+                new GeneralizedMinKernel(1, 1), new GeneralizedStudentTKernel(1), new InverseMultiQuadraticKernel(1),
+                new LogKernel(1), new MinKernel(), new MultiQuadricKernel(1), new PolyKernel(1), new PolyKernel(3),
+                new PowerKernel(2), new RBFKernel(1), new RationalQuadraticKernel(1), new SigmoidKernel(1, 1),
+                new SphericalKernel(0.5), new SplineKernel(), new WaveKernel(1), new WaveletKernel(1));
+
+        for (Kernel kernel : kernels) {
+            kernel.buildKernelCache(varNames, train);
+            double[] row = new double[train.rowCount()];
+            for (int i = 0; i < train.rowCount(); i++) {
+                kernel.evalRow(i, row);
+                double[] cached = kernel.computeRow(train, i);
+                for (int j = 0; j < train.rowCount(); j++) {
+                    double expected = eval(kernel, train, i, train, j);
+                    assertEquals(expected, row[j], TOL, kernel.name());
+                    assertEquals(expected, cached[j], TOL, kernel.name());
+                    assertEquals(expected, kernel.compute(train, i, train, j), TOL, kernel.name());
+                }
+            }
+            for (int i = 0; i < train.rowCount(); i++) {
+                for (int j = 0; j < test.rowCount(); j++) {
+                    assertEquals(eval(kernel, train, i, test, j), kernel.compute(train, i, test, j), TOL, kernel.name());
+                }
+            }
+            kernel.clean();
+        }
+    }
+
+    @Test
+    void testConcurrentEvaluation() throws Exception {
+        AbstractKernel kernel = new RBFKernel(1);
+        kernel.buildKernelCache(new String[]{"a", "b", "c"}, train);
+        Frame other = test.copy();
+
+        // instances outside the snapshot use row buffers, which must not be shared between threads
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 200; round++) {
+                        for (int i = 0; i < test.rowCount(); i++) {
+                            for (int j = 0; j < other.rowCount(); j++) {
+                                if (Math.abs(eval(kernel, test, i, other, j) - kernel.eval(test, i, other, j)) > TOL) {
+                                    return false;
+                                }
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private double eval(Kernel kernel, Frame df1, int row1, Frame df2, int row2) {
+        double[] x = new double[]{df1.getDouble(row1, "a"), df1.getDouble(row1, "b"), df1.getDouble(row1, "c")};
+        double[] y = new double[]{df2.getDouble(row2, "a"), df2.getDouble(row2, "b"), df2.getDouble(row2, "c")};
+        return ((AbstractKernel) kernel).eval(x, y);
+    }
+}
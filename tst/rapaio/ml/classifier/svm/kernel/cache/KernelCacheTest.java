@@ -0,0 +1,93 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.classifier.svm.kernel.cache;
+
+import org.junit.jupiter.api.Test;
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.VarDouble;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class KernelCacheTest {
+
+    @Test
+    void testLRUEviction() {
+        Frame df = SolidFrame.byVars(VarDouble.seq(0, 99).name("x"));
+        Frame other = df.copy();
+
+        // budget smaller than one row keeps the minimum of two rows
+        LRUKernelCache cache = new LRUKernelCache(df, 0);
+        assertEquals(2, cache.capacity());
+
+        cache.storeRow(df, 1, row(100, 1));
+        cache.storeRow(df, 2, row(100, 2));
+        assertEquals(2, cache.size());
+        assertEquals(1.0 * 7, cache.retrieve(df, 1, df, 7));
+        // symmetric lookup is answered from the cached row
+        assertEquals(2.0 * 5, cache.retrieve(df, 5, df, 2));
+        assertNull(cache.retrieve(df, 3, df, 4));
+        assertNull(cache.retrieve(other, 1, other, 7));
+        assertNull(cache.retrieveRow(other, 1));
+
+        // touch row 1 and store a new row, row 2 is evicted
+        assertNotNull(cache.retrieveRow(df, 1));
+        cache.storeRow(df, 3, row(100, 3));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.retrieveRow(df, 1));
+        assertNull(cache.retrieveRow(df, 2));
+        assertNotNull(cache.retrieveRow(df, 3));
+
+        // storing an already cached row does not change the size
+        cache.storeRow(df, 3, row(100, 4));
+        assertEquals(2, cache.size());
+        assertEquals(4.0, cache.retrieveRow(df, 3)[1]);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.retrieveRow(df, 1));
+        assertNull(cache.retrieve(df, 1, df, 1));
+    }
+
+    @Test
+    void testLRUCapacity() {
+        Frame df = SolidFrame.byVars(VarDouble.seq(0, 1023).name("x"));
+        // one megabyte holds 128 rows of 1024 doubles
+        assertEquals(128, new LRUKernelCache(df, 1).capacity());
+        // capacity never exceeds the number of rows
+        assertEquals(1024, new LRUKernelCache(df, 1024).capacity());
+    }
+
+    private double[] row(int len, double factor) {
+        double[] values = new double[len];
+        for (int i = 0; i < len; i++) {
+            values[i] = factor * i;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.classifier.tree;
+
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+import rapaio.data.VarNominal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the split search of {@link CTree} with rows sorted at each node against
+ * rows presorted at root and partitioned at each split.
+ * <p>
+ * It is not a unit test, it is run manually with optional arguments: row count (default 1,000,000),
+ * number of numeric inputs (default 10) and maximum depth (default 12).
+ */
+public class CTreeBenchmark {
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int inputs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+
+        RandomSource.setSeed(42);
+        List<Var> vars = new ArrayList<>();
+        for (int i = 0; i < inputs; i++) {
+            vars.add(VarDouble.from(rows, row -> RandomSource.nextDouble()).name("x" + i));
+        }
+        double[] score = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < inputs; j++) {
+                score[i] += (j % 2 == 0 ? 1 : -1) * vars.get(j).getDouble(i) * (j + 1);
+            }
+            score[i] += RandomSource.nextDouble();
+        }
+        vars.add(VarNominal.from(rows, row -> score[row] > 0 ? "a" : "b").name("y"));
+        Frame df = SolidFrame.byVars(vars);
+
+        for (int run = 0; run < 3; run++) {
+            for (boolean presort : new boolean[]{false, true}) {
+                RandomSource.setSeed(1);
+                CTree tree = CTree.newCART().maxDepth.set(depth).minCount.set(5).presort.set(presort);
+                long start = System.currentTimeMillis();
+                tree.fit(df, "y");
+                long time = System.currentTimeMillis() - start;
+                System.out.printf("run: %d, presort: %s, nodes: %d, time: %d ms%n",
+                        run, presort, tree.countNodes(false), time);
+            }
+        }
+    }
+}
@@ -137,4 +137,55 @@ public class CTreeTest {
 
         assertEquals("CTree{purity=GiniGain,splitter=Random,varSelector=VarSelector[ALL]}", model.toString());
     }
+
+    @Test
+    void testPresortMatchesSort() {
+        Frame df = Datasets.loadIrisDataset().copy();
+        for (int i = 0; i < df.rowCount(); i += 7) {
+            df.setMissing(i, i % 4);
+        }
+        for (CTree tree : new CTree[]{CTree.newCART(), CTree.newC45(), CTree.newDecisionStump()}) {
+            RandomSource.setSeed(123);
+            CTree presorted = tree.newInstance().presort.set(true).fit(df, "class");
+            RandomSource.setSeed(123);
+            CTree sorted = tree.newInstance().presort.set(false).fit(df, "class");
+            String expected = sorted.toSummary();
+            String actual = presorted.toSummary();
+            assertEquals(expected.substring(expected.indexOf("Learned model")), actual.substring(actual.indexOf("Learned model")));
+        }
+    }
+
+    @Test
+    void testCompiledPrediction() {
+        Frame[] frames = new Frame[]{Datasets.loadIrisDataset(), Datasets.loadMushrooms()};
+        String[] targets = new String[]{"class", "classes"};
+        for (int k = 0; k < frames.length; k++) {
+            Frame df = frames[k];
+            String target = targets[k];
+            CTree tree = CTree.newCART();
+            tree.fit(df, target);
+
+            assertNotNull(tree.compile());
+
+            // insert missing values on tested variables to check the missing value routing
+            Frame test = df.copy();
+            for (String name : tree.compile().features()) {
+                for (int i = 0; i < test.rowCount(); i += 5) {
+                    test.setMissing(i, name);
+                }
+            }
+            for (Frame frame : new Frame[]{df, test}) {
+                RandomSource.setSeed(42);
+                var result = tree.predict(frame, true, true);
+                RandomSource.setSeed(42);
+                for (int i = 0; i < frame.rowCount(); i++) {
+                    var expected = tree.predictPoint(tree, tree.getRoot(), i, frame);
+                    assertEquals(expected.v1, result.firstClasses().getLabel(i));
+                    for (int j = 1; j < tree.firstTargetLevels().size(); j++) {
+                        assertEquals(expected.v2.get(tree.firstTargetLevel(j)), result.firstDensity().getDouble(i, j), 1e-12);
+                    }
+                }
+            }
+        }
+    }
 }
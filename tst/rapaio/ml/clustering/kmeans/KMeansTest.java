@@ -3,7 +3,9 @@ package rapaio.ml.clustering.kmeans;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import rapaio.core.RandomSource;
+import rapaio.core.distributions.Normal;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.data.SolidFrame;
 import rapaio.data.VarDouble;
 import rapaio.data.VarInt;
@@ -71,6 +73,35 @@ public class KMeansTest {
 
     }
 
+    @Test
+    void testPartialFit() {
+        double[] centers = new double[]{-10, 0, 10};
+        int n = 3_000;
+        VarDouble x = VarDouble.from(n, row -> Normal.of(centers[row % 3], 1).sampleNext()).name("x");
+        VarDouble y = VarDouble.from(n, row -> Normal.of(-centers[row % 3], 1).sampleNext()).name("y");
+        Frame df = SolidFrame.byVars(x, y);
+
+        KMeans model = KMeans.newModel().k.set(3).nstart.set(10).init.set(KMeansInit.PlusPlus);
+        assertTrue(model.capabilities().getPartialFit());
+        for (int start = 0; start < n; start += 100) {
+            model.partialFit(df.mapRows(Mapping.range(start, start + 100)));
+        }
+        assertTrue(model.hasLearned());
+        assertEquals(n / 100, model.getErrors().rowCount());
+
+        Frame c = model.getCentroids().refSort("x");
+        for (int i = 0; i < centers.length; i++) {
+            assertEquals(centers[i], c.getDouble(i, "x"), 0.2);
+            assertEquals(-centers[i], c.getDouble(i, "y"), 0.2);
+        }
+
+        // predictions agree with the generating clusters
+        KMeansResult result = model.predict(df);
+        for (int i = 3; i < n; i++) {
+            assertEquals(result.getAssignment().getInt(i % 3), result.getAssignment().getInt(i));
+        }
+    }
+
     @Test
     void printingTest() {
         var df = Datasets.loadOldFaithful();
@@ -108,4 +139,88 @@ public class KMeansTest {
                 "[1] 2.0964646 54.7474747 \n", model.toFullContent());
 
     }
+
+    @Test
+    void testAcceleratedMethods() {
+        Frame df = blobs(2_000, 5, 12);
+
+        for (int k : new int[]{1, 5, 12, 30}) {
+            RandomSource.setSeed(7);
+            KMeans lloyd = KMeans.newModel().k.set(k).runs.set(100).fit(df);
+            int[] expected = lloyd.predict(df).getAssignment().elements();
+
+            for (KMeansMethod method : new KMeansMethod[]{KMeansMethod.HAMERLY, KMeansMethod.ELKAN}) {
+                for (int poolSize : new int[]{0, 3}) {
+                    RandomSource.setSeed(7);
+                    KMeans model = KMeans.newModel().k.set(k).runs.set(100)
+                            .method.set(method)
+                            .poolSize.set(poolSize)
+                            .fit(df);
+
+                    // accelerated methods stop when no instance changes its cluster, lloyd
+                    // stops later, when the error does not decrease anymore
+                    int rounds = model.getErrors().rowCount();
+                    assertTrue(rounds <= lloyd.getErrors().rowCount());
+                    // without running hook, errors are computed only at start and after the last iteration
+                    assertEquals(lloyd.getErrors().getDouble(0), model.getErrors().getDouble(0), 1e-6);
+                    for (int i = 1; i < model.getErrors().rowCount() - 1; i++) {
+                        assertTrue(model.getErrors().isMissing(i));
+                    }
+                    assertEquals(lloyd.getInertia(), model.getInertia(), 1e-6);
+
+                    // with running hook, the error is computed after each iteration
+                    RandomSource.setSeed(7);
+                    VarDouble hookErrors = VarDouble.empty();
+                    KMeans hooked = KMeans.newModel().k.set(k).runs.set(100)
+                            .method.set(method)
+                            .poolSize.set(poolSize)
+                            .runningHook.set((km, run) -> hookErrors.addDouble(((KMeans) km).getInertia()))
+                            .fit(df);
+                    assertEquals(model.getErrors().rowCount(), hooked.getErrors().rowCount());
+                    assertEquals(hooked.getErrors().rowCount() - 1, hookErrors.rowCount());
+                    for (int i = 0; i < rounds; i++) {
+                        assertEquals(lloyd.getErrors().getDouble(i), hooked.getErrors().getDouble(i), 1e-6);
+                    }
+                    assertEquals(model.getInertia(), hooked.getInertia(), 1e-9);
+                    assertTrue(lloyd.getCentroidsMatrix().deepEquals(model.getCentroidsMatrix(), 1e-9));
+                    assertArrayEquals(expected, model.predict(df).getAssignment().elements());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testAcceleratedWithMissingValues() {
+        Frame df = blobs(200, 2, 3);
+        df.setMissing(3, 1);
+
+        RandomSource.setSeed(7);
+        KMeans lloyd = KMeans.newModel().k.set(3).runs.set(100).fit(df);
+        RandomSource.setSeed(7);
+        KMeans hamerly = KMeans.newModel().k.set(3).runs.set(100).method.set(KMeansMethod.HAMERLY).fit(df);
+
+        assertTrue(lloyd.getErrors().deepEquals(hamerly.getErrors()));
+        assertTrue(lloyd.getCentroidsMatrix().deepEquals(hamerly.getCentroidsMatrix()));
+    }
+
+    private Frame blobs(int n, int dim, int clusters) {
+        Normal normal = Normal.std();
+        double[][] centers = new double[clusters][dim];
+        for (int i = 0; i < clusters; i++) {
+            for (int j = 0; j < dim; j++) {
+                centers[i][j] = RandomSource.nextDouble() * 20;
+            }
+        }
+        VarDouble[] vars = new VarDouble[dim];
+        for (int j = 0; j < dim; j++) {
+            vars[j] = VarDouble.empty(n).name("x" + j);
+        }
+        for (int i = 0; i < n; i++) {
+            int cluster = RandomSource.nextInt(clusters);
+            for (int j = 0; j < dim; j++) {
+                vars[j].setDouble(i, centers[cluster][j] + normal.sampleNext());
+            }
+        }
+        return SolidFrame.byVars(vars);
+    }
 }
@@ -9,7 +9,9 @@ import rapaio.core.RandomSource;
 import rapaio.data.Frame;
 import rapaio.data.SolidFrame;
 import rapaio.data.VarNominal;
+import rapaio.datasets.Datasets;
 import rapaio.ml.classifier.rule.ZeroRule;
+import rapaio.ml.classifier.tree.CTree;
 import rapaio.ml.eval.metric.Accuracy;
 import rapaio.ml.eval.metric.ClassifierMetric;
 import rapaio.ml.eval.split.KFold;
@@ -18,6 +20,8 @@ import rapaio.ml.eval.split.Split;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 
@@ -80,4 +84,23 @@ public class ClassifierModelEvaluationTest {
         assertEquals(1, result.getTestScores().getDouble(1, "fold"));
         assertEquals(0.75, result.getTestScores().getDouble(1, metric.getName()));
     }
+
+    @Test
+    void testGridWithEarlyAbort() {
+        Frame df = Datasets.loadIrisDataset();
+        var metric = Accuracy.newMetric(true);
+        List<ClassifierEvaluation> grid = List.of(
+                ClassifierEvaluation.cv(df, "class", ZeroRule.newModel(), 5, metric),
+                ClassifierEvaluation.cv(df, "class", CTree.newCART().maxDepth.set(3), 5, metric).withTrainScores(false));
+
+        var results = ClassifierEvaluation.runGrid(grid, 2, r -> r.getMeanTestScore(metric.getName()) < 0.5);
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isAborted());
+        assertTrue(results.get(0).getTestScores().rowCount() < 5);
+        assertFalse(results.get(1).isAborted());
+        assertEquals(5, results.get(1).getTestScores().rowCount());
+        assertEquals(0, results.get(1).getTrainScores().rowCount());
+        assertTrue(results.get(1).getMeanTestScore(metric.getName()) > 0.9);
+    }
 }
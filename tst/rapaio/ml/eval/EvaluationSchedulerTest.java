@@ -0,0 +1,171 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.eval;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class EvaluationSchedulerTest {
+
+    private ForkJoinPool pool;
+
+    @AfterEach
+    void afterEach() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    @Test
+    void testAllTasksCompleted() {
+        pool = new ForkJoinPool(4);
+        EvaluationScheduler scheduler = EvaluationScheduler.of(pool);
+        List<List<Callable<Integer>>> groups = new ArrayList<>();
+        for (int g = 0; g < 5; g++) {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < 7; t++) {
+                final int value = g * 100 + t;
+                tasks.add(() -> value);
+            }
+            groups.add(tasks);
+        }
+        int[] sums = new int[5];
+        int[] counts = new int[5];
+        boolean[] aborted = scheduler.run(groups, 3, (group, value) -> {
+            sums[group] += value;
+            counts[group]++;
+            return true;
+        });
+        for (int g = 0; g < 5; g++) {
+            assertFalse(aborted[g]);
+            assertEquals(7, counts[g]);
+            assertEquals(g * 700 + 21, sums[g]);
+        }
+    }
+
+    @Test
+    void testBoundedConcurrency() {
+        pool = new ForkJoinPool(8);
+        EvaluationScheduler scheduler = EvaluationScheduler.of(pool);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(() -> {
+                int now = running.incrementAndGet();
+                maxRunning.accumulateAndGet(now, Math::max);
+                Thread.sleep(2);
+                running.decrementAndGet();
+                return 1;
+            });
+        }
+        AtomicInteger count = new AtomicInteger();
+        scheduler.run(List.of(tasks), 2, (group, value) -> {
+            count.addAndGet(value);
+            return true;
+        });
+        assertEquals(20, count.get());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void testEarlyAbort() {
+        AtomicInteger executed = new AtomicInteger();
+        List<List<Callable<Integer>>> groups = new ArrayList<>();
+        for (int g = 0; g < 2; g++) {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < 10; t++) {
+                tasks.add(executed::incrementAndGet);
+            }
+            groups.add(tasks);
+        }
+        int[] counts = new int[2];
+        boolean[] aborted = EvaluationScheduler.common().run(groups, 1, (group, value) -> {
+            counts[group]++;
+            // first group is hopeless after its first result
+            return group != 0;
+        });
+        assertTrue(aborted[0]);
+        assertFalse(aborted[1]);
+        assertEquals(1, counts[0]);
+        assertEquals(10, counts[1]);
+        assertEquals(11, executed.get());
+    }
+
+    @Test
+    void testBoundedConcurrencyWithAbort() {
+        pool = new ForkJoinPool(8);
+        EvaluationScheduler scheduler = EvaluationScheduler.of(pool);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<List<Callable<Integer>>> groups = new ArrayList<>();
+        for (int g = 0; g < 4; g++) {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < 6; t++) {
+                final int duration = t % 2 == 0 ? 1 : 10;
+                tasks.add(() -> {
+                    int now = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(now, Math::max);
+                    // busy wait which ignores interruption, as most models do
+                    long end = System.nanoTime() + duration * 1_000_000L;
+                    while (System.nanoTime() < end) {
+                        Thread.onSpinWait();
+                    }
+                    running.decrementAndGet();
+                    return 1;
+                });
+            }
+            groups.add(tasks);
+        }
+        // every group is aborted after its first result, while other tasks of the group are still running
+        boolean[] aborted = scheduler.run(groups, 2, (group, value) -> false);
+        for (boolean flag : aborted) {
+            assertTrue(flag);
+        }
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void testFailedTask() {
+        List<Callable<Integer>> tasks = List.of(() -> 1, () -> {
+            throw new IllegalArgumentException("bad fold");
+        });
+        var ex = assertThrows(IllegalStateException.class,
+                () -> EvaluationScheduler.common().run(List.of(tasks), 1, (group, value) -> true));
+        assertTrue(ex.getCause() instanceof IllegalArgumentException);
+    }
+}
@@ -3,6 +3,7 @@ package rapaio.ml.regression.boost;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import rapaio.core.RandomSource;
+import rapaio.core.SamplingTools;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
 import rapaio.datasets.Datasets;
@@ -54,6 +55,37 @@ public class GBTRegressionResultTest {
         assertTrue(err2.getDouble(err2.rowCount() - 1) < 1e-1);
     }
 
+    @Test
+    void earlyStoppingTest() throws IOException {
+        var advertise = Datasets.loadISLAdvertising().removeVars("ID");
+        var split = SamplingTools.trainTestSplit(advertise, 0.7);
+        var model = GBTRegression.newModel()
+                .runs.set(300)
+                .shrinkage.set(0.6)
+                .eps.set(1e-20)
+                .patience.set(10)
+                .model.set(RTree.newCART().maxDepth.set(3));
+        model.withValidation(split.testDf).fit(split.trainDf, "Sales");
+
+        int rounds = model.getTrees().size();
+        var scores = model.getValidationScores();
+        assertEquals(model.getBestRound(), rounds);
+        assertTrue(scores.rowCount() - rounds <= 10);
+        for (int i = 0; i < scores.rowCount(); i++) {
+            assertTrue(scores.getDouble(rounds - 1) <= scores.getDouble(i));
+        }
+
+        var full = model.predict(split.testDf, false);
+        var same = model.predict(split.testDf, false, rounds);
+        assertTrue(full.firstPrediction().deepEquals(same.firstPrediction()));
+
+        // fitted values are consistent with kept trees
+        var train = model.predict(split.trainDf, false).firstPrediction();
+        for (int i = 0; i < train.rowCount(); i++) {
+            assertEquals(train.getDouble(i), model.getFitValues().getDouble(i), 1e-9);
+        }
+    }
+
     @Test
     void printingTest() throws IOException {
         var advertise = Datasets.loadISLAdvertising().removeVars("ID");
@@ -29,11 +29,15 @@ import rapaio.core.RandomSource;
 import rapaio.core.distributions.Normal;
 import rapaio.data.BoundFrame;
 import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
 import rapaio.data.VRange;
 import rapaio.data.VarDouble;
+import rapaio.data.VarNominal;
+import rapaio.data.filter.FOneHotEncoding;
 import rapaio.datasets.Datasets;
 import rapaio.math.linear.DM;
 import rapaio.math.linear.DV;
+import rapaio.math.linear.sparse.DMSparse;
 
 import java.io.IOException;
 
@@ -268,4 +272,44 @@ public class LinearRegressionResultResultModelTest {
             assertEquals(betas.get(i, 1), secondBetas.get(i), TOL);
         }
     }
+
+    @Test
+    void testSparseInputs() throws IOException {
+        Frame df = Datasets.loadISLAdvertising().removeVars(VRange.of("ID"));
+
+        LinearRegressionModel dense = LinearRegressionModel.newModel().fit(df, "Sales", "Radio");
+        LinearRegressionModel sparse = LinearRegressionModel.newModel().sparse.set(true).fit(df, "Sales", "Radio");
+
+        assertEquals("LinearRegression{sparse=true}", sparse.fullName());
+        assertTrue(dense.getAllCoefficients().deepEquals(sparse.getAllCoefficients(), 1e-6));
+    }
+
+    @Test
+    void testOneHotSparseFit() {
+        // nominal inputs encoded directly into a sparse matrix, without dense encoded variables
+        RandomSource.setSeed(42);
+        int n = 300;
+        Normal normal = Normal.of(0, 0.1);
+        VarNominal c1 = VarNominal.from(n, row -> "abc".substring(row % 3, row % 3 + 1)).name("c1");
+        VarNominal c2 = VarNominal.from(n, row -> RandomSource.nextDouble() < 0.5 ? "u" : "v").name("c2");
+        VarDouble y = VarDouble.from(n, row -> 1 + ("b".equals(c1.getLabel(row)) ? 2 : 0)
+                + ("v".equals(c2.getLabel(row)) ? -3 : 0) + normal.sampleNext()).name("y");
+        Frame inputs = SolidFrame.byVars(c1, c2);
+
+        FOneHotEncoding encoding = FOneHotEncoding.on(true, false, VRange.all());
+        encoding.fit(inputs);
+        DMSparse x = encoding.applySparse(inputs);
+
+        LinearRegressionModel sparse = LinearRegressionModel.newModel().fit(x, encoding.encodedNames(inputs), y);
+        LinearRegressionModel dense = LinearRegressionModel.newModel().fit(encoding.apply(inputs).bindVars(y), "y");
+
+        assertArrayEquals(dense.inputNames(), sparse.inputNames());
+        assertTrue(dense.getAllCoefficients().deepEquals(sparse.getAllCoefficients(), 1e-9));
+
+        VarDouble sparsePrediction = sparse.predict(x).firstPrediction();
+        VarDouble densePrediction = dense.predict(encoding.apply(inputs)).firstPrediction();
+        for (int i = 0; i < n; i++) {
+            assertEquals(densePrediction.getDouble(i), sparsePrediction.getDouble(i), 1e-9);
+        }
+    }
 }
@@ -3,6 +3,7 @@ package rapaio.ml.regression.simple;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import rapaio.data.Frame;
+import rapaio.data.Mapping;
 import rapaio.data.SolidFrame;
 import rapaio.data.Var;
 import rapaio.data.VarDouble;
@@ -10,7 +11,9 @@ import rapaio.datasets.Datasets;
 
 import java.io.IOException;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 7/9/19.
@@ -253,4 +256,21 @@ public class L2RegressionResultTest {
             assertEquals(model.getMeans()[0], result.firstPrediction().getDouble(i), TOL);
         }
     }
+
+    @Test
+    void testPartialFit() {
+        L2Regression full = L2Regression.newModel().fit(df, "Sales,Radio");
+        L2Regression partial = L2Regression.newModel();
+        assertTrue(partial.capabilities().getPartialFit());
+        for (int start = 0; start < df.rowCount(); start += 50) {
+            partial.partialFit(df.mapRows(Mapping.range(start, start + 50)), "Sales,Radio");
+        }
+        assertTrue(partial.isFitted());
+        assertArrayEquals(full.getMeans(), partial.getMeans(), 1e-12);
+
+        // partial fit continues from a fitted model
+        L2Regression model = L2Regression.newModel().fit(df.mapRows(Mapping.range(0, 120)), "Sales,Radio");
+        model.partialFit(df.mapRows(Mapping.range(120, df.rowCount())), "Sales,Radio");
+        assertArrayEquals(full.getMeans(), model.getMeans(), 1e-12);
+    }
 }
@@ -28,6 +28,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import rapaio.core.RandomSource;
 import rapaio.core.SamplingTools;
+import rapaio.core.stat.Mean;
+import rapaio.core.stat.WeightedMean;
 import rapaio.data.Frame;
 import rapaio.data.SolidFrame;
 import rapaio.data.VRange;
@@ -44,6 +46,7 @@ import rapaio.ml.eval.metric.RegressionScore;
 import rapaio.ml.loss.L2Loss;
 import rapaio.ml.regression.RegressionModel;
 import rapaio.ml.regression.RegressionResult;
+import rapaio.ml.regression.tree.rtree.Node;
 import rapaio.ml.regression.tree.rtree.Search;
 import rapaio.ml.regression.tree.rtree.Splitter;
 
@@ -269,4 +272,95 @@ public class RTreeTest {
 
         assertTrue(dsRSquare < treeRSquare);
     }
+
+    @Test
+    void testHistogramSearch() throws IOException {
+        Frame df = Datasets.loadISLAdvertising().removeVars(VRange.of("ID"));
+
+        // all variables have less distinct values than bins, thus the splits are identical
+        RandomSource.setSeed(123);
+        RTree exact = RTree.newCART().maxDepth.set(6).minCount.set(2);
+        exact.fit(df, "Sales");
+
+        RandomSource.setSeed(123);
+        RTree binned = RTree.newCART().maxDepth.set(6).minCount.set(2).bins.set(255);
+        binned.fit(df, "Sales");
+
+        String exactSummary = exact.toSummary();
+        String binnedSummary = binned.toSummary();
+        assertEquals(exactSummary.substring(exactSummary.indexOf("description")),
+                binnedSummary.substring(binnedSummary.indexOf("description")));
+
+        // coarse bins are still able to fit the data
+        RTree coarse = RTree.newCART().maxDepth.set(6).minCount.set(2).bins.set(16);
+        coarse.fit(df, "Sales");
+        assertTrue(coarse.predict(df, true).rSquare("Sales") > 0.9);
+    }
+
+    @Test
+    void testHistogramSearchWithColumnSampling() throws IOException {
+        Frame df = Datasets.loadISLAdvertising().removeVars(VRange.of("ID"));
+
+        // histograms are built on demand for sampled columns, splits must match the exact search
+        for (int maxDepth : new int[]{6, Integer.MAX_VALUE}) {
+            RandomSource.setSeed(42);
+            RTree exact = RTree.newCART().maxDepth.set(maxDepth).minCount.set(2)
+                    .varSelector.set(VarSelector.fixed(1));
+            exact.fit(df, "Sales");
+
+            RandomSource.setSeed(42);
+            RTree binned = RTree.newCART().maxDepth.set(maxDepth).minCount.set(2)
+                    .varSelector.set(VarSelector.fixed(1)).bins.set(255);
+            binned.fit(df, "Sales");
+
+            String exactSummary = exact.toSummary();
+            String binnedSummary = binned.toSummary();
+            assertEquals(exactSummary.substring(exactSummary.indexOf("description")),
+                    binnedSummary.substring(binnedSummary.indexOf("description")));
+        }
+    }
+
+    @Test
+    void testCompiledPrediction() {
+        // iris has numeric variables and a nominal variable which can be tested by the tree
+        Frame df = Datasets.loadIrisDataset();
+        RTree tree = RTree.newCART().maxDepth.set(8);
+        tree.fit(df, "sepal-length");
+
+        assertNotNull(tree.compile());
+        assertEquals(tree.compile(), tree.compile());
+
+        // insert missing values on tested variables to check the missing value routing
+        Frame test = df.copy();
+        for (String name : tree.compile().features()) {
+            for (int i = 0; i < test.rowCount(); i += 7) {
+                test.setMissing(i, name);
+            }
+        }
+        for (Frame frame : new Frame[]{df, test}) {
+            RegressionResult result = tree.predict(frame, false);
+            for (int i = 0; i < frame.rowCount(); i++) {
+                assertEquals(traverse(tree.root(), i, frame)[0], result.firstPrediction().getDouble(i), TOL);
+            }
+        }
+    }
+
+    private double[] traverse(Node node, int row, Frame df) {
+        if (node.leaf) {
+            return new double[]{node.value, node.weight};
+        }
+        for (Node child : node.children) {
+            if (child.predicate.test(row, df)) {
+                return traverse(child, row, df);
+            }
+        }
+        VarDouble values = VarDouble.empty();
+        VarDouble weights = VarDouble.empty();
+        for (Node child : node.children) {
+            double[] prediction = traverse(child, row, df);
+            values.addDouble(prediction[0]);
+            weights.addDouble(prediction[1]);
+        }
+        return new double[]{WeightedMean.of(values, weights).value(), Mean.of(weights).value()};
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Apache License
+ * Version 2.0, January 2004
+ * http://www.apache.org/licenses/
+ *
+ *    Copyright 2013 Aurelian Tutuianu
+ *    Copyright 2014 Aurelian Tutuianu
+ *    Copyright 2015 Aurelian Tutuianu
+ *    Copyright 2016 Aurelian Tutuianu
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ */
+
+package rapaio.ml.regression.tree.rtree;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+import rapaio.data.Frame;
+import rapaio.data.SolidFrame;
+import rapaio.data.VarDouble;
+import rapaio.ml.regression.tree.RTree;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class HistogramTest {
+
+    private Frame df;
+
+    @BeforeEach
+    void beforeEach() {
+        RandomSource.setSeed(42);
+        VarDouble x = VarDouble.empty().name("x");
+        VarDouble y = VarDouble.empty().name("y");
+        for (int i = 0; i < 1_000; i++) {
+            double value = RandomSource.nextDouble() * 10;
+            x.addDouble(i % 97 == 0 ? Double.NaN : value);
+            y.addDouble(value < 3 ? 1 : (value < 7 ? 5 : 2) + RandomSource.nextDouble());
+        }
+        df = SolidFrame.byVars(x, y);
+    }
+
+    @Test
+    void testBinning() {
+        BinnedFrame bf = BinnedFrame.of(df, List.of("x"), 32);
+        assertEquals(1, bf.columnCount());
+        assertEquals(0, bf.columnIndex("x"));
+        assertEquals(-1, bf.columnIndex("y"));
+        assertTrue(bf.bins(0) <= 32);
+
+        for (int i = 0; i < df.rowCount(); i++) {
+            if (df.isMissing(i, "x")) {
+                assertEquals(BinnedFrame.MISSING, bf.code(0, i));
+                continue;
+            }
+            for (int j = 0; j < df.rowCount(); j++) {
+                if (df.isMissing(j, "x")) {
+                    continue;
+                }
+                if (df.getDouble(i, "x") < df.getDouble(j, "x")) {
+                    assertTrue(bf.code(0, i) <= bf.code(0, j));
+                }
+            }
+        }
+
+        BinnedFrame small = BinnedFrame.of(SolidFrame.byVars(VarDouble.copy(1, 1, 2, 3, 3, 3).name("x")), List.of("x"), 255);
+        assertEquals(3, small.bins(0));
+        assertEquals(1.5, small.threshold(0, 0, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> BinnedFrame.of(df, List.of("x"), 256));
+    }
+
+    @Test
+    void testSubtraction() {
+        BinnedFrame bf = BinnedFrame.of(df, List.of("x"), 64);
+        RTree tree = RTree.newCART();
+
+        double[] w = new double[df.rowCount()];
+        double[] y = new double[df.rowCount()];
+        int[] all = new int[df.rowCount()];
+        for (int i = 0; i < df.rowCount(); i++) {
+            w[i] = 1;
+            y[i] = df.getDouble(i, "y");
+            all[i] = i;
+        }
+        int[] left = new int[df.rowCount() / 3];
+        double[] leftW = new double[left.length];
+        double[] leftY = new double[left.length];
+        int[] right = new int[df.rowCount() - left.length];
+        double[] rightW = new double[right.length];
+        double[] rightY = new double[right.length];
+        for (int i = 0; i < df.rowCount(); i++) {
+            if (i < left.length) {
+                left[i] = i;
+                leftW[i] = 1;
+                leftY[i] = y[i];
+            } else {
+                right[i - left.length] = i;
+                rightW[i - left.length] = 1;
+                rightY[i - left.length] = y[i];
+            }
+        }
+
+        Histogram parent = Histogram.build(bf, 0, all, w, y);
+        Histogram direct = Histogram.build(bf, 0, right, rightW, rightY);
+        Histogram subtracted = parent.copy().subtract(Histogram.build(bf, 0, left, leftW, leftY));
+
+        Optional<Candidate> c1 = direct.computeCandidate(tree, bf, 0);
+        Optional<Candidate> c2 = subtracted.computeCandidate(tree, bf, 0);
+        assertTrue(c1.isPresent());
+        assertTrue(c2.isPresent());
+        assertEquals(c1.get().getScore(), c2.get().getScore(), 1e-9);
+        assertEquals(c1.get().getGroupNames(), c2.get().getGroupNames());
+
+        // best split on full data separates the first step of the target
+        Optional<Candidate> c = parent.computeCandidate(tree, bf, 0);
+        assertTrue(c.isPresent());
+        assertEquals("x", c.get().getTestName());
+        double threshold = Double.parseDouble(c.get().getGroupNames().get(0).substring("x <= ".length()));
+        assertTrue(Math.abs(threshold - 3) < 0.5 || Math.abs(threshold - 7) < 0.5);
+    }
+}
@@ -2,7 +2,11 @@ package rapaio.ts;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+import rapaio.core.distributions.Normal;
+import rapaio.data.Var;
 import rapaio.data.VarDouble;
+import rapaio.data.VarInt;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -85,4 +89,49 @@ public class AcfTest {
             assertEquals(cov3.getDouble(i), acf3.covariance().getDouble(i), TOL);
         }
     }
+
+    @Test
+    void fftTest() {
+        RandomSource.setSeed(123);
+        Normal normal = Normal.of(10, 2);
+        Var ts = VarDouble.from(3_000, normal::sampleNext).name("ts");
+
+        // many lags on a long series are computed through the power spectrum
+        Acf acf = Acf.from(ts, 1_000);
+        double[] expected = directCovariance(ts, acf.lags());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], acf.covariance().getDouble(i), 1e-12);
+            assertEquals(expected[i] / expected[0], acf.correlation().getDouble(i), 1e-12);
+        }
+
+        VarInt lags = VarInt.wrap(0, 7, 3, 2_999, 3_000, 5_000);
+        VarInt many = VarInt.seq(0, 500);
+        for (int i = 0; i < lags.rowCount(); i++) {
+            many.addInt(lags.getInt(i));
+        }
+        acf = Acf.from(ts, many);
+        expected = directCovariance(ts, many);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], acf.covariance().getDouble(i), 1e-12);
+        }
+        assertEquals(0.0, acf.covariance().getDouble(many.rowCount() - 1));
+    }
+
+    private static double[] directCovariance(Var ts, VarInt lags) {
+        int n = ts.rowCount();
+        double mu = 0;
+        for (int i = 0; i < n; i++) {
+            mu += ts.getDouble(i);
+        }
+        mu /= n;
+        double[] cov = new double[lags.rowCount()];
+        for (int i = 0; i < lags.rowCount(); i++) {
+            int lag = lags.getInt(i);
+            for (int j = 0; j + lag < n; j++) {
+                cov[i] += (ts.getDouble(j) - mu) * (ts.getDouble(j + lag) - mu);
+            }
+            cov[i] /= n;
+        }
+        return cov;
+    }
 }
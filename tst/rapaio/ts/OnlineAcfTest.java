@@ -0,0 +1,67 @@
+package rapaio.ts;
+
+import org.junit.jupiter.api.Test;
+import rapaio.core.RandomSource;
+import rapaio.core.distributions.Normal;
+import rapaio.data.Mapping;
+import rapaio.data.Var;
+import rapaio.data.VarDouble;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a>.
+ */
+public class OnlineAcfTest {
+
+    private static final double TOL = 1e-10;
+
+    @Test
+    void streamingTest() {
+        RandomSource.setSeed(42);
+        Normal normal = Normal.of(100, 3);
+        Var ts = VarDouble.from(2_000, normal::sampleNext).name("ts");
+
+        OnlineAcf online = OnlineAcf.of(30);
+        int[] checkpoints = {1, 2, 5, 29, 30, 31, 100, 777, 2_000};
+        int pos = 0;
+        for (int checkpoint : checkpoints) {
+            while (pos < checkpoint) {
+                online.update(ts.getDouble(pos++));
+            }
+            assertEquals(checkpoint, online.n());
+
+            Var head = ts.mapRows(Mapping.range(checkpoint));
+            Acf expected = Acf.from(head, 30);
+            Acf acf = online.acf();
+            for (int i = 0; i < 30; i++) {
+                assertEquals(i, acf.lags().getInt(i));
+                assertEquals(expected.covariance().getDouble(i), acf.covariance().getDouble(i), TOL);
+                assertEquals(expected.correlation().getDouble(i), acf.correlation().getDouble(i), TOL);
+            }
+            if (checkpoint > 30) {
+                Pacf expectedPacf = Pacf.from(head, 29);
+                Pacf pacf = online.pacf();
+                for (int i = 0; i < 29; i++) {
+                    assertEquals(expectedPacf.values().getDouble(i), pacf.values().getDouble(i), TOL);
+                }
+            }
+        }
+    }
+
+    @Test
+    void constantTest() {
+        OnlineAcf online = OnlineAcf.of(5).update(VarDouble.fill(20, 1));
+        Acf acf = online.acf();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0.0, acf.covariance().getDouble(i));
+            assertTrue(acf.correlation().isMissing(i));
+        }
+    }
+
+    @Test
+    void invalidTest() {
+        assertThrows(IllegalArgumentException.class, () -> OnlineAcf.of(0));
+        assertThrows(IllegalArgumentException.class, () -> OnlineAcf.of(3).update(Double.NaN));
+    }
+}
@@ -4,8 +4,10 @@ package rapaio.ts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import rapaio.data.VarDouble;
+import rapaio.data.VarInt;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Created by <a href="mailto:padreati@yahoo.com">Aurelian Tutuianu</a> on 10/3/17.
@@ -67,4 +69,16 @@ public class PacfTest {
             assertEquals(ref3.getDouble(i), pacf3.values().getDouble(i), TOL, "err at i=" + i);
         }
     }
+
+    @Test
+    void fromAcfTest() {
+        Pacf pacf = Pacf.from(Acf.from(ts3, ts3.rowCount()));
+        assertEquals(ts3.rowCount() - 1, pacf.values().rowCount());
+        for (int i = 0; i < pacf.values().rowCount(); i++) {
+            assertEquals(i + 1, pacf.lags().getInt(i));
+            assertEquals(ref3.getDouble(i), pacf.values().getDouble(i), TOL);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> Pacf.from(Acf.from(ts3, VarInt.wrap(0, 2, 3))));
+    }
 }